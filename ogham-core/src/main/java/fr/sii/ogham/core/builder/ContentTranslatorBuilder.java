@@ -1,6 +1,12 @@
 package fr.sii.ogham.core.builder;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Executor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,6 +16,7 @@ import fr.sii.ogham.core.id.generator.SequentialIdGenerator;
 import fr.sii.ogham.core.message.content.EmailVariant;
 import fr.sii.ogham.core.message.content.MultiContent;
 import fr.sii.ogham.core.message.content.MultiTemplateContent;
+import fr.sii.ogham.core.message.content.StreamingContent;
 import fr.sii.ogham.core.mimetype.MimeTypeProvider;
 import fr.sii.ogham.core.mimetype.TikaProvider;
 import fr.sii.ogham.core.resource.resolver.FirstSupportingResourceResolver;
@@ -26,10 +33,15 @@ import fr.sii.ogham.html.inliner.impl.jsoup.JsoupBase64ImageInliner;
 import fr.sii.ogham.html.inliner.impl.jsoup.JsoupCssInliner;
 import fr.sii.ogham.html.translator.InlineCssTranslator;
 import fr.sii.ogham.html.translator.InlineImageTranslator;
+import fr.sii.ogham.i18n.ContextLanguageResolver;
+import fr.sii.ogham.i18n.LanguageResolver;
 import fr.sii.ogham.template.common.adapter.ExtensionMappingVariantResolver;
 import fr.sii.ogham.template.common.adapter.FailIfNotFoundVariantResolver;
 import fr.sii.ogham.template.common.adapter.FirstExistingResourceVariantResolver;
 import fr.sii.ogham.template.common.adapter.NullVariantResolver;
+import fr.sii.ogham.template.common.adapter.PathLister;
+import fr.sii.ogham.template.common.adapter.VariantResolver;
+import fr.sii.ogham.template.placeholder.builder.PlaceholderTemplateParserBuilder;
 
 /**
  * Builder for constructing a chained translator. Each translator is able to
@@ -56,12 +68,24 @@ public class ContentTranslatorBuilder implements Builder<ContentTranslator> {
 	 */
 	private boolean enableMultiContent;
 
+	/**
+	 * The executor used to translate the sub contents of a
+	 * {@link MultiContent} concurrently (null to translate them sequentially)
+	 */
+	private Executor multiContentExecutor;
+
 	/**
 	 * If true, a {@link InlineCssTranslator} and a
 	 * {@link InlineImageTranslator} are added
 	 */
 	private boolean enableInlining;
 
+	/**
+	 * The maximum number of Mime Types of inlined images kept in cache (0 to
+	 * disable the cache)
+	 */
+	private long imageMimetypeCacheSize = MimetypeProviderBuilder.DEFAULT_CACHE_SIZE;
+
 	/**
 	 * If false, it allows to provide only one file for a
 	 * {@link MultiTemplateContent}. It means that if only the HTML template is
@@ -70,6 +94,23 @@ public class ContentTranslatorBuilder implements Builder<ContentTranslator> {
 	 */
 	private boolean failOnMissingVariant;
 
+	/**
+	 * If true, the templates are rendered directly into the message when it
+	 * is sent
+	 */
+	private boolean streaming;
+
+	/**
+	 * Resolves the locale used to select and render the localized templates
+	 * (null if templates are not localized)
+	 */
+	private LanguageResolver languageResolver;
+
+	/**
+	 * The lookups of the templates to index when the translator is built
+	 */
+	private List<String> indexedLookups = new ArrayList<>();
+
 	/**
 	 * Generate a chain translator that delegates translation of content to all
 	 * enabled translators.
@@ -87,24 +128,47 @@ public class ContentTranslatorBuilder implements Builder<ContentTranslator> {
 			LOG.debug("Registering content translator that parses templates using {}", templateParser);
 			// TODO: provide possibility to define custom variant mapping
 			// @formatter:off
-			translator.addTranslator(new TemplateContentTranslator(templateParser, 
-					new FirstExistingResourceVariantResolver(templateBuilder.getResolverBuilder().build(), 
-							failOnMissingVariant ? new FailIfNotFoundVariantResolver() : new NullVariantResolver(),
-							new ExtensionMappingVariantResolver().register(EmailVariant.HTML, "html").register(EmailVariant.TEXT, "txt"), 
-							new ExtensionMappingVariantResolver().register(EmailVariant.HTML, "html.ftl").register(EmailVariant.TEXT, "txt.ftl"))));
+			List<VariantResolver> variantMappings = new ArrayList<>();
+			variantMappings.add(new ExtensionMappingVariantResolver().register(EmailVariant.HTML, "html").register(EmailVariant.TEXT, "txt"));
+			variantMappings.add(new ExtensionMappingVariantResolver().register(EmailVariant.HTML, "html.ftl").register(EmailVariant.TEXT, "txt.ftl"));
+			if (templateBuilder.hasParserBuilder(PlaceholderTemplateParserBuilder.class)) {
+				variantMappings.add(new ExtensionMappingVariantResolver().register(EmailVariant.HTML, "html.tpl").register(EmailVariant.TEXT, "txt.tpl"));
+			}
+			// existence checks are cached only if they are invalidated on change
+			boolean watched = templateBuilder.getResourceWatcher() != null;
+			FirstExistingResourceVariantResolver variantResolver = new FirstExistingResourceVariantResolver(templateBuilder.getResolverBuilder().build(), 
+					failOnMissingVariant ? new FailIfNotFoundVariantResolver() : new NullVariantResolver(),
+					variantMappings, 
+					watched ? FirstExistingResourceVariantResolver.DEFAULT_CACHE_SIZE : 0);
 			// @formatter:on
+			if (languageResolver != null) {
+				LOG.debug("Localized templates are resolved using {}", languageResolver);
+				variantResolver.localize(languageResolver);
+			}
+			index(variantResolver);
+			if (watched) {
+				LOG.debug("Template files are watched => cached variants are invalidated on change");
+				templateBuilder.getResourceWatcher().addListener(variantResolver);
+			}
+			translator.addTranslator(new TemplateContentTranslator(templateParser, variantResolver, streaming, languageResolver));
 		}
 		if (enableMultiContent) {
 			LOG.debug("Multi-content transformation is enabled");
-			translator.addTranslator(new MultiContentTranslator(translator));
+			if (multiContentExecutor != null) {
+				LOG.debug("Sub contents are translated concurrently");
+			}
+			translator.addTranslator(new MultiContentTranslator(translator, multiContentExecutor));
 		}
 		if (enableInlining) {
+			if (streaming) {
+				throw new BuildException("Template streaming can't be combined with inlining: the streamed contents are not available as string. Disable inlining or streaming");
+			}
 			// TODO: extract inliners init to their own builders
 			FirstSupportingResourceResolver resolver = new FirstSupportingResourceResolverBuilder().useDefaults().build();
 			LOG.debug("CSS inlining is enabled");
 			translator.addTranslator(new InlineCssTranslator(new JsoupCssInliner(), resolver));
 			LOG.debug("Image inlining is enabled");
-			MimeTypeProvider mimetypeProvider = new TikaProvider();
+			MimeTypeProvider mimetypeProvider = new MimetypeProviderBuilder().register(new TikaProvider()).cache(imageMimetypeCacheSize).build();
 			ImageInliner imageInliner = new EveryImageInliner(new JsoupAttachImageInliner(new SequentialIdGenerator()), new JsoupBase64ImageInliner());
 			translator.addTranslator(new InlineImageTranslator(imageInliner, resolver, mimetypeProvider));
 		}
@@ -190,6 +254,35 @@ public class ContentTranslatorBuilder implements Builder<ContentTranslator> {
 		return this;
 	}
 
+	/**
+	 * <p>
+	 * Translate the sub contents of a {@link MultiContent} (HTML and text
+	 * templates for example) concurrently instead of sequentially using the
+	 * provided executor. The translation time of a message is then the time
+	 * of the slowest sub content instead of the sum. The order of the sub
+	 * contents is preserved.
+	 * </p>
+	 * <p>
+	 * The executor is shared by all the messages and may be shared with other
+	 * parts of the application. The calling thread also translates sub
+	 * contents so the pool can be small. The executor is owned by the caller:
+	 * it is never shut down by Ogham.
+	 * </p>
+	 * <p>
+	 * This has no effect if multi-content management is not enabled (see
+	 * {@link #withMultiContentSupport()}).
+	 * </p>
+	 * 
+	 * @param executor
+	 *            the executor used to translate the sub contents (null to
+	 *            translate them sequentially)
+	 * @return this builder instance for fluent use
+	 */
+	public ContentTranslatorBuilder parallelMultiContent(Executor executor) {
+		multiContentExecutor = executor;
+		return this;
+	}
+
 	/**
 	 * Enable the management of resource inlining:
 	 * <ul>
@@ -205,7 +298,33 @@ public class ContentTranslatorBuilder implements Builder<ContentTranslator> {
 	 *      management
 	 */
 	public ContentTranslatorBuilder withInlining() {
-		enableInlining = true;
+		return withInlining(true);
+	}
+
+	/**
+	 * Enable or disable the management of resource inlining (see
+	 * {@link #withInlining()}). Inlining must be disabled to use streaming
+	 * (see {@link #streaming(boolean)}).
+	 * 
+	 * @param enable
+	 *            true to inline CSS and images, false otherwise
+	 * @return this builder instance for fluent use
+	 */
+	public ContentTranslatorBuilder withInlining(boolean enable) {
+		enableInlining = enable;
+		return this;
+	}
+
+	/**
+	 * Set the maximum number of Mime Types of inlined images kept in cache. The
+	 * same image inlined in many messages is analyzed only once.
+	 * 
+	 * @param maxEntries
+	 *            the maximum number of cached Mime Types (0 to disable cache)
+	 * @return this builder instance for fluent use
+	 */
+	public ContentTranslatorBuilder cacheImageMimetypes(long maxEntries) {
+		imageMimetypeCacheSize = maxEntries;
 		return this;
 	}
 
@@ -233,6 +352,106 @@ public class ContentTranslatorBuilder implements Builder<ContentTranslator> {
 		return this;
 	}
 
+	/**
+	 * <p>
+	 * Render the templates directly into the message (MIME body part, HTTP
+	 * request...) instead of rendering them as string. The template is
+	 * rendered once per message before it is sent and the big results are
+	 * kept in a temporary file, so the result of a template is never held
+	 * entirely in memory. It is useful for large contents sent concurrently.
+	 * </p>
+	 * <p>
+	 * The streamed contents are not available as string, so they can't be
+	 * updated by the translators that need the whole string. The build fails
+	 * if streaming is combined with inlining (see
+	 * {@link #withInlining(boolean)}), with subjects extracted from the
+	 * templates or with recipient chunking.
+	 * </p>
+	 * <p>
+	 * Streaming is disabled by default.
+	 * </p>
+	 * 
+	 * @param streaming
+	 *            true to render the templates into the message when it is
+	 *            sent
+	 * @return this builder instance for fluent use
+	 * @see StreamingContent
+	 */
+	public ContentTranslatorBuilder streaming(boolean streaming) {
+		this.streaming = streaming;
+		return this;
+	}
+
+	/**
+	 * Indicates if the templates are rendered directly into the message.
+	 * 
+	 * @return true if streaming is enabled
+	 */
+	public boolean isStreaming() {
+		return streaming;
+	}
+
+	/**
+	 * <p>
+	 * Use the localized versions of the templates. The locale of the
+	 * recipient is resolved from the context of the template (see
+	 * {@link ContextLanguageResolver}): either the locale of a
+	 * {@link fr.sii.ogham.core.template.context.LocaleContext} or the
+	 * "locale" variable.
+	 * </p>
+	 * 
+	 * @return this builder instance for fluent use
+	 * @see #localize(LanguageResolver)
+	 */
+	public ContentTranslatorBuilder localize() {
+		return localize(new ContextLanguageResolver());
+	}
+
+	/**
+	 * <p>
+	 * Use the localized versions of the templates. For a template named
+	 * "register" and the "fr_CA" locale, "register_fr_CA" is used if it
+	 * exists, else "register_fr" and finally "register". The resolved locale
+	 * is also provided to the template engine to render the template.
+	 * </p>
+	 * <p>
+	 * The existence of each localized template is checked only once. To avoid
+	 * any check, index the templates (see {@link #indexTemplates(String...)}).
+	 * </p>
+	 * 
+	 * @param languageResolver
+	 *            resolves the locale of the recipient
+	 * @return this builder instance for fluent use
+	 */
+	public ContentTranslatorBuilder localize(LanguageResolver languageResolver) {
+		this.languageResolver = languageResolver;
+		return this;
+	}
+
+	/**
+	 * <p>
+	 * List the templates available in the parent path for each lookup when
+	 * the translator is built. The existence of the templates (variants and
+	 * localized versions) is then never checked: a template of an indexed
+	 * lookup that is not listed is considered missing. Templates in jars can
+	 * be indexed.
+	 * </p>
+	 * <p>
+	 * Only index the lookups for which all the templates are under the parent
+	 * path. When the template files are watched (see
+	 * {@link TemplateBuilder#watchFiles()}), the templates are listed again on
+	 * each change.
+	 * </p>
+	 * 
+	 * @param lookups
+	 *            the lookups to index ("classpath:" and/or "file:")
+	 * @return this builder instance for fluent use
+	 */
+	public ContentTranslatorBuilder indexTemplates(String... lookups) {
+		indexedLookups.addAll(Arrays.asList(lookups));
+		return this;
+	}
+
 	/**
 	 * Tells the builder to use all default behaviors and values. It will enable
 	 * default template management and default multi-content support management.
@@ -292,4 +511,19 @@ public class ContentTranslatorBuilder implements Builder<ContentTranslator> {
 	public TemplateBuilder getTemplateBuilder() {
 		return templateBuilder;
 	}
+
+	private void index(FirstExistingResourceVariantResolver variantResolver) {
+		for (final String lookup : indexedLookups) {
+			try {
+				variantResolver.index(lookup, new PathLister() {
+					@Override
+					public Collection<String> list() throws IOException {
+						return templateBuilder.scanTemplates(lookup);
+					}
+				});
+			} catch (IOException | IllegalArgumentException e) {
+				LOG.warn("Templates of {} couldn't be indexed => their existence will be checked", lookup, e);
+			}
+		}
+	}
 }
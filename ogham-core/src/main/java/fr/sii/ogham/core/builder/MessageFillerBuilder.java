@@ -1,6 +1,7 @@
 package fr.sii.ogham.core.builder;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
 
@@ -142,4 +143,38 @@ public class MessageFillerBuilder implements Builder<MessageFiller> {
 		return this;
 	}
 
+	/**
+	 * Enable or disable the generation of subject of the message (see
+	 * {@link #withSubjectFiller()}).
+	 * 
+	 * @param enable
+	 *            true to extract the subject from the content, false otherwise
+	 * @return this instance for fluent use
+	 */
+	public MessageFillerBuilder withSubjectFiller(boolean enable) {
+		if (enable) {
+			return withSubjectFiller();
+		}
+		for (Iterator<MessageFiller> it = fillers.iterator(); it.hasNext();) {
+			if (it.next() instanceof SubjectFiller) {
+				it.remove();
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Indicates if the subject of the message is extracted from the content.
+	 * 
+	 * @return true if a subject filler is registered
+	 */
+	public boolean hasSubjectFiller() {
+		for (MessageFiller filler : fillers) {
+			if (filler instanceof SubjectFiller) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 }
@@ -4,14 +4,19 @@ import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.activation.MimeType;
 import javax.activation.MimeTypeParseException;
 import javax.activation.MimetypesFileTypeMap;
 
 import org.apache.tika.Tika;
 
+import fr.sii.ogham.core.cache.LruCache;
 import fr.sii.ogham.core.exception.builder.BuildException;
+import fr.sii.ogham.core.mimetype.CachedMimeTypeProvider;
 import fr.sii.ogham.core.mimetype.FallbackMimeTypeProvider;
 import fr.sii.ogham.core.mimetype.FixedMimeTypeProvider;
+import fr.sii.ogham.core.mimetype.JavaActivationProvider;
+import fr.sii.ogham.core.mimetype.MagicNumberProvider;
 import fr.sii.ogham.core.mimetype.MimeTypeProvider;
 import fr.sii.ogham.core.mimetype.TikaProvider;
 
@@ -31,27 +36,65 @@ import fr.sii.ogham.core.mimetype.TikaProvider;
  * <p>
  * This builder allows to use several providers. It will chain them until one
  * can find a valid mimetype. If none is found, you can explicitly provide the
- * default one.
+ * default one. The cheapest providers should be registered first (see
+ * {@link #extension()} and {@link #magicNumbers()}).
+ * </p>
+ * 
+ * <p>
+ * The detected mimetypes can be cached (see {@link #cache(long)}) in order to
+ * avoid analyzing the same file or the same content several times.
  * </p>
  * 
  * @author Aurélien Baudet
  *
  */
 public class MimetypeProviderBuilder implements Builder<MimeTypeProvider> {
+	/**
+	 * Default maximum number of cached mimetypes
+	 */
+	public static final long DEFAULT_CACHE_SIZE = 1000;
+
 	private List<ChildBuilder> builders = new ArrayList<>();
 	private String defaultMimetype;
+	private long cacheSize;
+	private int detectionLimit = FallbackMimeTypeProvider.DEFAULT_DETECTION_LIMIT;
 
 	public MimetypeProviderBuilder useDefaults() {
 		// @formatter:off
-		tika()
+		magicNumbers()
+		.tika()
 			.and()
-		.defaultMimetype();
+		.defaultMimetype()
+		.cache(DEFAULT_CACHE_SIZE);
 		// TODO: auto-detect
 //		autodetect();
 		// @formatter:on
 		return this;
 	}
 
+	/**
+	 * Detect the mimetype using the file extension (based on
+	 * {@link MimetypesFileTypeMap}). This is the fastest detection but the
+	 * content is not checked and it can't be used for streams. If the
+	 * extension is unknown, the next provider is used.
+	 * 
+	 * @return this instance for fluent use
+	 */
+	public MimetypeProviderBuilder extension() {
+		return register(new JavaActivationProvider(new MimetypesFileTypeMap(), true));
+	}
+
+	/**
+	 * Detect the mimetype using the magic numbers of the most common binary
+	 * formats (images and PDF). This is faster than a complete analysis. If
+	 * no magic number matches, the next provider is used.
+	 * 
+	 * @return this instance for fluent use
+	 */
+	public MimetypeProviderBuilder magicNumbers() {
+		return register(new MagicNumberProvider());
+	}
+
 	public TikaBuilder tika() {
 		return add(new TikaBuilder(this));
 	}
@@ -70,6 +113,34 @@ public class MimetypeProviderBuilder implements Builder<MimeTypeProvider> {
 		return defaultMimetype("application/octet-stream");
 	}
 
+	/**
+	 * Set the maximum number of bytes read from a stream for detecting the
+	 * mimetype. The providers only see these bytes.
+	 * 
+	 * @param detectionLimit
+	 *            the maximum number of bytes read from a stream
+	 * @return this instance for fluent use
+	 */
+	public MimetypeProviderBuilder detectionLimit(int detectionLimit) {
+		this.detectionLimit = detectionLimit;
+		return this;
+	}
+
+	/**
+	 * Cache the detected mimetypes. Files are identified by their canonical
+	 * path, size and last modification date. Streams and strings are
+	 * identified by a hash of their content. The least recently used entries
+	 * are evicted when the maximum number of entries is reached.
+	 * 
+	 * @param maxEntries
+	 *            the maximum number of cached mimetypes (0 to disable cache)
+	 * @return this instance for fluent use
+	 */
+	public MimetypeProviderBuilder cache(long maxEntries) {
+		this.cacheSize = maxEntries;
+		return this;
+	}
+
 //	public MimetypeProviderBuilder autodetect() {
 //		return add(new AutoDetectBuilder(this));
 //	}
@@ -81,7 +152,7 @@ public class MimetypeProviderBuilder implements Builder<MimeTypeProvider> {
 
 	@Override
 	public MimeTypeProvider build() throws BuildException {
-		FallbackMimeTypeProvider provider = new FallbackMimeTypeProvider();
+		FallbackMimeTypeProvider provider = new FallbackMimeTypeProvider(new ArrayList<MimeTypeProvider>(), detectionLimit);
 		for (ChildBuilder builder : builders) {
 			provider.addProvider(builder.build());
 		}
@@ -92,6 +163,9 @@ public class MimetypeProviderBuilder implements Builder<MimeTypeProvider> {
 				throw new BuildException("Failed to build MimeTypeProvider due to invalid default mimetype", e);
 			}
 		}
+		if (cacheSize > 0) {
+			return new CachedMimeTypeProvider(provider, new LruCache<String, MimeType>(cacheSize), detectionLimit);
+		}
 		return provider;
 	}
 
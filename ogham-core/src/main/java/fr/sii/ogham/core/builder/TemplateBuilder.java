@@ -1,5 +1,9 @@
 package fr.sii.ogham.core.builder;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -10,19 +14,31 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import fr.sii.ogham.core.exception.builder.BuildException;
+import fr.sii.ogham.core.resource.FileResourceWatcher;
 import fr.sii.ogham.core.resource.resolver.ClassPathResolver;
 import fr.sii.ogham.core.resource.resolver.FileResolver;
 import fr.sii.ogham.core.resource.resolver.FirstSupportingResourceResolver;
 import fr.sii.ogham.core.resource.resolver.ResourceResolver;
 import fr.sii.ogham.core.resource.resolver.StringResourceResolver;
+import fr.sii.ogham.core.template.cache.FragmentCache;
+import fr.sii.ogham.core.template.cache.OutputCacheKeyGenerator;
+import fr.sii.ogham.core.template.cache.VariablesOutputCacheKeyGenerator;
 import fr.sii.ogham.core.template.detector.FixedEngineDetector;
 import fr.sii.ogham.core.template.detector.TemplateEngineDetector;
 import fr.sii.ogham.core.template.parser.AutoDetectTemplateParser;
+import fr.sii.ogham.core.template.parser.CachingTemplateParser;
 import fr.sii.ogham.core.template.parser.TemplateParser;
+import fr.sii.ogham.core.template.parser.WatchingTemplateParser;
+import fr.sii.ogham.core.template.warmup.TemplateScanner;
+import fr.sii.ogham.core.template.warmup.TemplateWarmUp;
+import fr.sii.ogham.core.template.warmup.WarmUpReport;
 import fr.sii.ogham.core.util.BuilderUtils;
 import fr.sii.ogham.template.TemplateConstants;
 import fr.sii.ogham.template.freemarker.FreeMarkerTemplateDetector;
 import fr.sii.ogham.template.freemarker.builder.FreeMarkerTemplateParserBuilder;
+import fr.sii.ogham.template.placeholder.PlaceholderParser;
+import fr.sii.ogham.template.placeholder.PlaceholderTemplateDetector;
+import fr.sii.ogham.template.placeholder.builder.PlaceholderTemplateParserBuilder;
 import fr.sii.ogham.template.thymeleaf.ThymeleafParser;
 import fr.sii.ogham.template.thymeleaf.ThymeleafTemplateDetector;
 import fr.sii.ogham.template.thymeleaf.builder.ThymeleafTemplateParserBuilder;
@@ -84,9 +100,57 @@ public class TemplateBuilder implements TemplateParserBuilder {
 	 */
 	private Properties properties;
 
+	/**
+	 * The maximum total length of the template paths cached by the engine auto-detection (negative if not configured)
+	 */
+	private long detectionCacheWeight;
+
+	/**
+	 * The lookups of the template directories to warm up when the parser is built
+	 */
+	private List<String> warmUpLookups;
+
+	/**
+	 * The report of the last warm-up (null if no warm-up done)
+	 */
+	private WarmUpReport warmUpReport;
+
+	/**
+	 * Whether the template caches are invalidated only when files change
+	 */
+	private boolean watchFiles;
+
+	/**
+	 * The watcher of the template files (null if not enabled)
+	 */
+	private FileResourceWatcher resourceWatcher;
+
+	/**
+	 * Decides which results of templates are cached (null if output cache is not enabled)
+	 */
+	private OutputCacheKeyGenerator outputCacheKeyGenerator;
+
+	/**
+	 * The maximum total length of the cached results of templates
+	 */
+	private long outputCacheWeight;
+
+	/**
+	 * The parent path resolved when the parser has been built
+	 */
+	private String resolvedParentPath;
+
+	/**
+	 * The extension resolved when the parser has been built
+	 */
+	private String resolvedExtension;
+
 	public TemplateBuilder() {
 		super();
 		detectors = new HashMap<>();
+		warmUpLookups = new ArrayList<>();
+		detectionCacheWeight = -1;
+		outputCacheWeight = CachingTemplateParser.DEFAULT_CACHE_WEIGHT;
 		this.parentPathPropKey = TemplateConstants.PREFIX_PROPERTY;
 		this.extensionPropKey = TemplateConstants.SUFFIX_PROPERTY;
 	}
@@ -210,6 +274,140 @@ public class TemplateBuilder implements TemplateParserBuilder {
 		return this;
 	}
 
+	/**
+	 * Configure the cache of the engine auto-detection (only used if several template engines are registered). The detected engine is cached per lookup
+	 * and resolved template path so the detection is done only once per template.
+	 * <p>
+	 * The cache is enabled by default only if the template files are watched (see {@link #watchFiles()}) or if the templates are warmed up (see
+	 * {@link #warmUp(String...)}). Otherwise, a modified template keeps the engine detected before the modification so enable it only if the templates
+	 * don't change.
+	 * </p>
+	 * 
+	 * @param maxWeight
+	 *            the maximum total length (in characters) of the cached template paths (0 to disable the cache)
+	 * @return this builder instance for fluent use
+	 */
+	public TemplateBuilder withEngineDetectionCache(long maxWeight) {
+		this.detectionCacheWeight = maxWeight;
+		return this;
+	}
+
+	/**
+	 * Warm the templates up when the parser is built. The templates are listed from the parent path for each lookup (see
+	 * {@link fr.sii.ogham.core.template.warmup.TemplateScanner}). Then each template is resolved, its engine is detected and it is compiled into the cache
+	 * of the engine. The first message using a template is then as fast as the next ones.
+	 * <p>
+	 * The time spent for each template and the templates that couldn't be compiled are logged and available through {@link #getWarmUpReport()}. A template
+	 * that can't be compiled doesn't prevent the parser from being built.
+	 * </p>
+	 * <p>
+	 * The detected engines are kept only if the detection cache is enabled. Warming up enables it unless it has been explicitly configured (see
+	 * {@link #withEngineDetectionCache(long)}). Without watching the files (see {@link #watchFiles()}), a modified template then keeps the engine detected
+	 * during the warm-up.
+	 * </p>
+	 * 
+	 * @param lookups
+	 *            the lookups to scan ("classpath:" and/or "file:")
+	 * @return this builder instance for fluent use
+	 */
+	public TemplateBuilder warmUp(String... lookups) {
+		warmUpLookups.addAll(Arrays.asList(lookups));
+		return this;
+	}
+
+	/**
+	 * Invalidate the cached templates only when the template files change. The directory of the parent path is watched using the file system
+	 * notifications (see {@link FileResourceWatcher}) and the caches of the template engines, the engine detection and the variants are cleared only
+	 * when a file is created, modified or removed. The template engines don't have to check the files on each use.
+	 * <p>
+	 * Only the templates that are on the file system are watched. While watching, FreeMarker doesn't check for updates anymore so the templates loaded
+	 * from the classpath are never reloaded.
+	 * </p>
+	 * <p>
+	 * Each built parser has its own watcher (and its thread). The built parser is {@link java.io.Closeable}: close it when it is no longer used to
+	 * stop the watcher. Building again closes the watcher of the previous parser, which is not notified anymore.
+	 * </p>
+	 * 
+	 * @return this builder instance for fluent use
+	 */
+	public TemplateBuilder watchFiles() {
+		this.watchFiles = true;
+		return this;
+	}
+
+	/**
+	 * Cache the result of a template that always renders the same way for a locale and the values of some variables (footer, legal notice, header,
+	 * ...). The template is then rendered only once for each locale and each combination of values. The other variables are not read. This works with
+	 * any template engine (see {@link CachingTemplateParser}).
+	 * <p>
+	 * Only the output of a whole template rendered through the parser is cached. The fragments included by a template (Thymeleaf
+	 * <code>th:include</code>/<code>th:replace</code>, FreeMarker <code>#include</code>) are resolved by the template engine itself so they are
+	 * rendered again each time the including template is rendered, even if the fragment is registered here. Use {@link #cacheFragments(long)} to
+	 * cache the static blocks of personalized templates.
+	 * </p>
+	 * 
+	 * @param templateName
+	 *            the name (or path) of the template as provided to the parser (including the lookup prefix and the variant extension if any)
+	 * @param keyVariables
+	 *            the names of the variables that can change the result (none if the result only depends on the locale)
+	 * @return this builder instance for fluent use
+	 */
+	public TemplateBuilder cacheOutput(String templateName, String... keyVariables) {
+		if (!(outputCacheKeyGenerator instanceof VariablesOutputCacheKeyGenerator)) {
+			outputCacheKeyGenerator = new VariablesOutputCacheKeyGenerator();
+		}
+		((VariablesOutputCacheKeyGenerator) outputCacheKeyGenerator).register(templateName, keyVariables);
+		return this;
+	}
+
+	/**
+	 * Cache the static blocks of the templates: a block marked as static is rendered only once per locale while the rest of the template is rendered
+	 * for each message (see {@link FragmentCache}):
+	 * <ul>
+	 * <li>FreeMarker: <code>&lt;@cache name="footer"&gt;...&lt;/@cache&gt;</code></li>
+	 * <li>Thymeleaf: <code>th:utext="${#fragmentCache.include('classpath:/template/footer.html')}"</code></li>
+	 * </ul>
+	 * Each template engine has its own cache.
+	 * 
+	 * @param maxWeight
+	 *            the maximum total length (in characters) of the cached blocks per template engine
+	 * @return this builder instance for fluent use
+	 */
+	public TemplateBuilder cacheFragments(long maxWeight) {
+		if (hasParserBuilder(ThymeleafTemplateParserBuilder.class)) {
+			getThymeleafParser().cacheFragments(maxWeight);
+		}
+		if (hasParserBuilder(FreeMarkerTemplateParserBuilder.class)) {
+			getFreeMarkerParser().cacheFragments(maxWeight);
+		}
+		return this;
+	}
+
+	/**
+	 * Cache the result of the templates. The provided generator decides which results are cached and provides the keys that identify them.
+	 * 
+	 * @param keyGenerator
+	 *            decides which results are cached
+	 * @return this builder instance for fluent use
+	 */
+	public TemplateBuilder withOutputCache(OutputCacheKeyGenerator keyGenerator) {
+		this.outputCacheKeyGenerator = keyGenerator;
+		return this;
+	}
+
+	/**
+	 * Set the maximum total length of the cached results of templates (the least recently used results are evicted first). It is only used if the output
+	 * cache is enabled (see {@link #cacheOutput(String, String...)}).
+	 * 
+	 * @param maxWeight
+	 *            the maximum total length (in characters) of the cached results
+	 * @return this builder instance for fluent use
+	 */
+	public TemplateBuilder withOutputCacheSize(long maxWeight) {
+		this.outputCacheWeight = maxWeight;
+		return this;
+	}
+
 	/**
 	 * Enable Thymeleaf template engine. This engine is used only if the associated detector ({@link ThymeleafTemplateDetector}) indicates that Thymeleaf is
 	 * able to handle the provided template.
@@ -242,6 +440,32 @@ public class TemplateBuilder implements TemplateParserBuilder {
 		return this;
 	}
 
+	/**
+	 * Enable the minimal placeholder template engine ({@link PlaceholderParser}) for the templates ending with ".tpl" (see
+	 * {@link PlaceholderTemplateDetector}). The templates only contain text and <code>${name}</code> placeholders. It is much cheaper than Thymeleaf or
+	 * FreeMarker for high volumes of short messages (SMS, text variants...).
+	 * <p>
+	 * For email variants, the files must be named <code>&lt;name&gt;.txt.tpl</code> and <code>&lt;name&gt;.html.tpl</code>.
+	 * </p>
+	 * 
+	 * @return this builder instance for fluent use
+	 */
+	public TemplateBuilder withPlaceholders() {
+		return withPlaceholders(new PlaceholderTemplateDetector());
+	}
+
+	/**
+	 * Enable the minimal placeholder template engine ({@link PlaceholderParser}) for the templates accepted by the detector.
+	 * 
+	 * @param detector
+	 *            the detector that indicates if the placeholder engine can handle the template (for example
+	 *            <code>new PlaceholderTemplateDetector(".sms")</code>)
+	 * @return this builder instance for fluent use
+	 */
+	public TemplateBuilder withPlaceholders(TemplateEngineDetector detector) {
+		return registerTemplateParser(new PlaceholderTemplateParserBuilder(), detector);
+	}
+
 	/**
 	 * Change the default property key for template resolution parent path. By default, the property key is ogham.template.prefix (see
 	 * {@link TemplateConstants#PREFIX_PROPERTY}). Use this method to change the key.
@@ -287,8 +511,8 @@ public class TemplateBuilder implements TemplateParserBuilder {
 	@Override
 	public TemplateParser build() throws BuildException {
 		// resolve final parentPath and extension
-		String resolvedParentPath = resolve("prefix", parentPath, parentPathPropKey, TemplateConstants.PREFIX_PROPERTY);
-		String resolvedExtension = resolve("suffix", extension, extensionPropKey, TemplateConstants.SUFFIX_PROPERTY);
+		resolvedParentPath = resolve("prefix", parentPath, parentPathPropKey, TemplateConstants.PREFIX_PROPERTY);
+		resolvedExtension = resolve("suffix", extension, extensionPropKey, TemplateConstants.SUFFIX_PROPERTY);
 		// propagate the parentPath and extension for resource resolution
 		// and also for template engines
 		resolverBuilder.withParentPath(resolvedParentPath);
@@ -300,8 +524,14 @@ public class TemplateBuilder implements TemplateParserBuilder {
 			// TODO manage extra configuration for each {@link TemplateParserBuilder}
 			if (templateParserBuilder instanceof ThymeleafTemplateParserBuilder) {
 				((ThymeleafTemplateParserBuilder) templateParserBuilder).withFirstResourceResolver(firstSupportingResolver);
+			} else if (templateParserBuilder instanceof PlaceholderTemplateParserBuilder) {
+				((PlaceholderTemplateParserBuilder) templateParserBuilder).withFirstResourceResolver(firstSupportingResolver);
 			} else if (templateParserBuilder instanceof FreeMarkerTemplateParserBuilder) {
 				((FreeMarkerTemplateParserBuilder) templateParserBuilder).withFirstResourceResolver(firstSupportingResolver);
+				if (watchFiles) {
+					// changes are notified => no need to check for updates
+					((FreeMarkerTemplateParserBuilder) templateParserBuilder).getConfiguration().setTemplateUpdateDelayMilliseconds(Long.MAX_VALUE);
+				}
 			}
 		}
 		if (detectors.isEmpty()) {
@@ -314,7 +544,7 @@ public class TemplateBuilder implements TemplateParserBuilder {
 			LOG.info("Using single template engine: {}", parser);
 			LOG.debug("Using parent path {} and extension {} for template resolution", parentPath, extension);
 			LOG.debug("Using lookup mapping resolver: {}", resolvers);
-			return parser;
+			return watch(warmUp(cacheOutput(parser), resolvedParentPath, resolvedExtension), resolvedParentPath);
 		} else {
 			// use auto detection if more than one parser available
 			Map<TemplateEngineDetector, TemplateParser> map = new HashMap<>();
@@ -325,10 +555,65 @@ public class TemplateBuilder implements TemplateParserBuilder {
 			LOG.debug("Auto detection mechanisms: {}", map);
 			LOG.debug("Using parent path {} and extension {} for template resolution", parentPath, extension);
 			LOG.debug("Using lookup mapping resolver: {}", resolvers);
-			return new AutoDetectTemplateParser(firstSupportingResolver, map);
+			return watch(warmUp(cacheOutput(new AutoDetectTemplateParser(firstSupportingResolver, map, getDetectionCacheWeight())), resolvedParentPath, resolvedExtension), resolvedParentPath);
 		}
 	}
 
+	/**
+	 * Get the report of the warm-up done when the parser has been built.
+	 * 
+	 * @return the report of the warm-up or null if warm-up is not enabled (see {@link #warmUp(String...)})
+	 */
+	public WarmUpReport getWarmUpReport() {
+		return warmUpReport;
+	}
+
+	/**
+	 * Get the watcher of the template files created when the parser has been built. Other components that cache templates can register on it. The
+	 * watcher is stopped when the built parser is closed or when the parser is built again.
+	 * 
+	 * @return the watcher or null if watching is not enabled (see {@link #watchFiles()}) or the parent path is not a directory
+	 */
+	public FileResourceWatcher getResourceWatcher() {
+		return resourceWatcher;
+	}
+
+	/**
+	 * List the templates available for the lookup in the parent path (see {@link TemplateScanner}). The names are the paths used to reference the templates
+	 * (lookup followed by the path relative to the parent path, without the extension used for resolution). It can only be called once the parser has been
+	 * built.
+	 * 
+	 * @param lookup
+	 *            the lookup to scan ("classpath:" or "file:")
+	 * @return the names of the templates
+	 * @throws IOException
+	 *             when the templates couldn't be listed
+	 * @throws IllegalStateException
+	 *             when the parser has not been built yet
+	 */
+	public List<String> scanTemplates(String lookup) throws IOException {
+		if (resolvedParentPath == null) {
+			throw new IllegalStateException("Templates can only be scanned once the parser has been built");
+		}
+		return new TemplateScanner().scan(lookup, resolvedParentPath, resolvedExtension);
+	}
+
+	/**
+	 * Indicates if a template engine is registered using the provided builder class.
+	 * 
+	 * @param clazz
+	 *            the class of the parser builder
+	 * @return true if a builder of this class is registered
+	 */
+	public boolean hasParserBuilder(Class<? extends TemplateParserBuilder> clazz) {
+		for (TemplateParserBuilder builder : detectors.values()) {
+			if (clazz.isAssignableFrom(builder.getClass())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Get reference to the specialized builder. It may be useful to fine tune the template engine.
 	 * 
@@ -386,6 +671,15 @@ public class TemplateBuilder implements TemplateParserBuilder {
 		return getParserBuilder(FreeMarkerTemplateParserBuilder.class);
 	}
 
+	/**
+	 * Get the reference to the specialized builder for the placeholder template engine.
+	 * 
+	 * @return The placeholder engine builder
+	 */
+	public PlaceholderTemplateParserBuilder getPlaceholderParser() {
+		return getParserBuilder(PlaceholderTemplateParserBuilder.class);
+	}
+
 	/**
 	 * <p>
 	 * Get the builder used to handle resource resolution.
@@ -403,6 +697,51 @@ public class TemplateBuilder implements TemplateParserBuilder {
 		return resolverBuilder;
 	}
 
+	private TemplateParser cacheOutput(TemplateParser parser) {
+		if (outputCacheKeyGenerator == null) {
+			return parser;
+		}
+		LOG.debug("Output cache enabled using {}", outputCacheKeyGenerator);
+		return new CachingTemplateParser(parser, outputCacheKeyGenerator, outputCacheWeight);
+	}
+
+	private TemplateParser warmUp(TemplateParser parser, String resolvedParentPath, String resolvedExtension) {
+		if (!warmUpLookups.isEmpty()) {
+			warmUpReport = new TemplateWarmUp(parser).warmUp(warmUpLookups, resolvedParentPath, resolvedExtension);
+		}
+		return parser;
+	}
+
+	private long getDetectionCacheWeight() {
+		if (detectionCacheWeight >= 0) {
+			return detectionCacheWeight;
+		}
+		// warm-up detects the engines => keep the result for the first messages
+		return watchFiles || !warmUpLookups.isEmpty() ? AutoDetectTemplateParser.DEFAULT_DETECTION_CACHE_WEIGHT : 0;
+	}
+
+	private TemplateParser watch(TemplateParser parser, String resolvedParentPath) throws BuildException {
+		if (!watchFiles) {
+			return parser;
+		}
+		File directory = new File(resolvedParentPath.isEmpty() ? "." : resolvedParentPath);
+		if (!directory.isDirectory()) {
+			LOG.warn("Template files can't be watched because {} is not a directory", directory);
+			return parser;
+		}
+		try {
+			if (resourceWatcher != null) {
+				LOG.debug("Parser built again => previous watcher of template files stopped");
+				resourceWatcher.close();
+			}
+			resourceWatcher = new FileResourceWatcher();
+			resourceWatcher.watch(directory);
+			return new WatchingTemplateParser(parser, resourceWatcher);
+		} catch (IOException e) {
+			throw new BuildException("Failed to watch template files of " + directory, e);
+		}
+	}
+
 	private String resolve(String which, String value, String key, String defaultKey) {
 		String resolved = value;
 		if (resolved == null) {
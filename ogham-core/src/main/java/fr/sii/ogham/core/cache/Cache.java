@@ -0,0 +1,51 @@
+package fr.sii.ogham.core.cache;
+
+/**
+ * Interface for all caches. A cache stores values indexed by a key. The
+ * implementation decides when values are evicted.
+ *
+ * <p>
+ * Implementations MUST be safe for concurrent use.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ * @param <K>
+ *            the type of the keys
+ * @param <V>
+ *            the type of the cached values
+ */
+public interface Cache<K, V> {
+	/**
+	 * Get the value associated to the key.
+	 *
+	 * @param key
+	 *            the key of the value
+	 * @return the cached value or null if not cached
+	 */
+	public V get(K key);
+
+	/**
+	 * Store the value in the cache. The value may not be stored (or evicted
+	 * immediately) if the implementation decides that the value doesn't fit.
+	 *
+	 * @param key
+	 *            the key of the value
+	 * @param value
+	 *            the value to cache
+	 */
+	public void put(K key, V value);
+
+	/**
+	 * Remove the value associated to the key (if any).
+	 *
+	 * @param key
+	 *            the key of the value to remove
+	 */
+	public void remove(K key);
+
+	/**
+	 * Remove all values from the cache.
+	 */
+	public void clear();
+}
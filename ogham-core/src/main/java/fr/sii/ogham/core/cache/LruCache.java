@@ -0,0 +1,135 @@
+package fr.sii.ogham.core.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+/**
+ * <p>
+ * Cache that is bounded by a maximum weight. When the total weight of the
+ * cached values exceeds the maximum, the least recently used values are
+ * evicted.
+ * </p>
+ * <p>
+ * By default, each value weighs 1 so the maximum weight is the maximum number
+ * of entries. Override {@link #weigh(Object)} to bound the cache by another
+ * measure (the number of bytes for example).
+ * </p>
+ * <p>
+ * The cache is shared across threads. Accesses are synchronized on the cache
+ * instance.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ * @param <K>
+ *            the type of the keys
+ * @param <V>
+ *            the type of the cached values
+ */
+public class LruCache<K, V> implements Cache<K, V> {
+	/**
+	 * The cached values ordered by access (least recently used first)
+	 */
+	private final LinkedHashMap<K, V> map;
+
+	/**
+	 * The maximum total weight of the cached values
+	 */
+	private final long maxWeight;
+
+	/**
+	 * The current total weight of the cached values
+	 */
+	private long weight;
+
+	/**
+	 * Initialize the cache with the maximum total weight of the cached values.
+	 *
+	 * @param maxWeight
+	 *            the maximum total weight (the maximum number of entries if
+	 *            {@link #weigh(Object)} is not overridden)
+	 */
+	public LruCache(long maxWeight) {
+		super();
+		this.maxWeight = maxWeight;
+		this.map = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	@Override
+	public synchronized V get(K key) {
+		return map.get(key);
+	}
+
+	@Override
+	public synchronized void put(K key, V value) {
+		long valueWeight = weigh(value);
+		if (valueWeight > maxWeight) {
+			// would evict everything and still not fit
+			remove(key);
+			return;
+		}
+		V old = map.put(key, value);
+		if (old != null) {
+			weight -= weigh(old);
+		}
+		weight += valueWeight;
+		evict();
+	}
+
+	@Override
+	public synchronized void remove(K key) {
+		V old = map.remove(key);
+		if (old != null) {
+			weight -= weigh(old);
+		}
+	}
+
+	@Override
+	public synchronized void clear() {
+		map.clear();
+		weight = 0;
+	}
+
+	/**
+	 * Get the number of cached values.
+	 *
+	 * @return the number of cached values
+	 */
+	public synchronized int size() {
+		return map.size();
+	}
+
+	/**
+	 * Get the current total weight of the cached values.
+	 *
+	 * @return the total weight
+	 */
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	/**
+	 * Compute the weight of a value. By default, each value weighs 1.
+	 *
+	 * @param value
+	 *            the value to weigh
+	 * @return the weight of the value
+	 */
+	protected long weigh(V value) {
+		return 1;
+	}
+
+	private void evict() {
+		Iterator<Entry<K, V>> it = map.entrySet().iterator();
+		while (weight > maxWeight && it.hasNext()) {
+			Entry<K, V> eldest = it.next();
+			weight -= weigh(eldest.getValue());
+			it.remove();
+		}
+	}
+}
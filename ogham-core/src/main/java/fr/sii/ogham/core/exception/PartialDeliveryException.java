@@ -0,0 +1,45 @@
+package fr.sii.ogham.core.exception;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exception raised when the message couldn't be delivered to some recipients.
+ * The message may have been delivered to the other recipients (see
+ * {@link #getDeliveredRecipients()}).
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class PartialDeliveryException extends MessagingException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 4213617794510432578L;
+
+	/**
+	 * The recipients that have received the message
+	 */
+	private final List<String> deliveredRecipients;
+
+	/**
+	 * The recipients that have not received the message with the cause of the
+	 * failure
+	 */
+	private final Map<String, Exception> failedRecipients;
+
+	public PartialDeliveryException(String message, List<String> deliveredRecipients, Map<String, Exception> failedRecipients) {
+		super(message + ". Failed recipients: " + failedRecipients.keySet());
+		this.deliveredRecipients = deliveredRecipients;
+		this.failedRecipients = failedRecipients;
+	}
+
+	public List<String> getDeliveredRecipients() {
+		return deliveredRecipients;
+	}
+
+	public Map<String, Exception> getFailedRecipients() {
+		return failedRecipients;
+	}
+}
@@ -0,0 +1,27 @@
+package fr.sii.ogham.core.exception.util;
+
+import java.io.IOException;
+
+/**
+ * Thrown by a {@link fr.sii.ogham.core.util.http.ResponseHandler} when the
+ * response has been received but its content is not valid. It distinguishes
+ * an invalid response from a failure of the connection.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class ResponseParsingException extends IOException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 4470624713478301218L;
+
+	public ResponseParsingException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+	public ResponseParsingException(String message) {
+		super(message);
+	}
+}
@@ -1,6 +1,19 @@
 package fr.sii.ogham.core.message.content;
 
 public enum EmailVariant implements Variant {
-	TEXT,
-	HTML
+	TEXT("text/plain"),
+	HTML("text/html");
+
+	/**
+	 * The Mime Type of the content generated for this variant
+	 */
+	private final String mimetype;
+
+	private EmailVariant(String mimetype) {
+		this.mimetype = mimetype;
+	}
+
+	public String getMimetype() {
+		return mimetype;
+	}
 }
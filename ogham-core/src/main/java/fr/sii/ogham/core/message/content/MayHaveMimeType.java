@@ -0,0 +1,29 @@
+package fr.sii.ogham.core.message.content;
+
+import java.nio.charset.Charset;
+
+import javax.activation.MimeType;
+
+/**
+ * Interface to indicate that the Mime Type and the charset of the content may
+ * already be known (for example because the content has been generated from a
+ * template variant). In this case, there is no need to detect them.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public interface MayHaveMimeType extends Content {
+	/**
+	 * Provides the Mime Type of the content if known.
+	 * 
+	 * @return the Mime Type or null if unknown
+	 */
+	public MimeType getMimetype();
+
+	/**
+	 * Provides the charset of the content if known.
+	 * 
+	 * @return the charset or null if unknown
+	 */
+	public Charset getCharset();
+}
@@ -0,0 +1,160 @@
+package fr.sii.ogham.core.message.content;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import javax.activation.MimeType;
+
+import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.template.context.Context;
+import fr.sii.ogham.core.template.parser.StreamingTemplateParser;
+
+/**
+ * <p>
+ * Content generated from a template that is rendered only when it is written.
+ * The template is rendered directly into the destination (MIME body part, HTTP
+ * request...) so the whole result is never held in memory.
+ * </p>
+ * <p>
+ * As the result is not available as string, this content is ignored by the
+ * translators that need the whole string (CSS or image inlining for example).
+ * It must only be used when no translator needs to update the result.
+ * </p>
+ * <p>
+ * The template is rendered each time the content is written. The senders
+ * render it once per message, before sending it.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class StreamingContent implements MayHaveMimeType {
+	/**
+	 * The charset used when none is provided
+	 */
+	public static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
+
+	/**
+	 * The parser that renders the template
+	 */
+	private final StreamingTemplateParser parser;
+
+	/**
+	 * The name (or path) of the template
+	 */
+	private final String templateName;
+
+	/**
+	 * The context that contains the variable values
+	 */
+	private final Context context;
+
+	/**
+	 * The Mime Type of the content (null if unknown)
+	 */
+	private MimeType mimetype;
+
+	/**
+	 * The charset used to encode the content
+	 */
+	private Charset charset;
+
+	/**
+	 * Initialize the content with the template to render.
+	 * 
+	 * @param parser
+	 *            the parser that renders the template
+	 * @param templateName
+	 *            the name (or path) of the template
+	 * @param context
+	 *            the context that contains the variable values
+	 * @param mimetype
+	 *            the Mime Type of the content (null if unknown)
+	 * @param charset
+	 *            the charset used to encode the content (UTF-8 if null)
+	 */
+	public StreamingContent(StreamingTemplateParser parser, String templateName, Context context, MimeType mimetype, Charset charset) {
+		super();
+		this.parser = parser;
+		this.templateName = templateName;
+		this.context = context;
+		this.mimetype = mimetype;
+		this.charset = charset == null ? DEFAULT_CHARSET : charset;
+	}
+
+	/**
+	 * Render the template into the writer. The writer is not closed.
+	 * 
+	 * @param out
+	 *            the writer that receives the result
+	 * @throws ParseException
+	 *             when the template couldn't be rendered
+	 */
+	public void writeTo(Writer out) throws ParseException {
+		parser.parse(templateName, context, out);
+	}
+
+	/**
+	 * Render the template into the stream using the charset of the content.
+	 * The stream is not closed.
+	 * 
+	 * @param out
+	 *            the stream that receives the result
+	 * @throws ParseException
+	 *             when the template couldn't be rendered
+	 * @throws IOException
+	 *             when the result couldn't be written
+	 */
+	public void writeTo(OutputStream out) throws ParseException, IOException {
+		Writer writer = new OutputStreamWriter(out, charset);
+		writeTo(writer);
+		writer.flush();
+	}
+
+	/**
+	 * Render the whole template as a string. It should only be used when the
+	 * destination can't be written progressively.
+	 * 
+	 * @return the result of the template
+	 * @throws ParseException
+	 *             when the template couldn't be rendered
+	 */
+	public String render() throws ParseException {
+		StringWriter out = new StringWriter();
+		writeTo(out);
+		return out.toString();
+	}
+
+	public String getTemplateName() {
+		return templateName;
+	}
+
+	public Context getContext() {
+		return context;
+	}
+
+	@Override
+	public MimeType getMimetype() {
+		return mimetype;
+	}
+
+	public void setMimetype(MimeType mimetype) {
+		this.mimetype = mimetype;
+	}
+
+	@Override
+	public Charset getCharset() {
+		return charset;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("StreamingContent [templateName=").append(templateName).append(", mimetype=").append(mimetype).append("]");
+		return builder.toString();
+	}
+}
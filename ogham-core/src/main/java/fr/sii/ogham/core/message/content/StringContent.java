@@ -1,21 +1,39 @@
 package fr.sii.ogham.core.message.content;
 
+import java.nio.charset.Charset;
+
+import javax.activation.MimeType;
+
 import fr.sii.ogham.core.util.EqualsBuilder;
 import fr.sii.ogham.core.util.HashCodeBuilder;
 
 /**
  * Represent a string content. This implementation is the most basic one. It
  * just wraps a string into a {@link Content}.
+ * <p>
+ * The Mime Type and the charset can be provided if they are already known in
+ * order to avoid detecting them when the message is sent.
+ * </p>
  * 
  * @author Aurélien Baudet
  *
  */
-public class StringContent implements MayHaveStringContent, UpdatableStringContent {
+public class StringContent implements MayHaveStringContent, UpdatableStringContent, MayHaveMimeType {
 	/**
 	 * The content as string
 	 */
 	private String content;
 
+	/**
+	 * The Mime Type of the content (null if unknown)
+	 */
+	private MimeType mimetype;
+
+	/**
+	 * The charset of the content (null if unknown)
+	 */
+	private Charset charset;
+
 	/**
 	 * Initialize the content with the string.
 	 * 
@@ -23,8 +41,25 @@ public class StringContent implements MayHaveStringContent, UpdatableStringConte
 	 *            the content value
 	 */
 	public StringContent(String content) {
+		this(content, null, null);
+	}
+
+	/**
+	 * Initialize the content with the string and its known Mime Type and
+	 * charset.
+	 * 
+	 * @param content
+	 *            the content value
+	 * @param mimetype
+	 *            the Mime Type of the content (null if unknown)
+	 * @param charset
+	 *            the charset of the content (null if unknown)
+	 */
+	public StringContent(String content, MimeType mimetype, Charset charset) {
 		super();
 		this.content = content;
+		this.mimetype = mimetype;
+		this.charset = charset;
 	}
 
 	/**
@@ -56,6 +91,24 @@ public class StringContent implements MayHaveStringContent, UpdatableStringConte
 		this.content = content;
 	}
 
+	@Override
+	public MimeType getMimetype() {
+		return mimetype;
+	}
+
+	public void setMimetype(MimeType mimetype) {
+		this.mimetype = mimetype;
+	}
+
+	@Override
+	public Charset getCharset() {
+		return charset;
+	}
+
+	public void setCharset(Charset charset) {
+		this.charset = charset;
+	}
+
 	@Override
 	public int hashCode() {
 		return new HashCodeBuilder().append(content).hashCode();
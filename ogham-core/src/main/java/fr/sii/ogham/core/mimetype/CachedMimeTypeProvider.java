@@ -0,0 +1,242 @@
+package fr.sii.ogham.core.mimetype;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.activation.MimeType;
+import javax.activation.MimeTypeParseException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.cache.Cache;
+import fr.sii.ogham.core.cache.LruCache;
+import fr.sii.ogham.core.exception.mimetype.MimeTypeDetectionException;
+import fr.sii.ogham.core.util.IOUtils;
+
+/**
+ * <p>
+ * Decorator that caches the Mime Types detected by the delegate provider. The
+ * same file or the same content is often analyzed many times (the same file
+ * attached to many emails, the same image inlined in many emails...).
+ * </p>
+ * <p>
+ * The cache entries are keyed by:
+ * <ul>
+ * <li>the canonical path, the size and the last modification date for
+ * files. A modified file is analyzed again.</li>
+ * <li>the size and a 64 bits hash (FNV-1a) of the content for strings</li>
+ * <li>the size and a 64 bits hash (FNV-1a) of the first bytes for streams
+ * (see {@link FallbackMimeTypeProvider#DEFAULT_DETECTION_LIMIT}). Only these
+ * bytes are provided to the delegate provider.</li>
+ * </ul>
+ * <p>
+ * The cache is bounded: the least recently used entries are evicted when the
+ * maximum number of entries is reached. The provider can be used by several
+ * threads.
+ * </p>
+ * <p>
+ * Detection failures are not cached.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class CachedMimeTypeProvider implements MimeTypeProvider {
+	private static final Logger LOG = LoggerFactory.getLogger(CachedMimeTypeProvider.class);
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/**
+	 * The provider that really detects the Mime Types
+	 */
+	private final MimeTypeProvider delegate;
+
+	/**
+	 * The detected Mime Types
+	 */
+	private final Cache<String, MimeType> cache;
+
+	/**
+	 * The maximum number of bytes read from a stream
+	 */
+	private final int detectionLimit;
+
+	/**
+	 * Initialize the provider with a LRU cache bounded by the maximum number
+	 * of entries.
+	 *
+	 * @param delegate
+	 *            the provider that really detects the Mime Types
+	 * @param maxEntries
+	 *            the maximum number of cached Mime Types
+	 */
+	public CachedMimeTypeProvider(MimeTypeProvider delegate, long maxEntries) {
+		this(delegate, new LruCache<String, MimeType>(maxEntries));
+	}
+
+	/**
+	 * Initialize the provider with the cache to use. The cache must be safe
+	 * for concurrent use.
+	 *
+	 * @param delegate
+	 *            the provider that really detects the Mime Types
+	 * @param cache
+	 *            the cache to use
+	 */
+	public CachedMimeTypeProvider(MimeTypeProvider delegate, Cache<String, MimeType> cache) {
+		this(delegate, cache, FallbackMimeTypeProvider.DEFAULT_DETECTION_LIMIT);
+	}
+
+	/**
+	 * Initialize the provider with the cache to use and the maximum number of
+	 * bytes read from a stream. The cache must be safe for concurrent use.
+	 *
+	 * @param delegate
+	 *            the provider that really detects the Mime Types
+	 * @param cache
+	 *            the cache to use
+	 * @param detectionLimit
+	 *            the maximum number of bytes read from a stream
+	 */
+	public CachedMimeTypeProvider(MimeTypeProvider delegate, Cache<String, MimeType> cache, int detectionLimit) {
+		super();
+		this.delegate = delegate;
+		this.cache = cache;
+		this.detectionLimit = detectionLimit;
+	}
+
+	@Override
+	public MimeType getMimeType(File file) throws MimeTypeDetectionException {
+		String key = "file:" + fileKey(file);
+		MimeType mimetype = cache.get(key);
+		if (mimetype == null) {
+			mimetype = delegate.getMimeType(file);
+			cache.put(key, mimetype);
+		} else {
+			LOG.debug("Mime type for file {} found in cache: {}", file, mimetype);
+		}
+		return copy(mimetype);
+	}
+
+	@Override
+	public MimeType getMimeType(String filePath) throws MimeTypeDetectionException {
+		String key = "path:" + fileKey(new File(filePath));
+		MimeType mimetype = cache.get(key);
+		if (mimetype == null) {
+			mimetype = delegate.getMimeType(filePath);
+			cache.put(key, mimetype);
+		} else {
+			LOG.debug("Mime type for file {} found in cache: {}", filePath, mimetype);
+		}
+		return copy(mimetype);
+	}
+
+	/**
+	 * Detect the Mime Type using only the first bytes of the stream. If the
+	 * stream supports mark/reset, the read cursor is moved back to its
+	 * position before the detection so the whole content can still be read.
+	 * Otherwise, the first bytes are consumed (wrap the stream in a
+	 * {@link java.io.BufferedInputStream} to keep them).
+	 */
+	@Override
+	public MimeType detect(InputStream stream) throws MimeTypeDetectionException {
+		byte[] content;
+		try {
+			if (stream.markSupported()) {
+				stream.mark(detectionLimit);
+			}
+			content = IOUtils.toByteArray(stream, detectionLimit);
+			if (stream.markSupported()) {
+				stream.reset();
+			}
+		} catch (IOException e) {
+			throw new MimeTypeDetectionException("Can't read the content of the stream", e);
+		}
+		String key = "stream:" + content.length + ":" + Long.toHexString(hash(content));
+		MimeType mimetype = cache.get(key);
+		if (mimetype == null) {
+			mimetype = delegate.detect(new ByteArrayInputStream(content));
+			cache.put(key, mimetype);
+		} else {
+			LOG.debug("Mime type for stream found in cache: {}", mimetype);
+		}
+		return copy(mimetype);
+	}
+
+	@Override
+	public MimeType detect(String content) throws MimeTypeDetectionException {
+		String key = "string:" + content.length() + ":" + Long.toHexString(hash(content));
+		MimeType mimetype = cache.get(key);
+		if (mimetype == null) {
+			mimetype = delegate.detect(content);
+			cache.put(key, mimetype);
+		} else {
+			LOG.debug("Mime type for content found in cache: {}", mimetype);
+		}
+		return copy(mimetype);
+	}
+
+	/**
+	 * Remove all cached Mime Types.
+	 */
+	public void clear() {
+		cache.clear();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("CachedMimeTypeProvider [delegate=").append(delegate).append("]");
+		return builder.toString();
+	}
+
+	private static String fileKey(File file) {
+		String path;
+		try {
+			path = file.getCanonicalPath();
+		} catch (IOException e) {
+			LOG.debug("Failed to get canonical path of {}. Cause: {}", file, e);
+			path = file.getAbsolutePath();
+		}
+		return path + ":" + file.length() + ":" + file.lastModified();
+	}
+
+	/**
+	 * {@link MimeType} is mutable so the cached instance is never exposed.
+	 *
+	 * @param mimetype
+	 *            the cached Mime Type
+	 * @return a copy of the Mime Type
+	 * @throws MimeTypeDetectionException
+	 *             when the Mime Type can't be copied
+	 */
+	private static MimeType copy(MimeType mimetype) throws MimeTypeDetectionException {
+		try {
+			return new MimeType(mimetype.toString());
+		} catch (MimeTypeParseException e) {
+			throw new MimeTypeDetectionException("Invalid mimetype", e);
+		}
+	}
+
+	private static long hash(byte[] content) {
+		long hash = FNV_OFFSET_BASIS;
+		for (byte b : content) {
+			hash ^= b & 0xff;
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+
+	private static long hash(String content) {
+		long hash = FNV_OFFSET_BASIS;
+		for (int i = 0; i < content.length(); i++) {
+			hash ^= content.charAt(i);
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+}
@@ -0,0 +1,51 @@
+package fr.sii.ogham.core.mimetype;
+
+import java.io.InputStream;
+
+import javax.activation.MimeType;
+
+/**
+ * The result of the Mime Type detection on a stream that can be read only
+ * once. It provides the detected Mime Type and a stream that gives the whole
+ * content (the bytes read for the detection followed by the remaining bytes of
+ * the original stream).
+ *
+ * @author Aurélien Baudet
+ * @see FallbackMimeTypeProvider#detectAndReplay(InputStream)
+ */
+public class DetectedContent {
+	/**
+	 * The detected Mime Type
+	 */
+	private final MimeType mimetype;
+
+	/**
+	 * The stream that gives the whole content
+	 */
+	private final InputStream stream;
+
+	public DetectedContent(MimeType mimetype, InputStream stream) {
+		super();
+		this.mimetype = mimetype;
+		this.stream = stream;
+	}
+
+	public MimeType getMimetype() {
+		return mimetype;
+	}
+
+	/**
+	 * The stream that gives the whole content. The original stream is read
+	 * through this stream so closing it closes the original stream.
+	 *
+	 * @return the stream of the whole content
+	 */
+	public InputStream getStream() {
+		return stream;
+	}
+
+	@Override
+	public String toString() {
+		return "DetectedContent [mimetype=" + mimetype + "]";
+	}
+}
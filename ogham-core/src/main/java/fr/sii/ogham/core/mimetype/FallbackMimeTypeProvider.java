@@ -4,6 +4,7 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -17,8 +18,17 @@ import fr.sii.ogham.core.exception.mimetype.MimeTypeDetectionException;
 import fr.sii.ogham.core.util.IOUtils;
 
 /**
+ * <p>
  * Implementation that will try several delegate implementations until one is
- * able to provide the Mime Type.
+ * able to provide the Mime Type. The cheapest implementations should be
+ * registered first (file extension, then magic numbers, then complete
+ * analysis).
+ * </p>
+ * <p>
+ * For streams, only the first bytes (see {@link #setDetectionLimit(int)}) are
+ * read into a buffer that is reused by the next detections of the same thread.
+ * Each delegate implementation reads these bytes from the beginning.
+ * </p>
  * 
  * @author Aurélien Baudet
  *
@@ -26,18 +36,49 @@ import fr.sii.ogham.core.util.IOUtils;
 public class FallbackMimeTypeProvider implements MimeTypeProvider {
 	private static final Logger LOG = LoggerFactory.getLogger(FallbackMimeTypeProvider.class);
 
+	/**
+	 * Default number of bytes read from a stream for detecting the Mime Type
+	 */
+	public static final int DEFAULT_DETECTION_LIMIT = 8 * 1024;
+
 	/**
 	 * The list of delegate implementations to try
 	 */
 	private List<MimeTypeProvider> providers;
 
+	/**
+	 * The maximum number of bytes read from a stream for detecting the Mime
+	 * Type
+	 */
+	private int detectionLimit;
+
+	/**
+	 * Buffers reused by the detections of the same thread
+	 */
+	private final ThreadLocal<byte[]> buffers;
+
 	public FallbackMimeTypeProvider(MimeTypeProvider... providers) {
 		this(new ArrayList<>(Arrays.asList(providers)));
 	}
 
 	public FallbackMimeTypeProvider(List<MimeTypeProvider> providers) {
+		this(providers, DEFAULT_DETECTION_LIMIT);
+	}
+
+	/**
+	 * Initialize with the delegate implementations and the maximum number of
+	 * bytes read from a stream for detecting the Mime Type.
+	 * 
+	 * @param providers
+	 *            the delegate implementations to try
+	 * @param detectionLimit
+	 *            the maximum number of bytes read from a stream
+	 */
+	public FallbackMimeTypeProvider(List<MimeTypeProvider> providers, int detectionLimit) {
 		super();
 		this.providers = providers;
+		this.detectionLimit = detectionLimit;
+		this.buffers = new ThreadLocal<>();
 	}
 
 	@Override
@@ -72,36 +113,96 @@ public class FallbackMimeTypeProvider implements MimeTypeProvider {
 		throw new MimeTypeDetectionException("No mimetype provider could provide the mimetype for the file " + fileName);
 	}
 
+	/**
+	 * Detect the Mime Type using only the first bytes of the stream (see
+	 * {@link #setDetectionLimit(int)}). If the stream supports mark/reset, the
+	 * read cursor is moved back to its position before the detection.
+	 * Otherwise, the first bytes are consumed (use
+	 * {@link #detectAndReplay(InputStream)} to keep the whole content).
+	 */
 	@Override
 	public MimeType detect(InputStream stream) throws MimeTypeDetectionException {
+		byte[] buffer = borrowBuffer();
 		try {
-			ByteArrayInputStream copy = new ByteArrayInputStream(IOUtils.toByteArray(stream));
-			copy.mark(Integer.MAX_VALUE);
-			MimeType mimetype = detect(copy);
-			if(mimetype==null) {
-				throw new MimeTypeDetectionException("No mimetype provider could provide the mimetype from the provided content");
+			if (stream.markSupported()) {
+				stream.mark(detectionLimit);
+			}
+			int length = IOUtils.read(stream, buffer, detectionLimit);
+			if (stream.markSupported()) {
+				stream.reset();
 			}
-			return mimetype;
+			return detect(buffer, length);
 		} catch (IOException e) {
 			throw new MimeTypeDetectionException("Can't read the content of the stream", e);
+		} finally {
+			releaseBuffer(buffer);
 		}
 	}
 
-	private MimeType detect(ByteArrayInputStream copy) {
-		MimeType mimetype = null;
+	/**
+	 * Detect the Mime Type using only the first bytes of the stream (see
+	 * {@link #setDetectionLimit(int)}) and provide a stream that gives the
+	 * whole content: the bytes read for the detection followed by the
+	 * remaining bytes of the original stream that are read lazily. This is
+	 * useful for streams that can be read only once.
+	 * 
+	 * @param stream
+	 *            the stream to analyze
+	 * @return the detected Mime Type and the stream of the whole content
+	 * @throws MimeTypeDetectionException
+	 *             when the stream can't be read or no provider could detect
+	 *             the Mime Type
+	 */
+	public DetectedContent detectAndReplay(InputStream stream) throws MimeTypeDetectionException {
+		byte[] buffer = borrowBuffer();
+		try {
+			int length = IOUtils.read(stream, buffer, detectionLimit);
+			MimeType mimetype = detect(buffer, length);
+			ByteArrayInputStream prefix = new ByteArrayInputStream(Arrays.copyOf(buffer, length));
+			return new DetectedContent(mimetype, new SequenceInputStream(prefix, stream));
+		} catch (IOException e) {
+			throw new MimeTypeDetectionException("Can't read the content of the stream", e);
+		} finally {
+			releaseBuffer(buffer);
+		}
+	}
+
+	private MimeType detect(byte[] buffer, int length) throws MimeTypeDetectionException {
 		for (MimeTypeProvider provider : providers) {
 			try {
 				LOG.debug("Trying to get mime type from stream using {}", provider);
-				mimetype = provider.detect(copy);
+				// each provider reads the same bytes from the beginning
+				MimeType mimetype = provider.detect(new ByteArrayInputStream(buffer, 0, length));
 				LOG.debug("{} has detected mime type {} from stream", provider, mimetype);
-				break;
+				if (mimetype != null) {
+					return mimetype;
+				}
 			} catch (MimeTypeDetectionException e) {
-				// try next one => move read cursor to beginning
-				copy.reset();
+				// nothing to do => try next one
 				LOG.debug("{} could not detect mime type from stream. Cause: {}", provider, e);
 			}
 		}
-		return mimetype;
+		throw new MimeTypeDetectionException("No mimetype provider could provide the mimetype from the provided content");
+	}
+
+	/**
+	 * The buffer is reused by the next detections of the current thread. It
+	 * is removed from the thread while it is used in case of nested
+	 * detections.
+	 * 
+	 * @return the buffer to use for the current detection
+	 */
+	private byte[] borrowBuffer() {
+		byte[] buffer = buffers.get();
+		if (buffer == null || buffer.length < detectionLimit) {
+			return new byte[detectionLimit];
+		}
+		buffers.remove();
+		return buffer;
+	}
+
+	private void releaseBuffer(byte[] buffer) {
+		buffers.set(buffer);
 	}
 
 	@Override
@@ -131,4 +232,20 @@ public class FallbackMimeTypeProvider implements MimeTypeProvider {
 		providers.add(provider);
 	}
 
+	/**
+	 * Set the maximum number of bytes read from a stream for detecting the
+	 * Mime Type. The providers only see these bytes so the limit must be
+	 * large enough for magic numbers detection.
+	 * 
+	 * @param detectionLimit
+	 *            the maximum number of bytes read from a stream
+	 */
+	public void setDetectionLimit(int detectionLimit) {
+		this.detectionLimit = detectionLimit;
+	}
+
+	public int getDetectionLimit() {
+		return detectionLimit;
+	}
+
 }
@@ -22,11 +22,33 @@ import fr.sii.ogham.core.exception.mimetype.MimeTypeDetectionException;
 public class JavaActivationProvider implements MimeTypeProvider {
 	private static final Logger LOG = LoggerFactory.getLogger(JavaFilesProvider.class);
 
+	private static final String OCTET_STREAM = "application/octet-stream";
+
 	private MimetypesFileTypeMap map;
 
+	/**
+	 * Whether to fail if the default mimetype is returned (the extension is
+	 * unknown).
+	 */
+	private boolean failIfOctetStream;
+
 	public JavaActivationProvider(MimetypesFileTypeMap map) {
+		this(map, false);
+	}
+
+	/**
+	 * Initialize the provider with the specified map.
+	 * 
+	 * @param map
+	 *            the extension to mimetype mapping
+	 * @param failIfOctetStream
+	 *            Whether to fail if the default mimetype is returned (the
+	 *            extension is unknown). Useful to try another provider.
+	 */
+	public JavaActivationProvider(MimetypesFileTypeMap map, boolean failIfOctetStream) {
 		super();
 		this.map = map;
+		this.failIfOctetStream = failIfOctetStream;
 	}
 
 	public JavaActivationProvider() {
@@ -39,6 +61,9 @@ public class JavaActivationProvider implements MimeTypeProvider {
 			LOG.debug("Detect mime type for file {}", file);
 			String contentType = map.getContentType(file);
 			LOG.debug("Detected mime type for file {}: {}", file, contentType);
+			if (failIfOctetStream && OCTET_STREAM.equals(contentType)) {
+				throw new MimeTypeDetectionException("Default mimetype found (application/octet-stream) but provider is configured to fail in this case");
+			}
 			return new MimeType(contentType);
 		} catch (MimeTypeParseException e) {
 			throw new MimeTypeDetectionException("Failed to detect mimetype for " + file, e);
@@ -52,14 +77,12 @@ public class JavaActivationProvider implements MimeTypeProvider {
 
 	@Override
 	public MimeType detect(InputStream stream) throws MimeTypeDetectionException {
-		// TODO delegate to another mimetype engine capable of detecting
-		return null;
+		throw new MimeTypeDetectionException("File extension can't be used to detect the mimetype of a stream");
 	}
 
 	@Override
 	public MimeType detect(String content) throws MimeTypeDetectionException {
-		// TODO delegate to another mimetype engine capable of detecting
-		return null;
+		throw new MimeTypeDetectionException("File extension can't be used to detect the mimetype of a content");
 	}
 
 }
@@ -0,0 +1,149 @@
+package fr.sii.ogham.core.mimetype;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.activation.MimeType;
+import javax.activation.MimeTypeParseException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.exception.mimetype.MimeTypeDetectionException;
+import fr.sii.ogham.core.util.IOUtils;
+
+/**
+ * <p>
+ * Fast Mime Type detection that only checks the magic numbers of the most
+ * common binary formats sent by email (images and PDF). Only the first bytes
+ * of the content are read.
+ * </p>
+ * <p>
+ * If the content doesn't match any known magic number, a
+ * {@link MimeTypeDetectionException} is thrown so a more complete provider
+ * (like {@link TikaProvider}) can be used as fallback (see
+ * {@link FallbackMimeTypeProvider}).
+ * </p>
+ * <p>
+ * Textual content can't be detected using magic numbers so
+ * {@link #detect(String)} always fails.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class MagicNumberProvider implements MimeTypeProvider {
+	private static final Logger LOG = LoggerFactory.getLogger(MagicNumberProvider.class);
+
+	// @formatter:off
+	private static final Signature[] SIGNATURES = {
+		new Signature("image/png", 0, new byte[] { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' }),
+		new Signature("image/jpeg", 0, new byte[] { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF }),
+		new Signature("image/gif", 0, ascii("GIF87a")),
+		new Signature("image/gif", 0, ascii("GIF89a")),
+		new Signature("image/webp", 0, ascii("RIFF"), 8, ascii("WEBP")),
+		new Signature("application/pdf", 0, ascii("%PDF-"))
+	};
+	// @formatter:on
+
+	/**
+	 * The number of bytes needed to check all signatures
+	 */
+	private static final int HEADER_LENGTH = 16;
+
+	@Override
+	public MimeType getMimeType(File file) throws MimeTypeDetectionException {
+		LOG.debug("Detect mime type for file {}", file);
+		try (InputStream stream = new FileInputStream(file)) {
+			return detect(stream);
+		} catch (IOException e) {
+			throw new MimeTypeDetectionException("Failed to get the mimetype for the file " + file, e);
+		}
+	}
+
+	@Override
+	public MimeType getMimeType(String filePath) throws MimeTypeDetectionException {
+		return getMimeType(new File(filePath));
+	}
+
+	@Override
+	public MimeType detect(InputStream stream) throws MimeTypeDetectionException {
+		try {
+			byte[] header = IOUtils.toByteArray(stream, HEADER_LENGTH);
+			for (Signature signature : SIGNATURES) {
+				if (signature.matches(header)) {
+					LOG.debug("Detected mime type from magic number: {}", signature.mimetype);
+					return new MimeType(signature.mimetype);
+				}
+			}
+			throw new MimeTypeDetectionException("No known magic number found");
+		} catch (MimeTypeParseException e) {
+			throw new MimeTypeDetectionException("Invalid mimetype", e);
+		} catch (IOException e) {
+			throw new MimeTypeDetectionException("Failed to get the mimetype because the stream is not readable", e);
+		}
+	}
+
+	@Override
+	public MimeType detect(String content) throws MimeTypeDetectionException {
+		throw new MimeTypeDetectionException("Magic numbers can't be used to detect the mimetype of textual content");
+	}
+
+	@Override
+	public String toString() {
+		return "MagicNumberProvider";
+	}
+
+	private static byte[] ascii(String str) {
+		return str.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * One or several sequences of bytes at fixed offsets that identify a
+	 * format.
+	 */
+	private static class Signature {
+		private final String mimetype;
+		private final int[] offsets;
+		private final byte[][] patterns;
+
+		Signature(String mimetype, int offset, byte[] pattern) {
+			this(mimetype, new int[] { offset }, new byte[][] { pattern });
+		}
+
+		Signature(String mimetype, int offset1, byte[] pattern1, int offset2, byte[] pattern2) {
+			this(mimetype, new int[] { offset1, offset2 }, new byte[][] { pattern1, pattern2 });
+		}
+
+		private Signature(String mimetype, int[] offsets, byte[][] patterns) {
+			super();
+			this.mimetype = mimetype;
+			this.offsets = offsets;
+			this.patterns = patterns;
+		}
+
+		boolean matches(byte[] header) {
+			for (int i = 0; i < offsets.length; i++) {
+				if (!matches(header, offsets[i], patterns[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static boolean matches(byte[] header, int offset, byte[] pattern) {
+			if (offset + pattern.length > header.length) {
+				return false;
+			}
+			for (int i = 0; i < pattern.length; i++) {
+				if (header[offset + i] != pattern[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
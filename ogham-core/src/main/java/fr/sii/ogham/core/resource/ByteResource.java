@@ -27,8 +27,22 @@ public class ByteResource implements NamedResource {
 	 */
 	private String name;
 
+	/**
+	 * Initialize the resource with the provided name and the content of the
+	 * stream. The read bytes are not exposed outside so they are not copied
+	 * again.
+	 * 
+	 * @param name
+	 *            the name of the resource
+	 * @param stream
+	 *            the stream that provides the content of the resource
+	 * @throws IOException
+	 *             when the stream can't be read
+	 */
 	public ByteResource(String name, InputStream stream) throws IOException {
-		this(name, IOUtils.toByteArray(stream));
+		super();
+		this.name = name;
+		this.bytes = IOUtils.toByteArray(stream);
 	}
 
 	/**
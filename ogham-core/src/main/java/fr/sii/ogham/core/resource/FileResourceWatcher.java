@@ -0,0 +1,235 @@
+package fr.sii.ogham.core.resource;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Watches directories of the file system and notifies the
+ * {@link ResourceChangeListener}s only when a file is actually created,
+ * modified or removed. The caches can then keep their entries forever without
+ * checking the files on each use.
+ * </p>
+ * <p>
+ * The sub-directories are watched too (including the ones created later). The
+ * path provided to the listeners is the path of the watched directory (as
+ * provided to {@link #watch(File)}) followed by the path of the file relative
+ * to it. Therefore, the watched directory must be provided the same way as
+ * the parent path used for resource resolution so that the notified paths
+ * match the resolved paths.
+ * </p>
+ * <p>
+ * If the changes couldn't be tracked (too many events), the listeners are
+ * notified that all resources may have changed.
+ * </p>
+ * <p>
+ * The events are handled by a daemon thread that is started when the first
+ * directory is watched. Call {@link #close()} to stop it.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class FileResourceWatcher implements Closeable {
+	private static final Logger LOG = LoggerFactory.getLogger(FileResourceWatcher.class);
+
+	/**
+	 * The components to notify
+	 */
+	private final List<ResourceChangeListener> listeners;
+
+	/**
+	 * The watched directories indexed by their registration
+	 */
+	private final Map<WatchKey, File> directories;
+
+	/**
+	 * The service provided by the file system
+	 */
+	private WatchService watchService;
+
+	/**
+	 * The thread that handles the events
+	 */
+	private Thread thread;
+
+	public FileResourceWatcher(ResourceChangeListener... listeners) {
+		super();
+		this.listeners = new CopyOnWriteArrayList<>(listeners);
+		this.directories = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Register a component to notify when a file changes.
+	 *
+	 * @param listener
+	 *            the component to notify
+	 * @return this instance for fluent use
+	 */
+	public FileResourceWatcher addListener(ResourceChangeListener listener) {
+		listeners.add(listener);
+		return this;
+	}
+
+	/**
+	 * Unregister a component so it is not notified anymore.
+	 *
+	 * @param listener
+	 *            the component to unregister
+	 * @return this instance for fluent use
+	 */
+	public FileResourceWatcher removeListener(ResourceChangeListener listener) {
+		listeners.remove(listener);
+		return this;
+	}
+
+	/**
+	 * Watch the directory and its sub-directories. Nothing is done if the
+	 * directory is already watched.
+	 *
+	 * @param directory
+	 *            the directory to watch
+	 * @return this instance for fluent use
+	 * @throws IOException
+	 *             when the directory can't be watched
+	 */
+	public synchronized FileResourceWatcher watch(File directory) throws IOException {
+		if (isWatching(directory)) {
+			LOG.debug("{} is already watched", directory);
+			return this;
+		}
+		if (watchService == null) {
+			watchService = FileSystems.getDefault().newWatchService();
+			thread = new Thread(new EventLoop(watchService), "ogham-resource-watcher");
+			thread.setDaemon(true);
+			thread.start();
+		}
+		register(directory);
+		return this;
+	}
+
+	/**
+	 * Indicates if the directory is currently watched (either directly or as
+	 * a sub-directory of a watched directory).
+	 *
+	 * @param directory
+	 *            the directory to check
+	 * @return true if the changes in the directory are tracked
+	 */
+	public boolean isWatching(File directory) {
+		return directories.containsValue(directory);
+	}
+
+	/**
+	 * Stop watching the directories.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (watchService != null) {
+			watchService.close();
+			thread.interrupt();
+			watchService = null;
+			thread = null;
+		}
+		directories.clear();
+	}
+
+	private void register(File directory) throws IOException {
+		WatchKey key = directory.toPath().register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+		directories.put(key, directory);
+		LOG.debug("Watching changes in {}", directory);
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (file.isDirectory()) {
+					register(file);
+				}
+			}
+		}
+	}
+
+	private void handle(WatchKey key) {
+		File directory = directories.get(key);
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == OVERFLOW || directory == null) {
+				LOG.debug("Changes couldn't be tracked precisely => all resources may have changed");
+				fireChanged(null);
+				continue;
+			}
+			File changed = new File(directory, ((Path) event.context()).toString());
+			LOG.debug("{} has changed ({})", changed, event.kind());
+			if (event.kind() == ENTRY_CREATE && changed.isDirectory()) {
+				registerCreated(changed);
+			}
+			fireChanged(changed.getPath());
+		}
+		if (!key.reset()) {
+			directories.remove(key);
+		}
+	}
+
+	private synchronized void registerCreated(File directory) {
+		try {
+			if (watchService != null) {
+				register(directory);
+			}
+		} catch (IOException e) {
+			LOG.warn("Failed to watch changes in created directory {}", directory, e);
+		}
+	}
+
+	private void fireChanged(String path) {
+		for (ResourceChangeListener listener : listeners) {
+			try {
+				if (path == null) {
+					listener.allResourcesChanged();
+				} else {
+					listener.resourceChanged(path);
+				}
+			} catch (RuntimeException e) {
+				LOG.warn("Failed to notify {} about resource change", listener, e);
+			}
+		}
+	}
+
+	private class EventLoop implements Runnable {
+		private final WatchService service;
+
+		public EventLoop(WatchService service) {
+			super();
+			this.service = service;
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (!Thread.currentThread().isInterrupted()) {
+					handle(service.take());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ClosedWatchServiceException e) {
+				LOG.trace("Watch service closed", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package fr.sii.ogham.core.resource;
+
+/**
+ * Implemented by the components that keep information computed from the
+ * content of resources (caches). They are notified when a resource is modified
+ * or removed so they can forget the outdated information.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public interface ResourceChangeListener {
+	/**
+	 * Called when the resource has been created, modified or removed.
+	 * 
+	 * @param resolvedPath
+	 *            the resolved path of the resource (see
+	 *            {@link ResourcePath#getResolvedPath()})
+	 */
+	public void resourceChanged(String resolvedPath);
+
+	/**
+	 * Called when any resource may have changed (the changes couldn't be
+	 * tracked precisely).
+	 */
+	public void allResourcesChanged();
+}
@@ -11,7 +11,7 @@ import fr.sii.ogham.core.resource.ResourcePath;
  * @author Cyril Dejonghe
  *
  */
-public abstract class AbstractPrefixedLookupPathResolver implements ResourceResolver {
+public abstract class AbstractPrefixedLookupPathResolver implements CheckableResourceResolver {
 	private String[] lookups;
 
 	public AbstractPrefixedLookupPathResolver(String... lookups) {
@@ -49,6 +49,29 @@ public abstract class AbstractPrefixedLookupPathResolver implements ResourceReso
 		return getResource(getResourcePath(path));
 	}
 
+	@Override
+	public boolean exists(String path) {
+		return exists(getResourcePath(path));
+	}
+
+	/**
+	 * Indicates if the resource exists. By default, the resource is loaded.
+	 * Implementations should override this method to check the existence
+	 * without reading the content.
+	 * 
+	 * @param resourcePath
+	 *            the path of the resource
+	 * @return true if the resource exists, false otherwise
+	 */
+	protected boolean exists(ResourcePath resourcePath) {
+		try {
+			getResource(resourcePath);
+			return true;
+		} catch (ResourceResolutionException e) {
+			return false;
+		}
+	}
+
 	@Override
 	public ResourcePath getResourcePath(String path) {
 		ResourcePath result = null;
@@ -0,0 +1,22 @@
+package fr.sii.ogham.core.resource.resolver;
+
+/**
+ * Resource resolver that is able to check if a resource exists without
+ * reading its content. Reading the content may be costly (the classpath
+ * resources are fully loaded in memory for example) while checking the
+ * existence is cheap.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public interface CheckableResourceResolver extends ResourceResolver {
+	/**
+	 * Indicates if the resource exists. The content of the resource is not
+	 * read.
+	 * 
+	 * @param path
+	 *            the path of the resource
+	 * @return true if the resource exists, false otherwise
+	 */
+	boolean exists(String path);
+}
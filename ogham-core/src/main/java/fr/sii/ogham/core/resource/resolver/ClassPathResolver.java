@@ -52,6 +52,12 @@ public class ClassPathResolver extends AbstractPrefixedLookupPathResolver implem
 		}
 	}
 
+	@Override
+	protected boolean exists(ResourcePath resourcePath) {
+		String resolvedPath = resourcePath.getResolvedPath();
+		return getClass().getClassLoader().getResource(resolvedPath.startsWith("/") ? resolvedPath.substring(1) : resolvedPath) != null;
+	}
+
 	private static String extractName(String path) {
 		String name;
 		int lastSlashIdx = path.lastIndexOf('/');
@@ -11,7 +11,7 @@ import fr.sii.ogham.core.resource.ResourcePath;
  * @author Cyril Dejonghe
  *
  */
-public class DefaultResourceResolver implements DelegateResourceResolver {
+public class DefaultResourceResolver implements DelegateResourceResolver, CheckableResourceResolver {
 	/**
 	 * The delegate resolver that will do the real resource resolution
 	 */
@@ -47,6 +47,11 @@ public class DefaultResourceResolver implements DelegateResourceResolver {
 		return delegate.getResource(getResourcePath(path));
 	}
 
+	@Override
+	public boolean exists(String path) {
+		return delegate.exists(getResourcePath(path));
+	}
+
 	@Override
 	public ResourceResolver getActualResourceResolver() {
 		return delegate instanceof DelegateResourceResolver ? ((DelegateResourceResolver) delegate).getActualResourceResolver() : delegate;
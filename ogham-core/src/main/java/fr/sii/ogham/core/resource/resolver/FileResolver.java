@@ -41,4 +41,9 @@ public class FileResolver extends AbstractPrefixedLookupPathResolver implements
 		LOG.debug("Resource {} found on the file system", resourcePath);
 		return resource;
 	}
+
+	@Override
+	protected boolean exists(ResourcePath resourcePath) {
+		return new File(resourcePath.getResolvedPath()).isFile();
+	}
 }
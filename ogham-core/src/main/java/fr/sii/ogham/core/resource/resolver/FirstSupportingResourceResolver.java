@@ -9,6 +9,7 @@ import fr.sii.ogham.core.exception.resource.NoResolverException;
 import fr.sii.ogham.core.exception.resource.ResourceResolutionException;
 import fr.sii.ogham.core.resource.Resource;
 import fr.sii.ogham.core.resource.ResourcePath;
+import fr.sii.ogham.core.util.ResourceUtils;
 
 /**
  * Decorator that will ask each resource resolver if it is able to handle the
@@ -20,7 +21,7 @@ import fr.sii.ogham.core.resource.ResourcePath;
  * @author Aurélien Baudet
  * @see ResourceResolver
  */
-public class FirstSupportingResourceResolver implements ResourceResolver {
+public class FirstSupportingResourceResolver implements CheckableResourceResolver {
 	private static final Logger LOG = LoggerFactory.getLogger(FirstSupportingResourceResolver.class);
 
 	/**
@@ -88,6 +89,12 @@ public class FirstSupportingResourceResolver implements ResourceResolver {
 		return null;
 	}
 
+	@Override
+	public boolean exists(String path) {
+		ResourceResolver supportingResolver = getSupportingResolver(path);
+		return supportingResolver != null && ResourceUtils.exists(supportingResolver, path);
+	}
+
 	public List<ResourceResolver> getResolvers() {
 		return resolvers;
 	}
@@ -6,6 +6,7 @@ import org.slf4j.LoggerFactory;
 import fr.sii.ogham.core.exception.resource.ResourceResolutionException;
 import fr.sii.ogham.core.resource.Resource;
 import fr.sii.ogham.core.resource.ResourcePath;
+import fr.sii.ogham.core.util.ResourceUtils;
 
 /**
  * <p>
@@ -26,7 +27,7 @@ import fr.sii.ogham.core.resource.ResourcePath;
  * @author Aurélien Baudet
  *
  */
-public class RelativeResolver implements DelegateResourceResolver {
+public class RelativeResolver implements DelegateResourceResolver, CheckableResourceResolver {
 	private static final Logger LOG = LoggerFactory.getLogger(RelativeResolver.class);
 
 	/**
@@ -87,6 +88,12 @@ public class RelativeResolver implements DelegateResourceResolver {
 		}
 	}
 
+	@Override
+	public boolean exists(String path) {
+		boolean absolute = path.startsWith("/");
+		return ResourceUtils.exists(delegate, absolute ? path : (parentPath + path + extension));
+	}
+
 	public String getParentPath() {
 		return parentPath;
 	}
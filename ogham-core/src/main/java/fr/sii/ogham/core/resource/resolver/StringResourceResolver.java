@@ -21,4 +21,10 @@ public class StringResourceResolver extends AbstractPrefixedLookupPathResolver i
 	protected Resource getResource(ResourcePath resourcePath) throws ResourceResolutionException {
 		return new SimpleResource(resourcePath.getResolvedPath().getBytes());
 	}
+
+	@Override
+	protected boolean exists(ResourcePath resourcePath) {
+		// the content is the path
+		return true;
+	}
 }
@@ -0,0 +1,48 @@
+package fr.sii.ogham.core.template.bulk;
+
+import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.template.context.Context;
+
+/**
+ * Receives the results of a bulk rendering (see {@link BulkTemplateRenderer}).
+ * 
+ * <p>
+ * If the rendering is parallelized, the methods are called concurrently by
+ * several threads.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public interface BulkRenderHandler {
+	/**
+	 * Called when the template has been rendered with a context.
+	 * 
+	 * <p>
+	 * The result is a buffer that is reused for the next rendering of the
+	 * current thread. It is only valid until this method returns, so it must
+	 * be consumed (or copied using {@link CharSequence#toString()}) here.
+	 * </p>
+	 * 
+	 * @param index
+	 *            the position of the context in the provided contexts
+	 * @param ctx
+	 *            the context used to render the template
+	 * @param result
+	 *            the result of the template
+	 */
+	public void rendered(long index, Context ctx, CharSequence result);
+
+	/**
+	 * Called when the template couldn't be rendered with a context. The
+	 * rendering continues with the next contexts.
+	 * 
+	 * @param index
+	 *            the position of the context in the provided contexts
+	 * @param ctx
+	 *            the context used to render the template
+	 * @param e
+	 *            the rendering error
+	 */
+	public void failed(long index, Context ctx, ParseException e);
+}
@@ -0,0 +1,217 @@
+package fr.sii.ogham.core.template.bulk;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.template.context.Context;
+import fr.sii.ogham.core.template.parser.BindableTemplateParser;
+import fr.sii.ogham.core.template.parser.BoundTemplate;
+import fr.sii.ogham.core.template.parser.DefaultBoundTemplate;
+import fr.sii.ogham.core.template.parser.TemplateParser;
+
+/**
+ * <p>
+ * Renders the same template with many contexts (for campaigns for example).
+ * The template is resolved, detected and loaded only once (see
+ * {@link BindableTemplateParser}). Then it is rendered for each context into a
+ * buffer that is reused by each worker thread, so no buffer is allocated per
+ * context.
+ * </p>
+ * <p>
+ * The rendering can be parallelized using an {@link Executor}. The calling
+ * thread is always one of the workers. The contexts are consumed one by one
+ * from the provided {@link Iterable} so they don't need to be all in memory.
+ * The results are provided to a {@link BulkRenderHandler} as soon as they are
+ * rendered (not necessarily in order when parallelized).
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class BulkTemplateRenderer {
+	private static final Logger LOG = LoggerFactory.getLogger(BulkTemplateRenderer.class);
+
+	/**
+	 * Default initial size of the buffer of each worker
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+	/**
+	 * The parser used to bind the template
+	 */
+	private final TemplateParser parser;
+
+	/**
+	 * The executor used to run the additional workers (null for no
+	 * parallelization)
+	 */
+	private final Executor executor;
+
+	/**
+	 * The total number of workers (the calling thread included)
+	 */
+	private final int parallelism;
+
+	/**
+	 * Initialize the renderer that renders the contexts sequentially.
+	 * 
+	 * @param parser
+	 *            the parser used to bind the template
+	 */
+	public BulkTemplateRenderer(TemplateParser parser) {
+		this(parser, null, 1);
+	}
+
+	/**
+	 * Initialize the renderer that renders the contexts in parallel.
+	 * 
+	 * @param parser
+	 *            the parser used to bind the template
+	 * @param executor
+	 *            the executor used to run the additional workers
+	 * @param parallelism
+	 *            the total number of workers (the calling thread included)
+	 */
+	public BulkTemplateRenderer(TemplateParser parser, Executor executor, int parallelism) {
+		super();
+		this.parser = parser;
+		this.executor = executor;
+		this.parallelism = executor == null ? 1 : Math.max(1, parallelism);
+	}
+
+	/**
+	 * Render the template with each context. The method returns when all the
+	 * contexts have been rendered.
+	 * 
+	 * @param templateName
+	 *            the name (or path) of the template
+	 * @param contexts
+	 *            the contexts used to render the template
+	 * @param handler
+	 *            receives the results (must be thread-safe if parallelized)
+	 * @throws ParseException
+	 *             when the template couldn't be bound (rendering errors are
+	 *             provided to the handler)
+	 */
+	public void render(String templateName, Iterable<? extends Context> contexts, BulkRenderHandler handler) throws ParseException {
+		BoundTemplate template = parser instanceof BindableTemplateParser ? ((BindableTemplateParser) parser).bind(templateName) : new DefaultBoundTemplate(parser, templateName);
+		LOG.info("Bulk rendering of template {} using {} worker(s)", templateName, parallelism);
+		ContextSource source = new ContextSource(contexts.iterator());
+		List<FutureTask<Void>> workers = new ArrayList<>(parallelism - 1);
+		for (int i = 1; i < parallelism; i++) {
+			FutureTask<Void> worker = new FutureTask<>(new Worker(template, source, handler), null);
+			try {
+				executor.execute(worker);
+				workers.add(worker);
+			} catch (RejectedExecutionException e) {
+				LOG.debug("Executor rejected bulk rendering worker => continue with {} worker(s)", i, e);
+				break;
+			}
+		}
+		new Worker(template, source, handler).run();
+		for (FutureTask<Void> worker : workers) {
+			await(worker);
+		}
+	}
+
+	private static void await(FutureTask<Void> worker) {
+		try {
+			worker.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for bulk rendering", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException("Bulk rendering failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Provides the contexts to the workers one by one
+	 */
+	private static class ContextSource {
+		private final Iterator<? extends Context> iterator;
+		private long index;
+		private boolean stopped;
+
+		public ContextSource(Iterator<? extends Context> iterator) {
+			super();
+			this.iterator = iterator;
+		}
+
+		/**
+		 * Fill the holder with the next context.
+		 * 
+		 * @param holder
+		 *            the holder of the next context
+		 * @return false if there is no more context
+		 */
+		public synchronized boolean next(IndexedContext holder) {
+			if (stopped || !iterator.hasNext()) {
+				return false;
+			}
+			holder.ctx = iterator.next();
+			holder.index = index++;
+			return true;
+		}
+
+		/**
+		 * Stop providing contexts (a worker failed)
+		 */
+		public synchronized void stop() {
+			stopped = true;
+		}
+	}
+
+	private static class IndexedContext {
+		private long index;
+		private Context ctx;
+	}
+
+	private static class Worker implements Runnable {
+		private final BoundTemplate template;
+		private final ContextSource source;
+		private final BulkRenderHandler handler;
+
+		public Worker(BoundTemplate template, ContextSource source, BulkRenderHandler handler) {
+			super();
+			this.template = template;
+			this.source = source;
+			this.handler = handler;
+		}
+
+		@Override
+		public void run() {
+			// the buffer is reused for every context of this worker
+			StringWriter out = new StringWriter(DEFAULT_BUFFER_SIZE);
+			StringBuffer buffer = out.getBuffer();
+			IndexedContext next = new IndexedContext();
+			try {
+				while (source.next(next)) {
+					buffer.setLength(0);
+					try {
+						template.render(next.ctx, out);
+						handler.rendered(next.index, next.ctx, buffer);
+					} catch (ParseException e) {
+						handler.failed(next.index, next.ctx, e);
+					}
+				}
+			} catch (RuntimeException | Error e) {
+				source.stop();
+				throw e;
+			}
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package fr.sii.ogham.core.template.cache;
+
+import java.util.Locale;
+
+import fr.sii.ogham.core.cache.Cache;
+import fr.sii.ogham.core.cache.LruCache;
+import fr.sii.ogham.core.resource.ResourceChangeListener;
+
+/**
+ * <p>
+ * Cache of the static blocks of the templates. A static block is a part of a
+ * template that renders the same way for a locale whatever the recipient is
+ * (footer, legal notice, header...). The rest of the template is still
+ * rendered for each message, only the block is rendered once per locale.
+ * </p>
+ * <p>
+ * The template engines provide the syntax to mark a block as static and use
+ * this cache to store the rendered blocks:
+ * <ul>
+ * <li>FreeMarker: <code>&lt;@cache name="footer"&gt;...&lt;/@cache&gt;</code>
+ * (see {@link fr.sii.ogham.template.freemarker.CacheFragmentDirective})</li>
+ * <li>Thymeleaf:
+ * <code>th:utext="${#fragmentCache.include('classpath:/footer.html')}"</code>
+ * (see {@link fr.sii.ogham.template.thymeleaf.FragmentCacheDialect})</li>
+ * </ul>
+ * </p>
+ * <p>
+ * The blocks are identified by the name of the template that contains them,
+ * the locale and the name of the block. The cache is bounded by the total
+ * length of the cached blocks (the least recently used blocks are evicted
+ * first). It is cleared when a resource changes (see
+ * {@link ResourceChangeListener}).
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class FragmentCache implements ResourceChangeListener {
+	/**
+	 * Default maximum total length of the cached blocks
+	 */
+	public static final long DEFAULT_CACHE_WEIGHT = 1024 * 1024;
+
+	/**
+	 * The rendered blocks
+	 */
+	private final Cache<OutputCacheKey, String> fragments;
+
+	/**
+	 * Initialize the cache with the default maximum total length (1M
+	 * characters).
+	 */
+	public FragmentCache() {
+		this(DEFAULT_CACHE_WEIGHT);
+	}
+
+	/**
+	 * Initialize the cache with the maximum total length of the cached
+	 * blocks.
+	 *
+	 * @param maxWeight
+	 *            the maximum total length (in characters) of the cached blocks
+	 */
+	public FragmentCache(long maxWeight) {
+		super();
+		this.fragments = new LruCache<OutputCacheKey, String>(maxWeight) {
+			@Override
+			protected long weigh(String value) {
+				return value.length();
+			}
+		};
+	}
+
+	/**
+	 * Get the already rendered block.
+	 *
+	 * @param templateName
+	 *            the name of the template that contains the block
+	 * @param locale
+	 *            the locale used to render the block (may be null)
+	 * @param name
+	 *            the name of the block
+	 * @return the rendered block or null if not cached
+	 */
+	public String get(String templateName, Locale locale, String name) {
+		return fragments.get(new OutputCacheKey(templateName, locale, name));
+	}
+
+	/**
+	 * Store the rendered block.
+	 *
+	 * @param templateName
+	 *            the name of the template that contains the block
+	 * @param locale
+	 *            the locale used to render the block (may be null)
+	 * @param name
+	 *            the name of the block
+	 * @param output
+	 *            the rendered block
+	 */
+	public void put(String templateName, Locale locale, String name, String output) {
+		fragments.put(new OutputCacheKey(templateName, locale, name), output);
+	}
+
+	/**
+	 * Remove all the rendered blocks.
+	 */
+	public void clear() {
+		fragments.clear();
+	}
+
+	@Override
+	public void resourceChanged(String resolvedPath) {
+		clear();
+	}
+
+	@Override
+	public void allResourcesChanged() {
+		clear();
+	}
+
+	@Override
+	public String toString() {
+		return "FragmentCache";
+	}
+}
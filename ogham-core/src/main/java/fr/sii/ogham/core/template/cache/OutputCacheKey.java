@@ -0,0 +1,72 @@
+package fr.sii.ogham.core.template.cache;
+
+import java.util.Locale;
+
+import fr.sii.ogham.core.util.EqualsBuilder;
+import fr.sii.ogham.core.util.HashCodeBuilder;
+
+/**
+ * Identifies a rendered template in the output cache: the same template
+ * rendered for the same locale with the same key always produces the same
+ * result.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class OutputCacheKey {
+	/**
+	 * The name (or path) of the template
+	 */
+	private final String templateName;
+
+	/**
+	 * The locale used to render the template (may be null)
+	 */
+	private final Locale locale;
+
+	/**
+	 * The key derived from the variables used by the template
+	 */
+	private final Object key;
+
+	private final int hash;
+
+	public OutputCacheKey(String templateName, Locale locale, Object key) {
+		super();
+		this.templateName = templateName;
+		this.locale = locale;
+		this.key = key;
+		this.hash = new HashCodeBuilder().append(templateName, locale, key).hashCode();
+	}
+
+	public String getTemplateName() {
+		return templateName;
+	}
+
+	public Locale getLocale() {
+		return locale;
+	}
+
+	public Object getKey() {
+		return key;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof OutputCacheKey)) {
+			return false;
+		}
+		OutputCacheKey other = (OutputCacheKey) obj;
+		return hash == other.hash && new EqualsBuilder().append(templateName, other.templateName).append(locale, other.locale).append(key, other.key).isEqual();
+	}
+
+	@Override
+	public String toString() {
+		return "OutputCacheKey [templateName=" + templateName + ", locale=" + locale + ", key=" + key + "]";
+	}
+}
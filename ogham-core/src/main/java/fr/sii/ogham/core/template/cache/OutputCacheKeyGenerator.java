@@ -0,0 +1,29 @@
+package fr.sii.ogham.core.template.cache;
+
+import fr.sii.ogham.core.exception.template.ContextException;
+import fr.sii.ogham.core.template.context.Context;
+
+/**
+ * Decides if the result of a template can be cached and provides the key that
+ * identifies the result. The key must be derived from every variable that can
+ * change the result of the template (the template name and the locale are
+ * already part of the cache key).
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public interface OutputCacheKeyGenerator {
+	/**
+	 * Generate the key of the result of the template for the context.
+	 * 
+	 * @param templateName
+	 *            the name (or path) of the template
+	 * @param ctx
+	 *            the context used to render the template
+	 * @return the key (must implement equals and hashCode) or null if the
+	 *         result must not be cached
+	 * @throws ContextException
+	 *             when the variables couldn't be read
+	 */
+	Object generate(String templateName, Context ctx) throws ContextException;
+}
@@ -0,0 +1,90 @@
+package fr.sii.ogham.core.template.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import fr.sii.ogham.core.exception.template.ContextException;
+import fr.sii.ogham.core.exception.util.FieldAccessException;
+import fr.sii.ogham.core.template.context.Context;
+
+/**
+ * <p>
+ * Caches only the templates that are explicitly registered. For each template,
+ * the names of the variables used by the template are registered. The key is
+ * the list of the values of these variables. The other variables are never
+ * read.
+ * </p>
+ * <p>
+ * For example, a legal notice that only depends on the company:
+ * 
+ * <pre>
+ * generator.register(&quot;classpath:/template/legal.html&quot;, &quot;company&quot;);
+ * </pre>
+ * 
+ * A template that doesn't depend on any variable is registered without
+ * variable names.
+ * </p>
+ * <p>
+ * The values of the variables must implement equals and hashCode.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class VariablesOutputCacheKeyGenerator implements OutputCacheKeyGenerator {
+	/**
+	 * The names of the variables used by each cacheable template
+	 */
+	private final Map<String, List<String>> variables;
+
+	public VariablesOutputCacheKeyGenerator() {
+		super();
+		this.variables = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Register a template that can be cached.
+	 * 
+	 * @param templateName
+	 *            the name (or path) of the template as provided to the parser
+	 * @param variableNames
+	 *            the names of the variables that can change the result
+	 * @return this instance for fluent use
+	 */
+	public VariablesOutputCacheKeyGenerator register(String templateName, String... variableNames) {
+		variables.put(templateName, new ArrayList<>(Arrays.asList(variableNames)));
+		return this;
+	}
+
+	@Override
+	public Object generate(String templateName, Context ctx) throws ContextException {
+		List<String> names = variables.get(templateName);
+		if (names == null) {
+			return null;
+		}
+		if (names.isEmpty()) {
+			return names;
+		}
+		if (ctx == null) {
+			return null;
+		}
+		try {
+			Map<String, Object> values = ctx.getVariables();
+			List<Object> key = new ArrayList<>(names.size());
+			for (String name : names) {
+				key.add(values.get(name));
+			}
+			return key;
+		} catch (FieldAccessException e) {
+			throw new ContextException("Failed to read the variables of the output cache key of " + templateName, e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "VariablesOutputCacheKeyGenerator " + variables;
+	}
+}
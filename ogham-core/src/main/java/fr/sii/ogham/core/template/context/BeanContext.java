@@ -50,6 +50,11 @@ import fr.sii.ogham.core.util.HashCodeBuilder;
  * Then the value of the nested object is accessible through the template
  * variable name "nested.value".
  * 
+ * <p>
+ * The variables are a read-only view on the bean: the getters are called only
+ * for the variables that are actually used by the template.
+ * </p>
+ * 
  * @author Aurélien Baudet
  * @see BeanUtils More information about bean conversion
  */
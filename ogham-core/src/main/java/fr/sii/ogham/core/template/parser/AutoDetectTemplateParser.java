@@ -1,17 +1,25 @@
 package fr.sii.ogham.core.template.parser;
 
+import java.io.Writer;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import fr.sii.ogham.core.cache.Cache;
+import fr.sii.ogham.core.cache.LruCache;
 import fr.sii.ogham.core.exception.resource.ResourceResolutionException;
 import fr.sii.ogham.core.exception.template.EngineDetectionException;
 import fr.sii.ogham.core.exception.template.NoEngineDetectionException;
 import fr.sii.ogham.core.exception.template.ParseException;
 import fr.sii.ogham.core.message.content.Content;
 import fr.sii.ogham.core.resource.Resource;
+import fr.sii.ogham.core.resource.ResourceChangeListener;
+import fr.sii.ogham.core.resource.ResourcePath;
 import fr.sii.ogham.core.resource.resolver.ResourceResolver;
 import fr.sii.ogham.core.template.context.Context;
 import fr.sii.ogham.core.template.detector.TemplateEngineDetector;
@@ -24,12 +32,42 @@ import fr.sii.ogham.core.template.detector.TemplateEngineDetector;
  * The detection mechanism loop through the engine detectors until one indicates
  * that the associated engine can parse the template.
  * 
+ * <p>
+ * The detected engine can be cached per lookup and resolved template path so
+ * the template is resolved and analyzed only once. The detection is then
+ * considered to depend only on the template (not on the variable
+ * substitutions). The cache is disabled by default because a modified template
+ * keeps its cached engine until the cache entry is invalidated through
+ * {@link #resourceChanged(String)}. Enable it only if the templates don't
+ * change or if they are watched (see
+ * {@link fr.sii.ogham.core.resource.FileResourceWatcher}).
+ * </p>
+ * <p>
+ * The template can be rendered directly into a {@link Writer}. If the detected
+ * parser can't stream the result (see {@link StreamingTemplateParser}), the
+ * template is rendered as a string first.
+ * </p>
+ * <p>
+ * Precompiling a template detects the engine (the result is cached) and
+ * compiles the template if the detected parser supports it (see
+ * {@link PrecompilableTemplateParser}).
+ * </p>
+ * <p>
+ * Binding a template detects the engine once. The template is then bound by
+ * the detected parser if it supports it (see {@link BindableTemplateParser}).
+ * </p>
+ * 
  * @author Aurélien Baudet
  *
  */
-public class AutoDetectTemplateParser implements TemplateParser {
+public class AutoDetectTemplateParser implements StreamingTemplateParser, PrecompilableTemplateParser, BindableTemplateParser, ResourceChangeListener {
 	private static final Logger LOG = LoggerFactory.getLogger(AutoDetectTemplateParser.class);
-	
+
+	/**
+	 * Default maximum total length of the cached template paths
+	 */
+	public static final long DEFAULT_DETECTION_CACHE_WEIGHT = 256 * 1024;
+
 	/**
 	 * The template resolver used to find the template
 	 */
@@ -40,14 +78,153 @@ public class AutoDetectTemplateParser implements TemplateParser {
 	 */
 	private Map<TemplateEngineDetector, TemplateParser> detectors;
 
+	/**
+	 * The detected parser for each lookup and resolved template path (null if
+	 * cache is disabled)
+	 */
+	private final Cache<DetectionKey, DetectedParser> detections;
+
+	/**
+	 * The lookups of the cached entries (used to invalidate the entries of a
+	 * resolved path whatever the lookup)
+	 */
+	private final Set<String> lookups;
+
+	/**
+	 * Initialize the parser without detection cache.
+	 * 
+	 * @param resolver
+	 *            the template resolver used to find the template
+	 * @param detectors
+	 *            the pairs of engine detector and template engine parser
+	 */
 	public AutoDetectTemplateParser(ResourceResolver resolver, Map<TemplateEngineDetector, TemplateParser> detectors) {
+		this(resolver, detectors, 0);
+	}
+
+	/**
+	 * Initialize the parser with the maximum total length of the cached
+	 * template paths.
+	 * 
+	 * @param resolver
+	 *            the template resolver used to find the template
+	 * @param detectors
+	 *            the pairs of engine detector and template engine parser
+	 * @param maxCacheWeight
+	 *            the maximum total length (in characters) of the cached
+	 *            template paths (0 to disable the cache)
+	 */
+	public AutoDetectTemplateParser(ResourceResolver resolver, Map<TemplateEngineDetector, TemplateParser> detectors, long maxCacheWeight) {
 		super();
 		this.resolver = resolver;
 		this.detectors = detectors;
+		this.detections = maxCacheWeight <= 0 ? null : new LruCache<DetectionKey, DetectedParser>(maxCacheWeight) {
+			@Override
+			protected long weigh(DetectedParser value) {
+				// string templates are resolved to their content
+				return value.getResolvedPath().length();
+			}
+		};
+		this.lookups = maxCacheWeight <= 0 ? null : Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 	}
 
 	@Override
 	public Content parse(String templateName, Context ctx) throws ParseException {
+		return getParser(templateName, ctx).parse(templateName, ctx);
+	}
+
+	@Override
+	public void parse(String templateName, Context ctx, Writer out) throws ParseException {
+		TemplateParser parser = getParser(templateName, ctx);
+		if (parser instanceof StreamingTemplateParser) {
+			((StreamingTemplateParser) parser).parse(templateName, ctx, out);
+		} else {
+			LOG.debug("Template engine {} can't stream the result of {} => render it as string", parser, templateName);
+			new DefaultBoundTemplate(parser, templateName).render(ctx, out);
+		}
+	}
+
+	@Override
+	public void precompile(String templateName) throws ParseException {
+		TemplateParser parser = getParser(templateName, null);
+		if (parser instanceof PrecompilableTemplateParser) {
+			((PrecompilableTemplateParser) parser).precompile(templateName);
+		} else {
+			LOG.debug("Template engine {} can't compile {} in advance", parser, templateName);
+		}
+	}
+
+	@Override
+	public BoundTemplate bind(String templateName) throws ParseException {
+		TemplateParser parser = getParser(templateName, null);
+		if (parser instanceof BindableTemplateParser) {
+			return ((BindableTemplateParser) parser).bind(templateName);
+		}
+		return new DefaultBoundTemplate(parser, templateName);
+	}
+
+	/**
+	 * Forget the detected engine for the resource. The template engine
+	 * parsers that cache templates are also notified.
+	 */
+	@Override
+	public void resourceChanged(String resolvedPath) {
+		if (detections != null) {
+			for (String lookup : lookups) {
+				detections.remove(new DetectionKey(lookup, resolvedPath));
+			}
+		}
+		for (TemplateParser parser : detectors.values()) {
+			if (parser instanceof ResourceChangeListener) {
+				((ResourceChangeListener) parser).resourceChanged(resolvedPath);
+			}
+		}
+	}
+
+	/**
+	 * Forget all the detected engines. The template engine parsers that cache
+	 * templates are also notified.
+	 */
+	@Override
+	public void allResourcesChanged() {
+		if (detections != null) {
+			detections.clear();
+		}
+		for (TemplateParser parser : detectors.values()) {
+			if (parser instanceof ResourceChangeListener) {
+				((ResourceChangeListener) parser).allResourcesChanged();
+			}
+		}
+	}
+
+	private TemplateParser getParser(String templateName, Context ctx) throws ParseException {
+		if (detections == null) {
+			TemplateParser parser = detect(templateName, ctx);
+			LOG.info("Parse the template {} using template engine {}", templateName, parser);
+			return parser;
+		}
+		ResourcePath path = getResourcePath(templateName);
+		// the same path may be used by several lookups (classpath and file
+		// for example)
+		DetectionKey key = new DetectionKey(path.getPrefix() == null ? "" : path.getPrefix(), path.getResolvedPath());
+		DetectedParser cached = detections.get(key);
+		if (cached != null) {
+			LOG.debug("Parse the template {} using cached template engine {}", templateName, cached.getParser());
+			return cached.getParser();
+		}
+		TemplateParser parser = detect(templateName, ctx);
+		lookups.add(key.getLookup());
+		detections.put(key, new DetectedParser(parser, key.getResolvedPath()));
+		LOG.info("Parse the template {} using template engine {}", templateName, parser);
+		return parser;
+	}
+
+	private ResourcePath getResourcePath(String templateName) {
+		ResourcePath path = resolver.getResourcePath(templateName);
+		return path == null || path.getResolvedPath() == null ? new ResourcePath(templateName, null, templateName) : path;
+	}
+
+	private TemplateParser detect(String templateName, Context ctx) throws ParseException {
 		try {
 			LOG.info("Start template engine automatic detection for {}", templateName);
 			Resource template = resolver.getResource(templateName);
@@ -64,8 +241,7 @@ public class AutoDetectTemplateParser implements TemplateParser {
 			if (parser == null) {
 				throw new NoEngineDetectionException("Auto detection couldn't find any parser able to handle the template " + templateName);
 			}
-			LOG.info("Parse the template {} using template engine {}", templateName, parser);
-			return parser.parse(templateName, ctx);
+			return parser;
 		} catch (ResourceResolutionException e) {
 			throw new ParseException("Failed to automatically detect parser because the template couldn't be resolved", templateName, ctx, e);
 		} catch (EngineDetectionException e) {
@@ -73,4 +249,58 @@ public class AutoDetectTemplateParser implements TemplateParser {
 		}
 	}
 
+	private static class DetectedParser {
+		private final TemplateParser parser;
+		private final String resolvedPath;
+
+		public DetectedParser(TemplateParser parser, String resolvedPath) {
+			super();
+			this.parser = parser;
+			this.resolvedPath = resolvedPath;
+		}
+
+		public TemplateParser getParser() {
+			return parser;
+		}
+
+		public String getResolvedPath() {
+			return resolvedPath;
+		}
+	}
+
+	private static class DetectionKey {
+		private final String lookup;
+		private final String resolvedPath;
+
+		public DetectionKey(String lookup, String resolvedPath) {
+			super();
+			this.lookup = lookup;
+			this.resolvedPath = resolvedPath;
+		}
+
+		public String getLookup() {
+			return lookup;
+		}
+
+		public String getResolvedPath() {
+			return resolvedPath;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * lookup.hashCode() + resolvedPath.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof DetectionKey)) {
+				return false;
+			}
+			DetectionKey other = (DetectionKey) obj;
+			return lookup.equals(other.lookup) && resolvedPath.equals(other.resolvedPath);
+		}
+	}
 }
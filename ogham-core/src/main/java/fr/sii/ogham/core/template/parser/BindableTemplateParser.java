@@ -0,0 +1,24 @@
+package fr.sii.ogham.core.template.parser;
+
+import fr.sii.ogham.core.exception.template.ParseException;
+
+/**
+ * Extension of {@link TemplateParser} for parsers that are able to load a
+ * template once and then render it with many contexts (see
+ * {@link BoundTemplate}).
+ * 
+ * @author Aurélien Baudet
+ * @see fr.sii.ogham.core.template.bulk.BulkTemplateRenderer
+ */
+public interface BindableTemplateParser extends TemplateParser {
+	/**
+	 * Resolve and load the template.
+	 * 
+	 * @param templateName
+	 *            the name of the template to load (or the path)
+	 * @return the template ready to be rendered
+	 * @throws ParseException
+	 *             when the template couldn't be resolved or loaded
+	 */
+	public BoundTemplate bind(String templateName) throws ParseException;
+}
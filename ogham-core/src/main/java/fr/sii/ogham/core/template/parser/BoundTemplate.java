@@ -0,0 +1,42 @@
+package fr.sii.ogham.core.template.parser;
+
+import java.io.Writer;
+
+import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.template.context.Context;
+
+/**
+ * A template that has already been resolved, detected and loaded by a
+ * {@link BindableTemplateParser}. It can then be rendered many times with
+ * different contexts without looking up the template again.
+ * 
+ * <p>
+ * Implementations must be thread-safe: the same bound template can be rendered
+ * concurrently.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public interface BoundTemplate {
+	/**
+	 * Replace the variables of the template by the values defined in the
+	 * context and write the result into the writer. The writer is not closed.
+	 * 
+	 * @param ctx
+	 *            the context that contains the variable values
+	 * @param out
+	 *            the writer that receives the result of the template
+	 * @throws ParseException
+	 *             when the template couldn't be evaluated or the result
+	 *             couldn't be written
+	 */
+	public void render(Context ctx, Writer out) throws ParseException;
+
+	/**
+	 * The name (or path) of the bound template.
+	 * 
+	 * @return the name of the template
+	 */
+	public String getTemplateName();
+}
@@ -0,0 +1,211 @@
+package fr.sii.ogham.core.template.parser;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Locale;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.cache.Cache;
+import fr.sii.ogham.core.cache.LruCache;
+import fr.sii.ogham.core.exception.template.ContextException;
+import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.StringContent;
+import fr.sii.ogham.core.resource.ResourceChangeListener;
+import fr.sii.ogham.core.template.cache.FragmentCache;
+import fr.sii.ogham.core.template.cache.OutputCacheKey;
+import fr.sii.ogham.core.template.cache.OutputCacheKeyGenerator;
+import fr.sii.ogham.core.template.context.Context;
+import fr.sii.ogham.core.template.context.LocaleContext;
+
+/**
+ * <p>
+ * Decorator that caches the result of the templates that always render the
+ * same way for a locale and some variables (footers, legal notices, headers,
+ * ...). It works with any template engine.
+ * </p>
+ * <p>
+ * The {@link OutputCacheKeyGenerator} decides which templates are cached and
+ * provides the key derived from the variables used by the template. The
+ * results are identified by the template name, the locale (see
+ * {@link LocaleContext}) and this key. The cache is bounded by the total
+ * length of the cached results (the least recently used results are evicted
+ * first).
+ * </p>
+ * <p>
+ * Only the templates rendered through this parser are cached. The fragments
+ * that a template includes are resolved by the template engine and are not
+ * cached separately. The static blocks of personalized templates are cached
+ * by the template engines (see {@link FragmentCache}).
+ * </p>
+ * <p>
+ * The cached results are cleared when a resource changes (see
+ * {@link ResourceChangeListener}) because a template may include other
+ * templates. The event is also forwarded to the delegate parser.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class CachingTemplateParser implements StreamingTemplateParser, PrecompilableTemplateParser, BindableTemplateParser, ResourceChangeListener {
+	private static final Logger LOG = LoggerFactory.getLogger(CachingTemplateParser.class);
+
+	/**
+	 * Default maximum total length of the cached results
+	 */
+	public static final long DEFAULT_CACHE_WEIGHT = 4 * 1024 * 1024;
+
+	/**
+	 * The parser that really renders the templates
+	 */
+	private final TemplateParser delegate;
+
+	/**
+	 * Decides which results are cached
+	 */
+	private final OutputCacheKeyGenerator keyGenerator;
+
+	/**
+	 * The cached results
+	 */
+	private final Cache<OutputCacheKey, String> outputs;
+
+	public CachingTemplateParser(TemplateParser delegate, OutputCacheKeyGenerator keyGenerator) {
+		this(delegate, keyGenerator, DEFAULT_CACHE_WEIGHT);
+	}
+
+	/**
+	 * Initialize the parser with the maximum total length of the cached
+	 * results.
+	 *
+	 * @param delegate
+	 *            the parser that really renders the templates
+	 * @param keyGenerator
+	 *            decides which results are cached
+	 * @param maxCacheWeight
+	 *            the maximum total length (in characters) of the cached
+	 *            results
+	 */
+	public CachingTemplateParser(TemplateParser delegate, OutputCacheKeyGenerator keyGenerator, long maxCacheWeight) {
+		super();
+		this.delegate = delegate;
+		this.keyGenerator = keyGenerator;
+		this.outputs = new LruCache<OutputCacheKey, String>(maxCacheWeight) {
+			@Override
+			protected long weigh(String value) {
+				return value.length();
+			}
+		};
+	}
+
+	@Override
+	public Content parse(String templateName, Context ctx) throws ParseException {
+		OutputCacheKey key = getKey(templateName, ctx);
+		if (key == null) {
+			return delegate.parse(templateName, ctx);
+		}
+		return new StringContent(getOutput(key, new DefaultBoundTemplate(delegate, templateName), ctx));
+	}
+
+	@Override
+	public void parse(String templateName, Context ctx, Writer out) throws ParseException {
+		OutputCacheKey key = getKey(templateName, ctx);
+		if (key == null) {
+			new DefaultBoundTemplate(delegate, templateName).render(ctx, out);
+			return;
+		}
+		write(getOutput(key, new DefaultBoundTemplate(delegate, templateName), ctx), templateName, ctx, out);
+	}
+
+	@Override
+	public void precompile(String templateName) throws ParseException {
+		if (delegate instanceof PrecompilableTemplateParser) {
+			((PrecompilableTemplateParser) delegate).precompile(templateName);
+		}
+	}
+
+	@Override
+	public BoundTemplate bind(final String templateName) throws ParseException {
+		final BoundTemplate bound = delegate instanceof BindableTemplateParser ? ((BindableTemplateParser) delegate).bind(templateName) : new DefaultBoundTemplate(delegate, templateName);
+		return new BoundTemplate() {
+			@Override
+			public void render(Context ctx, Writer out) throws ParseException {
+				OutputCacheKey key = getKey(templateName, ctx);
+				if (key == null) {
+					bound.render(ctx, out);
+					return;
+				}
+				write(getOutput(key, bound, ctx), templateName, ctx, out);
+			}
+
+			@Override
+			public String getTemplateName() {
+				return templateName;
+			}
+		};
+	}
+
+	@Override
+	public void resourceChanged(String resolvedPath) {
+		outputs.clear();
+		if (delegate instanceof ResourceChangeListener) {
+			((ResourceChangeListener) delegate).resourceChanged(resolvedPath);
+		}
+	}
+
+	@Override
+	public void allResourcesChanged() {
+		outputs.clear();
+		if (delegate instanceof ResourceChangeListener) {
+			((ResourceChangeListener) delegate).allResourcesChanged();
+		}
+	}
+
+	public TemplateParser getDelegate() {
+		return delegate;
+	}
+
+	@Override
+	public String toString() {
+		return "CachingTemplateParser [" + delegate + "]";
+	}
+
+	private OutputCacheKey getKey(String templateName, Context ctx) throws ParseException {
+		try {
+			Object key = keyGenerator.generate(templateName, ctx);
+			if (key == null) {
+				return null;
+			}
+			Locale locale = ctx instanceof LocaleContext ? ((LocaleContext) ctx).getLocale() : null;
+			return new OutputCacheKey(templateName, locale, key);
+		} catch (ContextException e) {
+			throw new ParseException("Failed to generate the output cache key", templateName, ctx, e);
+		}
+	}
+
+	private String getOutput(OutputCacheKey key, BoundTemplate template, Context ctx) throws ParseException {
+		String output = outputs.get(key);
+		if (output != null) {
+			LOG.debug("Using cached result of template {} for {}", template.getTemplateName(), key);
+			return output;
+		}
+		// several threads may render the same result before it is cached
+		StringWriter buffer = new StringWriter();
+		template.render(ctx, buffer);
+		output = buffer.toString();
+		outputs.put(key, output);
+		LOG.debug("Result of template {} cached for {}", template.getTemplateName(), key);
+		return output;
+	}
+
+	private static void write(String output, String templateName, Context ctx, Writer out) throws ParseException {
+		try {
+			out.write(output);
+		} catch (IOException e) {
+			throw new ParseException("Failed to write the result of the template", templateName, ctx, e);
+		}
+	}
+}
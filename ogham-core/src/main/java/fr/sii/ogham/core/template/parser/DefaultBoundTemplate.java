@@ -0,0 +1,59 @@
+package fr.sii.ogham.core.template.parser;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.StringContent;
+import fr.sii.ogham.core.template.context.Context;
+
+/**
+ * {@link BoundTemplate} for parsers that can't bind templates. The template
+ * is parsed by the parser each time it is rendered. The result is written
+ * directly if the parser supports it (see {@link StreamingTemplateParser}).
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class DefaultBoundTemplate implements BoundTemplate {
+	/**
+	 * The parser used to render the template
+	 */
+	private final TemplateParser parser;
+
+	/**
+	 * The name (or path) of the template
+	 */
+	private final String templateName;
+
+	public DefaultBoundTemplate(TemplateParser parser, String templateName) {
+		super();
+		this.parser = parser;
+		this.templateName = templateName;
+	}
+
+	@Override
+	public void render(Context ctx, Writer out) throws ParseException {
+		if (parser instanceof StreamingTemplateParser) {
+			((StreamingTemplateParser) parser).parse(templateName, ctx, out);
+			return;
+		}
+		Content content = parser.parse(templateName, ctx);
+		try {
+			out.write(content instanceof StringContent ? ((StringContent) content).getContent() : content.toString());
+		} catch (IOException e) {
+			throw new ParseException("Failed to write the result of the template", templateName, ctx, e);
+		}
+	}
+
+	@Override
+	public String getTemplateName() {
+		return templateName;
+	}
+
+	@Override
+	public String toString() {
+		return "DefaultBoundTemplate [templateName=" + templateName + ", parser=" + parser + "]";
+	}
+}
@@ -0,0 +1,25 @@
+package fr.sii.ogham.core.template.parser;
+
+import fr.sii.ogham.core.exception.template.ParseException;
+
+/**
+ * Extension of {@link TemplateParser} for parsers that are able to load and
+ * compile a template without evaluating it. The compiled template is kept in
+ * the cache of the template engine so the first evaluation is as fast as the
+ * next ones.
+ * 
+ * @author Aurélien Baudet
+ * @see fr.sii.ogham.core.template.warmup.TemplateWarmUp
+ */
+public interface PrecompilableTemplateParser extends TemplateParser {
+	/**
+	 * Load the template from its name (or path) and compile it into the cache
+	 * of the template engine. No variable is evaluated.
+	 * 
+	 * @param templateName
+	 *            the name of the template to load (or the path)
+	 * @throws ParseException
+	 *             when the template couldn't be read or compiled
+	 */
+	public void precompile(String templateName) throws ParseException;
+}
@@ -0,0 +1,35 @@
+package fr.sii.ogham.core.template.parser;
+
+import java.io.Writer;
+
+import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.template.context.Context;
+
+/**
+ * Extension of {@link TemplateParser} for parsers that are able to write the
+ * result directly into a {@link Writer}. The result of the template is never
+ * held entirely in memory so it can be written directly into the message that
+ * is sent (MIME body part, HTTP request...).
+ * 
+ * @author Aurélien Baudet
+ * @see fr.sii.ogham.core.message.content.StreamingContent
+ */
+public interface StreamingTemplateParser extends TemplateParser {
+	/**
+	 * Load the template from its name (or path). Read it, replace variables by
+	 * the values defined in the context and write the result into the writer.
+	 * The writer is not closed.
+	 * 
+	 * @param templateName
+	 *            the name of the template to load (or the path)
+	 * @param ctx
+	 *            the context that contains the variable values
+	 * @param out
+	 *            the writer that receives the result of the template
+	 * @throws ParseException
+	 *             when the template couldn't be parsed either if the template
+	 *             couldn't be read, if the template could't be processed or if
+	 *             the result couldn't be written
+	 */
+	public void parse(String templateName, Context ctx, Writer out) throws ParseException;
+}
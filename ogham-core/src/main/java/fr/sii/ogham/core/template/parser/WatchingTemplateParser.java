@@ -0,0 +1,106 @@
+package fr.sii.ogham.core.template.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.resource.FileResourceWatcher;
+import fr.sii.ogham.core.resource.ResourceChangeListener;
+import fr.sii.ogham.core.template.context.Context;
+
+/**
+ * <p>
+ * Decorator that ties the {@link FileResourceWatcher} of the template files to
+ * the parser that uses it. The parser is registered on the watcher so the
+ * caches of the delegate are cleared when a file changes (see
+ * {@link ResourceChangeListener}).
+ * </p>
+ * <p>
+ * Closing the parser stops the watcher (and its thread). The parser can still
+ * be used after that but the changes are not tracked anymore.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class WatchingTemplateParser implements StreamingTemplateParser, PrecompilableTemplateParser, BindableTemplateParser, ResourceChangeListener, Closeable {
+	/**
+	 * The parser that really renders the templates
+	 */
+	private final TemplateParser delegate;
+
+	/**
+	 * The watcher of the template files
+	 */
+	private final FileResourceWatcher watcher;
+
+	public WatchingTemplateParser(TemplateParser delegate, FileResourceWatcher watcher) {
+		super();
+		this.delegate = delegate;
+		this.watcher = watcher;
+		watcher.addListener(this);
+	}
+
+	@Override
+	public Content parse(String templateName, Context ctx) throws ParseException {
+		return delegate.parse(templateName, ctx);
+	}
+
+	@Override
+	public void parse(String templateName, Context ctx, Writer out) throws ParseException {
+		new DefaultBoundTemplate(delegate, templateName).render(ctx, out);
+	}
+
+	@Override
+	public void precompile(String templateName) throws ParseException {
+		if (delegate instanceof PrecompilableTemplateParser) {
+			((PrecompilableTemplateParser) delegate).precompile(templateName);
+		}
+	}
+
+	@Override
+	public BoundTemplate bind(String templateName) throws ParseException {
+		if (delegate instanceof BindableTemplateParser) {
+			return ((BindableTemplateParser) delegate).bind(templateName);
+		}
+		return new DefaultBoundTemplate(delegate, templateName);
+	}
+
+	@Override
+	public void resourceChanged(String resolvedPath) {
+		if (delegate instanceof ResourceChangeListener) {
+			((ResourceChangeListener) delegate).resourceChanged(resolvedPath);
+		}
+	}
+
+	@Override
+	public void allResourcesChanged() {
+		if (delegate instanceof ResourceChangeListener) {
+			((ResourceChangeListener) delegate).allResourcesChanged();
+		}
+	}
+
+	/**
+	 * Stop watching the template files.
+	 */
+	@Override
+	public void close() throws IOException {
+		watcher.removeListener(this);
+		watcher.close();
+	}
+
+	public TemplateParser getDelegate() {
+		return delegate;
+	}
+
+	public FileResourceWatcher getWatcher() {
+		return watcher;
+	}
+
+	@Override
+	public String toString() {
+		return "WatchingTemplateParser [" + delegate + "]";
+	}
+}
@@ -0,0 +1,154 @@
+package fr.sii.ogham.core.template.warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Finds the templates available in a template directory. The directory is the
+ * parent path used for template resolution. It can be either in the classpath
+ * ("classpath:" lookup), in a directory or in a jar, or on the file system
+ * ("file:" lookup).
+ * </p>
+ * <p>
+ * The names of the found templates are the names used to reference them
+ * (lookup followed by the path relative to the parent path, without the
+ * extension used for resolution). For example, with "/templates/" as parent
+ * path and ".html" as extension, the file "/templates/account/register.html"
+ * in the classpath is named "classpath:account/register". The files that
+ * don't end with the extension can't be referenced so they are ignored.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class TemplateScanner {
+	private static final Logger LOG = LoggerFactory.getLogger(TemplateScanner.class);
+
+	/**
+	 * The lookup for templates in the classpath
+	 */
+	public static final String CLASSPATH_LOOKUP = "classpath:";
+
+	/**
+	 * The lookup for templates on the file system
+	 */
+	public static final String FILE_LOOKUP = "file:";
+
+	/**
+	 * The class loader used to find the templates in the classpath
+	 */
+	private final ClassLoader classLoader;
+
+	public TemplateScanner() {
+		this(TemplateScanner.class.getClassLoader());
+	}
+
+	public TemplateScanner(ClassLoader classLoader) {
+		super();
+		this.classLoader = classLoader;
+	}
+
+	/**
+	 * Find the templates available in the parent path for the lookup.
+	 * 
+	 * @param lookup
+	 *            the lookup ("classpath:" or "file:")
+	 * @param parentPath
+	 *            the parent path used for template resolution
+	 * @param extension
+	 *            the extension used for template resolution (may be empty)
+	 * @return the names of the templates
+	 * @throws IOException
+	 *             when the templates couldn't be listed
+	 * @throws IllegalArgumentException
+	 *             when the lookup can't be scanned
+	 */
+	public List<String> scan(String lookup, String parentPath, String extension) throws IOException {
+		String directory = parentPath == null ? "" : parentPath;
+		if (!directory.isEmpty() && !directory.endsWith("/")) {
+			directory += "/";
+		}
+		List<String> paths = new ArrayList<>();
+		if (CLASSPATH_LOOKUP.equals(lookup)) {
+			scanClasspath(directory.startsWith("/") ? directory.substring(1) : directory, paths);
+		} else if (FILE_LOOKUP.equals(lookup)) {
+			scanDirectory(new File(directory.isEmpty() ? "." : directory), "", paths);
+		} else {
+			throw new IllegalArgumentException("Templates can only be scanned for " + CLASSPATH_LOOKUP + " and " + FILE_LOOKUP + " lookups (not " + lookup + ")");
+		}
+		List<String> names = new ArrayList<>(paths.size());
+		for (String path : paths) {
+			if (extension == null || extension.isEmpty()) {
+				names.add(lookup + path);
+			} else if (path.endsWith(extension)) {
+				names.add(lookup + path.substring(0, path.length() - extension.length()));
+			} else {
+				LOG.debug("{}{} ignored because it doesn't end with extension {}", lookup, path, extension);
+			}
+		}
+		LOG.debug("{} templates found for {}{}", names.size(), lookup, parentPath);
+		return names;
+	}
+
+	private void scanClasspath(String directory, List<String> paths) throws IOException {
+		Enumeration<URL> urls = classLoader.getResources(directory);
+		while (urls.hasMoreElements()) {
+			URL url = urls.nextElement();
+			if ("file".equals(url.getProtocol())) {
+				scanDirectory(toFile(url), "", paths);
+			} else if ("jar".equals(url.getProtocol())) {
+				scanJar(url, directory, paths);
+			} else {
+				LOG.warn("Templates in {} can't be scanned", url);
+			}
+		}
+	}
+
+	private static void scanJar(URL url, String directory, List<String> paths) throws IOException {
+		JarURLConnection connection = (JarURLConnection) url.openConnection();
+		connection.setUseCaches(false);
+		try (JarFile jar = connection.getJarFile()) {
+			Enumeration<JarEntry> entries = jar.entries();
+			while (entries.hasMoreElements()) {
+				JarEntry entry = entries.nextElement();
+				if (!entry.isDirectory() && entry.getName().startsWith(directory)) {
+					paths.add(entry.getName().substring(directory.length()));
+				}
+			}
+		}
+	}
+
+	private static void scanDirectory(File directory, String relativePath, List<String> paths) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			if (file.isDirectory()) {
+				scanDirectory(file, relativePath + file.getName() + "/", paths);
+			} else {
+				paths.add(relativePath + file.getName());
+			}
+		}
+	}
+
+	private static File toFile(URL url) throws IOException {
+		try {
+			return new File(url.toURI());
+		} catch (URISyntaxException e) {
+			throw new IOException("Invalid template directory " + url, e);
+		}
+	}
+}
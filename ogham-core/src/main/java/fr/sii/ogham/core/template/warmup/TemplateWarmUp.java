@@ -0,0 +1,114 @@
+package fr.sii.ogham.core.template.warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.template.parser.PrecompilableTemplateParser;
+import fr.sii.ogham.core.template.parser.TemplateParser;
+
+/**
+ * <p>
+ * Prepares the templates at startup so that the first message is as fast as
+ * the next ones. For each template, the path is resolved, the template engine
+ * is detected and the template is compiled into the cache of the engine (see
+ * {@link PrecompilableTemplateParser}). Nothing is evaluated.
+ * </p>
+ * <p>
+ * The templates can be listed explicitly or found in the template directories
+ * (see {@link TemplateScanner}). The time spent for each template and the
+ * failures are reported (see {@link WarmUpReport}). A failure doesn't stop the
+ * warm-up of the other templates.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class TemplateWarmUp {
+	private static final Logger LOG = LoggerFactory.getLogger(TemplateWarmUp.class);
+
+	/**
+	 * The parser that compiles the templates
+	 */
+	private final TemplateParser parser;
+
+	/**
+	 * Finds the templates in the template directories
+	 */
+	private final TemplateScanner scanner;
+
+	public TemplateWarmUp(TemplateParser parser) {
+		this(parser, new TemplateScanner());
+	}
+
+	public TemplateWarmUp(TemplateParser parser, TemplateScanner scanner) {
+		super();
+		this.parser = parser;
+		this.scanner = scanner;
+	}
+
+	/**
+	 * Find the templates in the parent path for each lookup and warm them up.
+	 * 
+	 * @param lookups
+	 *            the lookups to scan ("classpath:" or "file:")
+	 * @param parentPath
+	 *            the parent path used for template resolution
+	 * @param extension
+	 *            the extension used for template resolution (may be empty)
+	 * @return the report of the warm-up
+	 */
+	public WarmUpReport warmUp(List<String> lookups, String parentPath, String extension) {
+		List<String> templateNames = new ArrayList<>();
+		for (String lookup : lookups) {
+			try {
+				templateNames.addAll(scanner.scan(lookup, parentPath, extension));
+			} catch (IOException | IllegalArgumentException e) {
+				LOG.warn("Templates of {}{} can't be listed for warm-up", lookup, parentPath, e);
+			}
+		}
+		return warmUp(templateNames);
+	}
+
+	/**
+	 * Warm the templates up.
+	 * 
+	 * @param templateNames
+	 *            the names of the templates
+	 * @return the report of the warm-up
+	 */
+	public WarmUpReport warmUp(List<String> templateNames) {
+		WarmUpReport report = new WarmUpReport();
+		if (!(parser instanceof PrecompilableTemplateParser)) {
+			LOG.warn("Template parser {} can't compile templates in advance => warm-up skipped", parser);
+			return report;
+		}
+		for (String templateName : templateNames) {
+			report.addResult(warmUp((PrecompilableTemplateParser) parser, templateName));
+		}
+		LOG.info("Template warm-up: {}", report);
+		return report;
+	}
+
+	private static WarmUpResult warmUp(PrecompilableTemplateParser parser, String templateName) {
+		long start = System.nanoTime();
+		Exception error = null;
+		try {
+			parser.precompile(templateName);
+		} catch (ParseException | RuntimeException e) {
+			error = e;
+		}
+		WarmUpResult result = new WarmUpResult(templateName, System.nanoTime() - start, error);
+		if (error == null) {
+			LOG.debug("Template {} compiled in {}ms", templateName, result.getDuration(TimeUnit.MILLISECONDS));
+		} else {
+			LOG.warn("Template {} couldn't be compiled", templateName, error);
+		}
+		return result;
+	}
+}
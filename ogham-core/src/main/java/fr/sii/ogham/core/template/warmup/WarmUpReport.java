@@ -0,0 +1,69 @@
+package fr.sii.ogham.core.template.warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The results of the warm-up of all the templates.
+ * 
+ * @author Aurélien Baudet
+ * @see TemplateWarmUp
+ */
+public class WarmUpReport {
+	/**
+	 * The result for each template (in warm-up order)
+	 */
+	private final List<WarmUpResult> results;
+
+	public WarmUpReport() {
+		super();
+		this.results = new ArrayList<>();
+	}
+
+	public void addResult(WarmUpResult result) {
+		results.add(result);
+	}
+
+	public List<WarmUpResult> getResults() {
+		return Collections.unmodifiableList(results);
+	}
+
+	/**
+	 * The results of the templates that couldn't be compiled.
+	 * 
+	 * @return the failed results
+	 */
+	public List<WarmUpResult> getFailures() {
+		List<WarmUpResult> failures = new ArrayList<>();
+		for (WarmUpResult result : results) {
+			if (!result.isSuccess()) {
+				failures.add(result);
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * The time spent to warm up all the templates.
+	 * 
+	 * @param unit
+	 *            the unit of the result
+	 * @return the total time in the requested unit
+	 */
+	public long getTotalDuration(TimeUnit unit) {
+		long total = 0;
+		for (WarmUpResult result : results) {
+			total += result.getDuration(TimeUnit.NANOSECONDS);
+		}
+		return unit.convert(total, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(results.size()).append(" templates warmed up in ").append(getTotalDuration(TimeUnit.MILLISECONDS)).append("ms (").append(getFailures().size()).append(" failures)");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,67 @@
+package fr.sii.ogham.core.template.warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The result of the warm-up of a single template: the time spent to resolve
+ * and compile it, and the error if the template couldn't be compiled.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class WarmUpResult {
+	/**
+	 * The name of the template
+	 */
+	private final String templateName;
+
+	/**
+	 * The time spent to resolve and compile the template (in nanoseconds)
+	 */
+	private final long duration;
+
+	/**
+	 * The error raised while compiling the template (null if successful)
+	 */
+	private final Exception error;
+
+	public WarmUpResult(String templateName, long duration, Exception error) {
+		super();
+		this.templateName = templateName;
+		this.duration = duration;
+		this.error = error;
+	}
+
+	public String getTemplateName() {
+		return templateName;
+	}
+
+	/**
+	 * The time spent to resolve and compile the template.
+	 * 
+	 * @param unit
+	 *            the unit of the result
+	 * @return the time in the requested unit
+	 */
+	public long getDuration(TimeUnit unit) {
+		return unit.convert(duration, TimeUnit.NANOSECONDS);
+	}
+
+	public Exception getError() {
+		return error;
+	}
+
+	public boolean isSuccess() {
+		return error == null;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(templateName).append(" (").append(getDuration(TimeUnit.MILLISECONDS)).append("ms)");
+		if (error != null) {
+			builder.append(" failed: ").append(error.getMessage());
+		}
+		return builder.toString();
+	}
+}
@@ -1,5 +1,13 @@
 package fr.sii.ogham.core.translator.content;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,10 +31,18 @@ import fr.sii.ogham.core.message.content.MultiContent;
  * The same translator is applied for all sub contents.
  * </p>
  * <p>
+ * If an {@link Executor} is provided, the sub contents are translated
+ * concurrently (the delegate translator must then be thread-safe). The first
+ * sub content is translated by the calling thread and the sub contents that
+ * are not yet started by the executor when the calling thread is done are
+ * also translated by the calling thread. Therefore, a busy executor never
+ * blocks the translation. The order of the sub contents is preserved.
+ * </p>
+ * <p>
  * If the content is not a {@link MultiContent}, then the content is returned
  * as-is.
  * </p>
- * 
+ *
  * @author Aurélien Baudet
  *
  */
@@ -38,21 +54,42 @@ public class MultiContentTranslator implements ContentTranslator {
 	 */
 	private ContentTranslator delegate;
 
+	/**
+	 * The executor used to translate the sub contents concurrently (null to
+	 * translate them sequentially)
+	 */
+	private Executor executor;
+
 	public MultiContentTranslator(ContentTranslator delegate) {
+		this(delegate, null);
+	}
+
+	/**
+	 * Initialize the translator with the executor used to translate the sub
+	 * contents concurrently.
+	 *
+	 * @param delegate
+	 *            the content translator to apply on each sub content (must be
+	 *            thread-safe if an executor is provided)
+	 * @param executor
+	 *            the executor shared by all the translations (null to
+	 *            translate the sub contents sequentially)
+	 */
+	public MultiContentTranslator(ContentTranslator delegate, Executor executor) {
 		super();
 		this.delegate = delegate;
+		this.executor = executor;
 	}
 
 	@Override
 	public Content translate(Content content) throws ContentTranslatorException {
 		if (content instanceof MultiContent) {
+			List<Content> contents = ((MultiContent) content).getContents();
+			List<Content> translated = executor == null || contents.size() < 2 ? translateSequentially(contents) : translateConcurrently(contents);
 			MultiContent result = new MultiContent();
-			for (Content c : ((MultiContent) content).getContents()) {
-				LOG.debug("Translate the sub content {} using {}", c, delegate);
-				Content translated = delegate.translate(c);
-				if(translated!=null) {
-					LOG.debug("Sub content {} skipped", c);
-					result.addContent(translated);
+			for (Content c : translated) {
+				if (c != null) {
+					result.addContent(c);
 				}
 			}
 			return result;
@@ -67,4 +104,90 @@ public class MultiContentTranslator implements ContentTranslator {
 		return "MultiContentTranslator";
 	}
 
+	private List<Content> translateSequentially(List<Content> contents) throws ContentTranslatorException {
+		List<Content> translated = new ArrayList<>(contents.size());
+		for (Content c : contents) {
+			translated.add(translate(delegate, c));
+		}
+		return translated;
+	}
+
+	private List<Content> translateConcurrently(List<Content> contents) throws ContentTranslatorException {
+		List<FutureTask<Content>> tasks = new ArrayList<>(contents.size());
+		try {
+			for (Content c : contents.subList(1, contents.size())) {
+				FutureTask<Content> task = new FutureTask<>(new TranslateTask(delegate, c));
+				tasks.add(task);
+				try {
+					executor.execute(task);
+				} catch (RejectedExecutionException e) {
+					LOG.debug("Executor rejected the translation of the sub content {} => translate it in the current thread", c, e);
+				}
+			}
+			List<Content> translated = new ArrayList<>(contents.size());
+			translated.add(translate(delegate, contents.get(0)));
+			for (FutureTask<Content> task : tasks) {
+				// run the task in the current thread if not already started
+				task.run();
+				translated.add(get(task));
+			}
+			return translated;
+		} finally {
+			cancel(tasks);
+		}
+	}
+
+	/**
+	 * Cancel the translations that are still pending or running because
+	 * another translation has failed. Nothing is done for the finished ones.
+	 * 
+	 * @param tasks
+	 *            the translations of the sub contents
+	 */
+	private static void cancel(List<FutureTask<Content>> tasks) {
+		for (FutureTask<Content> task : tasks) {
+			if (!task.isDone() && task.cancel(true)) {
+				LOG.debug("Translation of sub content cancelled because another translation has failed");
+			}
+		}
+	}
+
+	private static Content get(FutureTask<Content> task) throws ContentTranslatorException {
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ContentTranslatorException("Interrupted while translating sub content", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof ContentTranslatorException) {
+				throw (ContentTranslatorException) e.getCause();
+			}
+			throw new ContentTranslatorException("Failed to translate sub content", e.getCause());
+		}
+	}
+
+	private static Content translate(ContentTranslator delegate, Content content) throws ContentTranslatorException {
+		LOG.debug("Translate the sub content {} using {}", content, delegate);
+		Content translated = delegate.translate(content);
+		if (translated == null) {
+			LOG.debug("Sub content {} skipped", content);
+		}
+		return translated;
+	}
+
+	private static class TranslateTask implements Callable<Content> {
+		private final ContentTranslator delegate;
+		private final Content content;
+
+		public TranslateTask(ContentTranslator delegate, Content content) {
+			super();
+			this.delegate = delegate;
+			this.content = content;
+		}
+
+		@Override
+		public Content call() throws ContentTranslatorException {
+			return translate(delegate, content);
+		}
+	}
 }
@@ -1,16 +1,31 @@
 package fr.sii.ogham.core.translator.content;
 
+import java.util.Locale;
+
+import javax.activation.MimeType;
+import javax.activation.MimeTypeParseException;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import fr.sii.ogham.core.exception.handler.ContentTranslatorException;
+import fr.sii.ogham.core.exception.template.ContextException;
 import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.message.capability.HasVariant;
 import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.EmailVariant;
+import fr.sii.ogham.core.message.content.StreamingContent;
+import fr.sii.ogham.core.message.content.StringContent;
 import fr.sii.ogham.core.message.content.TemplateContent;
 import fr.sii.ogham.core.message.content.TemplateVariantContent;
 import fr.sii.ogham.core.template.context.Context;
+import fr.sii.ogham.core.template.context.LocaleContext;
+import fr.sii.ogham.core.template.parser.StreamingTemplateParser;
 import fr.sii.ogham.core.template.parser.TemplateParser;
+import fr.sii.ogham.i18n.LanguageResolver;
+import fr.sii.ogham.template.common.adapter.LocalizedVariantResolver;
 import fr.sii.ogham.template.common.adapter.VariantResolver;
+import fr.sii.ogham.template.exception.VariantResolutionException;
 
 /**
  * <p>
@@ -19,9 +34,27 @@ import fr.sii.ogham.template.common.adapter.VariantResolver;
  * through {@link VariantResolver}.
  * </p>
  * <p>
+ * If the variant indicates the type of the generated content (see
+ * {@link EmailVariant}), the Mime Type is set on the generated content so that
+ * it doesn't need to be detected when the message is sent.
+ * </p>
+ * <p>
  * The template parsing is delegated to a {@link TemplateParser}.
  * </p>
  * <p>
+ * If streaming is enabled and the parser supports it (see
+ * {@link StreamingTemplateParser}), the template is not rendered here. A
+ * {@link StreamingContent} is provided instead and the template is rendered
+ * by the sender without building the whole result as string. Streaming must
+ * only be enabled when no other translator needs the result as string.
+ * </p>
+ * <p>
+ * If a {@link LanguageResolver} is provided, the locale is resolved once per
+ * template. It is used to select the localized version of the template (see
+ * {@link LocalizedVariantResolver}) and it is provided to the template engine
+ * (see {@link LocaleContext}) if the context doesn't already provide it.
+ * </p>
+ * <p>
  * If the content is not a {@link TemplateContent}, then the content is returned
  * as-is
  * </p>
@@ -42,10 +75,61 @@ public class TemplateContentTranslator implements ContentTranslator {
 	 */
 	private VariantResolver variantResolver;
 
+	/**
+	 * If true, the template is rendered by the sender
+	 */
+	private boolean streaming;
+
+	/**
+	 * Resolves the locale used to render the template (null to use the
+	 * context as-is)
+	 */
+	private LanguageResolver languageResolver;
+
 	public TemplateContentTranslator(TemplateParser parser, VariantResolver variantResolver) {
+		this(parser, variantResolver, false);
+	}
+
+	/**
+	 * Initialize the translator.
+	 * 
+	 * @param parser
+	 *            the parser to use for finding, loading and evaluating the
+	 *            template
+	 * @param variantResolver
+	 *            the resolver that converts partial path with variant into
+	 *            real path
+	 * @param streaming
+	 *            true to render the template directly into the message when
+	 *            it is sent (only if the parser supports it)
+	 */
+	public TemplateContentTranslator(TemplateParser parser, VariantResolver variantResolver, boolean streaming) {
+		this(parser, variantResolver, streaming, null);
+	}
+
+	/**
+	 * Initialize the translator with the resolver of the locale used to
+	 * render the templates.
+	 * 
+	 * @param parser
+	 *            the parser to use for finding, loading and evaluating the
+	 *            template
+	 * @param variantResolver
+	 *            the resolver that converts partial path with variant into
+	 *            real path
+	 * @param streaming
+	 *            true to render the template directly into the message when
+	 *            it is sent (only if the parser supports it)
+	 * @param languageResolver
+	 *            resolves the locale used to render the template (null to use
+	 *            the context as-is)
+	 */
+	public TemplateContentTranslator(TemplateParser parser, VariantResolver variantResolver, boolean streaming, LanguageResolver languageResolver) {
 		super();
 		this.parser = parser;
 		this.variantResolver = variantResolver;
+		this.streaming = streaming;
+		this.languageResolver = languageResolver;
 	}
 
 	@Override
@@ -53,16 +137,22 @@ public class TemplateContentTranslator implements ContentTranslator {
 		if (content instanceof TemplateContent) {
 			try {
 				TemplateContent template = (TemplateContent) content;
-				String realPath = variantResolver.getRealPath(template);
+				// the locale is resolved once for both the path and the rendering
+				Locale locale = getLocale(template.getContext());
+				String realPath = getRealPath(template, locale);
 				if(realPath==null) {
 					LOG.debug("No template found for {}", template.getPath());
 					return null;
 				}
-				Context ctx = template.getContext();
+				Context ctx = localize(template.getContext(), locale);
 				LOG.info("Parse template {} using context {}", realPath, ctx);
+				if (streaming && parser instanceof StreamingTemplateParser) {
+					LOG.debug("Template content {} will be streamed using {}", template, parser);
+					return new StreamingContent((StreamingTemplateParser) parser, realPath, ctx, getMimetype(template), null);
+				}
 				LOG.debug("Parse template content {} using {}", template, parser);
-				return parser.parse(realPath, ctx);
-			} catch (ParseException e) {
+				return setMimetype(template, parser.parse(realPath, ctx));
+			} catch (ParseException | ContextException e) {
 				throw new ContentTranslatorException("failed to translate templated content", e);
 			}
 		} else {
@@ -71,6 +161,54 @@ public class TemplateContentTranslator implements ContentTranslator {
 		}
 	}
 
+	private Locale getLocale(Context ctx) throws ContextException {
+		if (languageResolver == null) {
+			return null;
+		}
+		if (ctx instanceof LocaleContext && ((LocaleContext) ctx).getLocale() != null) {
+			return ((LocaleContext) ctx).getLocale();
+		}
+		return languageResolver.getLocale(ctx);
+	}
+
+	private String getRealPath(TemplateContent template, Locale locale) throws VariantResolutionException {
+		if (languageResolver != null && variantResolver instanceof LocalizedVariantResolver) {
+			return ((LocalizedVariantResolver) variantResolver).getRealPath(template, locale);
+		}
+		return variantResolver.getRealPath(template);
+	}
+
+	private static Context localize(Context ctx, Locale locale) {
+		if (locale == null || (ctx instanceof LocaleContext && ((LocaleContext) ctx).getLocale() != null)) {
+			return ctx;
+		}
+		return new LocaleContext(ctx, locale);
+	}
+
+	private static Content setMimetype(TemplateContent template, Content parsed) {
+		if (!(parsed instanceof StringContent)) {
+			return parsed;
+		}
+		StringContent content = (StringContent) parsed;
+		if (content.getMimetype() == null) {
+			content.setMimetype(getMimetype(template));
+		}
+		return content;
+	}
+
+	private static MimeType getMimetype(TemplateContent template) {
+		if (!(template instanceof HasVariant) || !(((HasVariant) template).getVariant() instanceof EmailVariant)) {
+			return null;
+		}
+		String mimetype = ((EmailVariant) ((HasVariant) template).getVariant()).getMimetype();
+		try {
+			return new MimeType(mimetype);
+		} catch (MimeTypeParseException e) {
+			LOG.warn("Invalid mimetype {} => it will be detected when sending the message", mimetype, e);
+			return null;
+		}
+	}
+
 	@Override
 	public String toString() {
 		return "TemplateContentTranslator";
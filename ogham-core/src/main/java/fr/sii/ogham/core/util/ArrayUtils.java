@@ -1,7 +1,9 @@
 package fr.sii.ogham.core.util;
 
 import java.lang.reflect.Array;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * Utility class for manipulating arrays.
@@ -47,6 +49,31 @@ public final class ArrayUtils {
 		return result;
 	}
 
+	/**
+	 * Split the array into chunks of at most chunkSize elements. The order of
+	 * the elements is preserved. If chunkSize is lower or equal to 0, the
+	 * array is not split.
+	 * 
+	 * @param array
+	 *            the array to split
+	 * @param chunkSize
+	 *            the maximum number of elements of each chunk
+	 * @param <T>
+	 *            the type of each element in the array
+	 * @return the chunks
+	 */
+	public static <T> List<T[]> split(T[] array, int chunkSize) {
+		List<T[]> chunks = new ArrayList<>();
+		if (chunkSize <= 0 || array.length <= chunkSize) {
+			chunks.add(array);
+			return chunks;
+		}
+		for (int i = 0; i < array.length; i += chunkSize) {
+			chunks.add(Arrays.copyOfRange(array, i, Math.min(array.length, i + chunkSize)));
+		}
+		return chunks;
+	}
+
 	private ArrayUtils() {
 		super();
 	}
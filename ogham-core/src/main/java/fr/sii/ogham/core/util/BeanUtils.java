@@ -1,12 +1,6 @@
 package fr.sii.ogham.core.util;
 
-import java.beans.BeanInfo;
-import java.beans.IntrospectionException;
-import java.beans.Introspector;
-import java.beans.PropertyDescriptor;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -18,6 +12,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import fr.sii.ogham.core.exception.template.BeanException;
+import fr.sii.ogham.core.exception.util.FieldAccessException;
+import fr.sii.ogham.core.util.bean.BeanMap;
 import fr.sii.ogham.core.util.converter.EmailAddressConverter;
 import fr.sii.ogham.core.util.converter.SmsSenderConverter;
 import fr.sii.ogham.email.message.EmailAddress;
@@ -63,6 +59,12 @@ public final class BeanUtils {
 	 * each entry is the value of the property.
 	 * 
 	 * <p>
+	 * The map is a read-only view on the bean (see {@link BeanMap}): the getters
+	 * are resolved once per class and are called only when the value is read.
+	 * A failing getter is reported when its value is read using
+	 * {@link FieldAccessException}.
+	 * 
+	 * <p>
 	 * If the provided object is already a Map then it is returned as-is
 	 * 
 	 * @param bean
@@ -78,10 +80,10 @@ public final class BeanUtils {
 				// TODO: handle Map with object keys
 				map = (Map<String, Object>) bean;
 			} else {
-				map = convertBean(bean);
+				map = new BeanMap(bean);
 			}
 			return map;
-		} catch (ReflectiveOperationException | IntrospectionException e) {
+		} catch (FieldAccessException e) {
 			throw new BeanException("failed to convert bean to map", bean, e);
 		}
 	}
@@ -248,23 +250,6 @@ public final class BeanUtils {
 		populate(bean, values, new Options(false, true));
 	}
 
-	
-	private static Map<String, Object> convertBean(Object bean) throws IntrospectionException, IllegalAccessException, InvocationTargetException {
-		Map<String, Object> map;
-		map = new HashMap<String, Object>();
-		BeanInfo info = Introspector.getBeanInfo(bean.getClass());
-		for (PropertyDescriptor pd : info.getPropertyDescriptors()) {
-			if(!"class".equals(pd.getName())) {
-				Method reader = pd.getReadMethod();
-				// TODO: convert recursively ?
-				if (reader != null) {
-					map.put(pd.getName(), reader.invoke(bean));
-				}
-			}
-		}
-		return map;
-	}
-
 	private static void handleUnknown(Object bean, Options options, Entry<String, Object> entry, Exception e) throws BeanException {
 		if (options.isSkipUnknown()) {
 			LOG.debug("skipping property " + entry.getKey() + ": it doesn't exist or is not accessible", e);
@@ -0,0 +1,33 @@
+package fr.sii.ogham.core.util;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates named daemon threads so that the thread pools used internally never
+ * prevent the JVM from exiting.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+	/**
+	 * The prefix of the thread names
+	 */
+	private final String prefix;
+
+	private final AtomicInteger counter;
+
+	public DaemonThreadFactory(String prefix) {
+		super();
+		this.prefix = prefix;
+		this.counter = new AtomicInteger();
+	}
+
+	@Override
+	public Thread newThread(Runnable task) {
+		Thread thread = new Thread(task, prefix + "-" + counter.getAndIncrement());
+		thread.setDaemon(true);
+		return thread;
+	}
+}
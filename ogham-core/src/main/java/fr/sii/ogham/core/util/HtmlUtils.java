@@ -9,6 +9,9 @@ import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
+import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.MayHaveMimeType;
+
 /**
  * Utility class for handling HTML content. It helps for repetitive tasks for
  * manipulating HTML.
@@ -22,6 +25,7 @@ public final class HtmlUtils {
 	private static final String HREF_ATTR = "href";
 	private static final String IMG_SELECTOR = "img";
 	private static final String SRC_ATTR = "src";
+	private static final String HTML_MIMETYPE = "text/html";
 
 	/**
 	 * Indicates if the provided content is HTML or not. It is considered HTML
@@ -36,6 +40,24 @@ public final class HtmlUtils {
 		return HTML_PATTERN.matcher(content).find();
 	}
 
+	/**
+	 * Indicates if the provided content is HTML or not. If the Mime Type of
+	 * the content is known (see {@link MayHaveMimeType}), it is used directly.
+	 * Otherwise, the string is analyzed (see {@link #isHtml(String)}).
+	 * 
+	 * @param content
+	 *            the content to test
+	 * @param stringContent
+	 *            the content as string
+	 * @return true if it is HTML, false otherwise
+	 */
+	public static boolean isHtml(Content content, String stringContent) {
+		if (content instanceof MayHaveMimeType && ((MayHaveMimeType) content).getMimetype() != null) {
+			return HTML_MIMETYPE.equals(((MayHaveMimeType) content).getMimetype().getBaseType());
+		}
+		return isHtml(stringContent);
+	}
+
 	/**
 	 * Finds all CSS file inclusions (looks for <code>link</code> tags for
 	 * stylesheet files). Returns only the path or URL to the CSS file. If the
@@ -1,6 +1,6 @@
 package fr.sii.ogham.core.util;
 
-import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -9,30 +9,30 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
-import org.apache.http.HttpResponse;
-import org.apache.http.NameValuePair;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.client.utils.URLEncodedUtils;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.message.BasicNameValuePair;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import fr.sii.ogham.core.exception.template.BeanException;
+import fr.sii.ogham.core.exception.util.FieldAccessException;
 import fr.sii.ogham.core.exception.util.HttpException;
+import fr.sii.ogham.core.util.http.ApacheHttpTransport;
+import fr.sii.ogham.core.util.http.HttpTransport;
 import fr.sii.ogham.core.util.http.Parameter;
 import fr.sii.ogham.core.util.http.Response;
 
 /**
+ * <p>
  * Utility class that helps to send HTTP requests.
+ * </p>
+ * <p>
+ * The requests are sent using a shared {@link HttpTransport} that pools the
+ * connections (see {@link #getDefaultTransport()}). Senders that need a
+ * specific configuration (pool size, timeouts...) should use their own
+ * {@link HttpTransport} instead.
+ * </p>
  * 
  * @author Aurélien Baudet
  *
  */
 public final class HttpUtils {
-	private static final Logger LOG = LoggerFactory.getLogger(HttpUtils.class);
-	private static final HttpClient CLIENT = HttpClientBuilder.create().useSystemProperties().build();
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray();
 
 	/**
 	 * Do a GET request on the provided URL and construct the Query String part
@@ -52,23 +52,7 @@ public final class HttpUtils {
 	 *             when the request has failed
 	 */
 	public static Response get(String url, List<Parameter> params) throws HttpException {
-		String fullUrl = url;
-		String paramsStr = URLEncodedUtils.format(convert(params), "UTF-8");
-		fullUrl += (fullUrl.contains("?") ? "&" : "?") + paramsStr;
-		// spaces are replaced by '+' but some servers doesn't handle it
-		// correctly
-		// => convert space to '%20'
-		fullUrl = fullUrl.replaceAll("\\+", "%20");
-		try {
-			LOG.debug("Sending HTTP GET request to {}", fullUrl);
-			HttpGet request = new HttpGet(fullUrl);
-			HttpResponse response = CLIENT.execute(request);
-			int statusCode = response.getStatusLine().getStatusCode();
-			LOG.debug("HTTP GET request successfully sent to {}. Status code: {}", fullUrl, statusCode);
-			return new Response(statusCode, IOUtils.toString(response.getEntity().getContent()));
-		} catch (IOException e) {
-			throw new HttpException("Failed to send GET request to " + fullUrl, e);
-		}
+		return getDefaultTransport().get(url, params);
 	}
 
 	/**
@@ -121,8 +105,27 @@ public final class HttpUtils {
 	 * @throws HttpException
 	 *             when the request has failed
 	 */
-	@SuppressWarnings("unchecked")
 	public static Response get(String url, Object... params) throws HttpException {
+		return get(url, toParameters(params));
+	}
+
+	/**
+	 * Convert anything into a list of parameters:
+	 * <ul>
+	 * <li>{@link Parameter}: used as is</li>
+	 * <li>{@link Map}: each entry is used as a parameter</li>
+	 * <li>A bean (any object): each property of the bean is used as parameter
+	 * (see {@link BeanUtils})</li>
+	 * </ul>
+	 * 
+	 * @param params
+	 *            none, one or several parameters
+	 * @return the list of parameters
+	 * @throws HttpException
+	 *             when a bean couldn't be converted
+	 */
+	@SuppressWarnings("unchecked")
+	public static List<Parameter> toParameters(Object... params) throws HttpException {
 		try {
 			Map<String, Object> map = new HashMap<>();
 			for (Object bean : params) {
@@ -135,12 +138,71 @@ public final class HttpUtils {
 					map.putAll(BeanUtils.convert(bean));
 				}
 			}
-			return get(url, map);
-		} catch (BeanException e) {
+			return convert(map);
+		} catch (BeanException | FieldAccessException e) {
 			throw new HttpException("Failed to convert bean fields into request parameters", e);
 		}
 	}
 
+	/**
+	 * Append the parameters to the query string of the URL. If the URL
+	 * already contains parameters (already contains a '?' character), then the
+	 * parameters are added to the existing parameters. The names and values
+	 * are percent-encoded using UTF-8 (a space is encoded into '%20'). Only
+	 * the parameters are encoded, the provided URL is kept as is.
+	 * 
+	 * @param url
+	 *            the base url
+	 * @param params
+	 *            the parameters to append to the query string
+	 * @return the full URL
+	 */
+	public static String buildUrl(String url, List<Parameter> params) {
+		StringBuilder sb = new StringBuilder(url.length() + params.size() * 16);
+		sb.append(url);
+		char separator = url.indexOf('?') >= 0 ? '&' : '?';
+		for (Parameter param : params) {
+			if (param.getValue() != null) {
+				sb.append(separator);
+				encode(param.getName(), sb);
+				sb.append('=');
+				encode(param.getValue(), sb);
+				separator = '&';
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Get the transport shared by the static methods of this class. The
+	 * connections are pooled and kept alive.
+	 * 
+	 * @return the shared transport
+	 */
+	public static HttpTransport getDefaultTransport() {
+		return DefaultTransportHolder.INSTANCE;
+	}
+
+	/**
+	 * Percent-encode the string: only unreserved characters (see
+	 * <a href="https://tools.ietf.org/html/rfc3986#section-2.3">RFC 3986</a>)
+	 * are not encoded.
+	 * 
+	 * @param str
+	 *            the string to encode
+	 * @param sb
+	 *            the builder that receives the encoded string
+	 */
+	private static void encode(String str, StringBuilder sb) {
+		for (byte b : str.getBytes(StandardCharsets.UTF_8)) {
+			if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '-' || b == '.' || b == '_' || b == '~') {
+				sb.append((char) b);
+			} else {
+				sb.append('%').append(HEX[(b >> 4) & 0x0F]).append(HEX[b & 0x0F]);
+			}
+		}
+	}
+
 	/**
 	 * Do a GET request on the provided URL and construct the Query String part
 	 * with the provided list of parameters. If the URL already contains
@@ -185,25 +247,18 @@ public final class HttpUtils {
 		return parameters;
 	}
 
+	private HttpUtils() {
+		super();
+	}
+
 	/**
-	 * Convert a list of parameters to a list of {@link NameValuePair}.
-	 * 
-	 * @param params
-	 *            the parameters abstraction used in the library
-	 * @return the parameters used by the real implementation (Apache Commons
-	 *         HTTP)
+	 * Lazily creates the shared transport
 	 */
-	private static List<NameValuePair> convert(List<Parameter> params) {
-		List<NameValuePair> pairs = new ArrayList<>(params.size());
-		for (Parameter param : params) {
-			if (param.getValue() != null) {
-				pairs.add(new BasicNameValuePair(param.getName(), param.getValue()));
-			}
-		}
-		return pairs;
-	}
+	private static final class DefaultTransportHolder {
+		private static final HttpTransport INSTANCE = new ApacheHttpTransport();
 
-	private HttpUtils() {
-		super();
+		private DefaultTransportHolder() {
+			super();
+		}
 	}
 }
@@ -2,11 +2,13 @@ package fr.sii.ogham.core.util;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 
 /**
  * Helper class for I/O management:
  * <ul>
  * <li>Read a stream and provide its content as byte array</li>
+ * <li>Read only the first bytes of a stream</li>
  * </ul>
  * <p>
  * This work can be done by several libraries. The aim of this class is to be
@@ -65,6 +67,65 @@ public final class IOUtils {
 		return org.apache.commons.io.IOUtils.toString(stream);
 	}
 
+	/**
+	 * <p>
+	 * Get at most the first <code>limit</code> bytes of an InputStream as a
+	 * byte[]. The stream is not closed and the read cursor is moved by the
+	 * number of returned bytes.
+	 * </p>
+	 * <p>
+	 * This is useful when only the beginning of the content is needed (magic
+	 * number detection for example) and the whole content must not be loaded
+	 * in memory.
+	 * </p>
+	 * 
+	 * @param stream
+	 *            the InputStream to read from
+	 * @param limit
+	 *            the maximum number of bytes to read
+	 * @return the read bytes (the array length may be lower than limit if the
+	 *         end of the stream is reached)
+	 * @throws NullPointerException
+	 *             if the input is null
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public static byte[] toByteArray(InputStream stream, int limit) throws IOException {
+		byte[] buffer = new byte[limit];
+		int read = org.apache.commons.io.IOUtils.read(stream, buffer);
+		return read == limit ? buffer : Arrays.copyOf(buffer, read);
+	}
+
+	/**
+	 * <p>
+	 * Read at most <code>length</code> bytes of an InputStream into the
+	 * provided buffer (starting at index 0). Contrary to
+	 * {@link InputStream#read(byte[], int, int)}, this method reads until
+	 * <code>length</code> bytes are read or the end of the stream is reached.
+	 * The stream is not closed.
+	 * </p>
+	 * <p>
+	 * This is useful to read the beginning of the content into a reusable
+	 * buffer.
+	 * </p>
+	 * 
+	 * @param stream
+	 *            the InputStream to read from
+	 * @param buffer
+	 *            the buffer to fill
+	 * @param length
+	 *            the maximum number of bytes to read
+	 * @return the number of read bytes (may be lower than length if the end of
+	 *         the stream is reached)
+	 * @throws NullPointerException
+	 *             if the input is null
+	 * @throws IOException
+	 *             if an I/O error occurs
+	 */
+	public static int read(InputStream stream, byte[] buffer, int length) throws IOException {
+		return org.apache.commons.io.IOUtils.read(stream, buffer, 0, length);
+	}
+
 	private IOUtils() {
 		super();
 	}
@@ -0,0 +1,42 @@
+package fr.sii.ogham.core.util;
+
+import fr.sii.ogham.core.exception.resource.ResourceResolutionException;
+import fr.sii.ogham.core.resource.resolver.CheckableResourceResolver;
+import fr.sii.ogham.core.resource.resolver.ResourceResolver;
+
+/**
+ * Helper class for resources.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public final class ResourceUtils {
+
+	/**
+	 * Indicates if the resource exists. If the resolver is able to check the
+	 * existence without reading the content (see
+	 * {@link CheckableResourceResolver}), the content is not read. Otherwise,
+	 * the resource is resolved.
+	 * 
+	 * @param resolver
+	 *            the resolver used to find the resource
+	 * @param path
+	 *            the path of the resource
+	 * @return true if the resource exists, false otherwise
+	 */
+	public static boolean exists(ResourceResolver resolver, String path) {
+		if (resolver instanceof CheckableResourceResolver) {
+			return ((CheckableResourceResolver) resolver).exists(path);
+		}
+		try {
+			resolver.getResource(path);
+			return true;
+		} catch (ResourceResolutionException e) {
+			return false;
+		}
+	}
+
+	private ResourceUtils() {
+		super();
+	}
+}
@@ -0,0 +1,163 @@
+package fr.sii.ogham.core.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stream that writes in memory until a threshold is reached, then writes into
+ * a temporary file. It is used to keep a generated content that must be read
+ * several times while bounding the memory it uses.
+ * <p>
+ * Once the stream is closed, the content is available either through
+ * {@link #toByteArray()} (if kept in memory) or through {@link #getFile()}.
+ * The temporary file must be deleted by the caller (it is deleted on exit in
+ * the worst case).
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class SpillingOutputStream extends OutputStream {
+	private static final Logger LOG = LoggerFactory.getLogger(SpillingOutputStream.class);
+
+	/**
+	 * The maximum number of bytes kept in memory
+	 */
+	private final int threshold;
+
+	/**
+	 * The prefix of the temporary file name
+	 */
+	private final String prefix;
+
+	/**
+	 * The content in memory (null once written to a file)
+	 */
+	private ByteArrayOutputStream memory;
+
+	/**
+	 * The temporary file (null while in memory)
+	 */
+	private File file;
+
+	/**
+	 * The stream that writes into the temporary file
+	 */
+	private OutputStream fileStream;
+
+	/**
+	 * The number of written bytes
+	 */
+	private long size;
+
+	/**
+	 * Initialize the stream.
+	 *
+	 * @param threshold
+	 *            the maximum number of bytes kept in memory
+	 * @param prefix
+	 *            the prefix of the temporary file name
+	 */
+	public SpillingOutputStream(int threshold, String prefix) {
+		super();
+		this.threshold = threshold;
+		this.prefix = prefix;
+		this.memory = new ByteArrayOutputStream();
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		getStream(1).write(b);
+		size++;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		getStream(len).write(b, off, len);
+		size += len;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (fileStream != null) {
+			fileStream.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (fileStream != null) {
+			fileStream.close();
+		}
+	}
+
+	/**
+	 * Close the stream and delete the temporary file (if any). It is used
+	 * when the content is not needed anymore (because the generation has
+	 * failed for example).
+	 */
+	public void discard() {
+		try {
+			close();
+		} catch (IOException e) {
+			LOG.debug("Failed to close {}", file, e);
+		}
+		if (file != null && !file.delete()) {
+			LOG.warn("Failed to delete {}", file);
+		}
+	}
+
+	/**
+	 * Indicates if the content has been written to a temporary file.
+	 *
+	 * @return true if the content is in a file, false if it is in memory
+	 */
+	public boolean isSpilled() {
+		return file != null;
+	}
+
+	/**
+	 * The temporary file that contains the content.
+	 *
+	 * @return the file or null if the content is in memory
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * The content kept in memory.
+	 *
+	 * @return the content or null if the content is in a file
+	 */
+	public byte[] toByteArray() {
+		return memory == null ? null : memory.toByteArray();
+	}
+
+	/**
+	 * The number of written bytes (either in memory or in the file).
+	 *
+	 * @return the size of the content
+	 */
+	public long size() {
+		return size;
+	}
+
+	private OutputStream getStream(int len) throws IOException {
+		if (fileStream == null && memory.size() + len > threshold) {
+			file = File.createTempFile(prefix, ".tmp");
+			file.deleteOnExit();
+			fileStream = new BufferedOutputStream(new FileOutputStream(file));
+			memory.writeTo(fileStream);
+			memory = null;
+		}
+		return fileStream == null ? memory : fileStream;
+	}
+}
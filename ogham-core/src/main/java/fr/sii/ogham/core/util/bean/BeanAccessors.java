@@ -0,0 +1,71 @@
+package fr.sii.ogham.core.util.bean;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import fr.sii.ogham.core.exception.util.FieldAccessException;
+
+/**
+ * <p>
+ * Provides the accessors of the readable properties of a class. The class is
+ * introspected only once: the accessors are cached per class.
+ * </p>
+ * <p>
+ * The cached accessors strongly reference the methods of the class, hence the
+ * class and its class loader. In environments that reload classes (hot
+ * redeployment for example), the introspected classes may therefore be kept
+ * in memory.
+ * </p>
+ * <p>
+ * The "class" property is not included.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public final class BeanAccessors {
+	private static final ClassValue<Map<String, PropertyAccessor>> ACCESSORS = new ClassValue<Map<String, PropertyAccessor>>() {
+		@Override
+		protected Map<String, PropertyAccessor> computeValue(Class<?> type) {
+			try {
+				return introspect(type);
+			} catch (IntrospectionException | IllegalAccessException e) {
+				throw new FieldAccessException("Failed to introspect " + type.getName(), e);
+			}
+		}
+	};
+
+	/**
+	 * Get the accessors of the readable properties of the class indexed by
+	 * property name.
+	 *
+	 * @param type
+	 *            the class of the bean
+	 * @return the accessors (unmodifiable)
+	 * @throws FieldAccessException
+	 *             when the class couldn't be introspected
+	 */
+	public static Map<String, PropertyAccessor> getAccessors(Class<?> type) {
+		return ACCESSORS.get(type);
+	}
+
+	private static Map<String, PropertyAccessor> introspect(Class<?> type) throws IntrospectionException, IllegalAccessException {
+		Map<String, PropertyAccessor> accessors = new LinkedHashMap<>();
+		BeanInfo info = Introspector.getBeanInfo(type);
+		for (PropertyDescriptor pd : info.getPropertyDescriptors()) {
+			if (!"class".equals(pd.getName()) && pd.getReadMethod() != null) {
+				accessors.put(pd.getName(), new PropertyAccessor(pd.getName(), pd.getReadMethod()));
+			}
+		}
+		return Collections.unmodifiableMap(accessors);
+	}
+
+	private BeanAccessors() {
+		super();
+	}
+}
@@ -0,0 +1,141 @@
+package fr.sii.ogham.core.util.bean;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import fr.sii.ogham.core.exception.util.FieldAccessException;
+
+/**
+ * <p>
+ * Read-only view of a bean as a map. Each readable property of the bean is an
+ * entry of the map: the key is the name of the property and the value is the
+ * value returned by the getter.
+ * </p>
+ * <p>
+ * Nothing is copied: a getter is called only when the value of the property
+ * is requested for the first time. The value is then kept so the getter is
+ * called at most once per view. Therefore, the cost of the view is
+ * proportional to the number of properties that are actually read.
+ * </p>
+ * <p>
+ * The view is not thread-safe.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ * @see BeanAccessors
+ */
+public class BeanMap extends AbstractMap<String, Object> {
+	/**
+	 * The bean to read
+	 */
+	private final Object bean;
+
+	/**
+	 * The accessors of the properties of the bean
+	 */
+	private final Map<String, PropertyAccessor> accessors;
+
+	/**
+	 * The values already read
+	 */
+	private final Map<String, Object> values;
+
+	/**
+	 * Initialize the view on the bean.
+	 *
+	 * @param bean
+	 *            the bean to read
+	 * @throws FieldAccessException
+	 *             when the class of the bean couldn't be introspected
+	 */
+	public BeanMap(Object bean) {
+		super();
+		this.bean = bean;
+		this.accessors = BeanAccessors.getAccessors(bean.getClass());
+		this.values = new HashMap<>();
+	}
+
+	/**
+	 * Get the value of the property (the getter is called the first time
+	 * only).
+	 *
+	 * @throws FieldAccessException
+	 *             when the getter has failed
+	 */
+	@Override
+	public Object get(Object key) {
+		PropertyAccessor accessor = accessors.get(key);
+		if (accessor == null) {
+			return null;
+		}
+		return read(accessor);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return accessors.containsKey(key);
+	}
+
+	@Override
+	public int size() {
+		return accessors.size();
+	}
+
+	@Override
+	public Set<String> keySet() {
+		return accessors.keySet();
+	}
+
+	/**
+	 * The values are read when the entries are iterated.
+	 */
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		return new AbstractSet<Entry<String, Object>>() {
+			@Override
+			public Iterator<Entry<String, Object>> iterator() {
+				final Iterator<PropertyAccessor> it = accessors.values().iterator();
+				return new Iterator<Entry<String, Object>>() {
+					@Override
+					public boolean hasNext() {
+						return it.hasNext();
+					}
+
+					@Override
+					public Entry<String, Object> next() {
+						PropertyAccessor accessor = it.next();
+						return new SimpleImmutableEntry<>(accessor.getName(), read(accessor));
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException("Bean view is read-only");
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return accessors.size();
+			}
+		};
+	}
+
+	public Object getBean() {
+		return bean;
+	}
+
+	private Object read(PropertyAccessor accessor) {
+		String name = accessor.getName();
+		Object value = values.get(name);
+		if (value == null && !values.containsKey(name)) {
+			value = accessor.getValue(bean);
+			values.put(name, value);
+		}
+		return value;
+	}
+}
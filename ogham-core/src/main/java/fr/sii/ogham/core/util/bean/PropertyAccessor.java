@@ -0,0 +1,84 @@
+package fr.sii.ogham.core.util.bean;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+import fr.sii.ogham.core.exception.util.FieldAccessException;
+
+/**
+ * Reads the value of a property of a bean using its getter. The getter is
+ * resolved once into a {@link MethodHandle} so reading the value doesn't need
+ * reflection lookup nor access check.
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class PropertyAccessor {
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+	/**
+	 * The name of the property
+	 */
+	private final String name;
+
+	/**
+	 * The getter adapted to take and return {@link Object}
+	 */
+	private final MethodHandle getter;
+
+	/**
+	 * Initialize the accessor from the getter.
+	 *
+	 * @param name
+	 *            the name of the property
+	 * @param readMethod
+	 *            the getter of the property
+	 * @throws IllegalAccessException
+	 *             when the getter can't be accessed
+	 */
+	public PropertyAccessor(String name, Method readMethod) throws IllegalAccessException {
+		super();
+		this.name = name;
+		makeAccessible(readMethod);
+		this.getter = MethodHandles.lookup().unreflect(readMethod).asType(GETTER_TYPE);
+	}
+
+	/**
+	 * Call the getter on the bean.
+	 *
+	 * @param bean
+	 *            the bean to read
+	 * @return the value of the property
+	 * @throws FieldAccessException
+	 *             when the getter has failed
+	 */
+	public Object getValue(Object bean) {
+		try {
+			return (Object) getter.invokeExact(bean);
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new FieldAccessException("Failed to read property " + name + " of " + bean.getClass().getName(), e);
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	private static void makeAccessible(Method method) {
+		try {
+			// public getter declared in a non public class
+			method.setAccessible(true);
+		} catch (SecurityException e) {
+			// only public getters of public classes are accessible
+		}
+	}
+}
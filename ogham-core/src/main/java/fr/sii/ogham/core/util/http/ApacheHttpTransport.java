@@ -0,0 +1,171 @@
+package fr.sii.ogham.core.util.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.exception.util.HttpException;
+import fr.sii.ogham.core.exception.util.ResponseParsingException;
+import fr.sii.ogham.core.util.DaemonThreadFactory;
+import fr.sii.ogham.core.util.HttpUtils;
+
+/**
+ * <p>
+ * {@link HttpTransport} implementation based on Apache HTTP client. The
+ * connections are pooled and kept alive (see {@link PooledHttpClientFactory}).
+ * </p>
+ * <p>
+ * Asynchronous requests are executed by a dedicated pool of threads (Apache
+ * HTTP client is blocking) so the calling thread is never blocked.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class ApacheHttpTransport implements HttpTransport, Closeable {
+	private static final Logger LOG = LoggerFactory.getLogger(ApacheHttpTransport.class);
+
+	/**
+	 * Reads the whole body as string
+	 */
+	private static final ResponseHandler<Response> STRING_HANDLER = new StringResponseHandler();
+
+	/**
+	 * The HTTP client that manages the connections
+	 */
+	private final CloseableHttpClient client;
+
+	/**
+	 * The threads used for asynchronous requests
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * Notified after each request (may be null)
+	 */
+	private final HttpMetricsListener listener;
+
+	/**
+	 * Initialize the transport with a pool of connections configured with
+	 * default values.
+	 */
+	public ApacheHttpTransport() {
+		this(new PooledHttpClientFactory());
+	}
+
+	/**
+	 * Initialize the transport with a pool of connections configured by the
+	 * factory. The number of threads for asynchronous requests is the maximum
+	 * number of connections.
+	 * 
+	 * @param factory
+	 *            the configuration of the pool of connections
+	 */
+	public ApacheHttpTransport(PooledHttpClientFactory factory) {
+		this(factory.create(), Executors.newFixedThreadPool(Math.max(factory.getMaxTotal(), factory.getMaxPerRoute()), new DaemonThreadFactory("ogham-http")), null);
+	}
+
+	/**
+	 * Initialize the transport.
+	 * 
+	 * @param client
+	 *            the HTTP client that manages the connections
+	 * @param executor
+	 *            the threads used for asynchronous requests
+	 * @param listener
+	 *            notified after each request with its duration (may be null)
+	 */
+	public ApacheHttpTransport(CloseableHttpClient client, ExecutorService executor, HttpMetricsListener listener) {
+		super();
+		this.client = client;
+		this.executor = executor;
+		this.listener = listener;
+	}
+
+	@Override
+	public Response get(String url, List<Parameter> params) throws HttpException {
+		return get(url, params, STRING_HANDLER);
+	}
+
+	@Override
+	public <T> T get(String url, List<Parameter> params, ResponseHandler<T> handler) throws HttpException {
+		String fullUrl = HttpUtils.buildUrl(url, params);
+		long start = System.currentTimeMillis();
+		LOG.debug("Sending HTTP GET request to {}", fullUrl);
+		try (CloseableHttpResponse response = client.execute(new HttpGet(fullUrl))) {
+			int statusCode = response.getStatusLine().getStatusCode();
+			LOG.debug("HTTP GET request successfully sent to {}. Status code: {}", fullUrl, statusCode);
+			T result = handle(response, statusCode, handler);
+			if (listener != null) {
+				listener.requestCompleted(withoutQuery(url), statusCode, System.currentTimeMillis() - start);
+			}
+			return result;
+		} catch (ResponseParsingException e) {
+			if (listener != null) {
+				listener.requestFailed(withoutQuery(url), e, System.currentTimeMillis() - start);
+			}
+			throw new HttpException("Invalid response received for GET request to " + fullUrl, e);
+		} catch (IOException e) {
+			if (listener != null) {
+				listener.requestFailed(withoutQuery(url), e, System.currentTimeMillis() - start);
+			}
+			throw new HttpException("Failed to send GET request to " + fullUrl, e);
+		}
+	}
+
+	@Override
+	public <T> Future<T> getAsync(final String url, final List<Parameter> params, final ResponseHandler<T> handler) {
+		return executor.submit(new Callable<T>() {
+			@Override
+			public T call() throws HttpException {
+				return get(url, params, handler);
+			}
+		});
+	}
+
+	/**
+	 * Close the pooled connections and stop the threads.
+	 */
+	@Override
+	public void close() throws IOException {
+		executor.shutdown();
+		client.close();
+	}
+
+	/**
+	 * Let the handler read the body. Closing the body consumes the remaining
+	 * content so the connection is released to the pool.
+	 */
+	private static <T> T handle(CloseableHttpResponse response, int statusCode, ResponseHandler<T> handler) throws IOException {
+		HttpEntity entity = response.getEntity();
+		if (entity == null) {
+			return handler.handle(statusCode, new ByteArrayInputStream(new byte[0]));
+		}
+		try (InputStream body = entity.getContent()) {
+			return handler.handle(statusCode, body);
+		}
+	}
+
+	private static String withoutQuery(String url) {
+		int idx = url.indexOf('?');
+		return idx < 0 ? url : url.substring(0, idx);
+	}
+
+	@Override
+	public String toString() {
+		return "ApacheHttpTransport";
+	}
+}
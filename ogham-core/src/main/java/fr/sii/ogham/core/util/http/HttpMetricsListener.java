@@ -0,0 +1,35 @@
+package fr.sii.ogham.core.util.http;
+
+/**
+ * Receives the duration and the result of each HTTP request. The query string
+ * is never provided because it may contain credentials.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public interface HttpMetricsListener {
+	/**
+	 * Called when a response has been received and handled.
+	 * 
+	 * @param url
+	 *            the base url (without query string)
+	 * @param statusCode
+	 *            the HTTP status code
+	 * @param durationMillis
+	 *            the duration of the request including the handling of the
+	 *            response
+	 */
+	void requestCompleted(String url, int statusCode, long durationMillis);
+
+	/**
+	 * Called when the request has failed (connection error, timeout...).
+	 * 
+	 * @param url
+	 *            the base url (without query string)
+	 * @param cause
+	 *            the error
+	 * @param durationMillis
+	 *            the duration before the failure
+	 */
+	void requestFailed(String url, Exception cause, long durationMillis);
+}
@@ -0,0 +1,73 @@
+package fr.sii.ogham.core.util.http;
+
+import java.util.List;
+import java.util.concurrent.Future;
+
+import fr.sii.ogham.core.exception.util.HttpException;
+
+/**
+ * <p>
+ * Abstraction of the HTTP layer used by the REST based senders. The
+ * implementation decides how connections are managed (pooling, keep-alive,
+ * timeouts...).
+ * </p>
+ * <p>
+ * The parameters are converted into
+ * <code>application/x-www-form-urlencoded</code> and appended to the query
+ * string of the URL (see {@link fr.sii.ogham.core.util.HttpUtils#buildUrl(String, List)}).
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public interface HttpTransport {
+	/**
+	 * Do a GET request and read the whole response body as string.
+	 * 
+	 * @param url
+	 *            the base url
+	 * @param params
+	 *            the parameters to append to the query string
+	 * @return the response
+	 * @throws HttpException
+	 *             when the request has failed
+	 */
+	Response get(String url, List<Parameter> params) throws HttpException;
+
+	/**
+	 * Do a GET request and let the handler read the response body directly
+	 * from the connection. The body is not loaded in memory unless the
+	 * handler does it.
+	 * 
+	 * @param url
+	 *            the base url
+	 * @param params
+	 *            the parameters to append to the query string
+	 * @param handler
+	 *            the handler that reads the response
+	 * @param <T>
+	 *            the type of the result produced by the handler
+	 * @return the result of the handler
+	 * @throws HttpException
+	 *             when the request has failed or when the handler has failed
+	 *             to read the response
+	 */
+	<T> T get(String url, List<Parameter> params, ResponseHandler<T> handler) throws HttpException;
+
+	/**
+	 * Do a GET request without blocking the calling thread.
+	 * 
+	 * @param url
+	 *            the base url
+	 * @param params
+	 *            the parameters to append to the query string
+	 * @param handler
+	 *            the handler that reads the response
+	 * @param <T>
+	 *            the type of the result produced by the handler
+	 * @return the future result of the handler. {@link Future#get()} throws
+	 *         an {@link java.util.concurrent.ExecutionException} caused by an
+	 *         {@link HttpException} if the request has failed
+	 */
+	<T> Future<T> getAsync(String url, List<Parameter> params, ResponseHandler<T> handler);
+}
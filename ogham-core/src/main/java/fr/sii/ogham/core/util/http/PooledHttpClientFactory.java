@@ -0,0 +1,177 @@
+package fr.sii.ogham.core.util.http;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * <p>
+ * Creates HTTP clients that keep connections alive and share them through a
+ * pool. Reusing warm connections avoids a TCP and TLS handshake for each
+ * request.
+ * </p>
+ * <p>
+ * The pool is bounded (per route and in total). When all connections are
+ * used, the requests wait for a connection to be released (at most the
+ * connect timeout).
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class PooledHttpClientFactory {
+	/**
+	 * Default maximum number of connections to the same host
+	 */
+	public static final int DEFAULT_MAX_PER_ROUTE = 20;
+
+	/**
+	 * Default maximum number of connections
+	 */
+	public static final int DEFAULT_MAX_TOTAL = 50;
+
+	/**
+	 * Default time (in milliseconds) an idle connection is kept open when the
+	 * server doesn't indicate it
+	 */
+	public static final long DEFAULT_KEEP_ALIVE = 30000;
+
+	/**
+	 * Default timeout (in milliseconds) for opening a connection
+	 */
+	public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+
+	/**
+	 * Default timeout (in milliseconds) for reading the response
+	 */
+	public static final int DEFAULT_READ_TIMEOUT = 30000;
+
+	private int maxPerRoute;
+	private int maxTotal;
+	private long keepAlive;
+	private int connectTimeout;
+	private int readTimeout;
+
+	public PooledHttpClientFactory() {
+		this(DEFAULT_MAX_PER_ROUTE, DEFAULT_MAX_TOTAL, DEFAULT_KEEP_ALIVE, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+	}
+
+	/**
+	 * Initialize the factory.
+	 *
+	 * @param maxPerRoute
+	 *            the maximum number of connections to the same host
+	 * @param maxTotal
+	 *            the maximum number of connections
+	 * @param keepAlive
+	 *            the time (in milliseconds) an idle connection is kept open
+	 *            when the server doesn't indicate it (Keep-Alive header)
+	 * @param connectTimeout
+	 *            the timeout (in milliseconds) for opening a connection
+	 * @param readTimeout
+	 *            the timeout (in milliseconds) for reading the response
+	 */
+	public PooledHttpClientFactory(int maxPerRoute, int maxTotal, long keepAlive, int connectTimeout, int readTimeout) {
+		super();
+		this.maxPerRoute = maxPerRoute;
+		this.maxTotal = maxTotal;
+		this.keepAlive = keepAlive;
+		this.connectTimeout = connectTimeout;
+		this.readTimeout = readTimeout;
+	}
+
+	/**
+	 * Create a new HTTP client with its own pool of connections. The client
+	 * must be closed when it is no more used in order to close the pooled
+	 * connections.
+	 *
+	 * @return the HTTP client
+	 */
+	public CloseableHttpClient create() {
+		PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager();
+		manager.setDefaultMaxPerRoute(maxPerRoute);
+		manager.setMaxTotal(Math.max(maxTotal, maxPerRoute));
+		RequestConfig config = RequestConfig.custom()
+				.setConnectTimeout(connectTimeout)
+				.setConnectionRequestTimeout(connectTimeout)
+				.setSocketTimeout(readTimeout)
+				.build();
+		return HttpClientBuilder.create()
+				.useSystemProperties()
+				.setConnectionManager(manager)
+				.setDefaultRequestConfig(config)
+				.setKeepAliveStrategy(new DefaultKeepAliveStrategy(keepAlive))
+				.build();
+	}
+
+	public int getMaxPerRoute() {
+		return maxPerRoute;
+	}
+
+	public void setMaxPerRoute(int maxPerRoute) {
+		this.maxPerRoute = maxPerRoute;
+	}
+
+	public int getMaxTotal() {
+		return maxTotal;
+	}
+
+	public void setMaxTotal(int maxTotal) {
+		this.maxTotal = maxTotal;
+	}
+
+	public long getKeepAlive() {
+		return keepAlive;
+	}
+
+	public void setKeepAlive(long keepAlive) {
+		this.keepAlive = keepAlive;
+	}
+
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	public void setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	public int getReadTimeout() {
+		return readTimeout;
+	}
+
+	public void setReadTimeout(int readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+
+	@Override
+	public String toString() {
+		return "PooledHttpClientFactory [maxPerRoute=" + maxPerRoute + ", maxTotal=" + maxTotal + ", keepAlive=" + keepAlive + ", connectTimeout=" + connectTimeout + ", readTimeout="
+				+ readTimeout + "]";
+	}
+
+	/**
+	 * Use the duration sent by the server (Keep-Alive header) or the default
+	 * duration. Without a limit, a connection closed by the server while idle
+	 * would only be detected by a failing request.
+	 */
+	private static class DefaultKeepAliveStrategy implements ConnectionKeepAliveStrategy {
+		private final long keepAlive;
+
+		DefaultKeepAliveStrategy(long keepAlive) {
+			super();
+			this.keepAlive = keepAlive;
+		}
+
+		@Override
+		public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+			long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+			return duration > 0 ? Math.min(duration, keepAlive) : keepAlive;
+		}
+	}
+}
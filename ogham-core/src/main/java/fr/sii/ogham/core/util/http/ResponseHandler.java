@@ -0,0 +1,27 @@
+package fr.sii.ogham.core.util.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the HTTP response directly from the connection.
+ * 
+ * @author Aurélien Baudet
+ *
+ * @param <T>
+ *            the type of the result
+ */
+public interface ResponseHandler<T> {
+	/**
+	 * Read the response. The stream is closed once this method returns.
+	 * 
+	 * @param statusCode
+	 *            the HTTP status code
+	 * @param body
+	 *            the response body (empty stream if there is no body)
+	 * @return the result
+	 * @throws IOException
+	 *             when the response couldn't be read
+	 */
+	T handle(int statusCode, InputStream body) throws IOException;
+}
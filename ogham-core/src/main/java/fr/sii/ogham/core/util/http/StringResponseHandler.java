@@ -0,0 +1,19 @@
+package fr.sii.ogham.core.util.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import fr.sii.ogham.core.util.IOUtils;
+
+/**
+ * Reads the whole response body as string.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class StringResponseHandler implements ResponseHandler<Response> {
+	@Override
+	public Response handle(int statusCode, InputStream body) throws IOException {
+		return new Response(statusCode, IOUtils.toString(body));
+	}
+}
@@ -11,6 +11,11 @@ public class EmailConstants {
 	 */
 	public static final String[] FILL_PREFIXES = {"mail", "mail.smtp", "ogham.email"};
 	
+	/**
+	 * The key in the properties for the maximum number of cached Mime Types (0 to disable the cache)
+	 */
+	public static final String MIMETYPE_CACHE_SIZE_KEY = PROPERTIES_PREFIX+".mimetype.cache-size";
+	
 	
 	public static class SmtpConstants {
 		/**
@@ -28,11 +33,67 @@ public class EmailConstants {
 		 */
 		public static final String AUTHENTICATOR_PASSWORD_KEY = AUTHENTICATOR_PROPERTIES_PREFIX+".password";
 		
+		/**
+		 * The key in the properties for the maximum number of recipients per message
+		 */
+		public static final String MAX_RECIPIENTS_KEY = EmailConstants.PROPERTIES_PREFIX+".max-recipients";
+		
+		/**
+		 * The key in the properties for the number of threads used to send the chunks of recipients
+		 */
+		public static final String DELIVERY_THREADS_KEY = EmailConstants.PROPERTIES_PREFIX+".delivery-threads";
+		
+		/**
+		 * The key in the properties to enable/disable sending 8bit content when the server supports 8BITMIME (disabled by default)
+		 */
+		public static final String ALLOW_8BITMIME_KEY = EmailConstants.PROPERTIES_PREFIX+".allow-8bitmime";
+		
 		private SmtpConstants() {
 			super();
 		}
 	}
 	
+	public static class NioSmtpConstants {
+		/**
+		 * The prefix for NIO SMTP client properties
+		 */
+		public static final String NIO_SMTP_PROPERTIES_PREFIX = EmailConstants.PROPERTIES_PREFIX+".nio-smtp";
+		
+		/**
+		 * The property key for the maximum number of simultaneous SMTP connections
+		 */
+		public static final String MAX_CONNECTIONS = NIO_SMTP_PROPERTIES_PREFIX+".max-connections";
+		
+		/**
+		 * The property key for the number of I/O threads
+		 */
+		public static final String IO_THREADS = NIO_SMTP_PROPERTIES_PREFIX+".io-threads";
+		
+		/**
+		 * The property key for the delay (in milliseconds) before closing an idle connection
+		 */
+		public static final String IDLE_TIMEOUT = NIO_SMTP_PROPERTIES_PREFIX+".idle-timeout";
+		
+		/**
+		 * The property key for the maximum time (in milliseconds) to wait for a reply of the server
+		 */
+		public static final String READ_TIMEOUT = NIO_SMTP_PROPERTIES_PREFIX+".read-timeout";
+		
+		/**
+		 * The property key for the maximum time (in milliseconds) to wait for a message to be sent
+		 */
+		public static final String SEND_TIMEOUT = NIO_SMTP_PROPERTIES_PREFIX+".send-timeout";
+		
+		/**
+		 * The property key to allow sending the credentials over an unencrypted connection (disabled by default)
+		 */
+		public static final String PLAINTEXT_AUTH = NIO_SMTP_PROPERTIES_PREFIX+".plaintext-auth";
+		
+		private NioSmtpConstants() {
+			super();
+		}
+	}
+	
 	public static class SendGridConstants {
 		/**
 		 * The prefix for SendGrid properties
@@ -54,6 +115,46 @@ public class EmailConstants {
 		 */
 		public static final String PASSWORD = SNEDGRID_PROPERTIES_PREFIX+".password";
 		
+		/**
+		 * The property key for the base URL of SendGrid API
+		 */
+		public static final String URL = SNEDGRID_PROPERTIES_PREFIX+".url";
+		
+		/**
+		 * The property key for the maximum number of recipients per API request in batch mode
+		 */
+		public static final String BATCH_SIZE = SNEDGRID_PROPERTIES_PREFIX+".batch.size";
+		
+		/**
+		 * The property key for the number of API requests of a batch submitted in parallel
+		 */
+		public static final String BATCH_PARALLELISM = SNEDGRID_PROPERTIES_PREFIX+".batch.parallelism";
+		
+		/**
+		 * The property key for the number of threads used to send emails asynchronously
+		 */
+		public static final String ASYNC_THREADS = SNEDGRID_PROPERTIES_PREFIX+".async.threads";
+		
+		/**
+		 * The property key for the maximum number of simultaneous HTTP connections to SendGrid
+		 */
+		public static final String HTTP_MAX_CONNECTIONS = SNEDGRID_PROPERTIES_PREFIX+".http.max-connections";
+		
+		/**
+		 * The property key for the time (in milliseconds) an idle HTTP connection is kept open
+		 */
+		public static final String HTTP_KEEP_ALIVE = SNEDGRID_PROPERTIES_PREFIX+".http.keep-alive";
+		
+		/**
+		 * The property key for the timeout (in milliseconds) for opening an HTTP connection
+		 */
+		public static final String HTTP_CONNECT_TIMEOUT = SNEDGRID_PROPERTIES_PREFIX+".http.connect-timeout";
+		
+		/**
+		 * The property key for the timeout (in milliseconds) for reading the HTTP response
+		 */
+		public static final String HTTP_READ_TIMEOUT = SNEDGRID_PROPERTIES_PREFIX+".http.read-timeout";
+		
 		private SendGridConstants() {
 			super();
 		}
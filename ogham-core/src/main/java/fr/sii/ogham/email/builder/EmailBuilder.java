@@ -66,6 +66,7 @@ import fr.sii.ogham.template.TemplateConstants;
  * @see EmailSender
  * @see JavaMailBuilder
  * @see SendGridBuilder
+ * @see NioSmtpBuilder
  * @see TemplateBuilder
  * @see AttachmentResourceTranslatorBuilder
  * @see ContentTranslatorBuilder
@@ -125,6 +126,7 @@ public class EmailBuilder implements MessagingSenderBuilder<ConditionalSender> {
 
 	@Override
 	public ConditionalSender build() throws BuildException {
+		checkStreaming();
 		for (Entry<Condition<Message>, Builder<? extends MessageSender>> impl : implementations.entrySet()) {
 			MessageSender s = impl.getValue().build();
 			LOG.debug("Implementation {} registered", s);
@@ -324,6 +326,41 @@ public class EmailBuilder implements MessagingSenderBuilder<ConditionalSender> {
 		return this;
 	}
 
+	/**
+	 * <p>
+	 * Enable the SMTP implementation based on non-blocking I/O (see
+	 * {@link NioSmtpBuilder}). This implementation is used only if the
+	 * property <code>mail.smtp.host</code> (or <code>mail.host</code>) is set
+	 * and Java Mail API (used to generate the MIME message) is available in the
+	 * classpath.
+	 * </p>
+	 * <p>
+	 * This implementation is not registered by default. As it uses the same
+	 * condition as the Java Mail implementation, don't register both
+	 * implementations (use {@link #withNioSmtp(Properties)} instead of
+	 * {@link #registerDefaultImplementations(Properties)} for SMTP).
+	 * </p>
+	 * 
+	 * @param properties
+	 *            the properties used to check if property exists
+	 * @return this builder instance for fluent use
+	 */
+	public EmailBuilder withNioSmtp(Properties properties) {
+		try {
+			// @formatter:off
+			registerImplementation(new AndCondition<>(
+										new OrCondition<>(
+												new RequiredPropertyCondition<Message>("mail.smtp.host", properties),
+												new RequiredPropertyCondition<Message>("mail.host",	properties)),
+										new RequiredClassCondition<Message>("javax.mail.internet.MimeMessage")),
+					new NioSmtpBuilder().useDefaults(properties));
+			// @formatter:on
+		} catch (Exception e) {
+			LOG.debug("Can't register NIO SMTP implementation", e);
+		}
+		return this;
+	}
+
 	/**
 	 * Enable SendGrid implementation. This implementation is used only if the
 	 * associated condition indicates that Java Mail API can be used. The
@@ -648,6 +685,28 @@ public class EmailBuilder implements MessagingSenderBuilder<ConditionalSender> {
 		throw new IllegalArgumentException("No implementation builder exists for " + clazz.getSimpleName());
 	}
 
+	/**
+	 * The streamed templates are not available as string and are rendered
+	 * by the sender. The features that need the whole result are refused.
+	 * 
+	 * @throws BuildException
+	 *             when streaming is combined with subject extraction or
+	 *             recipient chunking
+	 */
+	private void checkStreaming() throws BuildException {
+		if (contentTranslatorBuilder == null || !contentTranslatorBuilder.isStreaming()) {
+			return;
+		}
+		if (messageFillerBuilder != null && messageFillerBuilder.hasSubjectFiller()) {
+			throw new BuildException("Template streaming can't be combined with subjects extracted from the templates: the streamed contents are not available as string. Disable the subject filler or streaming");
+		}
+		for (Builder<? extends MessageSender> builder : implementations.values()) {
+			if (builder instanceof JavaMailBuilder && ((JavaMailBuilder) builder).getMaxRecipients() > 0) {
+				throw new BuildException("Template streaming can't be combined with recipient chunking. Disable chunking or streaming");
+			}
+		}
+	}
+
 	/**
 	 * <p>
 	 * Get the reference to the specialized builder for Java Mail API. It may be
@@ -689,6 +748,27 @@ public class EmailBuilder implements MessagingSenderBuilder<ConditionalSender> {
 		return getImplementationBuilder(SendGridBuilder.class);
 	}
 
+	/**
+	 * <p>
+	 * Get the reference to the specialized builder for the SMTP implementation
+	 * based on non-blocking I/O. It is only available if
+	 * {@link #withNioSmtp(Properties)} has been called.
+	 * </p>
+	 * 
+	 * Access this builder if you want to:
+	 * <ul>
+	 * <li>Customize the number of connections and I/O threads</li>
+	 * <li>Customize timeouts</li>
+	 * <li>Customize MIME generation (see
+	 * {@link NioSmtpBuilder#getMimeBuilder()})</li>
+	 * </ul>
+	 * 
+	 * @return The specialized builder for NIO SMTP implementation
+	 */
+	public NioSmtpBuilder getNioSmtpBuilder() {
+		return getImplementationBuilder(NioSmtpBuilder.class);
+	}
+
 	/**
 	 * <p>
 	 * Get the builder used for filling messages.
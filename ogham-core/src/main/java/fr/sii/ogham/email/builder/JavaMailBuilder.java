@@ -5,31 +5,41 @@ import java.util.Properties;
 import javax.mail.Authenticator;
 
 import fr.sii.ogham.core.builder.Builder;
+import fr.sii.ogham.core.builder.MimetypeProviderBuilder;
 import fr.sii.ogham.core.charset.FixedCharsetProvider;
 import fr.sii.ogham.core.message.content.Content;
 import fr.sii.ogham.core.message.content.MultiContent;
+import fr.sii.ogham.core.message.content.StreamingContent;
 import fr.sii.ogham.core.message.content.StringContent;
+import fr.sii.ogham.core.mimetype.CachedMimeTypeProvider;
 import fr.sii.ogham.core.mimetype.FallbackMimeTypeProvider;
 import fr.sii.ogham.core.mimetype.FixedMimeTypeProvider;
+import fr.sii.ogham.core.mimetype.MagicNumberProvider;
 import fr.sii.ogham.core.mimetype.MimeTypeProvider;
 import fr.sii.ogham.core.mimetype.TikaProvider;
 import fr.sii.ogham.core.resource.ByteResource;
 import fr.sii.ogham.core.resource.FileResource;
 import fr.sii.ogham.core.resource.NamedResource;
 import fr.sii.ogham.core.util.BuilderUtils;
+import fr.sii.ogham.email.EmailConstants;
 import fr.sii.ogham.email.EmailConstants.SmtpConstants;
 import fr.sii.ogham.email.message.content.ContentWithAttachments;
 import fr.sii.ogham.email.sender.impl.JavaMailSender;
+import fr.sii.ogham.email.sender.impl.javamail.ChunkedTransport;
 import fr.sii.ogham.email.sender.impl.javamail.ContentWithAttachmentsHandler;
+import fr.sii.ogham.email.sender.impl.javamail.EncodedAttachmentCache;
 import fr.sii.ogham.email.sender.impl.javamail.FileResourceHandler;
 import fr.sii.ogham.email.sender.impl.javamail.JavaMailAttachmentResourceHandler;
 import fr.sii.ogham.email.sender.impl.javamail.JavaMailContentHandler;
 import fr.sii.ogham.email.sender.impl.javamail.JavaMailInterceptor;
 import fr.sii.ogham.email.sender.impl.javamail.MapAttachmentResourceHandler;
 import fr.sii.ogham.email.sender.impl.javamail.MapContentHandler;
+import fr.sii.ogham.email.sender.impl.javamail.MappedFileDataSource;
+import fr.sii.ogham.email.sender.impl.javamail.MimeMessageFactory;
 import fr.sii.ogham.email.sender.impl.javamail.MultiContentHandler;
 import fr.sii.ogham.email.sender.impl.javamail.PropertiesUsernamePasswordAuthenticator;
 import fr.sii.ogham.email.sender.impl.javamail.StreamResourceHandler;
+import fr.sii.ogham.email.sender.impl.javamail.StreamingContentHandler;
 import fr.sii.ogham.email.sender.impl.javamail.StringContentHandler;
 
 /**
@@ -39,6 +49,11 @@ import fr.sii.ogham.email.sender.impl.javamail.StringContentHandler;
  *
  */
 public class JavaMailBuilder implements Builder<JavaMailSender> {
+	/**
+	 * Default number of threads used to send the chunks of recipients
+	 */
+	public static final int DEFAULT_DELIVERY_THREADS = 4;
+
 	/**
 	 * The properties to use
 	 */
@@ -73,6 +88,12 @@ public class JavaMailBuilder implements Builder<JavaMailSender> {
 	 */
 	private FallbackMimeTypeProvider mimetypeProvider;
 
+	/**
+	 * The provider used by the handlers: the registered providers behind the
+	 * cache of detected Mime Types (if enabled)
+	 */
+	private MimeTypeProvider detectionProvider;
+
 	/**
 	 * Extra operations to apply on the message
 	 */
@@ -83,12 +104,36 @@ public class JavaMailBuilder implements Builder<JavaMailSender> {
 	 */
 	private Authenticator authenticator;
 
+	/**
+	 * The maximum number of recipients per message (0 means no limit)
+	 */
+	private int maxRecipients;
+
+	/**
+	 * The number of threads used to send the chunks of recipients
+	 */
+	private int deliveryThreads;
+
+	/**
+	 * Whether textual parts are sent as 8bit when the server supports 8BITMIME
+	 */
+	private boolean allow8BitMime;
+
+	/**
+	 * The maximum total size of the attached files that are kept mapped in
+	 * memory (0 means the files are read through a stream)
+	 */
+	private long maxMappedFilesWeight;
+
 	public JavaMailBuilder() {
 		super();
 		mapContentHandler = new MapContentHandler();
 		contentHandler = mapContentHandler;
 		attachmentResourceHandler = mapAttachmentResourceHandler = new MapAttachmentResourceHandler();
 		mimetypeProvider = new FallbackMimeTypeProvider();
+		detectionProvider = mimetypeProvider;
+		deliveryThreads = DEFAULT_DELIVERY_THREADS;
+		allow8BitMime = false;
 	}
 
 	/**
@@ -97,8 +142,10 @@ public class JavaMailBuilder implements Builder<JavaMailSender> {
 	 * <li>Use the system properties</li>
 	 * <li>Register Mime Type detection using MimeMagic library</li>
 	 * <li>Register default Mime Type (text/plain)</li>
+	 * <li>Cache the detected Mime Types</li>
 	 * <li>Handle {@link MultiContent}</li>
 	 * <li>Handle {@link StringContent}</li>
+	 * <li>Handle {@link StreamingContent}</li>
 	 * <li>Handle {@link ByteResource}</li>
 	 * <li>Handle {@link FileResource}</li>
 	 * </ul>
@@ -116,8 +163,10 @@ public class JavaMailBuilder implements Builder<JavaMailSender> {
 	 * <li>Use the provided properties</li>
 	 * <li>Register Mime Type detection using MimeMagic library</li>
 	 * <li>Register default Mime Type (text/plain)</li>
+	 * <li>Cache the detected Mime Types</li>
 	 * <li>Handle {@link MultiContent}</li>
 	 * <li>Handle {@link StringContent}</li>
+	 * <li>Handle {@link StreamingContent}</li>
 	 * <li>Handle {@link ByteResource}</li>
 	 * <li>Handle {@link FileResource}</li>
 	 * </ul>
@@ -131,14 +180,22 @@ public class JavaMailBuilder implements Builder<JavaMailSender> {
 		if (props.containsKey(SmtpConstants.AUTHENTICATOR_USERNAME_KEY)) {
 			setAuthenticator(new PropertiesUsernamePasswordAuthenticator(props));
 		}
+		allow8BitMime(Boolean.parseBoolean(props.getProperty(SmtpConstants.ALLOW_8BITMIME_KEY, "false")));
+		if (props.containsKey(SmtpConstants.MAX_RECIPIENTS_KEY)) {
+			chunkRecipients(Integer.parseInt(props.getProperty(SmtpConstants.MAX_RECIPIENTS_KEY)),
+					Integer.parseInt(props.getProperty(SmtpConstants.DELIVERY_THREADS_KEY, String.valueOf(DEFAULT_DELIVERY_THREADS))));
+		}
+		registerMimeTypeProvider(new MagicNumberProvider());
 		registerMimeTypeProvider(new TikaProvider());
 		registerMimeTypeProvider(new FixedMimeTypeProvider());
+		cacheMimetypes(Long.parseLong(props.getProperty(EmailConstants.MIMETYPE_CACHE_SIZE_KEY, String.valueOf(MimetypeProviderBuilder.DEFAULT_CACHE_SIZE))));
 		registerContentHandler(MultiContent.class, new MultiContentHandler(mapContentHandler));
 		// TODO: make charset provider configurable
-		registerContentHandler(StringContent.class, new StringContentHandler(mimetypeProvider, new FixedCharsetProvider()));
+		registerContentHandler(StringContent.class, new StringContentHandler(detectionProvider, new FixedCharsetProvider()));
+		registerContentHandler(StreamingContent.class, new StreamingContentHandler(detectionProvider));
 		registerContentHandler(ContentWithAttachments.class, new ContentWithAttachmentsHandler(mapContentHandler));
-		registerAttachmentResourceHandler(ByteResource.class, new StreamResourceHandler(mimetypeProvider));
-		registerAttachmentResourceHandler(FileResource.class, new FileResourceHandler(mimetypeProvider));
+		registerAttachmentResourceHandler(ByteResource.class, new StreamResourceHandler(detectionProvider));
+		registerAttachmentResourceHandler(FileResource.class, new FileResourceHandler(detectionProvider, maxMappedFilesWeight));
 		return this;
 	}
 
@@ -182,6 +239,76 @@ public class JavaMailBuilder implements Builder<JavaMailSender> {
 		return this;
 	}
 
+	/**
+	 * Map the attached files in memory instead of reading them through a
+	 * stream. The mapping of a file is shared by all the emails that attach
+	 * it. At most 256MB of files are kept mapped.
+	 * 
+	 * @return this instance for fluent use
+	 * @see FileResourceHandler
+	 * @see MappedFileDataSource
+	 */
+	public JavaMailBuilder mapAttachmentFiles() {
+		return mapAttachmentFiles(FileResourceHandler.DEFAULT_MAPPED_FILES_WEIGHT);
+	}
+
+	/**
+	 * Map the attached files in memory instead of reading them through a
+	 * stream. The mapping of a file is shared by all the emails that attach
+	 * it. The least recently used mappings are released first.
+	 * 
+	 * @param maxMappedFilesWeight
+	 *            the maximum total size (in bytes) of the files that are kept
+	 *            mapped, 0 to read the files through a stream
+	 * @return this instance for fluent use
+	 * @see FileResourceHandler
+	 * @see MappedFileDataSource
+	 */
+	public JavaMailBuilder mapAttachmentFiles(long maxMappedFilesWeight) {
+		this.maxMappedFilesWeight = maxMappedFilesWeight;
+		registerAttachmentResourceHandler(FileResource.class, new FileResourceHandler(detectionProvider, maxMappedFilesWeight));
+		return this;
+	}
+
+	/**
+	 * Enable the cache of already encoded attachments with the default memory
+	 * budget. The same file attached to many emails is read, detected and
+	 * encoded only once. The other attachments are streamed.
+	 * 
+	 * @return this instance for fluent use
+	 * @see EncodedAttachmentCache
+	 */
+	public JavaMailBuilder cacheAttachments() {
+		return cacheAttachments(new EncodedAttachmentCache());
+	}
+
+	/**
+	 * Enable the cache of already encoded attachments. The same file attached
+	 * to many emails is read, detected and encoded only once. The other
+	 * attachments and the files bigger than the budget are streamed.
+	 * 
+	 * @param memoryBudget
+	 *            the maximum number of encoded bytes to keep in memory
+	 * @return this instance for fluent use
+	 * @see EncodedAttachmentCache
+	 */
+	public JavaMailBuilder cacheAttachments(long memoryBudget) {
+		return cacheAttachments(new EncodedAttachmentCache(memoryBudget));
+	}
+
+	/**
+	 * Use the provided cache of already encoded attachments. The cache may be
+	 * shared by several senders.
+	 * 
+	 * @param cache
+	 *            the cache to use
+	 * @return this instance for fluent use
+	 */
+	public JavaMailBuilder cacheAttachments(EncodedAttachmentCache cache) {
+		mapAttachmentResourceHandler.setCache(cache);
+		return this;
+	}
+
 	/**
 	 * <p>
 	 * Register a new Mime Type provider. Registering several providers allows
@@ -202,6 +329,23 @@ public class JavaMailBuilder implements Builder<JavaMailSender> {
 		return this;
 	}
 
+	/**
+	 * Cache the Mime Types detected by the registered providers. Files are
+	 * identified by their path, size and last modification date, contents by
+	 * a hash of their first bytes. It applies to the handlers registered after
+	 * this call ({@link #useDefaults(Properties)} calls it with the configured
+	 * size before registering the default handlers).
+	 * 
+	 * @param maxEntries
+	 *            the maximum number of cached Mime Types (0 to disable cache)
+	 * @return this instance for fluent use
+	 * @see CachedMimeTypeProvider
+	 */
+	public JavaMailBuilder cacheMimetypes(long maxEntries) {
+		detectionProvider = maxEntries > 0 ? new CachedMimeTypeProvider(mimetypeProvider, maxEntries) : mimetypeProvider;
+		return this;
+	}
+
 	/**
 	 * Set an interceptor used to customize the message before sending it. It is
 	 * called at the really end and just before sending the message.
@@ -227,8 +371,130 @@ public class JavaMailBuilder implements Builder<JavaMailSender> {
 		return this;
 	}
 
+	/**
+	 * Split the recipients into chunks of at most maxRecipients addresses. The
+	 * chunks are sent in parallel using {@link #DEFAULT_DELIVERY_THREADS}
+	 * threads and as many pooled connections.
+	 * 
+	 * @param maxRecipients
+	 *            the maximum number of recipients per message
+	 * @return this instance for fluent use
+	 * @see ChunkedTransport
+	 */
+	public JavaMailBuilder chunkRecipients(int maxRecipients) {
+		return chunkRecipients(maxRecipients, DEFAULT_DELIVERY_THREADS);
+	}
+
+	/**
+	 * Split the recipients into chunks of at most maxRecipients addresses. The
+	 * chunks are sent in parallel using deliveryThreads threads and as many
+	 * pooled connections.
+	 * 
+	 * @param maxRecipients
+	 *            the maximum number of recipients per message
+	 * @param deliveryThreads
+	 *            the number of threads used to send the chunks
+	 * @return this instance for fluent use
+	 * @see ChunkedTransport
+	 */
+	public JavaMailBuilder chunkRecipients(int maxRecipients, int deliveryThreads) {
+		this.maxRecipients = maxRecipients;
+		this.deliveryThreads = deliveryThreads;
+		return this;
+	}
+
+	/**
+	 * <p>
+	 * Enable or disable sending of textual parts as 8bit data. If enabled and
+	 * if the SMTP server supports 8BITMIME extension, the textual parts are
+	 * sent without quoted-printable or base64 encoding. Disabled by default
+	 * so the wire encoding doesn't change unless explicitly requested.
+	 * </p>
+	 * <p>
+	 * It sets the <code>mail.smtp.allow8bitmime</code> Java Mail property
+	 * unless it is explicitly defined in the properties.
+	 * </p>
+	 * 
+	 * @param allow
+	 *            true to enable 8bit data
+	 * @return this instance for fluent use
+	 */
+	public JavaMailBuilder allow8BitMime(boolean allow) {
+		this.allow8BitMime = allow;
+		return this;
+	}
+
+	/**
+	 * Indicates if textual parts are sent as 8bit data when the SMTP server
+	 * supports 8BITMIME extension.
+	 * 
+	 * @return true if 8bit data is allowed
+	 */
+	public boolean isAllow8BitMime() {
+		return allow8BitMime;
+	}
+
+	/**
+	 * Get the maximum number of recipients per message.
+	 * 
+	 * @return the maximum number of recipients (0 means no limit)
+	 */
+	public int getMaxRecipients() {
+		return maxRecipients;
+	}
+
+	/**
+	 * Get the provider used by the handlers to detect the Mime Types.
+	 * 
+	 * @return the Mime Type provider (cached if enabled)
+	 */
+	public MimeTypeProvider getMimetypeProvider() {
+		return detectionProvider;
+	}
+
+	/**
+	 * Build the factory that generates the mime message from the email using
+	 * the registered content handlers, attachment resource handlers and
+	 * interceptor. The factory can be used by any sender implementation that
+	 * relies on Java Mail for generating the mime message.
+	 * 
+	 * @return the factory that generates the mime message
+	 */
+	public MimeMessageFactory buildMessageFactory() {
+		return new MimeMessageFactory(contentHandler, attachmentResourceHandler, interceptor);
+	}
+
+	/**
+	 * Get the properties to use for Java mail API implementation.
+	 * 
+	 * @return the properties
+	 */
+	public Properties getProperties() {
+		return properties;
+	}
+
+	/**
+	 * Get the authentication mechanism to use for sending email.
+	 * 
+	 * @return the authentication mechanism (may be null)
+	 */
+	public Authenticator getAuthenticator() {
+		return authenticator;
+	}
+
+	private Properties buildSessionProperties() {
+		if (!allow8BitMime || properties == null || properties.getProperty("mail.smtp.allow8bitmime") != null) {
+			return properties;
+		}
+		// don't modify the provided properties
+		Properties sessionProperties = new Properties(properties);
+		sessionProperties.setProperty("mail.smtp.allow8bitmime", String.valueOf(allow8BitMime));
+		return sessionProperties;
+	}
+
 	@Override
 	public JavaMailSender build() {
-		return new JavaMailSender(properties, contentHandler, attachmentResourceHandler, authenticator, interceptor);
+		ChunkedTransport chunkedTransport = maxRecipients > 0 ? new ChunkedTransport(maxRecipients, deliveryThreads) : null;
+		return new JavaMailSender(buildSessionProperties(), buildMessageFactory(), authenticator, chunkedTransport);
 	}
 }
@@ -0,0 +1,305 @@
+package fr.sii.ogham.email.builder;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Properties;
+
+import fr.sii.ogham.core.builder.Builder;
+import fr.sii.ogham.core.exception.builder.BuildException;
+import fr.sii.ogham.core.util.BuilderUtils;
+import fr.sii.ogham.email.EmailConstants.NioSmtpConstants;
+import fr.sii.ogham.email.EmailConstants.SmtpConstants;
+import fr.sii.ogham.email.sender.impl.NioSmtpSender;
+import fr.sii.ogham.email.sender.impl.smtp.NioSmtpClient;
+
+/**
+ * <p>
+ * Builder that helps to construct the SMTP implementation based on
+ * non-blocking I/O.
+ * </p>
+ * <p>
+ * The MIME message is generated using Java Mail API so the content handlers,
+ * the attachment resource handlers and the Mime Type detection are configured
+ * through the wrapped {@link JavaMailBuilder} (see {@link #getMimeBuilder()}).
+ * </p>
+ *
+ * @author Aurélien Baudet
+ * @see NioSmtpSender
+ */
+public class NioSmtpBuilder implements Builder<NioSmtpSender> {
+	/**
+	 * Default maximum number of simultaneous connections
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS = 4;
+
+	/**
+	 * Default number of I/O threads
+	 */
+	public static final int DEFAULT_IO_THREADS = 1;
+
+	/**
+	 * Default delay (in milliseconds) before closing an idle connection
+	 */
+	public static final long DEFAULT_IDLE_TIMEOUT = 30000;
+
+	/**
+	 * Default maximum time (in milliseconds) to wait for a reply
+	 */
+	public static final long DEFAULT_READ_TIMEOUT = 60000;
+
+	/**
+	 * Default maximum time (in milliseconds) to wait for a message to be sent
+	 */
+	public static final long DEFAULT_SEND_TIMEOUT = 120000;
+
+	/**
+	 * The builder used to configure the MIME message generation
+	 */
+	private JavaMailBuilder mimeBuilder;
+
+	private String host;
+	private int port;
+	private String heloName;
+	private String username;
+	private String password;
+	private boolean plaintextAuth;
+	private int maxConnections;
+	private int ioThreads;
+	private long idleTimeout;
+	private long readTimeout;
+	private long sendTimeout;
+	private int maxRecipients;
+
+	public NioSmtpBuilder() {
+		super();
+		mimeBuilder = new JavaMailBuilder();
+		port = 25;
+		maxConnections = DEFAULT_MAX_CONNECTIONS;
+		ioThreads = DEFAULT_IO_THREADS;
+		idleTimeout = DEFAULT_IDLE_TIMEOUT;
+		readTimeout = DEFAULT_READ_TIMEOUT;
+		sendTimeout = DEFAULT_SEND_TIMEOUT;
+	}
+
+	/**
+	 * Tells the builder to use all default behaviors and values. Values come
+	 * from the system properties. See {@link #useDefaults(Properties)}.
+	 *
+	 * @return this instance for fluent use
+	 */
+	public NioSmtpBuilder useDefaults() {
+		return useDefaults(BuilderUtils.getDefaultProperties());
+	}
+
+	/**
+	 * Tells the builder to use all default behaviors and values:
+	 * <ul>
+	 * <li>Same MIME generation as Java Mail implementation (see
+	 * {@link JavaMailBuilder#useDefaults(Properties)})</li>
+	 * <li>Server address from <code>mail.smtp.host</code> (or
+	 * <code>mail.host</code>) and <code>mail.smtp.port</code> (or
+	 * <code>mail.port</code>)</li>
+	 * <li>Credentials from {@link SmtpConstants#AUTHENTICATOR_USERNAME_KEY} and
+	 * {@link SmtpConstants#AUTHENTICATOR_PASSWORD_KEY}. They are sent only if
+	 * {@link NioSmtpConstants#PLAINTEXT_AUTH} is true</li>
+	 * <li>Client tuning from {@link NioSmtpConstants} properties</li>
+	 * <li>Recipient chunking from {@link SmtpConstants#MAX_RECIPIENTS_KEY}</li>
+	 * </ul>
+	 *
+	 * @param props
+	 *            the properties to use
+	 * @return this instance for fluent use
+	 */
+	public NioSmtpBuilder useDefaults(Properties props) {
+		mimeBuilder.useDefaults(props);
+		withServer(props.getProperty("mail.smtp.host", props.getProperty("mail.host")), Integer.parseInt(props.getProperty("mail.smtp.port", props.getProperty("mail.port", "25"))));
+		withCredentials(props.getProperty(SmtpConstants.AUTHENTICATOR_USERNAME_KEY), props.getProperty(SmtpConstants.AUTHENTICATOR_PASSWORD_KEY));
+		if (Boolean.parseBoolean(props.getProperty(NioSmtpConstants.PLAINTEXT_AUTH, "false"))) {
+			allowPlaintextAuthentication();
+		}
+		withMaxConnections(Integer.parseInt(props.getProperty(NioSmtpConstants.MAX_CONNECTIONS, String.valueOf(DEFAULT_MAX_CONNECTIONS))));
+		withIoThreads(Integer.parseInt(props.getProperty(NioSmtpConstants.IO_THREADS, String.valueOf(DEFAULT_IO_THREADS))));
+		withIdleTimeout(Long.parseLong(props.getProperty(NioSmtpConstants.IDLE_TIMEOUT, String.valueOf(DEFAULT_IDLE_TIMEOUT))));
+		withReadTimeout(Long.parseLong(props.getProperty(NioSmtpConstants.READ_TIMEOUT, String.valueOf(DEFAULT_READ_TIMEOUT))));
+		withSendTimeout(Long.parseLong(props.getProperty(NioSmtpConstants.SEND_TIMEOUT, String.valueOf(DEFAULT_SEND_TIMEOUT))));
+		withMaxRecipients(Integer.parseInt(props.getProperty(SmtpConstants.MAX_RECIPIENTS_KEY, "0")));
+		return this;
+	}
+
+	/**
+	 * Set the address of the SMTP server.
+	 *
+	 * @param host
+	 *            the host of the SMTP server
+	 * @param port
+	 *            the port of the SMTP server
+	 * @return this instance for fluent use
+	 */
+	public NioSmtpBuilder withServer(String host, int port) {
+		this.host = host;
+		this.port = port;
+		return this;
+	}
+
+	/**
+	 * Set the name sent with the EHLO command. By default, the local host name
+	 * is used.
+	 *
+	 * @param heloName
+	 *            the name of the client
+	 * @return this instance for fluent use
+	 */
+	public NioSmtpBuilder withHeloName(String heloName) {
+		this.heloName = heloName;
+		return this;
+	}
+
+	/**
+	 * Authenticate using AUTH PLAIN mechanism. No authentication if username
+	 * is null.
+	 * <p>
+	 * TLS is not supported so the credentials would be sent in clear text.
+	 * Authentication must be explicitly allowed (see
+	 * {@link #allowPlaintextAuthentication()}).
+	 * </p>
+	 *
+	 * @param username
+	 *            the username
+	 * @param password
+	 *            the password
+	 * @return this instance for fluent use
+	 */
+	public NioSmtpBuilder withCredentials(String username, String password) {
+		this.username = username;
+		this.password = password;
+		return this;
+	}
+
+	/**
+	 * Allow sending the credentials over the unencrypted connection. Only use
+	 * it if the network between the application and the SMTP server is
+	 * trusted.
+	 *
+	 * @return this instance for fluent use
+	 */
+	public NioSmtpBuilder allowPlaintextAuthentication() {
+		this.plaintextAuth = true;
+		return this;
+	}
+
+	/**
+	 * Set the maximum number of simultaneous connections to the SMTP server.
+	 *
+	 * @param maxConnections
+	 *            the maximum number of connections
+	 * @return this instance for fluent use
+	 */
+	public NioSmtpBuilder withMaxConnections(int maxConnections) {
+		this.maxConnections = maxConnections;
+		return this;
+	}
+
+	/**
+	 * Set the number of threads that handle the connections.
+	 *
+	 * @param ioThreads
+	 *            the number of threads
+	 * @return this instance for fluent use
+	 */
+	public NioSmtpBuilder withIoThreads(int ioThreads) {
+		this.ioThreads = ioThreads;
+		return this;
+	}
+
+	/**
+	 * Set the delay before closing an unused connection.
+	 *
+	 * @param idleTimeout
+	 *            the delay in milliseconds
+	 * @return this instance for fluent use
+	 */
+	public NioSmtpBuilder withIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+		return this;
+	}
+
+	/**
+	 * Set the maximum time to wait for a reply of the SMTP server.
+	 *
+	 * @param readTimeout
+	 *            the timeout in milliseconds
+	 * @return this instance for fluent use
+	 */
+	public NioSmtpBuilder withReadTimeout(long readTimeout) {
+		this.readTimeout = readTimeout;
+		return this;
+	}
+
+	/**
+	 * Set the maximum time to wait for a message to be sent (including the
+	 * time waiting for an available connection).
+	 *
+	 * @param sendTimeout
+	 *            the timeout in milliseconds
+	 * @return this instance for fluent use
+	 */
+	public NioSmtpBuilder withSendTimeout(long sendTimeout) {
+		this.sendTimeout = sendTimeout;
+		return this;
+	}
+
+	/**
+	 * Split the recipients into chunks of at most maxRecipients addresses. The
+	 * chunks share the same generated content and are sent in parallel over
+	 * the pooled connections.
+	 *
+	 * @param maxRecipients
+	 *            the maximum number of recipients per transaction (0 means
+	 *            no limit)
+	 * @return this instance for fluent use
+	 */
+	public NioSmtpBuilder withMaxRecipients(int maxRecipients) {
+		this.maxRecipients = maxRecipients;
+		return this;
+	}
+
+	/**
+	 * Get the builder used to configure the generation of the MIME message
+	 * (content handlers, attachment resource handlers, Mime Type detection,
+	 * interceptor...).
+	 *
+	 * @return the builder for MIME generation
+	 */
+	public JavaMailBuilder getMimeBuilder() {
+		return mimeBuilder;
+	}
+
+	@Override
+	public NioSmtpSender build() throws BuildException {
+		if (host == null) {
+			throw new BuildException("SMTP host is not set");
+		}
+		if (username != null && !plaintextAuth) {
+			throw new BuildException("SMTP credentials can't be sent because TLS is not supported. Allow plaintext authentication explicitly to send them over the unencrypted connection");
+		}
+		try {
+			NioSmtpClient client = new NioSmtpClient(host, port, getHeloName(), username, password, plaintextAuth, maxConnections, ioThreads, idleTimeout, readTimeout);
+			Properties properties = mimeBuilder.getProperties() == null ? new Properties() : mimeBuilder.getProperties();
+			return new NioSmtpSender(properties, mimeBuilder.buildMessageFactory(), client, sendTimeout, maxRecipients, mimeBuilder.isAllow8BitMime());
+		} catch (IOException e) {
+			throw new BuildException("Failed to create NIO SMTP client", e);
+		}
+	}
+
+	private String getHeloName() {
+		if (heloName != null) {
+			return heloName;
+		}
+		try {
+			return InetAddress.getLocalHost().getCanonicalHostName();
+		} catch (UnknownHostException e) {
+			return "localhost";
+		}
+	}
+}
@@ -1,17 +1,25 @@
 package fr.sii.ogham.email.builder;
 
 import java.util.Properties;
+import java.util.concurrent.Executors;
 
 import fr.sii.ogham.core.builder.Builder;
+import fr.sii.ogham.core.builder.MimetypeProviderBuilder;
 import fr.sii.ogham.core.exception.builder.BuildException;
 import fr.sii.ogham.core.message.content.Content;
 import fr.sii.ogham.core.message.content.MultiContent;
+import fr.sii.ogham.core.message.content.StreamingContent;
 import fr.sii.ogham.core.message.content.StringContent;
+import fr.sii.ogham.core.mimetype.CachedMimeTypeProvider;
 import fr.sii.ogham.core.mimetype.FallbackMimeTypeProvider;
 import fr.sii.ogham.core.mimetype.FixedMimeTypeProvider;
+import fr.sii.ogham.core.mimetype.MagicNumberProvider;
 import fr.sii.ogham.core.mimetype.MimeTypeProvider;
 import fr.sii.ogham.core.mimetype.TikaProvider;
 import fr.sii.ogham.core.util.BuilderUtils;
+import fr.sii.ogham.core.util.DaemonThreadFactory;
+import fr.sii.ogham.core.util.http.PooledHttpClientFactory;
+import fr.sii.ogham.email.EmailConstants;
 import fr.sii.ogham.email.EmailConstants.SendGridConstants;
 import fr.sii.ogham.email.sender.impl.SendGridSender;
 import fr.sii.ogham.email.sender.impl.sendgrid.client.DelegateSendGridClient;
@@ -48,6 +56,12 @@ public final class SendGridBuilder implements Builder<SendGridSender> {
 	 */
 	private FallbackMimeTypeProvider mimetypeProvider;
 
+	/**
+	 * The provider used by the handlers: the registered providers behind the
+	 * cache of detected Mime Types (if enabled)
+	 */
+	private MimeTypeProvider detectionProvider;
+
 	/**
 	 * The account user
 	 */
@@ -63,6 +77,31 @@ public final class SendGridBuilder implements Builder<SendGridSender> {
 	 */
 	private String apiKey;
 
+	/**
+	 * The base URL of SendGrid API
+	 */
+	private String url;
+
+	/**
+	 * The maximum number of recipients per API request in batch mode
+	 */
+	private int batchSize;
+
+	/**
+	 * The number of API requests of a batch submitted in parallel
+	 */
+	private int batchParallelism;
+
+	/**
+	 * The number of threads used to send emails asynchronously
+	 */
+	private int asyncThreads;
+
+	/**
+	 * The configuration of the pool of HTTP connections
+	 */
+	private PooledHttpClientFactory httpClientFactory;
+
 	/**
 	 * Constructor.
 	 */
@@ -70,16 +109,23 @@ public final class SendGridBuilder implements Builder<SendGridSender> {
 		mapContentHandler = new MapContentHandler();
 		contentHandler = mapContentHandler;
 		mimetypeProvider = new FallbackMimeTypeProvider();
+		detectionProvider = mimetypeProvider;
+		batchSize = SendGridSender.DEFAULT_BATCH_SIZE;
+		batchParallelism = 1;
+		httpClientFactory = new PooledHttpClientFactory();
 	}
 
 	/**
 	 * Tells the builder to use all default behaviors and values:
 	 * <ul>
-	 * <li>Use the system properties for credentials</li>
+	 * <li>Use the system properties for credentials, API URL, batch mode and HTTP
+	 * connection pool configuration</li>
 	 * <li>Register Mime Type detection using MimeMagic library</li>
 	 * <li>Register default Mime Type (text/plain)</li>
+	 * <li>Cache the detected Mime Types</li>
 	 * <li>Handle {@link MultiContent}</li>
 	 * <li>Handle {@link StringContent}</li>
+	 * <li>Handle {@link StreamingContent} (rendered in memory)</li>
 	 * </ul>
 	 * 
 	 * @return this instance for fluent use
@@ -92,11 +138,14 @@ public final class SendGridBuilder implements Builder<SendGridSender> {
 	/**
 	 * Tells the builder to use all default behaviors and values:
 	 * <ul>
-	 * <li>Use the provided properties for credentials</li>
+	 * <li>Use the provided properties for credentials, API URL, batch mode and HTTP
+	 * connection pool configuration</li>
 	 * <li>Register Mime Type detection using MimeMagic library</li>
 	 * <li>Register default Mime Type (text/plain)</li>
+	 * <li>Cache the detected Mime Types</li>
 	 * <li>Handle {@link MultiContent}</li>
 	 * <li>Handle {@link StringContent}</li>
+	 * <li>Handle {@link StreamingContent} (rendered in memory)</li>
 	 * </ul>
 	 * 
 	 * @param props
@@ -106,10 +155,22 @@ public final class SendGridBuilder implements Builder<SendGridSender> {
 	public SendGridBuilder useDefaults(Properties props) {
 		withCredentials(props.getProperty(SendGridConstants.USERNAME), props.getProperty(SendGridConstants.PASSWORD));
 		withApiKey(props.getProperty(SendGridConstants.API_KEY));
+		withUrl(props.getProperty(SendGridConstants.URL));
+		withBatch(Integer.parseInt(props.getProperty(SendGridConstants.BATCH_SIZE, String.valueOf(SendGridSender.DEFAULT_BATCH_SIZE))),
+				Integer.parseInt(props.getProperty(SendGridConstants.BATCH_PARALLELISM, "1")));
+		withAsync(Integer.parseInt(props.getProperty(SendGridConstants.ASYNC_THREADS, "0")));
+		withHttpPool(Integer.parseInt(props.getProperty(SendGridConstants.HTTP_MAX_CONNECTIONS, String.valueOf(PooledHttpClientFactory.DEFAULT_MAX_PER_ROUTE))),
+				Long.parseLong(props.getProperty(SendGridConstants.HTTP_KEEP_ALIVE, String.valueOf(PooledHttpClientFactory.DEFAULT_KEEP_ALIVE))));
+		withHttpTimeouts(Integer.parseInt(props.getProperty(SendGridConstants.HTTP_CONNECT_TIMEOUT, String.valueOf(PooledHttpClientFactory.DEFAULT_CONNECT_TIMEOUT))),
+				Integer.parseInt(props.getProperty(SendGridConstants.HTTP_READ_TIMEOUT, String.valueOf(PooledHttpClientFactory.DEFAULT_READ_TIMEOUT))));
+		registerMimeTypeProvider(new MagicNumberProvider());
 		registerMimeTypeProvider(new TikaProvider());
 		registerMimeTypeProvider(new FixedMimeTypeProvider());
+		cacheMimetypes(Long.parseLong(props.getProperty(EmailConstants.MIMETYPE_CACHE_SIZE_KEY, String.valueOf(MimetypeProviderBuilder.DEFAULT_CACHE_SIZE))));
 		registerContentHandler(MultiContent.class, new MultiContentHandler(mapContentHandler));
-		registerContentHandler(StringContent.class, new StringContentHandler(mimetypeProvider));
+		StringContentHandler stringContentHandler = new StringContentHandler(detectionProvider);
+		registerContentHandler(StringContent.class, stringContentHandler);
+		registerContentHandler(StreamingContent.class, stringContentHandler);
 		return this;
 	}
 
@@ -133,6 +194,23 @@ public final class SendGridBuilder implements Builder<SendGridSender> {
 		return this;
 	}
 
+	/**
+	 * Cache the Mime Types detected by the registered providers. Files are
+	 * identified by their path, size and last modification date, contents by
+	 * a hash of their first bytes. It applies to the handlers registered after
+	 * this call ({@link #useDefaults(Properties)} calls it with the configured
+	 * size before registering the default handlers).
+	 * 
+	 * @param maxEntries
+	 *            the maximum number of cached Mime Types (0 to disable cache)
+	 * @return this instance for fluent use
+	 * @see CachedMimeTypeProvider
+	 */
+	public SendGridBuilder cacheMimetypes(long maxEntries) {
+		detectionProvider = maxEntries > 0 ? new CachedMimeTypeProvider(mimetypeProvider, maxEntries) : mimetypeProvider;
+		return this;
+	}
+
 	/**
 	 * Register a new handler for a specific content.
 	 * 
@@ -176,6 +254,85 @@ public final class SendGridBuilder implements Builder<SendGridSender> {
 		return this;
 	}
 
+	/**
+	 * Configures the builder to create senders that call SendGrid API at the
+	 * provided URL instead of the default one.
+	 * 
+	 * @param url
+	 *            the base URL of SendGrid API (null to use the default one)
+	 * @return the current instance for fluent use
+	 */
+	public SendGridBuilder withUrl(final String url) {
+		this.url = url;
+		return this;
+	}
+
+	/**
+	 * Configures the batch mode (see
+	 * {@link SendGridSender#sendBatch(fr.sii.ogham.email.message.Email, java.util.List)}
+	 * ).
+	 * 
+	 * @param batchSize
+	 *            the maximum number of recipients per API request
+	 * @param parallelism
+	 *            the number of API requests submitted in parallel (1 to
+	 *            submit them sequentially)
+	 * @return the current instance for fluent use
+	 */
+	public SendGridBuilder withBatch(final int batchSize, final int parallelism) {
+		this.batchSize = batchSize;
+		this.batchParallelism = parallelism;
+		return this;
+	}
+
+	/**
+	 * Configures the executor used by
+	 * {@link SendGridSender#sendAsync(fr.sii.ogham.email.message.Email)}.
+	 * 
+	 * @param threads
+	 *            the number of threads used to send emails asynchronously (0
+	 *            to send them in the calling thread)
+	 * @return the current instance for fluent use
+	 */
+	public SendGridBuilder withAsync(final int threads) {
+		this.asyncThreads = threads;
+		return this;
+	}
+
+	/**
+	 * Configures the pool of HTTP connections shared by all the requests to
+	 * SendGrid. Connections are kept alive so that the next requests don't
+	 * need to open a new connection (TCP and TLS handshakes).
+	 * 
+	 * @param maxConnections
+	 *            the maximum number of simultaneous connections to SendGrid
+	 * @param keepAlive
+	 *            the time (in milliseconds) an idle connection is kept open
+	 * @return the current instance for fluent use
+	 */
+	public SendGridBuilder withHttpPool(final int maxConnections, final long keepAlive) {
+		httpClientFactory.setMaxPerRoute(maxConnections);
+		httpClientFactory.setMaxTotal(maxConnections);
+		httpClientFactory.setKeepAlive(keepAlive);
+		return this;
+	}
+
+	/**
+	 * Configures the timeouts of the requests to SendGrid.
+	 * 
+	 * @param connectTimeout
+	 *            the timeout (in milliseconds) for opening a connection or
+	 *            waiting for a pooled connection
+	 * @param readTimeout
+	 *            the timeout (in milliseconds) for reading the response
+	 * @return the current instance for fluent use
+	 */
+	public SendGridBuilder withHttpTimeouts(final int connectTimeout, final int readTimeout) {
+		httpClientFactory.setConnectTimeout(connectTimeout);
+		httpClientFactory.setReadTimeout(readTimeout);
+		return this;
+	}
+
 	/**
 	 * Sets an alternative {@link SendGridClient} instance to be used.
 	 * 
@@ -191,14 +348,21 @@ public final class SendGridBuilder implements Builder<SendGridSender> {
 	@Override
 	public SendGridSender build() throws BuildException {
 		if (client == null) {
+			DelegateSendGridClient delegateClient;
 			if(username!=null && password!=null) {
-				client = new DelegateSendGridClient(username, password);
+				delegateClient = new DelegateSendGridClient(username, password, httpClientFactory.create());
 			} else {
-				client = new DelegateSendGridClient(apiKey);
+				delegateClient = new DelegateSendGridClient(apiKey, httpClientFactory.create());
 			}
+			delegateClient.setUrl(url);
+			client = delegateClient;
 		}
 
-		return new SendGridSender(client, contentHandler);
+		final int threads = Math.max(batchParallelism > 1 ? batchParallelism : 0, asyncThreads);
+		if (threads > 0) {
+			return new SendGridSender(client, contentHandler, batchSize, Executors.newFixedThreadPool(threads, new DaemonThreadFactory("ogham-sendgrid")));
+		}
+		return new SendGridSender(client, contentHandler, batchSize, null);
 	}
 
 }
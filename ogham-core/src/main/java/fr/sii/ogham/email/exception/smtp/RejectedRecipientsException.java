@@ -0,0 +1,46 @@
+package fr.sii.ogham.email.exception.smtp;
+
+import java.util.List;
+import java.util.Map;
+
+import fr.sii.ogham.email.sender.impl.smtp.SmtpReply;
+
+/**
+ * Exception raised when the SMTP server has rejected some recipients. The
+ * message may have been delivered to the other recipients (see
+ * {@link #getAcceptedRecipients()}).
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class RejectedRecipientsException extends SmtpException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = -2519480335296245207L;
+
+	/**
+	 * The recipients that have received the message
+	 */
+	private final List<String> acceptedRecipients;
+
+	/**
+	 * The rejected recipients with the reply of the server
+	 */
+	private final Map<String, SmtpReply> rejectedRecipients;
+
+	public RejectedRecipientsException(String message, List<String> acceptedRecipients, Map<String, SmtpReply> rejectedRecipients) {
+		super(message + ". Rejected recipients: " + rejectedRecipients);
+		this.acceptedRecipients = acceptedRecipients;
+		this.rejectedRecipients = rejectedRecipients;
+	}
+
+	public List<String> getAcceptedRecipients() {
+		return acceptedRecipients;
+	}
+
+	public Map<String, SmtpReply> getRejectedRecipients() {
+		return rejectedRecipients;
+	}
+}
@@ -0,0 +1,43 @@
+package fr.sii.ogham.email.exception.smtp;
+
+import fr.sii.ogham.core.exception.MessagingException;
+import fr.sii.ogham.email.sender.impl.smtp.SmtpReply;
+
+/**
+ * Exception raised when the SMTP server rejects a command or when the
+ * communication with the SMTP server fails.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class SmtpException extends MessagingException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 4907513632941265247L;
+
+	/**
+	 * The reply of the server (may be null if the failure is not due to a
+	 * server reply)
+	 */
+	private final SmtpReply reply;
+
+	public SmtpException(String message, SmtpReply reply) {
+		super(reply == null ? message : (message + " (" + reply + ")"));
+		this.reply = reply;
+	}
+
+	public SmtpException(String message, Throwable cause) {
+		super(message, cause);
+		this.reply = null;
+	}
+
+	public SmtpException(String message) {
+		this(message, (SmtpReply) null);
+	}
+
+	public SmtpReply getReply() {
+		return reply;
+	}
+}
@@ -1,43 +1,48 @@
 package fr.sii.ogham.email.sender.impl;
 
+import java.io.Closeable;
 import java.io.UnsupportedEncodingException;
 import java.util.Properties;
 
 import javax.mail.Authenticator;
-import javax.mail.Message.RecipientType;
 import javax.mail.MessagingException;
-import javax.mail.Multipart;
 import javax.mail.Session;
 import javax.mail.Transport;
-import javax.mail.internet.AddressException;
-import javax.mail.internet.InternetAddress;
-import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMessage;
-import javax.mail.internet.MimeMultipart;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import fr.sii.ogham.core.exception.MessageException;
 import fr.sii.ogham.core.sender.AbstractSpecializedSender;
-import fr.sii.ogham.email.attachment.Attachment;
-import fr.sii.ogham.email.attachment.ContentDisposition;
 import fr.sii.ogham.email.exception.javamail.AttachmentResourceHandlerException;
 import fr.sii.ogham.email.exception.javamail.ContentHandlerException;
 import fr.sii.ogham.email.message.Email;
-import fr.sii.ogham.email.message.EmailAddress;
-import fr.sii.ogham.email.message.Recipient;
+import fr.sii.ogham.email.sender.impl.javamail.ChunkedTransport;
 import fr.sii.ogham.email.sender.impl.javamail.JavaMailAttachmentResourceHandler;
 import fr.sii.ogham.email.sender.impl.javamail.JavaMailContentHandler;
 import fr.sii.ogham.email.sender.impl.javamail.JavaMailInterceptor;
+import fr.sii.ogham.email.sender.impl.javamail.MimeMessageFactory;
+import fr.sii.ogham.email.sender.impl.javamail.SpooledDataSource;
 
 /**
+ * <p>
  * Java mail API implementation.
- * 
+ * </p>
+ * <p>
+ * If a {@link ChunkedTransport} is provided, the recipients are split into
+ * chunks that are sent in parallel. Otherwise, the message is sent at once
+ * using {@link Transport#send(javax.mail.Message)}. In both cases, a
+ * {@link MessageException} caused by a {@link javax.mail.SendFailedException}
+ * is thrown if some recipients didn't receive the message.
+ * </p>
+ *
  * @author Aurélien Baudet
  * @see JavaMailContentHandler
+ * @see MimeMessageFactory
+ * @see ChunkedTransport
  */
-public class JavaMailSender extends AbstractSpecializedSender<Email> {
+public class JavaMailSender extends AbstractSpecializedSender<Email> implements Closeable {
 	private static final Logger LOG = LoggerFactory.getLogger(JavaMailSender.class);
 
 	/**
@@ -46,24 +51,19 @@ public class JavaMailSender extends AbstractSpecializedSender<Email> {
 	private Properties properties;
 
 	/**
-	 * The content handler used to add message content
+	 * Generates the mime message from the email
 	 */
-	private JavaMailContentHandler contentHandler;
+	private MimeMessageFactory messageFactory;
 
 	/**
-	 * The attachment handler used to add attachments to the mail
-	 */
-	private JavaMailAttachmentResourceHandler attachmentHandler;
-
-	/**
-	 * Extra operations to apply on the message
+	 * Authentication mechanism
 	 */
-	private JavaMailInterceptor interceptor;
+	private Authenticator authenticator;
 
 	/**
-	 * Authentication mechanism
+	 * Sends the message by chunks of recipients (may be null)
 	 */
-	private Authenticator authenticator;
+	private ChunkedTransport chunkedTransport;
 
 	public JavaMailSender(Properties properties, JavaMailContentHandler contentHandler, JavaMailAttachmentResourceHandler attachmentResourceHandler, Authenticator authenticator) {
 		this(properties, contentHandler, attachmentResourceHandler, authenticator, null);
@@ -71,232 +71,67 @@ public class JavaMailSender extends AbstractSpecializedSender<Email> {
 
 	public JavaMailSender(Properties properties, JavaMailContentHandler contentHandler, JavaMailAttachmentResourceHandler attachmentHandler, Authenticator authenticator,
 			JavaMailInterceptor interceptor) {
+		this(properties, new MimeMessageFactory(contentHandler, attachmentHandler, interceptor), authenticator);
+	}
+
+	public JavaMailSender(Properties properties, MimeMessageFactory messageFactory, Authenticator authenticator) {
+		this(properties, messageFactory, authenticator, null);
+	}
+
+	public JavaMailSender(Properties properties, MimeMessageFactory messageFactory, Authenticator authenticator, ChunkedTransport chunkedTransport) {
 		super();
 		this.properties = properties;
-		this.contentHandler = contentHandler;
-		this.attachmentHandler = attachmentHandler;
+		this.messageFactory = messageFactory;
 		this.authenticator = authenticator;
-		this.interceptor = interceptor;
+		this.chunkedTransport = chunkedTransport;
 	}
 
 	@Override
 	public void send(Email email) throws MessageException {
+		MimeMessage mimeMsg = null;
 		try {
 			LOG.debug("Initialize Java mail session with authenticator {} and properties {}", authenticator, properties);
-			LOG.debug("Create the mime message for email {}", email);
-			MimeMessage mimeMsg = createMimeMessage();
-			// set the sender address
-			setFrom(email, mimeMsg);
-			// set recipients (to, cc, bcc)
-			setRecipients(email, mimeMsg);
-			// set subject and content
-			mimeMsg.setSubject(email.getSubject());
-			setMimeContent(email, mimeMsg);
-			// default behavior is done => message is ready but let possibility
-			// to add extra operations to do on the message
-			if (interceptor != null) {
-				LOG.debug("Executing extra operations for email {}", email);
-				interceptor.intercept(mimeMsg, email);
-			}
+			Session session = createSession();
+			mimeMsg = messageFactory.createMimeMessage(session, email);
 			// message is ready => send it
 			LOG.info("Sending email using Java Mail API through server {}:{}...", properties.getProperty("mail.smtp.host", properties.getProperty("mail.host")),
 					properties.getProperty("mail.smtp.port", properties.getProperty("mail.port")));
-			Transport.send(mimeMsg);
+			if (chunkedTransport == null) {
+				Transport.send(mimeMsg);
+			} else {
+				chunkedTransport.send(session, mimeMsg);
+			}
 		} catch (UnsupportedEncodingException | MessagingException | ContentHandlerException | AttachmentResourceHandlerException e) {
 			throw new MessageException("failed to send message using Java Mail API", email, e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MessageException("interrupted while sending message using Java Mail API", email, e);
+		} finally {
+			if (mimeMsg != null) {
+				SpooledDataSource.release(mimeMsg);
+			}
 		}
 	}
 
 	/**
-	 * Initialize the session and create the mime message.
-	 * 
-	 * @return the mime message
-	 */
-	private MimeMessage createMimeMessage() {
-		// prepare the message
-		Session session = Session.getDefaultInstance(properties, authenticator);
-		return new MimeMessage(session);
-	}
-
-	/**
-	 * Set the sender address on the mime message.
-	 * 
-	 * @param email
-	 *            the source email
-	 * @param mimeMsg
-	 *            the mime message to fill
-	 * @throws MessagingException
-	 *             when the email address is not valid
-	 * @throws AddressException
-	 *             when the email address is not valid
-	 * @throws UnsupportedEncodingException
-	 *             when the email address is not valid
-	 */
-	private void setFrom(Email email, MimeMessage mimeMsg) throws MessagingException, AddressException, UnsupportedEncodingException {
-		if (email.getFrom() == null) {
-			throw new IllegalArgumentException("The sender address has not been set");
-		}
-		mimeMsg.setFrom(toInternetAddress(email.getFrom()));
-	}
-
-	/**
-	 * Set the recipients addresses on the mime message.
-	 * 
-	 * @param email
-	 *            the source email
-	 * @param mimeMsg
-	 *            the mime message to fill
-	 * @throws MessagingException
-	 *             when the email address is not valid
-	 * @throws AddressException
-	 *             when the email address is not valid
-	 * @throws UnsupportedEncodingException
-	 *             when the email address is not valid
-	 */
-	private void setRecipients(Email email, MimeMessage mimeMsg) throws MessagingException, AddressException, UnsupportedEncodingException {
-		for (Recipient recipient : email.getRecipients()) {
-			mimeMsg.addRecipient(convert(recipient.getType()), toInternetAddress(recipient.getAddress()));
-		}
-	}
-
-	/**
-	 * Set the content on the mime message.
-	 * 
-	 * <p>
-	 * If the source email has several contents (for example text and html) and
-	 * attachments (with attachment content disposition), the mime message looks
-	 * like:
-	 * 
-	 * <pre>
-	 *  mixed
-	 *     related
-	 *        alternative
-	 *           [text/plain] text message
-	 *           [text/html] html message
-	 *     attachment 1
-	 *     attachment 2
-	 * </pre>
-	 * 
-	 * <p>
-	 * If the source email has several contents (for example text and html) but
-	 * no attachments, the mime message looks like:
-	 * 
-	 * <pre>
-	 *  alternative
-	 *     [text/plain] text message
-	 *     [text/html] html message
-	 * </pre>
-	 * 
-	 * <p>
-	 * If the source email has only one content (for example html) and
-	 * attachments (with attachment content disposition), the mime message looks
-	 * like:
-	 * 
-	 * <pre>
-	 *  mixed
-	 *     related
-	 *        [text/html] html message
-	 *     attachment 1
-	 *     attachment 2
-	 * </pre>
-	 * 
-	 * <p>
-	 * If the source email has only one content (for example html) and no
-	 * attachment, the mime message looks like:
-	 * 
-	 * <pre>
-	 *  mixed
-	 *     [text/html] html message
-	 * </pre>
-	 * 
-	 * @param email
-	 *            the source email
-	 * @param mimeMsg
-	 *            the mime message to fill
-	 * @throws MessagingException
-	 *             when the email address is not valid
-	 * @throws ContentHandlerException
-	 *             when the email address is not valid
-	 * @throws AttachmentResourceHandlerException
-	 *             when the email address is not valid
+	 * Initialize the session.
+	 *
+	 * @return the session
 	 */
-	private void setMimeContent(Email email, MimeMessage mimeMsg) throws MessagingException, ContentHandlerException, AttachmentResourceHandlerException {
-		LOG.debug("Add message content for email {}", email);
-		// create the root as mixed
-		MimeMultipart rootContainer = new MimeMultipart("mixed");
-		// create the container in case of attachments
-		MimeMultipart relatedContainer = new MimeMultipart("related");
-		MimeBodyPart relatedPart = new MimeBodyPart();
-		relatedPart.setContent(relatedContainer);
-		// delegate content management to specialized classes
-		contentHandler.setContent(mimeMsg, relatedContainer, email, email.getContent());
-		// add attachments to the root or the related container according to the
-		// disposition (inline or attached)
-		for (Attachment attachment : email.getAttachments()) {
-			Multipart container = ContentDisposition.ATTACHMENT.equals(attachment.getDisposition()) ? rootContainer : relatedContainer;
-			addAttachment(container, attachment);
-		}
-		// if no attachments (only text) then root is changed to point on
-		// related container
-		if (email.getAttachments().isEmpty()) {
-			// if no attachments and several parts => set part type to
-			// alternative instead of related
-			// if no attachments and one part => set part type to mixed instead
-			// of related
-			rootContainer = relatedContainer;
-			if (relatedContainer.getCount() == 1) {
-				rootContainer.setSubType("mixed");
-			} else {
-				rootContainer.setSubType("alternative");
-			}
-		} else {
-			// there are attachments so add the related part to the root
-			rootContainer.addBodyPart(relatedPart);
-		}
-		mimeMsg.setContent(rootContainer);
+	private Session createSession() {
+		return Session.getDefaultInstance(properties, authenticator);
 	}
 
 	/**
-	 * Add an attachment on the mime message.
-	 * 
-	 * @param multipart
-	 *            the mime message to fill
-	 * @param attachment
-	 *            the attachment to add
-	 * @throws AttachmentResourceHandlerException
-	 *             when the attachment couldn't be attached
+	 * Close the pooled connections (if recipient chunking is enabled).
 	 */
-	private void addAttachment(Multipart multipart, Attachment attachment) throws AttachmentResourceHandlerException {
-		MimeBodyPart part = new MimeBodyPart();
-		try {
-			part.setFileName(attachment.getResource().getName());
-			part.setDisposition(attachment.getDisposition());
-			part.setDescription(attachment.getDescription());
-			part.setContentID(attachment.getContentId());
-			attachmentHandler.setData(part, attachment.getResource(), attachment);
-			multipart.addBodyPart(part);
-		} catch (MessagingException e) {
-			throw new AttachmentResourceHandlerException("Failed to attach " + attachment.getResource().getName(), attachment, e);
-		}
-	}
-
-	private RecipientType convert(fr.sii.ogham.email.message.RecipientType type) {
-		switch (type) {
-			case BCC:
-				return RecipientType.BCC;
-			case CC:
-				return RecipientType.CC;
-			case TO:
-				return RecipientType.TO;
-			default:
-				throw new IllegalArgumentException("Invalid recipient type " + type);
+	@Override
+	public void close() {
+		if (chunkedTransport != null) {
+			chunkedTransport.close();
 		}
 	}
 
-	private static InternetAddress toInternetAddress(EmailAddress address) throws AddressException, UnsupportedEncodingException {
-		return address.getPersonal() == null ? new InternetAddress(address.getAddress()) : new InternetAddress(address.getAddress(), address.getPersonal());
-	}
-
 	@Override
 	public String toString() {
 		return "JavaMailSender";
@@ -0,0 +1,259 @@
+package fr.sii.ogham.email.sender.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.exception.MessageException;
+import fr.sii.ogham.core.exception.PartialDeliveryException;
+import fr.sii.ogham.core.sender.AbstractSpecializedSender;
+import fr.sii.ogham.core.util.SpillingOutputStream;
+import fr.sii.ogham.email.exception.javamail.AttachmentResourceHandlerException;
+import fr.sii.ogham.email.exception.javamail.ContentHandlerException;
+import fr.sii.ogham.email.exception.smtp.RejectedRecipientsException;
+import fr.sii.ogham.email.exception.smtp.SmtpException;
+import fr.sii.ogham.email.message.Email;
+import fr.sii.ogham.email.sender.impl.javamail.MimeMessageFactory;
+import fr.sii.ogham.email.sender.impl.javamail.SpooledDataSource;
+import fr.sii.ogham.email.sender.impl.javamail.TransferEncodingSelector;
+import fr.sii.ogham.email.sender.impl.smtp.NioSmtpClient;
+import fr.sii.ogham.email.sender.impl.smtp.SmtpData;
+import fr.sii.ogham.email.sender.impl.smtp.SmtpDataOutputStream;
+import fr.sii.ogham.email.sender.impl.smtp.SmtpEnvelope;
+import fr.sii.ogham.email.sender.impl.smtp.SmtpResult;
+import fr.sii.ogham.email.sender.impl.smtp.SmtpTransaction;
+
+/**
+ * <p>
+ * SMTP implementation based on non-blocking I/O. The MIME message is generated
+ * using Java Mail API (through {@link MimeMessageFactory}) so the content is
+ * exactly the same as with {@link JavaMailSender}. The message is then sent
+ * using a {@link NioSmtpClient} that keeps connections open and uses ESMTP
+ * PIPELINING when the server supports it.
+ * </p>
+ * <p>
+ * If 8bit data is allowed and the server supports 8BITMIME extension,
+ * textual parts are sent as 8bit data instead of being encoded (see
+ * {@link TransferEncodingSelector#convertTo8Bit(javax.mail.internet.MimePart)}
+ * ).
+ * </p>
+ * <p>
+ * If a maximum number of recipients per message is set, the recipients are
+ * split into chunks. The chunks share the same generated content and are sent
+ * in parallel over the pooled connections of the client. The content is
+ * generated once and kept in memory only if it is small. Bigger contents are
+ * written to a temporary file and read by chunks while being sent.
+ * </p>
+ * <p>
+ * If some recipients are rejected by the server, the message is still
+ * delivered to the accepted recipients and a {@link MessageException} caused
+ * by a {@link PartialDeliveryException} is thrown once all the chunks are
+ * processed. The failure of each rejected recipient is the
+ * {@link RejectedRecipientsException} of its chunk (with the replies of the
+ * server).
+ * </p>
+ *
+ * @author Aurélien Baudet
+ * @see NioSmtpClient
+ * @see MimeMessageFactory
+ */
+public class NioSmtpSender extends AbstractSpecializedSender<Email> implements Closeable {
+	private static final Logger LOG = LoggerFactory.getLogger(NioSmtpSender.class);
+
+	/**
+	 * Headers that must not be transmitted
+	 */
+	private static final String[] IGNORED_HEADERS = { "Bcc", "Content-Length" };
+
+	/**
+	 * Maximum number of bytes of a message kept in memory. Bigger messages are
+	 * written to a temporary file.
+	 */
+	private static final int MEMORY_THRESHOLD = SpooledDataSource.DEFAULT_MEMORY_THRESHOLD;
+
+	/**
+	 * Generates the mime message from the email
+	 */
+	private MimeMessageFactory messageFactory;
+
+	/**
+	 * The session used only to generate the mime message
+	 */
+	private Session session;
+
+	/**
+	 * The client that sends the messages
+	 */
+	private NioSmtpClient client;
+
+	/**
+	 * Maximum time (in milliseconds) to wait for the message to be sent
+	 */
+	private long timeout;
+
+	/**
+	 * The maximum number of recipients per transaction (0 means no limit)
+	 */
+	private int maxRecipients;
+
+	/**
+	 * Whether textual parts are sent as 8bit when the server supports 8BITMIME
+	 */
+	private boolean allow8BitMime;
+
+	public NioSmtpSender(Properties properties, MimeMessageFactory messageFactory, NioSmtpClient client, long timeout) {
+		this(properties, messageFactory, client, timeout, 0, false);
+	}
+
+	public NioSmtpSender(Properties properties, MimeMessageFactory messageFactory, NioSmtpClient client, long timeout, int maxRecipients, boolean allow8BitMime) {
+		super();
+		this.session = Session.getInstance(properties);
+		this.messageFactory = messageFactory;
+		this.client = client;
+		this.timeout = timeout;
+		this.maxRecipients = maxRecipients;
+		this.allow8BitMime = allow8BitMime;
+	}
+
+	@Override
+	public void send(Email email) throws MessageException {
+		MimeMessage mimeMsg = null;
+		SmtpData data = null;
+		try {
+			mimeMsg = messageFactory.createMimeMessage(session, email);
+			String sender = getSender(mimeMsg);
+			List<String> recipients = getRecipients(mimeMsg);
+			if (recipients.isEmpty()) {
+				throw new MessageException("No recipient addresses", email);
+			}
+			// the extensions are known once a connection has been opened
+			boolean eightBit = allow8BitMime && client.supports("8BITMIME") && TransferEncodingSelector.convertTo8Bit(mimeMsg);
+			data = toSmtpData(mimeMsg);
+			LOG.info("Sending email using NIO SMTP client {}...", client);
+			// start all transactions (one per chunk of recipients) then wait
+			// for them
+			List<SmtpTransaction> transactions = new ArrayList<>();
+			int chunkSize = maxRecipients > 0 ? maxRecipients : recipients.size();
+			for (int i = 0; i < recipients.size(); i += chunkSize) {
+				List<String> chunk = recipients.subList(i, Math.min(recipients.size(), i + chunkSize));
+				transactions.add(client.send(new SmtpEnvelope(sender, chunk, data, eightBit)));
+			}
+			long deadline = System.currentTimeMillis() + timeout;
+			List<String> delivered = new ArrayList<>();
+			Map<String, Exception> failed = new LinkedHashMap<>();
+			for (SmtpTransaction tx : transactions) {
+				waitResult(tx, deadline, delivered, failed);
+			}
+			if (!failed.isEmpty()) {
+				throw new MessageException("failed to send message to some recipients using NIO SMTP client", email,
+						new PartialDeliveryException("Message not delivered to all recipients", delivered, failed));
+			}
+			LOG.debug("Email sent to {}", delivered);
+		} catch (UnsupportedEncodingException | MessagingException | ContentHandlerException | AttachmentResourceHandlerException e) {
+			throw new MessageException("failed to send message using NIO SMTP client", email, e);
+		} catch (IOException e) {
+			throw new MessageException("failed to generate message for NIO SMTP client", email, e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MessageException("interrupted while sending message using NIO SMTP client", email, e);
+		} finally {
+			if (data != null) {
+				data.close();
+			}
+			if (mimeMsg != null) {
+				SpooledDataSource.release(mimeMsg);
+			}
+		}
+	}
+
+	private static void waitResult(SmtpTransaction tx, long deadline, List<String> delivered, Map<String, Exception> failed) throws InterruptedException {
+		try {
+			SmtpResult result = tx.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+			delivered.addAll(result.getAcceptedRecipients());
+			if (!result.getRejectedRecipients().isEmpty()) {
+				RejectedRecipientsException rejected = new RejectedRecipientsException("Some recipients were rejected by the SMTP server", result.getAcceptedRecipients(), result.getRejectedRecipients());
+				for (String recipient : result.getRejectedRecipients().keySet()) {
+					failed.put(recipient, rejected);
+				}
+			}
+		} catch (SmtpException e) {
+			for (String recipient : tx.getEnvelope().getRecipients()) {
+				failed.put(recipient, e);
+			}
+		}
+	}
+
+	/**
+	 * Close the SMTP connections and stop the I/O threads.
+	 */
+	@Override
+	public void close() {
+		client.close();
+	}
+
+	private static String getSender(MimeMessage mimeMsg) throws MessagingException {
+		Address[] from = mimeMsg.getFrom();
+		if (from == null || from.length == 0) {
+			throw new IllegalArgumentException("The sender address has not been set");
+		}
+		return ((InternetAddress) from[0]).getAddress();
+	}
+
+	private static List<String> getRecipients(MimeMessage mimeMsg) throws MessagingException {
+		List<String> recipients = new ArrayList<>();
+		Address[] addresses = mimeMsg.getAllRecipients();
+		if (addresses != null) {
+			for (Address address : addresses) {
+				recipients.add(((InternetAddress) address).getAddress());
+			}
+		}
+		return recipients;
+	}
+
+	/**
+	 * Write the message once in SMTP DATA format. Big messages are written to
+	 * a temporary file so that the memory used by a message stays bounded.
+	 * The connections then read the data by chunks.
+	 * 
+	 * @param mimeMsg
+	 *            the message to write
+	 * @return the message data shared by all the transactions
+	 * @throws IOException
+	 *             when the message couldn't be written
+	 * @throws MessagingException
+	 *             when the message couldn't be generated
+	 */
+	private static SmtpData toSmtpData(MimeMessage mimeMsg) throws IOException, MessagingException {
+		SpillingOutputStream spooled = new SpillingOutputStream(MEMORY_THRESHOLD, "ogham-smtp");
+		try {
+			SmtpDataOutputStream data = new SmtpDataOutputStream(spooled);
+			mimeMsg.writeTo(data, IGNORED_HEADERS);
+			data.finish();
+			spooled.close();
+		} catch (IOException | MessagingException | RuntimeException e) {
+			spooled.discard();
+			throw e;
+		}
+		return new SmtpData(spooled);
+	}
+
+	@Override
+	public String toString() {
+		return "NioSmtpSender";
+	}
+}
@@ -1,7 +1,19 @@
 package fr.sii.ogham.email.sender.impl;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,24 +22,54 @@ import com.sendgrid.SendGrid;
 import com.sendgrid.SendGridException;
 
 import fr.sii.ogham.core.exception.MessageException;
+import fr.sii.ogham.core.exception.PartialDeliveryException;
 import fr.sii.ogham.core.sender.AbstractSpecializedSender;
 import fr.sii.ogham.email.exception.sendgrid.ContentHandlerException;
 import fr.sii.ogham.email.message.Email;
 import fr.sii.ogham.email.message.EmailAddress;
 import fr.sii.ogham.email.message.Recipient;
+import fr.sii.ogham.email.sender.impl.sendgrid.batch.Personalization;
 import fr.sii.ogham.email.sender.impl.sendgrid.client.SendGridClient;
 import fr.sii.ogham.email.sender.impl.sendgrid.handler.SendGridContentHandler;
 
 /**
  * SendGrid-backed implementation of the email sender.
+ * 
+ * <p>
+ * Large campaigns can be sent using
+ * {@link #sendBatch(Email, List)}: each API request delivers the email
+ * individually to up to {@link #getBatchSize()} recipients with their own
+ * substitution values (using X-SMTPAPI header).
+ * </p>
+ * <p>
+ * Emails can also be sent asynchronously using {@link #sendAsync(Email)}. The
+ * requests are then executed by the configured executor.
+ * </p>
  */
-public final class SendGridSender extends AbstractSpecializedSender<Email> {
+public final class SendGridSender extends AbstractSpecializedSender<Email> implements Closeable {
 
 	private static final Logger LOG = LoggerFactory.getLogger(SendGridSender.class);
 
+	/**
+	 * Default maximum number of recipients per API request
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+
 	private final SendGridClient service;
 	private final SendGridContentHandler handler;
 
+	/**
+	 * The maximum number of recipients per API request in batch mode
+	 */
+	private final int batchSize;
+
+	/**
+	 * The executor used to submit the requests of a batch in parallel and to
+	 * send emails asynchronously (may be {@code null} to submit them
+	 * sequentially in the calling thread)
+	 */
+	private final ExecutorService executor;
+
 	/**
 	 * Constructor.
 	 * 
@@ -38,6 +80,27 @@ public final class SendGridSender extends AbstractSpecializedSender<Email> {
 	 *            into something the {@link SendGridClient} can work with
 	 */
 	public SendGridSender(final SendGridClient service, final SendGridContentHandler handler) {
+		this(service, handler, DEFAULT_BATCH_SIZE, null);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param service
+	 *            the underlying SendGrid service
+	 * @param handler
+	 *            the content handler, in change of converting the email content
+	 *            into something the {@link SendGridClient} can work with
+	 * @param batchSize
+	 *            the maximum number of recipients per API request in batch
+	 *            mode
+	 * @param executor
+	 *            the executor used to submit the requests of a batch in
+	 *            parallel and to send emails asynchronously (may be
+	 *            {@code null} to submit them sequentially in the calling
+	 *            thread)
+	 */
+	public SendGridSender(final SendGridClient service, final SendGridContentHandler handler, final int batchSize, final ExecutorService executor) {
 		if (service == null) {
 			throw new IllegalArgumentException("[service] cannot be null");
 		}
@@ -45,8 +108,14 @@ public final class SendGridSender extends AbstractSpecializedSender<Email> {
 			throw new IllegalArgumentException("[handler] cannot be null");
 		}
 
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("[batchSize] must be positive");
+		}
+
 		this.service = service;
 		this.handler = handler;
+		this.batchSize = batchSize;
+		this.executor = executor;
 	}
 
 	@Override
@@ -73,21 +142,129 @@ public final class SendGridSender extends AbstractSpecializedSender<Email> {
 		}
 	}
 
-	private Set<String> validate(final Email message) {
-		final Set<String> violations = new HashSet<String>();
+	/**
+	 * Sends the email asynchronously using the configured executor. The email
+	 * is validated immediately. If no executor is configured, the email is
+	 * sent in the calling thread.
+	 * 
+	 * @param message
+	 *            the email to send
+	 * @return the result of the sending. {@link Future#get()} throws an
+	 *         {@link ExecutionException} caused by a {@link MessageException}
+	 *         if the email couldn't be sent
+	 * @throws MessageException
+	 *             when the email is invalid
+	 */
+	public Future<Void> sendAsync(final Email message) throws MessageException {
+		if (message == null) {
+			throw new IllegalArgumentException("[message] cannot be null");
+		}
+		final Set<String> violations = validate(message);
+		if (!violations.isEmpty()) {
+			throw new MessageException("The provided email is invalid. (Violations: " + violations + ")", message);
+		}
+		final Callable<Void> task = new Callable<Void>() {
+			@Override
+			public Void call() throws MessageException {
+				send(message);
+				return null;
+			}
+		};
+		if (executor == null) {
+			final FutureTask<Void> future = new FutureTask<>(task);
+			future.run();
+			return future;
+		}
+		return executor.submit(task);
+	}
 
-		if (message.getContent() == null) {
-			violations.add("Missing content");
+	/**
+	 * Sends the same email to many recipients. The email is delivered
+	 * individually to each recipient (recipients don't see each other) and
+	 * the substitution tags in the content are replaced by the values of each
+	 * recipient.
+	 * 
+	 * <p>
+	 * The recipients are packed into chunks of {@link #getBatchSize()}
+	 * recipients, one API request per chunk. The requests are submitted in
+	 * parallel if an executor is configured. A failure of a request doesn't
+	 * prevent the other requests to be submitted: failures are reported at
+	 * the end through a {@link PartialDeliveryException}.
+	 * </p>
+	 * 
+	 * @param template
+	 *            the email to send (subject, sender and content). Its
+	 *            recipients are ignored.
+	 * @param personalizations
+	 *            the recipients with their substitution values
+	 * @throws MessageException
+	 *             when the email is invalid or when some requests have failed
+	 */
+	public void sendBatch(final Email template, final List<Personalization> personalizations) throws MessageException {
+		if (template == null) {
+			throw new IllegalArgumentException("[template] cannot be null");
 		}
-		if (message.getSubject() == null) {
-			violations.add("Missing subject");
+		if (personalizations == null || personalizations.isEmpty()) {
+			throw new IllegalArgumentException("[personalizations] cannot be empty");
+		}
+		final Set<String> violations = validateSender(template);
+		if (!violations.isEmpty()) {
+			throw new MessageException("The provided email is invalid. (Violations: " + violations + ")", template);
 		}
 
-		if (message.getFrom() == null) {
-			violations.add("Missing sender email address");
-		} else if (message.getFrom().getPersonal() == null) {
-			violations.add("Missing sender name");
+		LOG.debug("Preparing to send email using SendGrid to {} recipients in chunks of {}", personalizations.size(), batchSize);
+		final List<BatchRequest> requests = new ArrayList<>();
+		for (int i = 0; i < personalizations.size(); i += batchSize) {
+			requests.add(new BatchRequest(requests.size(), template, personalizations.subList(i, Math.min(personalizations.size(), i + batchSize))));
+		}
+		final List<String> delivered = new ArrayList<>();
+		final Map<String, Exception> failed = new LinkedHashMap<>();
+		if (executor == null || requests.size() == 1) {
+			for (BatchRequest request : requests) {
+				request.call().collect(delivered, failed);
+			}
+		} else {
+			final List<Future<BatchRequest>> futures = new ArrayList<>(requests.size());
+			for (BatchRequest request : requests) {
+				futures.add(executor.submit(request));
+			}
+			try {
+				for (Future<BatchRequest> future : futures) {
+					future.get().collect(delivered, failed);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new MessageException("Interrupted while sending email using SendGrid", template, e);
+			} catch (ExecutionException e) {
+				throw new MessageException("An unexpected error occurred when trying to send an email", template, e);
+			}
 		}
+		if (!failed.isEmpty()) {
+			throw new MessageException("Some chunks couldn't be sent using SendGrid", template, new PartialDeliveryException("Email not sent to all recipients", delivered, failed));
+		}
+		LOG.debug("Email has been successfully sent to {} recipients", delivered.size());
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Stops the executor and closes the underlying service (and its pooled
+	 * connections) if it is closeable.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (executor != null) {
+			executor.shutdown();
+		}
+		if (service instanceof Closeable) {
+			((Closeable) service).close();
+		}
+	}
+
+	private Set<String> validate(final Email message) {
+		final Set<String> violations = validateSender(message);
 
 		if (message.getRecipients().isEmpty()) {
 			violations.add("Missing recipients");
@@ -102,6 +279,25 @@ public final class SendGridSender extends AbstractSpecializedSender<Email> {
 		return violations;
 	}
 
+	private Set<String> validateSender(final Email message) {
+		final Set<String> violations = new HashSet<String>();
+
+		if (message.getContent() == null) {
+			violations.add("Missing content");
+		}
+		if (message.getSubject() == null) {
+			violations.add("Missing subject");
+		}
+
+		if (message.getFrom() == null) {
+			violations.add("Missing sender email address");
+		} else if (message.getFrom().getPersonal() == null) {
+			violations.add("Missing sender name");
+		}
+
+		return violations;
+	}
+
 	private SendGrid.Email toSendGridEmail(final Email message) throws ContentHandlerException {
 		final SendGrid.Email ret = new SendGrid.Email();
 		ret.setSubject(message.getSubject());
@@ -126,4 +322,76 @@ public final class SendGridSender extends AbstractSpecializedSender<Email> {
 		return ret;
 	}
 
+	/**
+	 * Converts a chunk of recipients into a single SendGrid email: the
+	 * recipients are put in the X-SMTPAPI "to" list so that each one receives
+	 * its own copy, and the substitution values are aligned with this list.
+	 */
+	private SendGrid.Email toSendGridBatchEmail(final Email template, final List<Personalization> chunk) throws ContentHandlerException {
+		final SendGrid.Email ret = new SendGrid.Email();
+		ret.setSubject(template.getSubject());
+
+		ret.setFrom(template.getFrom().getAddress());
+		ret.setFromName(template.getFrom().getPersonal());
+
+		final Set<String> keys = new LinkedHashSet<>();
+		for (Personalization personalization : chunk) {
+			final EmailAddress address = personalization.getRecipient();
+			ret.addSmtpApiTo(address.getPersonal() == null ? address.getAddress() : (address.getPersonal() + " <" + address.getAddress() + ">"));
+			keys.addAll(personalization.getSubstitutions().keySet());
+		}
+		for (String key : keys) {
+			final String[] values = new String[chunk.size()];
+			int i = 0;
+			for (Personalization personalization : chunk) {
+				final String value = personalization.getSubstitutions().get(key);
+				values[i++] = value == null ? "" : value;
+			}
+			ret.addSubstitution(key, values);
+		}
+
+		handler.setContent(ret, template.getContent());
+
+		return ret;
+	}
+
+	/**
+	 * One API request of a batch. The result is kept in order to report
+	 * errors once all requests are done.
+	 */
+	private final class BatchRequest implements Callable<BatchRequest> {
+		private final int index;
+		private final Email template;
+		private final List<Personalization> chunk;
+		private Exception failure;
+
+		BatchRequest(final int index, final Email template, final List<Personalization> chunk) {
+			this.index = index;
+			this.template = template;
+			this.chunk = chunk;
+		}
+
+		@Override
+		public BatchRequest call() {
+			try {
+				final SendGrid.Email sgEmail = toSendGridBatchEmail(template, chunk);
+				LOG.debug("Sending chunk {} ({} recipients)", index, chunk.size());
+				service.send(sgEmail);
+			} catch (ContentHandlerException | SendGridException | RuntimeException e) {
+				LOG.debug("Chunk {} couldn't be sent", index, e);
+				failure = e;
+			}
+			return this;
+		}
+
+		void collect(final List<String> delivered, final Map<String, Exception> failed) {
+			for (Personalization personalization : chunk) {
+				if (failure == null) {
+					delivered.add(personalization.getRecipient().getAddress());
+				} else {
+					failed.put(personalization.getRecipient().getAddress(), failure);
+				}
+			}
+		}
+	}
 }
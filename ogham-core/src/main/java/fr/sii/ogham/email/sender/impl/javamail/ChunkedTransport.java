@@ -0,0 +1,287 @@
+package fr.sii.ogham.email.sender.impl.javamail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import javax.mail.util.SharedByteArrayInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.util.ArrayUtils;
+import fr.sii.ogham.core.util.DaemonThreadFactory;
+
+/**
+ * <p>
+ * Sends a message to a large list of recipients. The recipients (To, Cc and
+ * Bcc) are split into chunks of at most {@link #getMaxRecipients()} addresses
+ * because many relays limit the number of recipients per message. The chunks
+ * are sent in parallel using a pool of connected {@link Transport}s.
+ * </p>
+ * <p>
+ * The message is generated only once. Each chunk uses its own lightweight
+ * {@link MimeMessage} that shares the generated bytes (only headers are parsed
+ * again) so chunks can safely be sent from several threads.
+ * </p>
+ * <p>
+ * Failures are aggregated per recipient: all the chunks are processed even if
+ * some of them fail. Then, if some recipients didn't receive the message, a
+ * {@link SendFailedException} is thrown like {@link Transport#send} does:
+ * <ul>
+ * <li>{@link SendFailedException#getValidSentAddresses()}: the recipients that
+ * received the message</li>
+ * <li>{@link SendFailedException#getInvalidAddresses()}: the recipients that
+ * were rejected by the server</li>
+ * <li>{@link SendFailedException#getValidUnsentAddresses()}: the recipients
+ * that didn't receive the message because their chunk failed</li>
+ * </ul>
+ * The failure of each chunk is chained (see
+ * {@link MessagingException#getNextException()}).
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class ChunkedTransport implements Closeable {
+	private static final Logger LOG = LoggerFactory.getLogger(ChunkedTransport.class);
+
+	/**
+	 * The maximum number of recipients per message
+	 */
+	private final int maxRecipients;
+
+	/**
+	 * The threads used to send the chunks
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * The connected transports that are not currently used
+	 */
+	private final BlockingQueue<Transport> transports;
+
+	public ChunkedTransport(int maxRecipients, int parallelism) {
+		this(maxRecipients, parallelism, Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory("ogham-javamail")));
+	}
+
+	public ChunkedTransport(int maxRecipients, int parallelism, ExecutorService executor) {
+		super();
+		this.maxRecipients = maxRecipients;
+		this.executor = executor;
+		this.transports = new ArrayBlockingQueue<>(parallelism);
+	}
+
+	/**
+	 * Send the message to all its recipients.
+	 *
+	 * @param session
+	 *            the session used to create the transports
+	 * @param message
+	 *            the message to send
+	 * @throws SendFailedException
+	 *             when the message couldn't be delivered to some recipients
+	 * @throws MessagingException
+	 *             when the message couldn't be generated
+	 * @throws InterruptedException
+	 *             when the current thread is interrupted while waiting for
+	 *             the chunks to be sent
+	 */
+	public void send(Session session, MimeMessage message) throws MessagingException, InterruptedException {
+		message.saveChanges();
+		Address[] recipients = message.getAllRecipients();
+		if (recipients == null || recipients.length == 0) {
+			throw new SendFailedException("No recipient addresses");
+		}
+		List<Address[]> chunks = ArrayUtils.split(recipients, maxRecipients);
+		LOG.debug("Sending message to {} recipients in {} chunk(s)", recipients.length, chunks.size());
+		DeliveryReport report = new DeliveryReport();
+		if (chunks.size() == 1) {
+			report.add(new ChunkTask(session, message, recipients).call());
+		} else {
+			byte[] raw = toBytes(message);
+			List<ChunkTask> tasks = new ArrayList<>(chunks.size());
+			List<Future<ChunkTask>> futures = new ArrayList<>(chunks.size());
+			for (Address[] chunk : chunks) {
+				ChunkTask task = new ChunkTask(session, new MimeMessage(session, new SharedByteArrayInputStream(raw)), chunk);
+				tasks.add(task);
+				futures.add(executor.submit(task));
+			}
+			// wait for all chunks even if some of them fail
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					report.add(futures.get(i).get());
+				} catch (ExecutionException e) {
+					LOG.debug("Chunk not delivered", e);
+					report.unsent(tasks.get(i).recipients, new MessagingException("Failed to send chunk", e));
+				}
+			}
+		}
+		report.check();
+	}
+
+	/**
+	 * Close the pooled transports and stop the threads.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+		Transport transport;
+		while ((transport = transports.poll()) != null) {
+			closeQuietly(transport);
+		}
+	}
+
+	public int getMaxRecipients() {
+		return maxRecipients;
+	}
+
+	private Transport borrow(Session session, Address address) throws MessagingException {
+		Transport transport;
+		while ((transport = transports.poll()) != null) {
+			if (transport.isConnected()) {
+				return transport;
+			}
+			closeQuietly(transport);
+		}
+		transport = session.getTransport(address);
+		transport.connect();
+		return transport;
+	}
+
+	private void release(Transport transport) {
+		if (!transports.offer(transport)) {
+			closeQuietly(transport);
+		}
+	}
+
+	private static void closeQuietly(Transport transport) {
+		try {
+			transport.close();
+		} catch (MessagingException e) {
+			LOG.debug("Failed to close transport", e);
+		}
+	}
+
+	private static byte[] toBytes(MimeMessage message) throws MessagingException {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			message.writeTo(bytes);
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new MessagingException("Failed to generate message", e);
+		}
+	}
+
+	/**
+	 * Sends the message to a chunk of recipients and keeps the result of the
+	 * delivery.
+	 */
+	private class ChunkTask implements Callable<ChunkTask> {
+		private final Session session;
+		private final MimeMessage message;
+		private final Address[] recipients;
+		private Address[] sent;
+		private Address[] invalid;
+		private Address[] unsent;
+		private MessagingException failure;
+
+		ChunkTask(Session session, MimeMessage message, Address[] recipients) {
+			super();
+			this.session = session;
+			this.message = message;
+			this.recipients = recipients;
+		}
+
+		@Override
+		public ChunkTask call() {
+			Transport transport = null;
+			try {
+				transport = borrow(session, recipients[0]);
+				transport.sendMessage(message, recipients);
+				sent = recipients;
+				release(transport);
+			} catch (SendFailedException e) {
+				LOG.debug("Chunk partially delivered", e);
+				sent = e.getValidSentAddresses();
+				invalid = e.getInvalidAddresses();
+				unsent = e.getValidUnsentAddresses();
+				failure = e;
+				// the transport has reset the session so it can be reused
+				if (transport != null) {
+					release(transport);
+				}
+			} catch (MessagingException e) {
+				LOG.debug("Chunk not delivered", e);
+				unsent = recipients;
+				failure = e;
+				if (transport != null) {
+					closeQuietly(transport);
+				}
+			}
+			return this;
+		}
+	}
+
+	/**
+	 * Aggregates the results of all the chunks.
+	 */
+	private static class DeliveryReport {
+		private final List<Address> sent = new ArrayList<>();
+		private final List<Address> invalid = new ArrayList<>();
+		private final List<Address> unsent = new ArrayList<>();
+		private final List<MessagingException> failures = new ArrayList<>();
+
+		void add(ChunkTask task) {
+			addAll(sent, task.sent);
+			addAll(invalid, task.invalid);
+			addAll(unsent, task.unsent);
+			if (task.failure != null) {
+				failures.add(task.failure);
+			}
+		}
+
+		void unsent(Address[] recipients, MessagingException failure) {
+			addAll(unsent, recipients);
+			failures.add(failure);
+		}
+
+		void check() throws SendFailedException {
+			if (failures.isEmpty()) {
+				return;
+			}
+			SendFailedException e = new SendFailedException("Message not delivered to all recipients (" + failures.size() + " failed chunk(s))", failures.get(0), toArray(sent), toArray(unsent), toArray(invalid));
+			for (int i = 1; i < failures.size(); i++) {
+				e.setNextException(failures.get(i));
+			}
+			throw e;
+		}
+
+		private static void addAll(List<Address> list, Address[] addresses) {
+			if (addresses != null) {
+				for (Address address : addresses) {
+					list.add(address);
+				}
+			}
+		}
+
+		private static Address[] toArray(List<Address> addresses) {
+			return addresses.toArray(new Address[addresses.size()]);
+		}
+	}
+}
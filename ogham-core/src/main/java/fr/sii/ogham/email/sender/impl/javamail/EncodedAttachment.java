@@ -0,0 +1,192 @@
+package fr.sii.ogham.email.sender.impl.javamail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.activation.DataHandler;
+import javax.mail.BodyPart;
+import javax.mail.MessagingException;
+import javax.mail.internet.ContentType;
+import javax.mail.internet.InternetHeaders;
+import javax.mail.internet.MimeBodyPart;
+import javax.mail.internet.MimeUtility;
+
+/**
+ * <p>
+ * The content of an attachment that is already transfer-encoded (base64,
+ * quoted-printable...) with its Mime Type.
+ * </p>
+ * <p>
+ * The encoded bytes are held by a raw {@link MimeBodyPart}. When the content
+ * is applied on another part, Java Mail copies the encoded bytes as-is instead
+ * of reading, detecting and encoding the content again. The instance is
+ * immutable and can be shared between threads.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class EncodedAttachment {
+	private static final String CONTENT_TYPE_HEADER = "Content-Type";
+	private static final String ENCODING_HEADER = "Content-Transfer-Encoding";
+
+	/**
+	 * The Mime Type of the content
+	 */
+	private final String contentType;
+
+	/**
+	 * The transfer encoding applied on the content
+	 */
+	private final String encoding;
+
+	/**
+	 * The raw part that holds the encoded bytes
+	 */
+	private final MimeBodyPart encodedPart;
+
+	/**
+	 * The number of encoded bytes
+	 */
+	private final int size;
+
+	/**
+	 * Initialize with the Mime Type, the transfer encoding and the already
+	 * encoded bytes.
+	 *
+	 * @param contentType
+	 *            the Mime Type of the content
+	 * @param encoding
+	 *            the transfer encoding applied on the content
+	 * @param encodedBytes
+	 *            the encoded bytes
+	 * @throws MessagingException
+	 *             when the raw part couldn't be created
+	 */
+	public EncodedAttachment(String contentType, String encoding, byte[] encodedBytes) throws MessagingException {
+		super();
+		this.contentType = contentType;
+		this.encoding = encoding;
+		this.size = encodedBytes.length;
+		InternetHeaders headers = new InternetHeaders();
+		headers.setHeader(CONTENT_TYPE_HEADER, contentType);
+		headers.setHeader(ENCODING_HEADER, encoding);
+		this.encodedPart = new MimeBodyPart(headers, encodedBytes);
+	}
+
+	/**
+	 * Read the content of the part (previously filled by a
+	 * {@link JavaMailAttachmentResourceHandler}) and encode it using the
+	 * transfer encoding that Java Mail would have chosen.
+	 *
+	 * @param part
+	 *            the part that contains the content to encode
+	 * @return the encoded content
+	 * @throws MessagingException
+	 *             when the content of the part can't be accessed
+	 * @throws IOException
+	 *             when the content of the part can't be read
+	 */
+	public static EncodedAttachment encode(BodyPart part) throws MessagingException, IOException {
+		return encode(part, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Read the content of the part (previously filled by a
+	 * {@link JavaMailAttachmentResourceHandler}) and encode it using the
+	 * transfer encoding that Java Mail would have chosen. The encoding is
+	 * stopped as soon as the encoded content exceeds the maximum size.
+	 *
+	 * @param part
+	 *            the part that contains the content to encode
+	 * @param maxSize
+	 *            the maximum number of encoded bytes
+	 * @return the encoded content or null if it exceeds the maximum size
+	 * @throws MessagingException
+	 *             when the content of the part can't be accessed
+	 * @throws IOException
+	 *             when the content of the part can't be read
+	 */
+	public static EncodedAttachment encode(BodyPart part, long maxSize) throws MessagingException, IOException {
+		DataHandler dataHandler = part.getDataHandler();
+		String encoding = MimeUtility.getEncoding(dataHandler);
+		BoundedOutputStream bytes = new BoundedOutputStream(maxSize);
+		try (OutputStream encoder = MimeUtility.encode(bytes, encoding)) {
+			dataHandler.writeTo(encoder);
+		} catch (SizeExceededException e) {
+			return null;
+		}
+		return new EncodedAttachment(dataHandler.getContentType(), encoding, bytes.toByteArray());
+	}
+
+	/**
+	 * Set the encoded content on the part. The headers that are specific to
+	 * the part (file name, disposition...) are kept.
+	 *
+	 * @param part
+	 *            the part to fill
+	 * @throws MessagingException
+	 *             when the content can't be set
+	 */
+	public void applyTo(BodyPart part) throws MessagingException {
+		// setting the data handler resets the content headers
+		part.setDataHandler(encodedPart.getDataHandler());
+		ContentType type = new ContentType(contentType);
+		String fileName = part.getFileName();
+		if (fileName != null && type.getParameter("name") == null) {
+			type.setParameter("name", fileName);
+		}
+		part.setHeader(CONTENT_TYPE_HEADER, type.toString());
+		part.setHeader(ENCODING_HEADER, encoding);
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public String getEncoding() {
+		return encoding;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Stops writing when the maximum number of bytes is exceeded.
+	 */
+	private static class BoundedOutputStream extends ByteArrayOutputStream {
+		private final long maxSize;
+
+		public BoundedOutputStream(long maxSize) {
+			super();
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		public synchronized void write(int b) {
+			check(1);
+			super.write(b);
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) {
+			check(len);
+			super.write(b, off, len);
+		}
+
+		private void check(int len) {
+			if (count + (long) len > maxSize) {
+				throw new SizeExceededException();
+			}
+		}
+	}
+
+	/**
+	 * Thrown when the encoded content exceeds the maximum size.
+	 */
+	private static class SizeExceededException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+	}
+}
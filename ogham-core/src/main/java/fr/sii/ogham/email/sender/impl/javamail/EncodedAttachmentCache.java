@@ -0,0 +1,91 @@
+package fr.sii.ogham.email.sender.impl.javamail;
+
+import java.io.File;
+import java.io.IOException;
+
+import fr.sii.ogham.core.cache.LruCache;
+import fr.sii.ogham.core.resource.FileResource;
+import fr.sii.ogham.core.resource.LookupResource;
+import fr.sii.ogham.core.resource.NamedResource;
+
+/**
+ * <p>
+ * Cache of already encoded attachments. The cache is bounded by a memory
+ * budget (the total number of encoded bytes). The least recently used
+ * attachments are evicted first.
+ * </p>
+ * <p>
+ * Only the attachments whose content is stable are cached. They are indexed
+ * by a key that identifies the resource without reading its content:
+ * <ul>
+ * <li>For {@link FileResource}: the canonical path, the size and the last
+ * modification date of the file</li>
+ * <li>For {@link LookupResource}: the path of the resource</li>
+ * </ul>
+ * So the same file attached to many emails is read, detected and encoded only
+ * once. The other resources (bytes or streams provided for one email) are
+ * never attached again so they are not cached: they are streamed directly
+ * into the message.
+ * </p>
+ * <p>
+ * A file that is bigger than the memory budget is not cached either.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class EncodedAttachmentCache extends LruCache<Object, EncodedAttachment> {
+	/**
+	 * Default memory budget (32MB)
+	 */
+	public static final long DEFAULT_MEMORY_BUDGET = 32L * 1024 * 1024;
+
+	/**
+	 * Initialize the cache with the default memory budget (32MB).
+	 */
+	public EncodedAttachmentCache() {
+		this(DEFAULT_MEMORY_BUDGET);
+	}
+
+	/**
+	 * Initialize the cache with the maximum number of encoded bytes to keep in
+	 * memory.
+	 *
+	 * @param memoryBudget
+	 *            the maximum number of encoded bytes
+	 */
+	public EncodedAttachmentCache(long memoryBudget) {
+		super(memoryBudget);
+	}
+
+	/**
+	 * Generate the key that identifies the resource. The content of the
+	 * resource is not read.
+	 *
+	 * @param resource
+	 *            the resource to identify
+	 * @return the key of the resource or null if the resource can't be cached
+	 *         (content not stable or file bigger than the memory budget)
+	 * @throws IOException
+	 *             when the path of the file can't be resolved
+	 */
+	public Object getKey(NamedResource resource) throws IOException {
+		if (resource instanceof FileResource) {
+			File file = ((FileResource) resource).getFile();
+			// encoded content is at least as big as the file
+			if (file.length() > getMaxWeight()) {
+				return null;
+			}
+			return "file:" + file.getCanonicalPath() + ":" + file.length() + ":" + file.lastModified();
+		}
+		if (resource instanceof LookupResource) {
+			return "lookup:" + ((LookupResource) resource).getPath();
+		}
+		return null;
+	}
+
+	@Override
+	protected long weigh(EncodedAttachment value) {
+		return value.getSize();
+	}
+}
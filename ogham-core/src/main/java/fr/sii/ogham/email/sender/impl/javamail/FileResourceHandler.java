@@ -1,14 +1,14 @@
 package fr.sii.ogham.email.sender.impl.javamail;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.File;
 import java.io.IOException;
 
 import javax.activation.DataHandler;
+import javax.activation.DataSource;
 import javax.mail.BodyPart;
 import javax.mail.MessagingException;
-import javax.mail.util.ByteArrayDataSource;
 
+import fr.sii.ogham.core.cache.LruCache;
 import fr.sii.ogham.core.exception.mimetype.MimeTypeDetectionException;
 import fr.sii.ogham.core.mimetype.MimeTypeProvider;
 import fr.sii.ogham.core.resource.FileResource;
@@ -16,33 +16,107 @@ import fr.sii.ogham.core.resource.NamedResource;
 import fr.sii.ogham.email.attachment.Attachment;
 import fr.sii.ogham.email.exception.javamail.AttachmentResourceHandlerException;
 
+/**
+ * <p>
+ * Implementation that is able to handle {@link FileResource}. The content of
+ * the file is never loaded in memory. The file is read while the message is
+ * written (see {@link ResourceDataSource}) or mapped in memory (see
+ * {@link MappedFileDataSource}).
+ * </p>
+ * <p>
+ * When the files are mapped in memory, the mapping of a file is shared by all
+ * the messages that attach it. The mappings are indexed by the canonical
+ * path, the size and the last modification date of the file. They are
+ * bounded by the total size of the mapped files (the least recently used
+ * mappings are released first). A file that is bigger than this limit is
+ * mapped for the message only.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
 public class FileResourceHandler implements JavaMailAttachmentResourceHandler {
 	private static final String ERROR_MESSAGE_PREFIX = "Failed to attach ";
-	
+
+	/**
+	 * Default maximum total size of the mapped files (256MB)
+	 */
+	public static final long DEFAULT_MAPPED_FILES_WEIGHT = 256L * 1024 * 1024;
+
 	/**
 	 * The Mime Type detector
 	 */
 	private MimeTypeProvider mimetypeProvider;
 
+	/**
+	 * The mapped files (null if the files are read through a stream)
+	 */
+	private LruCache<String, MappedFileDataSource> mappedFiles;
+
 	public FileResourceHandler(MimeTypeProvider mimetypeProvider) {
+		this(mimetypeProvider, 0);
+	}
+
+	/**
+	 * Initialize the handler with the Mime Type detector and the way to read
+	 * the file.
+	 *
+	 * @param mimetypeProvider
+	 *            the Mime Type detector
+	 * @param maxMappedFilesWeight
+	 *            the maximum total size (in bytes) of the files that are kept
+	 *            mapped in memory, 0 to read the files through a stream
+	 */
+	public FileResourceHandler(MimeTypeProvider mimetypeProvider, long maxMappedFilesWeight) {
 		super();
 		this.mimetypeProvider = mimetypeProvider;
+		if (maxMappedFilesWeight > 0) {
+			this.mappedFiles = new LruCache<String, MappedFileDataSource>(maxMappedFilesWeight) {
+				@Override
+				protected long weigh(MappedFileDataSource value) {
+					return value.getSize();
+				}
+			};
+		}
 	}
 
 	@Override
 	public void setData(BodyPart part, NamedResource resource, Attachment attachment) throws AttachmentResourceHandlerException {
 		try {
 			FileResource fileResource = (FileResource) resource;
-			part.setDataHandler(new DataHandler(new ByteArrayDataSource(new FileInputStream(fileResource.getFile()), mimetypeProvider.getMimeType(fileResource.getFile()).toString())));
+			File file = fileResource.getFile();
+			if (!file.isFile()) {
+				throw new AttachmentResourceHandlerException(ERROR_MESSAGE_PREFIX + resource.getName() + ". File doesn't exists", attachment);
+			}
+			DataSource dataSource = mappedFiles == null ? new ResourceDataSource(fileResource, mimetypeProvider.getMimeType(file).toString()) : getMappedFile(file);
+			part.setDataHandler(new DataHandler(dataSource));
 		} catch (MimeTypeDetectionException e) {
 			throw new AttachmentResourceHandlerException(ERROR_MESSAGE_PREFIX + resource.getName() + ". Mime type can't be detected", attachment, e);
-		} catch (FileNotFoundException e) {
-			throw new AttachmentResourceHandlerException(ERROR_MESSAGE_PREFIX + resource.getName() + ". File doesn't exists", attachment, e);
+		} catch (IOException e) {
+			throw new AttachmentResourceHandlerException(ERROR_MESSAGE_PREFIX + resource.getName() + ". File path can't be resolved", attachment, e);
 		} catch (MessagingException e) {
 			throw new AttachmentResourceHandlerException(ERROR_MESSAGE_PREFIX + resource.getName(), attachment, e);
-		} catch (IOException e) {
-			throw new AttachmentResourceHandlerException(ERROR_MESSAGE_PREFIX + resource.getName() + ". File can't be read", attachment, e);
 		}
 	}
 
+	/**
+	 * Release all the mapped files. The messages that are being sent still
+	 * read the files they attach.
+	 */
+	public void clearMappedFiles() {
+		if (mappedFiles != null) {
+			mappedFiles.clear();
+		}
+	}
+
+	private MappedFileDataSource getMappedFile(File file) throws IOException, MimeTypeDetectionException {
+		String key = file.getCanonicalPath() + ":" + file.length() + ":" + file.lastModified();
+		MappedFileDataSource dataSource = mappedFiles.get(key);
+		if (dataSource == null) {
+			// several threads may map the same file before it is cached
+			dataSource = new MappedFileDataSource(file, mimetypeProvider.getMimeType(file).toString());
+			mappedFiles.put(key, dataSource);
+		}
+		return dataSource;
+	}
 }
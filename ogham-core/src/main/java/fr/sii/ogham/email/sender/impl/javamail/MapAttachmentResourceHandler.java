@@ -1,9 +1,15 @@
 package fr.sii.ogham.email.sender.impl.javamail;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
 import javax.mail.BodyPart;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeBodyPart;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import fr.sii.ogham.core.resource.NamedResource;
 import fr.sii.ogham.email.attachment.Attachment;
@@ -11,30 +17,61 @@ import fr.sii.ogham.email.exception.javamail.AttachmentResourceHandlerException;
 import fr.sii.ogham.email.exception.javamail.NoAttachmentResourceHandlerException;
 
 /**
+ * <p>
  * Provides a handler for the attachment resource based on the class of the
  * attachment resource.
- * 
+ * </p>
+ * <p>
+ * If a {@link EncodedAttachmentCache} is provided, the content of the
+ * attachment is read, detected and encoded only the first time. The following
+ * times, the already encoded content is directly used. The attachments that
+ * can't be cached (content not stable or bigger than the memory budget) are
+ * streamed by the attachment resource handler as if there were no cache.
+ * </p>
+ *
  * @author Aurélien Baudet
  *
  */
 public class MapAttachmentResourceHandler implements JavaMailAttachmentResourceHandler {
+	private static final Logger LOG = LoggerFactory.getLogger(MapAttachmentResourceHandler.class);
+
 	/**
 	 * The map of attachment resource handlers indexed by the attachment resource
 	 * class
 	 */
 	private Map<Class<? extends NamedResource>, JavaMailAttachmentResourceHandler> map;
 
+	/**
+	 * The cache of already encoded attachments (may be null)
+	 */
+	private EncodedAttachmentCache cache;
+
 	/**
 	 * Initialize with the map of attachment resource handlers indexed by the
 	 * attachment resource class.
-	 * 
+	 *
 	 * @param map
 	 *            the map of attachment resource handlers indexed by the
 	 *            attachment resource class
 	 */
 	public MapAttachmentResourceHandler(Map<Class<? extends NamedResource>, JavaMailAttachmentResourceHandler> map) {
+		this(map, null);
+	}
+
+	/**
+	 * Initialize with the map of attachment resource handlers indexed by the
+	 * attachment resource class and the cache of already encoded attachments.
+	 *
+	 * @param map
+	 *            the map of attachment resource handlers indexed by the
+	 *            attachment resource class
+	 * @param cache
+	 *            the cache of already encoded attachments (may be null)
+	 */
+	public MapAttachmentResourceHandler(Map<Class<? extends NamedResource>, JavaMailAttachmentResourceHandler> map, EncodedAttachmentCache cache) {
 		super();
 		this.map = map;
+		this.cache = cache;
 	}
 
 	/**
@@ -50,12 +87,16 @@ public class MapAttachmentResourceHandler implements JavaMailAttachmentResourceH
 		if (attachmentHandler == null) {
 			throw new NoAttachmentResourceHandlerException("there is no attachment resource handler defined for managing " + resource.getClass().getSimpleName() + " attachment resource class", attachment);
 		}
-		attachmentHandler.setData(part, resource, attachment);
+		if (cache == null) {
+			attachmentHandler.setData(part, resource, attachment);
+		} else {
+			setCachedData(attachmentHandler, part, resource, attachment);
+		}
 	}
 
 	/**
 	 * Register a new attachment resource handler.
-	 * 
+	 *
 	 * @param clazz
 	 *            the class of the attachment resource
 	 * @param handler
@@ -65,4 +106,48 @@ public class MapAttachmentResourceHandler implements JavaMailAttachmentResourceH
 		map.put(clazz, handler);
 	}
 
+	/**
+	 * Set the cache of already encoded attachments.
+	 *
+	 * @param cache
+	 *            the cache to use (null to disable caching)
+	 */
+	public void setCache(EncodedAttachmentCache cache) {
+		this.cache = cache;
+	}
+
+	public EncodedAttachmentCache getCache() {
+		return cache;
+	}
+
+	private void setCachedData(JavaMailAttachmentResourceHandler attachmentHandler, BodyPart part, NamedResource resource, Attachment attachment) throws AttachmentResourceHandlerException {
+		try {
+			Object key = cache.getKey(resource);
+			if (key == null) {
+				LOG.debug("Attachment {} can't be cached => stream it", resource.getName());
+				attachmentHandler.setData(part, resource, attachment);
+				return;
+			}
+			EncodedAttachment encoded = cache.get(key);
+			if (encoded == null) {
+				LOG.debug("Attachment {} not cached yet => read and encode it", resource.getName());
+				MimeBodyPart source = new MimeBodyPart();
+				attachmentHandler.setData(source, resource, attachment);
+				encoded = EncodedAttachment.encode(source, cache.getMaxWeight());
+				if (encoded == null) {
+					LOG.debug("Encoded attachment {} exceeds the memory budget => stream it", resource.getName());
+					attachmentHandler.setData(part, resource, attachment);
+					return;
+				}
+				cache.put(key, encoded);
+			} else {
+				LOG.debug("Use cached encoded content for attachment {}", resource.getName());
+			}
+			encoded.applyTo(part);
+		} catch (MessagingException e) {
+			throw new AttachmentResourceHandlerException("Failed to attach " + resource.getName(), attachment, e);
+		} catch (IOException e) {
+			throw new AttachmentResourceHandlerException("Failed to attach " + resource.getName() + ". Content can't be read", attachment, e);
+		}
+	}
 }
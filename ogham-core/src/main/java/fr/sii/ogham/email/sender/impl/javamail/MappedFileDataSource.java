@@ -0,0 +1,189 @@
+package fr.sii.ogham.email.sender.impl.javamail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+import javax.activation.DataSource;
+
+/**
+ * {@link DataSource} implementation that maps the file in memory (see
+ * {@link FileChannel#map(MapMode, long, long)}). The file is mapped only once
+ * (the first time the content is read) and the mapping is shared by all the
+ * streams provided by this data source. The content is never copied into the
+ * Java heap: the operating system loads the pages of the file when they are
+ * read.
+ *
+ * <p>
+ * This is useful when the same big file is attached to several messages that
+ * are sent concurrently. {@link FileResourceHandler} shares the data source of
+ * a file between the messages.
+ * </p>
+ * <p>
+ * Java provides no way to unmap a file explicitly (unmapping while a stream
+ * still reads the content would crash the JVM). The mapping is released by the
+ * garbage collector once the data source and all the streams it provided are
+ * no longer referenced.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class MappedFileDataSource implements DataSource {
+	/**
+	 * The file to map
+	 */
+	private final File file;
+
+	/**
+	 * The Mime Type of the file
+	 */
+	private final String contentType;
+
+	/**
+	 * The size of the file when the data source was created
+	 */
+	private final long size;
+
+	/**
+	 * The mapped content (lazily initialized)
+	 */
+	private volatile MappedByteBuffer buffer;
+
+	/**
+	 * Initialize the data source with the file to map and its Mime Type.
+	 *
+	 * @param file
+	 *            the file to map in memory
+	 * @param contentType
+	 *            the Mime Type of the file
+	 */
+	public MappedFileDataSource(File file, String contentType) {
+		super();
+		this.file = file;
+		this.contentType = contentType;
+		this.size = file.length();
+	}
+
+	@Override
+	public InputStream getInputStream() throws IOException {
+		// each stream has its own position
+		return new ByteBufferInputStream(getBuffer().duplicate());
+	}
+
+	@Override
+	public OutputStream getOutputStream() throws IOException {
+		throw new IOException("File " + file + " is mapped read-only");
+	}
+
+	@Override
+	public String getContentType() {
+		return contentType;
+	}
+
+	@Override
+	public String getName() {
+		return file.getName();
+	}
+
+	/**
+	 * Get the mapped file.
+	 *
+	 * @return the mapped file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Get the size of the file when the data source was created.
+	 *
+	 * @return the size of the file in bytes
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	private MappedByteBuffer getBuffer() throws IOException {
+		MappedByteBuffer mapped = buffer;
+		if (mapped == null) {
+			synchronized (this) {
+				mapped = buffer;
+				if (mapped == null) {
+					try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+						// the mapping remains valid once the channel is closed
+						mapped = channel.map(MapMode.READ_ONLY, 0, channel.size());
+						buffer = mapped;
+					}
+				}
+			}
+		}
+		return mapped;
+	}
+
+	/**
+	 * Simple {@link InputStream} that reads the bytes of a {@link ByteBuffer}.
+	 *
+	 * @author Aurélien Baudet
+	 *
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		public ByteBufferInputStream(ByteBuffer buffer) {
+			super();
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			int count = Math.min(len, buffer.remaining());
+			buffer.get(b, off, count);
+			return count;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+			buffer.position(buffer.position() + count);
+			return count;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return buffer.remaining();
+		}
+
+		@Override
+		public boolean markSupported() {
+			return true;
+		}
+
+		@Override
+		public synchronized void mark(int readlimit) {
+			buffer.mark();
+		}
+
+		@Override
+		public synchronized void reset() throws IOException {
+			buffer.reset();
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package fr.sii.ogham.email.sender.impl.javamail;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.activation.DataSource;
+
+import fr.sii.ogham.core.resource.FileResource;
+import fr.sii.ogham.core.resource.NamedResource;
+
+/**
+ * {@link DataSource} implementation that reads the content of a
+ * {@link NamedResource} lazily. The content is never loaded in memory: a new
+ * stream is opened on the resource each time Java Mail needs to read the
+ * content (when the message is written to the socket for example).
+ *
+ * <p>
+ * This avoids to copy the whole content of the attachment into a byte array
+ * (unlike {@link javax.mail.util.ByteArrayDataSource}). The resource MUST be
+ * readable several times (see {@link NamedResource#getInputStream()}).
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class ResourceDataSource implements DataSource {
+	/**
+	 * The resource that provides the content
+	 */
+	private final NamedResource resource;
+
+	/**
+	 * The Mime Type of the content
+	 */
+	private final String contentType;
+
+	/**
+	 * Initialize the data source with the resource to read and the Mime Type of
+	 * its content.
+	 *
+	 * @param resource
+	 *            the resource that provides the content
+	 * @param contentType
+	 *            the Mime Type of the content
+	 */
+	public ResourceDataSource(NamedResource resource, String contentType) {
+		super();
+		this.resource = resource;
+		this.contentType = contentType;
+	}
+
+	@Override
+	public InputStream getInputStream() throws IOException {
+		InputStream stream = resource.getInputStream();
+		// file streams are not buffered
+		return resource instanceof FileResource ? new BufferedInputStream(stream) : stream;
+	}
+
+	@Override
+	public OutputStream getOutputStream() throws IOException {
+		throw new IOException("Resource " + resource.getName() + " is read-only");
+	}
+
+	@Override
+	public String getContentType() {
+		return contentType;
+	}
+
+	@Override
+	public String getName() {
+		return resource.getName();
+	}
+
+}
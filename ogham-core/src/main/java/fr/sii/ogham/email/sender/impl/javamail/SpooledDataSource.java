@@ -0,0 +1,175 @@
+package fr.sii.ogham.email.sender.impl.javamail;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.activation.DataHandler;
+import javax.activation.DataSource;
+import javax.mail.BodyPart;
+import javax.mail.MessagingException;
+import javax.mail.Multipart;
+import javax.mail.Part;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.message.content.StreamingContent;
+import fr.sii.ogham.core.util.SpillingOutputStream;
+
+/**
+ * <p>
+ * {@link DataSource} implementation that holds the result of a
+ * {@link StreamingContent}. The template is rendered once when the message is
+ * prepared, before any connection to the server. So a template error never
+ * aborts a transaction and the message can be written several times (one per
+ * chunk of recipients for example) without rendering the template again.
+ * </p>
+ * <p>
+ * The result is kept in memory up to a threshold. Bigger results are written
+ * to a temporary file so the memory used by a message stays bounded. The file
+ * is deleted when the data source is closed (see {@link #release(Part)}).
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class SpooledDataSource implements DataSource, Closeable {
+	private static final Logger LOG = LoggerFactory.getLogger(SpooledDataSource.class);
+
+	/**
+	 * Default maximum number of bytes kept in memory (1MB)
+	 */
+	public static final int DEFAULT_MEMORY_THRESHOLD = 1024 * 1024;
+
+	/**
+	 * The Content-Type of the content
+	 */
+	private final String contentType;
+
+	/**
+	 * The name of the template
+	 */
+	private final String name;
+
+	/**
+	 * The result in memory (null if written to a file)
+	 */
+	private final byte[] bytes;
+
+	/**
+	 * The file that contains the result (null if in memory)
+	 */
+	private final File file;
+
+	private SpooledDataSource(String contentType, String name, byte[] bytes, File file) {
+		super();
+		this.contentType = contentType;
+		this.name = name;
+		this.bytes = bytes;
+		this.file = file;
+	}
+
+	/**
+	 * Render the template of the content once.
+	 *
+	 * @param content
+	 *            the content to render
+	 * @param contentType
+	 *            the Content-Type of the content (including charset)
+	 * @param memoryThreshold
+	 *            the maximum number of bytes kept in memory
+	 * @return the rendered content
+	 * @throws ParseException
+	 *             when the template couldn't be rendered
+	 * @throws IOException
+	 *             when the result couldn't be written
+	 */
+	public static SpooledDataSource render(StreamingContent content, String contentType, int memoryThreshold) throws ParseException, IOException {
+		SpillingOutputStream out = new SpillingOutputStream(memoryThreshold, "ogham-template");
+		try {
+			content.writeTo(out);
+			out.close();
+		} catch (ParseException | IOException | RuntimeException e) {
+			out.discard();
+			throw e;
+		}
+		if (out.isSpilled()) {
+			LOG.debug("Result of template {} is bigger than {} bytes => kept in {}", content.getTemplateName(), memoryThreshold, out.getFile());
+			return new SpooledDataSource(contentType, content.getTemplateName(), null, out.getFile());
+		}
+		return new SpooledDataSource(contentType, content.getTemplateName(), out.toByteArray(), null);
+	}
+
+	/**
+	 * Close the spooled data sources of the part and of its sub parts in order
+	 * to delete the temporary files.
+	 *
+	 * @param part
+	 *            the message or the part to release
+	 */
+	public static void release(Part part) {
+		try {
+			DataHandler handler = part.getDataHandler();
+			if (handler.getDataSource() instanceof SpooledDataSource) {
+				((SpooledDataSource) handler.getDataSource()).close();
+			} else if (part.isMimeType("multipart/*")) {
+				Multipart multipart = (Multipart) part.getContent();
+				for (int i = 0; i < multipart.getCount(); i++) {
+					BodyPart bodyPart = multipart.getBodyPart(i);
+					release(bodyPart);
+				}
+			}
+		} catch (MessagingException | IOException e) {
+			LOG.warn("Failed to release the rendered templates", e);
+		}
+	}
+
+	@Override
+	public InputStream getInputStream() throws IOException {
+		if (file != null) {
+			return new BufferedInputStream(new FileInputStream(file));
+		}
+		return new ByteArrayInputStream(bytes);
+	}
+
+	@Override
+	public OutputStream getOutputStream() throws IOException {
+		throw new IOException("Template " + name + " is read-only");
+	}
+
+	@Override
+	public String getContentType() {
+		return contentType;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Indicates if the result has been written to a temporary file.
+	 *
+	 * @return true if the result is in a file, false if it is in memory
+	 */
+	public boolean isSpooled() {
+		return file != null;
+	}
+
+	/**
+	 * Delete the temporary file (if any).
+	 */
+	@Override
+	public void close() {
+		if (file != null && file.exists() && !file.delete()) {
+			LOG.warn("Failed to delete {}", file);
+		}
+	}
+}
@@ -1,25 +1,31 @@
 package fr.sii.ogham.email.sender.impl.javamail;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
 import javax.activation.DataHandler;
 import javax.mail.BodyPart;
 import javax.mail.MessagingException;
-import javax.mail.util.ByteArrayDataSource;
 
 import fr.sii.ogham.core.exception.mimetype.MimeTypeDetectionException;
+import fr.sii.ogham.core.mimetype.FallbackMimeTypeProvider;
 import fr.sii.ogham.core.mimetype.MimeTypeProvider;
 import fr.sii.ogham.core.resource.ByteResource;
 import fr.sii.ogham.core.resource.NamedResource;
-import fr.sii.ogham.core.util.IOUtils;
 import fr.sii.ogham.email.attachment.Attachment;
 import fr.sii.ogham.email.exception.javamail.AttachmentResourceHandlerException;
 
 /**
  * Implementation that is able to handle {@link ByteResource}.
- * 
+ *
+ * <p>
+ * The stream of the resource is provided directly to the Mime Type detector
+ * that reads only the first bytes (see
+ * {@link FallbackMimeTypeProvider#setDetectionLimit(int)}). The content is
+ * then read directly from the resource when the message is written (see
+ * {@link ResourceDataSource}) so no copy of the content is made.
+ * </p>
+ *
  * @author Aurélien Baudet
  *
  */
@@ -36,22 +42,14 @@ public class StreamResourceHandler implements JavaMailAttachmentResourceHandler
 
 	@Override
 	public void setData(BodyPart part, NamedResource resource, Attachment attachment) throws AttachmentResourceHandlerException {
-		ByteResource streamResource = (ByteResource) resource;
-		try (InputStream stream = streamResource.getInputStream()) {
-			InputStream s = stream;
-			// stream is read twice, if stream can't handle reset => create a
-			// stream that is able to do it
-			if (!stream.markSupported()) {
-				s = new ByteArrayInputStream(IOUtils.toByteArray(stream));
+		try {
+			// the provider reads only the beginning of the content
+			String mimetype;
+			try (InputStream stream = resource.getInputStream()) {
+				mimetype = mimetypeProvider.detect(stream).toString();
 			}
-			// mark to reset at the start of the stream
-			s.mark(Integer.MAX_VALUE);
-			// detect the mimetype
-			String mimetype = mimetypeProvider.detect(s).toString();
-			// reset the stream
-			s.reset();
-			// set the content
-			part.setDataHandler(new DataHandler(new ByteArrayDataSource(s, mimetype)));
+			// set the content (read lazily from the resource)
+			part.setDataHandler(new DataHandler(new ResourceDataSource(resource, mimetype)));
 		} catch (MimeTypeDetectionException e) {
 			throw new AttachmentResourceHandlerException("Failed to attach " + resource.getName() + ". Mime type can't be detected", attachment, e);
 		} catch (MessagingException e) {
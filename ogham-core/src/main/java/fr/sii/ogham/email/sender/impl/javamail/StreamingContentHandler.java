@@ -0,0 +1,107 @@
+package fr.sii.ogham.email.sender.impl.javamail;
+
+import java.io.IOException;
+
+import javax.activation.DataHandler;
+import javax.mail.MessagingException;
+import javax.mail.Multipart;
+import javax.mail.internet.MimeBodyPart;
+import javax.mail.internet.MimePart;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.exception.mimetype.MimeTypeDetectionException;
+import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.StreamingContent;
+import fr.sii.ogham.core.mimetype.MimeTypeProvider;
+import fr.sii.ogham.email.exception.javamail.ContentHandlerException;
+import fr.sii.ogham.email.message.Email;
+
+/**
+ * <p>
+ * Content handler that adds contents generated from templates that are
+ * rendered without building the whole result as string (see
+ * {@link StreamingContent}).
+ * </p>
+ * <p>
+ * The template is rendered once when the message is prepared, before any
+ * connection to the server, so a template error never aborts a transaction.
+ * The result is kept in memory up to a threshold, bigger results are written
+ * to a temporary file (see {@link SpooledDataSource}).
+ * </p>
+ * <p>
+ * The whole content is not known when the part is created so the
+ * Content-Transfer-Encoding is always quoted-printable (safe for any textual
+ * content).
+ * </p>
+ * <p>
+ * If the Mime Type of the content is unknown, it has to be detected so the
+ * content is rendered in memory like a string content.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class StreamingContentHandler implements JavaMailContentHandler {
+	private static final Logger LOG = LoggerFactory.getLogger(StreamingContentHandler.class);
+
+	/**
+	 * The Mime Type detector used when the Mime Type of the content is unknown
+	 */
+	private MimeTypeProvider mimetypeProvider;
+
+	/**
+	 * The maximum number of bytes of a rendered template kept in memory
+	 */
+	private int memoryThreshold;
+
+	public StreamingContentHandler(MimeTypeProvider mimetypeProvider) {
+		this(mimetypeProvider, SpooledDataSource.DEFAULT_MEMORY_THRESHOLD);
+	}
+
+	/**
+	 * Initialize with the Mime Type detector and the maximum number of bytes
+	 * of a rendered template kept in memory.
+	 * 
+	 * @param mimetypeProvider
+	 *            the Mime Type detector used when the Mime Type of the
+	 *            content is unknown
+	 * @param memoryThreshold
+	 *            the maximum number of bytes kept in memory (bigger results
+	 *            are written to a temporary file)
+	 */
+	public StreamingContentHandler(MimeTypeProvider mimetypeProvider, int memoryThreshold) {
+		super();
+		this.mimetypeProvider = mimetypeProvider;
+		this.memoryThreshold = memoryThreshold;
+	}
+
+	@Override
+	public void setContent(MimePart message, Multipart multipart, Email email, Content content) throws ContentHandlerException {
+		try {
+			MimeBodyPart part = new MimeBodyPart();
+			StreamingContent streamingContent = (StreamingContent) content;
+			String charsetParam = ";charset=" + streamingContent.getCharset().name();
+			if (streamingContent.getMimetype() == null) {
+				LOG.debug("Mime Type of {} is unknown => render it in memory to detect it", content);
+				String strContent = streamingContent.render();
+				part.setContent(strContent, mimetypeProvider.detect(strContent).getBaseType() + charsetParam);
+			} else {
+				part.setDataHandler(new DataHandler(SpooledDataSource.render(streamingContent, streamingContent.getMimetype().getBaseType() + charsetParam, memoryThreshold)));
+			}
+			part.setHeader("Content-Transfer-Encoding", TransferEncodingSelector.QUOTED_PRINTABLE);
+			multipart.addBodyPart(part);
+		} catch (MessagingException e) {
+			throw new ContentHandlerException("failed to set content on mime message", content, e);
+		} catch (MimeTypeDetectionException e) {
+			throw new ContentHandlerException("failed to determine mimetype for the content", content, e);
+		} catch (ParseException e) {
+			throw new ContentHandlerException("failed to render the template of the content", content, e);
+		} catch (IOException e) {
+			throw new ContentHandlerException("failed to store the result of the template of the content", content, e);
+		}
+	}
+
+}
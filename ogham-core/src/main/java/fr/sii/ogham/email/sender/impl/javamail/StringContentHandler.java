@@ -2,6 +2,7 @@ package fr.sii.ogham.email.sender.impl.javamail;
 
 import java.nio.charset.Charset;
 
+import javax.activation.MimeType;
 import javax.mail.MessagingException;
 import javax.mail.Multipart;
 import javax.mail.internet.MimeBodyPart;
@@ -16,8 +17,17 @@ import fr.sii.ogham.email.exception.javamail.ContentHandlerException;
 import fr.sii.ogham.email.message.Email;
 
 /**
+ * <p>
  * Content handler that adds string contents (HTML, text, ...). It needs to
- * detect Mime Type for indicating the type of the added content.
+ * detect Mime Type for indicating the type of the added content. If the
+ * content already provides its Mime Type and charset (for example, content
+ * generated from a template variant), they are used directly.
+ * </p>
+ * <p>
+ * The Content-Transfer-Encoding is chosen by the
+ * {@link TransferEncodingSelector} in order to reduce the size of the
+ * message.
+ * </p>
  * 
  * @author Aurélien Baudet
  *
@@ -33,20 +43,33 @@ public class StringContentHandler implements JavaMailContentHandler {
 	 */
 	private CharsetProvider charsetProvider;
 
+	/**
+	 * Selects the transfer encoding of the content
+	 */
+	private TransferEncodingSelector encodingSelector;
+
 	public StringContentHandler(MimeTypeProvider mimetypeProvider, CharsetProvider charsetProvider) {
+		this(mimetypeProvider, charsetProvider, new TransferEncodingSelector());
+	}
+
+	public StringContentHandler(MimeTypeProvider mimetypeProvider, CharsetProvider charsetProvider, TransferEncodingSelector encodingSelector) {
 		super();
 		this.mimetypeProvider = mimetypeProvider;
 		this.charsetProvider = charsetProvider;
+		this.encodingSelector = encodingSelector;
 	}
 
 	@Override
 	public void setContent(MimePart message, Multipart multipart, Email email, Content content) throws ContentHandlerException {
 		try {
 			MimeBodyPart part = new MimeBodyPart();
-			String strContent = ((StringContent) content).getContent();
-			Charset charset = charsetProvider.getCharset(strContent);
+			StringContent stringContent = (StringContent) content;
+			String strContent = stringContent.getContent();
+			Charset charset = stringContent.getCharset() == null ? charsetProvider.getCharset(strContent) : stringContent.getCharset();
 			String charsetParam = charset == null ? "" : (";charset=" + charset.name());
-			part.setContent(strContent, mimetypeProvider.detect(strContent).toString() + charsetParam);
+			MimeType mimetype = stringContent.getMimetype() == null ? mimetypeProvider.detect(strContent) : stringContent.getMimetype();
+			part.setContent(strContent, mimetype.getBaseType() + charsetParam);
+			encodingSelector.apply(part, strContent.getBytes(charset == null ? Charset.defaultCharset() : charset));
 			multipart.addBodyPart(part);
 		} catch (MessagingException e) {
 			throw new ContentHandlerException("failed to set content on mime message", content, e);
@@ -0,0 +1,215 @@
+package fr.sii.ogham.email.sender.impl.javamail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.mail.BodyPart;
+import javax.mail.MessagingException;
+import javax.mail.Multipart;
+import javax.mail.internet.MimePart;
+
+/**
+ * <p>
+ * Selects the Content-Transfer-Encoding that produces the fewest bytes on the
+ * wire:
+ * <ul>
+ * <li>7bit if the content is pure ASCII with reasonable line lengths</li>
+ * <li>8bit if the server accepts 8bit data (8BITMIME extension, see
+ * <a href="https://tools.ietf.org/html/rfc6152">RFC 6152</a>) and the content
+ * has reasonable line lengths</li>
+ * <li>Otherwise the smaller of quoted-printable and base64. Mostly ASCII
+ * content (French for example) is smaller using quoted-printable while
+ * non-latin content (Arabic for example) is smaller using base64.</li>
+ * </ul>
+ * <p>
+ * Java Mail default behavior only guesses the encoding from the proportion of
+ * non-ASCII characters.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class TransferEncodingSelector {
+	public static final String SEVEN_BIT = "7bit";
+	public static final String EIGHT_BIT = "8bit";
+	public static final String QUOTED_PRINTABLE = "quoted-printable";
+	public static final String BASE64 = "base64";
+
+	private static final String HEADER = "Content-Transfer-Encoding";
+
+	/**
+	 * Maximum line length (without CRLF) allowed by SMTP
+	 */
+	private static final int MAX_LINE_LENGTH = 998;
+
+	/**
+	 * Maximum line length of encoded content (without CRLF)
+	 */
+	private static final int ENCODED_LINE_LENGTH = 76;
+
+	/**
+	 * Whether 8bit content can be sent as-is
+	 */
+	private final boolean allow8bit;
+
+	/**
+	 * Initialize the selector that never selects 8bit encoding
+	 */
+	public TransferEncodingSelector() {
+		this(false);
+	}
+
+	/**
+	 * Initialize the selector.
+	 *
+	 * @param allow8bit
+	 *            true only if the SMTP server is known to accept 8bit data
+	 */
+	public TransferEncodingSelector(boolean allow8bit) {
+		super();
+		this.allow8bit = allow8bit;
+	}
+
+	/**
+	 * Select the encoding for the provided content.
+	 *
+	 * @param bytes
+	 *            the content to encode
+	 * @return the name of the encoding
+	 */
+	public String select(byte[] bytes) {
+		boolean ascii = true;
+		boolean textSafe = true;
+		int lineLength = 0;
+		for (byte b : bytes) {
+			if (b == '\r' || b == '\n') {
+				lineLength = 0;
+				continue;
+			}
+			if (b == 0) {
+				// binary content => can't be sent as text
+				textSafe = false;
+			}
+			if (b < 0) {
+				ascii = false;
+			}
+			if (++lineLength > MAX_LINE_LENGTH) {
+				textSafe = false;
+			}
+		}
+		if (ascii && textSafe) {
+			return SEVEN_BIT;
+		}
+		if (allow8bit && textSafe) {
+			return EIGHT_BIT;
+		}
+		return quotedPrintableLength(bytes) <= base64Length(bytes.length) ? QUOTED_PRINTABLE : BASE64;
+	}
+
+	/**
+	 * Select the encoding for the provided content and set the
+	 * Content-Transfer-Encoding header on the part. The content of the part
+	 * must already be set (setting the content removes the header).
+	 *
+	 * @param part
+	 *            the part to update
+	 * @param bytes
+	 *            the content of the part
+	 * @throws MessagingException
+	 *             when the header can't be set
+	 */
+	public void apply(MimePart part, byte[] bytes) throws MessagingException {
+		part.setHeader(HEADER, select(bytes));
+	}
+
+	/**
+	 * <p>
+	 * Change the encoding of the textual parts to 8bit when it is possible.
+	 * Must be called before the message is written and only if the SMTP
+	 * server supports 8BITMIME extension.
+	 * </p>
+	 * <p>
+	 * Only text parts encoded using quoted-printable or base64 with reasonable
+	 * line lengths are changed. The rendered templates that are too big to be
+	 * kept in memory (see {@link SpooledDataSource}) are never changed because
+	 * they would be read in memory to check them.
+	 * </p>
+	 *
+	 * @param part
+	 *            the message or part to convert
+	 * @return true if at least one part has been converted
+	 * @throws MessagingException
+	 *             when the parts can't be read or updated
+	 * @throws IOException
+	 *             when the content of a part can't be read
+	 */
+	public static boolean convertTo8Bit(MimePart part) throws MessagingException, IOException {
+		if (part.isMimeType("multipart/*")) {
+			boolean converted = false;
+			Multipart multipart = (Multipart) part.getContent();
+			for (int i = 0; i < multipart.getCount(); i++) {
+				BodyPart child = multipart.getBodyPart(i);
+				converted |= child instanceof MimePart && convertTo8Bit((MimePart) child);
+			}
+			return converted;
+		}
+		String encoding = part.getEncoding();
+		if (part.getDataHandler().getDataSource() instanceof SpooledDataSource && ((SpooledDataSource) part.getDataHandler().getDataSource()).isSpooled()) {
+			return false;
+		}
+		if (!part.isMimeType("text/*") || !(QUOTED_PRINTABLE.equalsIgnoreCase(encoding) || BASE64.equalsIgnoreCase(encoding))) {
+			return false;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		part.getDataHandler().writeTo(bytes);
+		if (EIGHT_BIT.equals(new TransferEncodingSelector(true).select(bytes.toByteArray()))) {
+			part.setHeader(HEADER, EIGHT_BIT);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Compute the size of the content encoded using quoted-printable (soft
+	 * line breaks included).
+	 *
+	 * @param bytes
+	 *            the content
+	 * @return the encoded size
+	 */
+	private static long quotedPrintableLength(byte[] bytes) {
+		long length = 0;
+		int lineLength = 0;
+		for (byte b : bytes) {
+			if (b == '\r' || b == '\n') {
+				length++;
+				lineLength = 0;
+				continue;
+			}
+			// control characters and non-ASCII bytes (negative) are encoded
+			// as =XX
+			int encoded = (b < 32 && b != '\t') || b == '=' || b == 127 ? 3 : 1;
+			if (lineLength + encoded > ENCODED_LINE_LENGTH - 1) {
+				// soft line break "=" CRLF
+				length += 3;
+				lineLength = 0;
+			}
+			length += encoded;
+			lineLength += encoded;
+		}
+		return length;
+	}
+
+	/**
+	 * Compute the size of the content encoded using base64 (line breaks
+	 * included).
+	 *
+	 * @param length
+	 *            the size of the content
+	 * @return the encoded size
+	 */
+	private static long base64Length(long length) {
+		long encoded = (length + 2) / 3 * 4;
+		return encoded + encoded / ENCODED_LINE_LENGTH * 2;
+	}
+}
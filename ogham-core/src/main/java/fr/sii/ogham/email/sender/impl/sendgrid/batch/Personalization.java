@@ -0,0 +1,68 @@
+package fr.sii.ogham.email.sender.impl.sendgrid.batch;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import fr.sii.ogham.email.message.EmailAddress;
+
+/**
+ * A recipient of a batch with its own substitution values. The substitution
+ * keys are the tags that appear in the content of the email (for example
+ * "-firstName-") and are replaced by SendGrid for each recipient.
+ */
+public final class Personalization {
+	/**
+	 * The recipient address
+	 */
+	private final EmailAddress recipient;
+
+	/**
+	 * The values of the tags for this recipient
+	 */
+	private final Map<String, String> substitutions;
+
+	/**
+	 * Constructor for a recipient without substitutions.
+	 * 
+	 * @param recipient
+	 *            the recipient address, cannot be {@code null}
+	 */
+	public Personalization(final EmailAddress recipient) {
+		this(recipient, Collections.<String, String> emptyMap());
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param recipient
+	 *            the recipient address, cannot be {@code null}
+	 * @param substitutions
+	 *            the values of the tags for this recipient, cannot be
+	 *            {@code null}
+	 */
+	public Personalization(final EmailAddress recipient, final Map<String, String> substitutions) {
+		if (recipient == null) {
+			throw new IllegalArgumentException("[recipient] cannot be null");
+		}
+		if (substitutions == null) {
+			throw new IllegalArgumentException("[substitutions] cannot be null");
+		}
+
+		this.recipient = recipient;
+		this.substitutions = Collections.unmodifiableMap(new LinkedHashMap<>(substitutions));
+	}
+
+	public EmailAddress getRecipient() {
+		return recipient;
+	}
+
+	public Map<String, String> getSubstitutions() {
+		return substitutions;
+	}
+
+	@Override
+	public String toString() {
+		return recipient + " " + substitutions;
+	}
+}
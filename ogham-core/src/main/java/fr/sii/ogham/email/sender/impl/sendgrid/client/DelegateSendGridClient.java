@@ -1,7 +1,9 @@
 package fr.sii.ogham.email.sender.impl.sendgrid.client;
 
+import java.io.Closeable;
 import java.io.IOException;
 
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -11,8 +13,15 @@ import com.sendgrid.SendGridException;
 
 /**
  * Facade wrapping the {@link SendGrid} object.
+ * 
+ * <p>
+ * If an HTTP client is provided, the {@link SendGrid} object uses it instead
+ * of its default one. This allows to share a pool of keep-alive connections
+ * between all the threads that send emails. The HTTP client is closed when
+ * this client is closed.
+ * </p>
  */
-public final class DelegateSendGridClient implements SendGridClient {
+public final class DelegateSendGridClient implements SendGridClient, Closeable {
 
 	private static final Logger LOG = LoggerFactory.getLogger(DelegateSendGridClient.class);
 
@@ -33,6 +42,18 @@ public final class DelegateSendGridClient implements SendGridClient {
 	 */
 	private String apiKey;
 
+	/**
+	 * The HTTP client used by the SendGrid instance (may be {@code null} to
+	 * use the default one)
+	 */
+	private CloseableHttpClient httpClient;
+
+	/**
+	 * The base URL of SendGrid API (may be {@code null} to use the default
+	 * one)
+	 */
+	private String url;
+
 	/**
 	 * Constructor.
 	 * 
@@ -50,14 +71,44 @@ public final class DelegateSendGridClient implements SendGridClient {
 	}
 
 	public DelegateSendGridClient(String username, String password) {
+		this(username, password, null);
+	}
+
+	public DelegateSendGridClient(String apiKey) {
+		this(apiKey, (CloseableHttpClient) null);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param username
+	 *            the account username
+	 * @param password
+	 *            the account password
+	 * @param httpClient
+	 *            the HTTP client used to call SendGrid API (may be
+	 *            {@code null} to use the default one)
+	 */
+	public DelegateSendGridClient(String username, String password, CloseableHttpClient httpClient) {
 		super();
 		this.username = username;
 		this.password = password;
+		this.httpClient = httpClient;
 	}
 
-	public DelegateSendGridClient(String apiKey) {
+	/**
+	 * Constructor.
+	 * 
+	 * @param apiKey
+	 *            the API key
+	 * @param httpClient
+	 *            the HTTP client used to call SendGrid API (may be
+	 *            {@code null} to use the default one)
+	 */
+	public DelegateSendGridClient(String apiKey, CloseableHttpClient httpClient) {
 		super();
 		this.apiKey = apiKey;
+		this.httpClient = httpClient;
 	}
 
 	@Override
@@ -72,6 +123,22 @@ public final class DelegateSendGridClient implements SendGridClient {
 		LOG.debug("Sending to SendGrid client: TEXT CONTENT {}", email.getText());
 		LOG.debug("Sending to SendGrid client: HTML CONTENT {}", email.getHtml());
 
+		final SendGrid.Response response = getDelegate().send(email);
+
+		if (response.getStatus()) {
+			LOG.debug("Response from SendGrid client: ({}) {}", response.getCode(), response.getMessage());
+		} else {
+			throw new SendGridException(new IOException("Sending to SendGrid failed: (" + response.getCode() + ") " + response.getMessage()));
+		}
+	}
+
+	/**
+	 * Lazily creates the SendGrid instance. Synchronized because the client
+	 * may be used by several threads (batch mode).
+	 * 
+	 * @return the SendGrid instance
+	 */
+	private synchronized SendGrid getDelegate() {
 		if (delegate == null) {
 			if(username!=null && password!=null) {
 				delegate = new SendGrid(username, password);
@@ -80,14 +147,36 @@ public final class DelegateSendGridClient implements SendGridClient {
 			} else {
 				throw new IllegalStateException("No SendGrid instance available. Either provide an instance manually or provide username/password or provide API key");
 			}
+			if (httpClient != null) {
+				delegate.setClient(httpClient);
+			}
+			if (url != null) {
+				delegate.setUrl(url);
+			}
 		}
-		final SendGrid.Response response = delegate.send(email);
+		return delegate;
+	}
 
-		if (response.getStatus()) {
-			LOG.debug("Response from SendGrid client: ({}) {}", response.getCode(), response.getMessage());
-		} else {
-			throw new SendGridException(new IOException("Sending to SendGrid failed: (" + response.getCode() + ") " + response.getMessage()));
-		}
+	/**
+	 * Set the base URL of SendGrid API. It must be called before the first
+	 * email is sent.
+	 * 
+	 * @param url
+	 *            the base URL of SendGrid API (may be {@code null} to use the
+	 *            default one)
+	 */
+	public void setUrl(String url) {
+		this.url = url;
 	}
 
+	/**
+	 * Closes the HTTP client (and its pooled connections) if one has been
+	 * provided.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (httpClient != null) {
+			httpClient.close();
+		}
+	}
 }
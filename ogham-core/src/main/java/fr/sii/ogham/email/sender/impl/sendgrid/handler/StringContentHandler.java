@@ -6,7 +6,9 @@ import org.slf4j.LoggerFactory;
 import com.sendgrid.SendGrid.Email;
 
 import fr.sii.ogham.core.exception.mimetype.MimeTypeDetectionException;
+import fr.sii.ogham.core.exception.template.ParseException;
 import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.StreamingContent;
 import fr.sii.ogham.core.message.content.StringContent;
 import fr.sii.ogham.core.mimetype.MimeTypeProvider;
 import fr.sii.ogham.email.exception.sendgrid.ContentHandlerException;
@@ -14,7 +16,10 @@ import fr.sii.ogham.email.exception.sendgrid.ContentHandlerException;
 /**
  * Content handler that puts plain text or HTML content into email to be sent
  * through SendGrid. MIME type detection is delegated to an instance of
- * {@link MimeTypeProvider}.
+ * {@link MimeTypeProvider} unless the content already provides its MIME type.
+ * 
+ * SendGrid needs the whole content as string so {@link StreamingContent}s are
+ * rendered in memory.
  */
 public final class StringContentHandler implements SendGridContentHandler {
 
@@ -43,7 +48,7 @@ public final class StringContentHandler implements SendGridContentHandler {
 	 * 
 	 * While the method signature accepts any {@link Content} instance as
 	 * parameter, the method will fail if anything other than a
-	 * {@link StringContent} is provided.
+	 * {@link StringContent} or a {@link StreamingContent} is provided.
 	 * 
 	 * @param email
 	 *            the email to put the content in
@@ -64,17 +69,31 @@ public final class StringContentHandler implements SendGridContentHandler {
 		}
 
 		if (content instanceof StringContent) {
-			final String contentStr = ((StringContent) content).getContent();
+			final StringContent stringContent = (StringContent) content;
+			final String contentStr = stringContent.getContent();
 
 			try {
-				final String mime = mimeProvider.detect(contentStr).toString();
+				final String mime = stringContent.getMimetype() == null ? mimeProvider.detect(contentStr).toString() : stringContent.getMimetype().getBaseType();
 				LOG.debug("Email content {} has detected type {}", content, mime);
 				setMimeContent(email, contentStr, mime);
 			} catch (MimeTypeDetectionException e) {
 				throw new ContentHandlerException("Unable to set the email content", e);
 			}
+		} else if (content instanceof StreamingContent) {
+			final StreamingContent streamingContent = (StreamingContent) content;
+
+			try {
+				final String contentStr = streamingContent.render();
+				final String mime = streamingContent.getMimetype() == null ? mimeProvider.detect(contentStr).toString() : streamingContent.getMimetype().getBaseType();
+				LOG.debug("Email content {} has detected type {}", content, mime);
+				setMimeContent(email, contentStr, mime);
+			} catch (ParseException e) {
+				throw new ContentHandlerException("Unable to render the email content", e);
+			} catch (MimeTypeDetectionException e) {
+				throw new ContentHandlerException("Unable to set the email content", e);
+			}
 		} else {
-			throw new IllegalArgumentException("This instance can only work with StringContent instances, but was passed " + content.getClass().getSimpleName());
+			throw new IllegalArgumentException("This instance can only work with StringContent or StreamingContent instances, but was passed " + content.getClass().getSimpleName());
 		}
 
 	}
@@ -0,0 +1,372 @@
+package fr.sii.ogham.email.sender.impl.smtp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.email.exception.smtp.SmtpException;
+
+/**
+ * <p>
+ * SMTP client based on non-blocking I/O. A small number of threads (I/O
+ * threads) handle many SMTP connections. The connections are kept open and
+ * reused for the next transactions (keep-alive). Idle connections are closed
+ * after a configurable delay.
+ * </p>
+ * <p>
+ * The number of opened connections is limited. If all connections are busy,
+ * the transactions are queued until a connection is available.
+ * </p>
+ * <p>
+ * {@link #send(SmtpEnvelope)} never blocks. It returns a
+ * {@link SmtpTransaction} that can be used to wait for the result.
+ * </p>
+ * <p>
+ * <strong>NOTE:</strong> TLS (SMTPS or STARTTLS) is not supported. As the
+ * credentials would be sent in clear text, authentication is refused unless
+ * plaintext authentication is explicitly allowed.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class NioSmtpClient implements Closeable {
+	private static final Logger LOG = LoggerFactory.getLogger(NioSmtpClient.class);
+
+	/**
+	 * The address of the SMTP server
+	 */
+	private final InetSocketAddress address;
+
+	/**
+	 * The name sent with EHLO/HELO command
+	 */
+	private final String heloName;
+
+	/**
+	 * The username used for authentication (AUTH PLAIN). No authentication if
+	 * null
+	 */
+	private final String username;
+
+	/**
+	 * The password used for authentication
+	 */
+	private final String password;
+
+	/**
+	 * Whether the credentials can be sent over an unencrypted connection
+	 */
+	private final boolean plaintextAuthAllowed;
+
+	/**
+	 * The maximum number of simultaneously opened connections
+	 */
+	private final int maxConnections;
+
+	/**
+	 * Delay (in milliseconds) before closing an unused connection
+	 */
+	private final long idleTimeout;
+
+	/**
+	 * Maximum time (in milliseconds) to wait for a reply of the server
+	 */
+	private final long readTimeout;
+
+	private final SmtpEventLoop[] loops;
+	private final AtomicInteger nextLoop;
+
+	/**
+	 * Connections that are ready for a new transaction (last used first)
+	 */
+	private final Deque<SmtpConnection> idle;
+
+	/**
+	 * Transactions that wait for an available connection
+	 */
+	private final Deque<SmtpTransaction> pending;
+
+	/**
+	 * The extensions supported by the server (known once a connection is
+	 * opened)
+	 */
+	private volatile Set<String> extensions;
+
+	private int openedConnections;
+	private boolean closed;
+
+	public NioSmtpClient(String host, int port, String heloName, String username, String password, int maxConnections, int ioThreads, long idleTimeout, long readTimeout)
+			throws IOException {
+		this(host, port, heloName, username, password, false, maxConnections, ioThreads, idleTimeout, readTimeout);
+	}
+
+	/**
+	 * Initialize the client and start the I/O threads.
+	 * 
+	 * @param host
+	 *            the host of the SMTP server
+	 * @param port
+	 *            the port of the SMTP server
+	 * @param heloName
+	 *            the name sent with EHLO/HELO command
+	 * @param username
+	 *            the username used for authentication (null for no
+	 *            authentication)
+	 * @param password
+	 *            the password used for authentication
+	 * @param plaintextAuthAllowed
+	 *            true to send the credentials over the unencrypted connection
+	 *            (AUTH PLAIN), false to refuse authentication
+	 * @param maxConnections
+	 *            the maximum number of simultaneously opened connections
+	 * @param ioThreads
+	 *            the number of threads that handle the connections
+	 * @param idleTimeout
+	 *            delay (in milliseconds) before closing an unused connection
+	 * @param readTimeout
+	 *            maximum time (in milliseconds) to wait for a reply of the
+	 *            server
+	 * @throws IOException
+	 *             when the I/O threads can't be started
+	 */
+	public NioSmtpClient(String host, int port, String heloName, String username, String password, boolean plaintextAuthAllowed, int maxConnections, int ioThreads, long idleTimeout,
+			long readTimeout) throws IOException {
+		super();
+		this.address = new InetSocketAddress(host, port);
+		this.heloName = heloName;
+		this.username = username;
+		this.password = password;
+		this.plaintextAuthAllowed = plaintextAuthAllowed;
+		this.maxConnections = maxConnections;
+		this.idleTimeout = idleTimeout;
+		this.readTimeout = readTimeout;
+		this.idle = new ArrayDeque<>();
+		this.pending = new ArrayDeque<>();
+		this.nextLoop = new AtomicInteger();
+		this.extensions = Collections.emptySet();
+		this.loops = new SmtpEventLoop[ioThreads];
+		for (int i = 0; i < ioThreads; i++) {
+			loops[i] = new SmtpEventLoop("ogham-smtp-io-" + i);
+			loops[i].start();
+		}
+	}
+
+	/**
+	 * Send the message asynchronously.
+	 *
+	 * @param envelope
+	 *            the sender, the recipients and the content of the message
+	 * @return the transaction that can be used to wait for the result
+	 */
+	public SmtpTransaction send(SmtpEnvelope envelope) {
+		SmtpTransaction tx = new SmtpTransaction(envelope, this);
+		dispatch(tx);
+		return tx;
+	}
+
+	/**
+	 * Indicates if the server supports the extension. The extensions are only
+	 * known once a connection has been opened so this method returns false
+	 * before the first message is sent.
+	 *
+	 * @param extension
+	 *            the extension keyword (8BITMIME, SMTPUTF8...)
+	 * @return true if the server is known to support the extension
+	 */
+	public boolean supports(String extension) {
+		return extensions.contains(extension);
+	}
+
+	@Override
+	public void close() {
+		Deque<SmtpTransaction> failed;
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			failed = new ArrayDeque<>(pending);
+			pending.clear();
+			idle.clear();
+		}
+		for (SmtpTransaction tx : failed) {
+			tx.fail(new SmtpException("SMTP client closed"));
+		}
+		for (SmtpEventLoop loop : loops) {
+			loop.shutdown();
+		}
+	}
+
+	/**
+	 * Execute the transaction on an idle connection, on a new connection if
+	 * the limit is not reached or queue it until a connection is available.
+	 *
+	 * @param tx
+	 *            the transaction to execute
+	 */
+	void dispatch(final SmtpTransaction tx) {
+		final SmtpConnection connection;
+		boolean newConnection = false;
+		synchronized (this) {
+			if (closed) {
+				connection = null;
+			} else if (!idle.isEmpty()) {
+				connection = idle.pollFirst();
+			} else if (openedConnections < maxConnections) {
+				openedConnections++;
+				newConnection = true;
+				connection = new SmtpConnection(this, nextLoop());
+			} else {
+				LOG.debug("All SMTP connections are busy => transaction queued");
+				pending.add(tx);
+				return;
+			}
+		}
+		if (connection == null) {
+			tx.fail(new SmtpException("SMTP client closed"));
+		} else if (newConnection) {
+			connection.getLoop().execute(new Runnable() {
+				@Override
+				public void run() {
+					connection.connect(tx);
+				}
+			});
+		} else {
+			connection.getLoop().execute(new Runnable() {
+				@Override
+				public void run() {
+					connection.start(tx);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Called when a transaction is cancelled. If the transaction waits for a
+	 * connection, it is simply removed from the queue. If it is being
+	 * executed, the connection is closed so that the server aborts it.
+	 *
+	 * @param tx
+	 *            the cancelled transaction
+	 */
+	void cancel(final SmtpTransaction tx) {
+		synchronized (this) {
+			if (pending.remove(tx)) {
+				LOG.debug("SMTP transaction {} cancelled before being started", tx.getEnvelope());
+				return;
+			}
+		}
+		final SmtpConnection connection = tx.getConnection();
+		// if not attached yet, the connection skips the cancelled transaction
+		if (connection != null) {
+			connection.getLoop().execute(new Runnable() {
+				@Override
+				public void run() {
+					connection.cancel(tx);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Called by a connection that is ready for a new transaction.
+	 *
+	 * @param connection
+	 *            the ready connection
+	 * @return the next transaction to execute or null if there is no pending
+	 *         transaction (the connection is then considered idle)
+	 */
+	synchronized SmtpTransaction nextTransaction(SmtpConnection connection) {
+		SmtpTransaction tx = pending.poll();
+		if (tx == null && !closed) {
+			idle.addFirst(connection);
+		}
+		return tx;
+	}
+
+	/**
+	 * Remove the connection from the idle connections in order to close it.
+	 *
+	 * @param connection
+	 *            the connection to remove
+	 * @return true if the connection was idle, false if it has been selected
+	 *         for a new transaction in the meantime
+	 */
+	synchronized boolean removeIdle(SmtpConnection connection) {
+		return idle.remove(connection);
+	}
+
+	/**
+	 * Called when a connection is closed. If transactions are waiting for a
+	 * connection, a new connection is opened.
+	 *
+	 * @param connection
+	 *            the closed connection
+	 */
+	void onClosed(SmtpConnection connection) {
+		SmtpTransaction tx;
+		synchronized (this) {
+			idle.remove(connection);
+			openedConnections--;
+			tx = pending.poll();
+		}
+		if (tx != null) {
+			dispatch(tx);
+		}
+	}
+
+	void onExtensions(Set<String> serverExtensions) {
+		extensions = Collections.unmodifiableSet(new HashSet<>(serverExtensions));
+	}
+
+	synchronized boolean isClosed() {
+		return closed;
+	}
+
+	private SmtpEventLoop nextLoop() {
+		return loops[(nextLoop.getAndIncrement() & Integer.MAX_VALUE) % loops.length];
+	}
+
+	InetSocketAddress getAddress() {
+		return address;
+	}
+
+	String getHeloName() {
+		return heloName;
+	}
+
+	String getUsername() {
+		return username;
+	}
+
+	String getPassword() {
+		return password;
+	}
+
+	boolean isPlaintextAuthAllowed() {
+		return plaintextAuthAllowed;
+	}
+
+	long getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	long getReadTimeout() {
+		return readTimeout;
+	}
+
+	@Override
+	public String toString() {
+		return "NioSmtpClient [" + address + ", maxConnections=" + maxConnections + ", ioThreads=" + loops.length + "]";
+	}
+}
@@ -0,0 +1,661 @@
+package fr.sii.ogham.email.sender.impl.smtp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.util.Base64Utils;
+import fr.sii.ogham.email.exception.smtp.SmtpException;
+
+/**
+ * <p>
+ * A non-blocking connection to the SMTP server. The connection is a state
+ * machine driven by the replies of the server. Each sent command is queued
+ * until the matching reply is received.
+ * </p>
+ * <p>
+ * If the server supports ESMTP PIPELINING (see
+ * <a href="https://tools.ietf.org/html/rfc2920">RFC 2920</a>), the MAIL, RCPT
+ * and DATA commands of a transaction are sent at once. Otherwise, each command
+ * is sent only once the reply of the previous one is received.
+ * </p>
+ * <p>
+ * All methods MUST be called from the thread of the {@link SmtpEventLoop} that
+ * owns the connection.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+class SmtpConnection {
+	private static final Logger LOG = LoggerFactory.getLogger(SmtpConnection.class);
+
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+	private static final int BUFFER_SIZE = 8192;
+	private static final String CRLF = "\r\n";
+
+	private enum CommandType {
+		GREETING, EHLO, HELO, AUTH, MAIL, RCPT, DATA, DATA_END, RSET, QUIT
+	}
+
+	/**
+	 * A sent command that waits for its reply
+	 */
+	private static class Command {
+		private final CommandType type;
+		private final ByteBuffer content;
+		private final String recipient;
+
+		Command(CommandType type, ByteBuffer content, String recipient) {
+			super();
+			this.type = type;
+			this.content = content;
+			this.recipient = recipient;
+		}
+
+		Command(CommandType type, String line) {
+			this(type, line == null ? null : ByteBuffer.wrap((line + CRLF).getBytes(CHARSET)), null);
+		}
+	}
+
+	private final NioSmtpClient client;
+	private final SmtpEventLoop loop;
+
+	private SocketChannel channel;
+	private SelectionKey key;
+	private final ByteBuffer readBuffer;
+	private final ByteArrayOutputStream currentLine;
+	private final List<String> replyLines;
+	private final Deque<ByteBuffer> writeQueue;
+
+	/**
+	 * The message data being written (read by chunks into
+	 * {@link #contentBuffer})
+	 */
+	private ReadableByteChannel content;
+	private ByteBuffer contentBuffer;
+
+	/**
+	 * Commands that are sent and wait for a reply
+	 */
+	private final Deque<Command> inFlight;
+
+	/**
+	 * Commands that are not sent yet (if pipelining is not supported)
+	 */
+	private final Deque<Command> toSend;
+
+	/**
+	 * The extensions supported by the server (EHLO keywords)
+	 */
+	private final Set<String> extensions;
+
+	private boolean pipelining;
+	private boolean ready;
+	private boolean closed;
+
+	/**
+	 * Last time some bytes have been either read or written
+	 */
+	private long lastActivity;
+
+	/**
+	 * The transaction to execute once the connection is opened
+	 */
+	private SmtpTransaction firstTransaction;
+
+	/**
+	 * The current transaction
+	 */
+	private SmtpTransaction transaction;
+	private boolean mailAccepted;
+	private boolean contentSent;
+	private SmtpReply mailReply;
+	private List<String> acceptedRecipients;
+	private Map<String, SmtpReply> rejectedRecipients;
+
+	SmtpConnection(NioSmtpClient client, SmtpEventLoop loop) {
+		super();
+		this.client = client;
+		this.loop = loop;
+		this.readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+		this.currentLine = new ByteArrayOutputStream();
+		this.replyLines = new ArrayList<>();
+		this.writeQueue = new ArrayDeque<>();
+		this.inFlight = new ArrayDeque<>();
+		this.toSend = new ArrayDeque<>();
+		this.extensions = new HashSet<>();
+	}
+
+	SmtpEventLoop getLoop() {
+		return loop;
+	}
+
+	/**
+	 * Open the connection. The transaction is executed once the server is
+	 * ready.
+	 *
+	 * @param tx
+	 *            the first transaction to execute
+	 */
+	void connect(SmtpTransaction tx) {
+		firstTransaction = tx;
+		tx.attach(this);
+		if (client.isClosed()) {
+			fail(new SmtpException("SMTP client closed"));
+			return;
+		}
+		try {
+			LOG.debug("Opening SMTP connection to {}", client.getAddress());
+			channel = SocketChannel.open();
+			channel.configureBlocking(false);
+			boolean connected = channel.connect(client.getAddress());
+			key = channel.register(loop.getSelector(), connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, this);
+			lastActivity = System.currentTimeMillis();
+			// the server speaks first
+			inFlight.add(new Command(CommandType.GREETING, null));
+		} catch (IOException | RuntimeException e) {
+			fail(e);
+		}
+	}
+
+	/**
+	 * Execute the transaction on this (idle) connection.
+	 *
+	 * @param tx
+	 *            the transaction to execute
+	 */
+	void start(SmtpTransaction tx) {
+		if (closed) {
+			// closed while waiting in the idle pool => use another connection
+			client.dispatch(tx);
+			return;
+		}
+		tx.attach(this);
+		if (tx.isCancelled()) {
+			LOG.debug("SMTP transaction for {} cancelled before being started", tx.getEnvelope());
+			onReady();
+			return;
+		}
+		transaction = tx;
+		mailAccepted = false;
+		contentSent = false;
+		mailReply = null;
+		acceptedRecipients = new ArrayList<>();
+		rejectedRecipients = new LinkedHashMap<>();
+		SmtpEnvelope envelope = tx.getEnvelope();
+		LOG.debug("Starting SMTP transaction for {} (pipelining={})", envelope, pipelining);
+		toSend.add(new Command(CommandType.MAIL, "MAIL FROM:<" + envelope.getSender() + ">" + getMailParameters(envelope)));
+		for (String recipient : envelope.getRecipients()) {
+			toSend.add(new Command(CommandType.RCPT, ByteBuffer.wrap(("RCPT TO:<" + recipient + ">" + CRLF).getBytes(CHARSET)), recipient));
+		}
+		toSend.add(new Command(CommandType.DATA, "DATA"));
+		flushCommands();
+	}
+
+	void onConnectable() throws IOException {
+		if (channel.finishConnect()) {
+			lastActivity = System.currentTimeMillis();
+			key.interestOps(SelectionKey.OP_READ);
+		}
+	}
+
+	void onReadable() throws IOException {
+		int read = channel.read(readBuffer);
+		if (read < 0) {
+			throw new IOException("Connection closed by the SMTP server");
+		}
+		lastActivity = System.currentTimeMillis();
+		readBuffer.flip();
+		while (readBuffer.hasRemaining() && !closed) {
+			byte b = readBuffer.get();
+			if (b == '\n') {
+				onLine(new String(currentLine.toByteArray(), CHARSET));
+				currentLine.reset();
+			} else if (b != '\r') {
+				currentLine.write(b);
+			}
+		}
+		readBuffer.clear();
+	}
+
+	void onWritable() throws IOException {
+		while (!writeQueue.isEmpty()) {
+			ByteBuffer buffer = writeQueue.peek();
+			if (channel.write(buffer) > 0) {
+				// a large content may take longer than the read timeout
+				lastActivity = System.currentTimeMillis();
+			}
+			if (buffer.hasRemaining()) {
+				// socket buffer is full => wait until it is writable again
+				key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				return;
+			}
+			if (buffer == contentBuffer && readContent()) {
+				// next chunk of the message data
+				continue;
+			}
+			writeQueue.poll();
+		}
+		key.interestOps(SelectionKey.OP_READ);
+	}
+
+	/**
+	 * Check if the connection has been idle for too long or if the server
+	 * doesn't reply in time.
+	 *
+	 * @param now
+	 *            the current time
+	 */
+	void checkTimeout(long now) {
+		if (closed) {
+			return;
+		}
+		long elapsed = now - lastActivity;
+		if (!inFlight.isEmpty() || !writeQueue.isEmpty()) {
+			if (elapsed > client.getReadTimeout()) {
+				fail(new SmtpException("No reply from the SMTP server after " + elapsed + "ms"));
+			}
+		} else if (ready && transaction == null && elapsed > client.getIdleTimeout() && client.removeIdle(this)) {
+			LOG.debug("SMTP connection idle for {}ms => close it", elapsed);
+			ready = false;
+			send(new Command(CommandType.QUIT, "QUIT"));
+		}
+	}
+
+	/**
+	 * Cancel the transaction if it is executed by this connection. If the
+	 * transaction is in progress, the connection is closed because it is the
+	 * only way to abort a transaction whose commands are already sent. The
+	 * server discards a message whose content has not been entirely received.
+	 *
+	 * @param tx
+	 *            the cancelled transaction
+	 */
+	void cancel(SmtpTransaction tx) {
+		if (closed) {
+			return;
+		}
+		if (tx == firstTransaction) {
+			// not started yet
+			firstTransaction = null;
+			return;
+		}
+		if (tx != transaction) {
+			return;
+		}
+		if (contentSent) {
+			LOG.warn("SMTP transaction for {} cancelled after its content has been sent. The server may still deliver the message", tx.getEnvelope());
+		}
+		fail(new SmtpException("SMTP transaction cancelled"));
+	}
+
+	/**
+	 * Close the connection due to an error. The current transaction (if any)
+	 * fails.
+	 *
+	 * @param cause
+	 *            the cause of the failure
+	 */
+	void fail(Throwable cause) {
+		if (closed) {
+			return;
+		}
+		LOG.debug("SMTP connection failure", cause);
+		SmtpException failure = cause instanceof SmtpException ? (SmtpException) cause : new SmtpException("SMTP communication failure", cause);
+		failTransaction(firstTransaction, failure);
+		failTransaction(transaction, failure);
+		firstTransaction = null;
+		transaction = null;
+		close();
+	}
+
+	/**
+	 * Close the connection without sending QUIT.
+	 */
+	void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		ready = false;
+		closeContent();
+		if (key != null) {
+			key.cancel();
+		}
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				LOG.debug("Failed to close SMTP connection", e);
+			}
+		}
+		failTransaction(firstTransaction, new SmtpException("SMTP connection closed"));
+		failTransaction(transaction, new SmtpException("SMTP connection closed"));
+		client.onClosed(this);
+	}
+
+	boolean supports(String extension) {
+		return extensions.contains(extension);
+	}
+
+	/**
+	 * Parameters of the MAIL command according to the content of the envelope
+	 * and the extensions supported by the server.
+	 *
+	 * @param envelope
+	 *            the envelope to send
+	 * @return the parameters (starting with a space) or empty string
+	 */
+	private String getMailParameters(SmtpEnvelope envelope) {
+		StringBuilder params = new StringBuilder();
+		if (envelope.isEightBitMime() && supports("8BITMIME")) {
+			params.append(" BODY=8BITMIME");
+		}
+		if (supports("SMTPUTF8") && !isAscii(envelope)) {
+			params.append(" SMTPUTF8");
+		}
+		return params.toString();
+	}
+
+	private static boolean isAscii(SmtpEnvelope envelope) {
+		if (!ASCII.newEncoder().canEncode(envelope.getSender())) {
+			return false;
+		}
+		for (String recipient : envelope.getRecipients()) {
+			if (!ASCII.newEncoder().canEncode(recipient)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void onLine(String line) {
+		if (line.length() < 3) {
+			fail(new SmtpException("Invalid SMTP reply: " + line));
+			return;
+		}
+		replyLines.add(line.length() > 4 ? line.substring(4) : "");
+		// "250-" => more lines to come, "250 " or "250" => last line
+		if (line.length() > 3 && line.charAt(3) == '-') {
+			return;
+		}
+		int code;
+		try {
+			code = Integer.parseInt(line.substring(0, 3));
+		} catch (NumberFormatException e) {
+			fail(new SmtpException("Invalid SMTP reply: " + line, e));
+			return;
+		}
+		SmtpReply reply = new SmtpReply(code, replyLines);
+		replyLines.clear();
+		onReply(reply);
+	}
+
+	private void onReply(SmtpReply reply) {
+		Command command = inFlight.poll();
+		if (command == null) {
+			// for example 421 (service shutting down)
+			fail(new SmtpException("Unexpected reply from SMTP server", reply));
+			return;
+		}
+		LOG.trace("SMTP {} => {}", command.type, reply);
+		switch (command.type) {
+			case GREETING:
+				onGreeting(reply);
+				break;
+			case EHLO:
+				onEhlo(reply);
+				break;
+			case HELO:
+			case AUTH:
+				if (!reply.isPositiveCompletion()) {
+					fail(new SmtpException(command.type + " rejected by SMTP server", reply));
+					return;
+				}
+				onReady();
+				break;
+			case MAIL:
+				onMail(reply);
+				break;
+			case RCPT:
+				onRcpt(command.recipient, reply);
+				break;
+			case DATA:
+				onData(reply);
+				break;
+			case DATA_END:
+				onDataEnd(reply);
+				break;
+			case RSET:
+				if (!reply.isPositiveCompletion()) {
+					fail(new SmtpException("RSET rejected by SMTP server", reply));
+					return;
+				}
+				onReady();
+				break;
+			case QUIT:
+			default:
+				close();
+				return;
+		}
+		flushCommands();
+	}
+
+	private void onGreeting(SmtpReply reply) {
+		if (reply.getCode() != 220) {
+			fail(new SmtpException("SMTP server is not available", reply));
+			return;
+		}
+		send(new Command(CommandType.EHLO, "EHLO " + client.getHeloName()));
+	}
+
+	private void onEhlo(SmtpReply reply) {
+		if (!reply.isPositiveCompletion()) {
+			// not an ESMTP server
+			send(new Command(CommandType.HELO, "HELO " + client.getHeloName()));
+			return;
+		}
+		List<String> lines = reply.getLines();
+		// first line is the greeting, next lines are the supported extensions
+		for (int i = 1; i < lines.size(); i++) {
+			String keyword = lines.get(i).trim().split(" ")[0];
+			extensions.add(keyword.toUpperCase(Locale.ENGLISH));
+		}
+		pipelining = extensions.contains("PIPELINING");
+		client.onExtensions(extensions);
+		LOG.debug("SMTP server extensions: {}", extensions);
+		if (client.getUsername() != null) {
+			if (!client.isPlaintextAuthAllowed()) {
+				// TLS is not supported => credentials would be sent in clear
+				fail(new SmtpException("Authentication refused because the connection is not encrypted. Allow plaintext authentication explicitly to send the credentials anyway"));
+				return;
+			}
+			String credentials = "\0" + client.getUsername() + "\0" + client.getPassword();
+			send(new Command(CommandType.AUTH, "AUTH PLAIN " + Base64Utils.encodeToString(credentials.getBytes(CHARSET))));
+		} else {
+			onReady();
+		}
+	}
+
+	private void onMail(SmtpReply reply) {
+		mailAccepted = reply.isPositiveCompletion();
+		if (!mailAccepted) {
+			mailReply = reply;
+			if (!pipelining) {
+				abortTransaction(new SmtpException("Sender " + transaction.getEnvelope().getSender() + " rejected by SMTP server", reply));
+			}
+		}
+	}
+
+	private void onRcpt(String recipient, SmtpReply reply) {
+		if (reply.isPositiveCompletion()) {
+			acceptedRecipients.add(recipient);
+		} else {
+			rejectedRecipients.put(recipient, reply);
+		}
+		// without pipelining, don't send DATA if no recipient is accepted
+		if (!pipelining && acceptedRecipients.isEmpty() && !toSend.isEmpty() && toSend.peek().type == CommandType.DATA) {
+			abortTransaction(new SmtpException("All recipients rejected by SMTP server: " + rejectedRecipients));
+		}
+	}
+
+	private void onData(SmtpReply reply) {
+		if (!reply.isPositiveIntermediate()) {
+			if (mailReply != null) {
+				abortTransaction(new SmtpException("Sender " + transaction.getEnvelope().getSender() + " rejected by SMTP server", mailReply));
+			} else if (acceptedRecipients.isEmpty()) {
+				abortTransaction(new SmtpException("All recipients rejected by SMTP server: " + rejectedRecipients));
+			} else {
+				abortTransaction(new SmtpException("DATA rejected by SMTP server", reply));
+			}
+			return;
+		}
+		if (!mailAccepted || acceptedRecipients.isEmpty()) {
+			// the server should have rejected DATA => the only way to abort
+			// the transaction is to close the connection
+			fail(new SmtpException("SMTP server accepted DATA command although the transaction is invalid", reply));
+			return;
+		}
+		// send the content (already terminated by <CRLF>.<CRLF>) by chunks
+		try {
+			content = transaction.getEnvelope().getData().open();
+		} catch (IOException e) {
+			fail(e);
+			return;
+		}
+		if (contentBuffer == null) {
+			contentBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+		}
+		// empty => the first chunk is read when the buffer is written
+		contentBuffer.clear().flip();
+		contentSent = true;
+		send(new Command(CommandType.DATA_END, contentBuffer, null));
+	}
+
+	/**
+	 * Read the next chunk of the message data into the content buffer.
+	 *
+	 * @return true if a chunk has been read, false if all the data has been
+	 *         read
+	 * @throws IOException
+	 *             when the data couldn't be read
+	 */
+	private boolean readContent() throws IOException {
+		if (content == null) {
+			return false;
+		}
+		contentBuffer.clear();
+		int read = content.read(contentBuffer);
+		contentBuffer.flip();
+		if (read < 0) {
+			closeContent();
+			return false;
+		}
+		return true;
+	}
+
+	private void closeContent() {
+		if (content != null) {
+			try {
+				content.close();
+			} catch (IOException e) {
+				LOG.debug("Failed to close message data", e);
+			}
+			content = null;
+		}
+	}
+
+	private void onDataEnd(SmtpReply reply) {
+		SmtpTransaction tx = transaction;
+		transaction = null;
+		if (reply.isPositiveCompletion()) {
+			LOG.debug("SMTP transaction done: {}", reply);
+			tx.complete(new SmtpResult(acceptedRecipients, rejectedRecipients, reply));
+		} else {
+			tx.fail(new SmtpException("Message rejected by SMTP server", reply));
+		}
+		onReady();
+	}
+
+	/**
+	 * Fail the current transaction and reset the SMTP session.
+	 *
+	 * @param failure
+	 *            the cause of the failure
+	 */
+	private void abortTransaction(SmtpException failure) {
+		failTransaction(transaction, failure);
+		transaction = null;
+		toSend.clear();
+		send(new Command(CommandType.RSET, "RSET"));
+	}
+
+	/**
+	 * The connection is ready for a new transaction.
+	 */
+	private void onReady() {
+		ready = true;
+		SmtpTransaction next = firstTransaction;
+		firstTransaction = null;
+		if (next != null && next.isCancelled()) {
+			next = null;
+		}
+		if (next == null) {
+			next = client.nextTransaction(this);
+		}
+		if (next != null) {
+			start(next);
+		}
+	}
+
+	private void send(Command command) {
+		toSend.add(command);
+		flushCommands();
+	}
+
+	/**
+	 * Write the pending commands. If pipelining is supported, all commands are
+	 * written at once. Otherwise, a command is written only if no other
+	 * command waits for its reply.
+	 */
+	private void flushCommands() {
+		boolean written = false;
+		while (!closed && !toSend.isEmpty() && (pipelining || inFlight.isEmpty())) {
+			Command command = toSend.poll();
+			inFlight.add(command);
+			writeQueue.add(command.content);
+			written = true;
+		}
+		if (written) {
+			try {
+				onWritable();
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+	}
+
+	private static void failTransaction(SmtpTransaction tx, SmtpException failure) {
+		if (tx != null) {
+			tx.fail(failure);
+		}
+	}
+}
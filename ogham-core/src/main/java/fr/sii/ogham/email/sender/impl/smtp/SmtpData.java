@@ -0,0 +1,112 @@
+package fr.sii.ogham.email.sender.impl.smtp;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.util.SpillingOutputStream;
+
+/**
+ * <p>
+ * The message data, ready to be transmitted after the DATA command (see
+ * {@link SmtpDataOutputStream}). The data is either kept in memory or in a
+ * temporary file. The connection reads it by chunks while writing it into the
+ * socket so a big message (with attachments for example) is never entirely
+ * loaded in memory.
+ * </p>
+ * <p>
+ * The data can be read several times (once per group of recipients for
+ * example). Call {@link #close()} to delete the temporary file once all the
+ * transactions that use the data are done.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class SmtpData implements Closeable {
+	private static final Logger LOG = LoggerFactory.getLogger(SmtpData.class);
+
+	/**
+	 * The data in memory (null if in a file)
+	 */
+	private final byte[] bytes;
+
+	/**
+	 * The file that contains the data (null if in memory)
+	 */
+	private final File file;
+
+	/**
+	 * The number of bytes
+	 */
+	private final long size;
+
+	/**
+	 * Initialize with data in memory.
+	 *
+	 * @param bytes
+	 *            the message data (dot-stuffed, terminated by
+	 *            &lt;CRLF&gt;.&lt;CRLF&gt;)
+	 */
+	public SmtpData(byte[] bytes) {
+		this(bytes, null, bytes.length);
+	}
+
+	/**
+	 * Initialize with the data written by a {@link SmtpDataOutputStream} into
+	 * a {@link SpillingOutputStream}. The stream must be closed.
+	 *
+	 * @param spooled
+	 *            the stream that contains the message data
+	 */
+	public SmtpData(SpillingOutputStream spooled) {
+		this(spooled.toByteArray(), spooled.getFile(), spooled.size());
+	}
+
+	private SmtpData(byte[] bytes, File file, long size) {
+		super();
+		this.bytes = bytes;
+		this.file = file;
+		this.size = size;
+	}
+
+	/**
+	 * Open a new channel to read the data from the beginning.
+	 *
+	 * @return the channel to read the data
+	 * @throws IOException
+	 *             when the temporary file can't be read
+	 */
+	public ReadableByteChannel open() throws IOException {
+		if (file != null) {
+			return new FileInputStream(file).getChannel();
+		}
+		return Channels.newChannel(new ByteArrayInputStream(bytes));
+	}
+
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Delete the temporary file (if any).
+	 */
+	@Override
+	public void close() {
+		if (file != null && file.exists() && !file.delete()) {
+			LOG.warn("Failed to delete {}", file);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return file == null ? "SmtpData [size=" + size + "]" : "SmtpData [size=" + size + ", file=" + file + "]";
+	}
+}
@@ -0,0 +1,100 @@
+package fr.sii.ogham.email.sender.impl.smtp;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Stream that transforms the message content into SMTP DATA format (see
+ * <a href="https://tools.ietf.org/html/rfc5321#section-4.5.2">RFC 5321</a>):
+ * <ul>
+ * <li>Line endings are normalized to &lt;CRLF&gt;</li>
+ * <li>Lines starting with a '.' are prefixed by an additional '.'</li>
+ * <li>{@link #finish()} terminates the data with &lt;CRLF&gt;.&lt;CRLF&gt;</li>
+ * </ul>
+ *
+ * @author Aurélien Baudet
+ *
+ */
+public class SmtpDataOutputStream extends FilterOutputStream {
+	private static final byte[] CRLF = { '\r', '\n' };
+	private static final byte[] END = { '.', '\r', '\n' };
+
+	/**
+	 * The last written byte
+	 */
+	private int last;
+
+	/**
+	 * Whether the next byte is at the beginning of a line
+	 */
+	private boolean beginningOfLine;
+
+	public SmtpDataOutputStream(OutputStream out) {
+		super(out);
+		beginningOfLine = true;
+		last = -1;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (b == '\r') {
+			out.write(CRLF);
+			beginningOfLine = true;
+		} else if (b == '\n') {
+			// \r has already been written as CRLF
+			if (last != '\r') {
+				out.write(CRLF);
+			}
+			beginningOfLine = true;
+		} else {
+			if (beginningOfLine && b == '.') {
+				out.write('.');
+			}
+			out.write(b);
+			beginningOfLine = false;
+		}
+		last = b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		int start = off;
+		int end = off + len;
+		for (int i = off; i < end; i++) {
+			byte c = b[i];
+			if (c == '\r' || c == '\n' || (c == '.' && i == start && beginningOfLine)) {
+				// write the bytes that don't need transformation at once
+				out.write(b, start, i - start);
+				if (i > start) {
+					last = b[i - 1];
+					beginningOfLine = false;
+				}
+				write(c);
+				start = i + 1;
+			}
+		}
+		if (end > start) {
+			out.write(b, start, end - start);
+			last = b[end - 1];
+			beginningOfLine = false;
+		}
+	}
+
+	/**
+	 * Terminate the data with &lt;CRLF&gt;.&lt;CRLF&gt; (a &lt;CRLF&gt; is only
+	 * added if the data doesn't already end with a line ending). The
+	 * underlying stream is not closed.
+	 *
+	 * @throws IOException
+	 *             when the underlying stream can't be written
+	 */
+	public void finish() throws IOException {
+		if (!beginningOfLine) {
+			out.write(CRLF);
+		}
+		out.write(END);
+		out.flush();
+		beginningOfLine = true;
+	}
+}
@@ -0,0 +1,125 @@
+package fr.sii.ogham.email.sender.impl.smtp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The information needed by the SMTP server to deliver a message:
+ * <ul>
+ * <li>The sender address (used in MAIL FROM command)</li>
+ * <li>The recipient addresses (used in RCPT TO commands)</li>
+ * <li>The message data, ready to be transmitted after the DATA command (see
+ * {@link SmtpData})</li>
+ * </ul>
+ * 
+ * <p>
+ * The envelope is immutable. The same data can be shared by several envelopes
+ * (one per group of recipients for example).
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class SmtpEnvelope {
+	/**
+	 * The sender address
+	 */
+	private final String sender;
+
+	/**
+	 * The recipient addresses
+	 */
+	private final List<String> recipients;
+
+	/**
+	 * The message data (dot-stuffed, terminated by &lt;CRLF&gt;.&lt;CRLF&gt;)
+	 */
+	private final SmtpData data;
+
+	/**
+	 * Whether the data contains 8bit parts (sent with BODY=8BITMIME)
+	 */
+	private final boolean eightBitMime;
+
+	/**
+	 * Initialize the envelope.
+	 * 
+	 * @param sender
+	 *            the sender address
+	 * @param recipients
+	 *            the recipient addresses
+	 * @param data
+	 *            the message data (dot-stuffed, terminated by
+	 *            &lt;CRLF&gt;.&lt;CRLF&gt;)
+	 */
+	public SmtpEnvelope(String sender, List<String> recipients, byte[] data) {
+		this(sender, recipients, data, false);
+	}
+
+	/**
+	 * Initialize the envelope.
+	 * 
+	 * @param sender
+	 *            the sender address
+	 * @param recipients
+	 *            the recipient addresses
+	 * @param data
+	 *            the message data (dot-stuffed, terminated by
+	 *            &lt;CRLF&gt;.&lt;CRLF&gt;)
+	 * @param eightBitMime
+	 *            true if the data contains 8bit parts
+	 */
+	public SmtpEnvelope(String sender, List<String> recipients, byte[] data, boolean eightBitMime) {
+		this(sender, recipients, new SmtpData(data), eightBitMime);
+	}
+
+	/**
+	 * Initialize the envelope.
+	 * 
+	 * @param sender
+	 *            the sender address
+	 * @param recipients
+	 *            the recipient addresses
+	 * @param data
+	 *            the message data (dot-stuffed, terminated by
+	 *            &lt;CRLF&gt;.&lt;CRLF&gt;)
+	 * @param eightBitMime
+	 *            true if the data contains 8bit parts
+	 */
+	public SmtpEnvelope(String sender, List<String> recipients, SmtpData data, boolean eightBitMime) {
+		super();
+		this.sender = sender;
+		this.recipients = Collections.unmodifiableList(new ArrayList<>(recipients));
+		this.data = data;
+		this.eightBitMime = eightBitMime;
+	}
+
+	public String getSender() {
+		return sender;
+	}
+
+	public List<String> getRecipients() {
+		return recipients;
+	}
+
+	/**
+	 * The message data. It is shared by the envelopes of the same message.
+	 * 
+	 * @return the message data
+	 */
+	public SmtpData getData() {
+		return data;
+	}
+
+	public boolean isEightBitMime() {
+		return eightBitMime;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("SmtpEnvelope [sender=").append(sender).append(", recipients=").append(recipients).append(", size=").append(data.size()).append("]");
+		return builder.toString();
+	}
+}
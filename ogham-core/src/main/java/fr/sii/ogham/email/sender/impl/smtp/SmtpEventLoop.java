@@ -0,0 +1,141 @@
+package fr.sii.ogham.email.sender.impl.smtp;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A thread that handles many SMTP connections using a single
+ * {@link Selector}. All the operations on a connection are executed by the
+ * thread of the loop that owns the connection so connections don't need any
+ * synchronization.
+ *
+ * @author Aurélien Baudet
+ *
+ */
+class SmtpEventLoop implements Runnable {
+	private static final Logger LOG = LoggerFactory.getLogger(SmtpEventLoop.class);
+
+	/**
+	 * Maximum time to wait for I/O events before checking timeouts
+	 */
+	private static final long SELECT_TIMEOUT = 1000;
+
+	private final Selector selector;
+
+	/**
+	 * Tasks submitted by other threads
+	 */
+	private final Queue<Runnable> tasks;
+
+	private final Thread thread;
+
+	private volatile boolean running;
+
+	SmtpEventLoop(String name) throws IOException {
+		super();
+		this.selector = Selector.open();
+		this.tasks = new ConcurrentLinkedQueue<>();
+		this.running = true;
+		this.thread = new Thread(this, name);
+		this.thread.setDaemon(true);
+	}
+
+	void start() {
+		thread.start();
+	}
+
+	/**
+	 * Execute the task in the thread of the loop.
+	 *
+	 * @param task
+	 *            the task to execute
+	 */
+	void execute(Runnable task) {
+		tasks.add(task);
+		selector.wakeup();
+	}
+
+	Selector getSelector() {
+		return selector;
+	}
+
+	void shutdown() {
+		running = false;
+		selector.wakeup();
+	}
+
+	@Override
+	public void run() {
+		while (running) {
+			try {
+				selector.select(SELECT_TIMEOUT);
+				runTasks();
+				processSelectedKeys();
+				checkTimeouts();
+			} catch (IOException | RuntimeException e) {
+				LOG.error("Unexpected error in SMTP event loop", e);
+			}
+		}
+		closeAll();
+	}
+
+	private void runTasks() {
+		Runnable task;
+		while ((task = tasks.poll()) != null) {
+			try {
+				task.run();
+			} catch (RuntimeException e) {
+				LOG.error("SMTP task has failed", e);
+			}
+		}
+	}
+
+	private void processSelectedKeys() {
+		Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+		while (it.hasNext()) {
+			SelectionKey key = it.next();
+			it.remove();
+			SmtpConnection connection = (SmtpConnection) key.attachment();
+			try {
+				if (key.isValid() && key.isConnectable()) {
+					connection.onConnectable();
+				}
+				if (key.isValid() && key.isReadable()) {
+					connection.onReadable();
+				}
+				if (key.isValid() && key.isWritable()) {
+					connection.onWritable();
+				}
+			} catch (IOException | RuntimeException e) {
+				connection.fail(e);
+			}
+		}
+	}
+
+	private void checkTimeouts() {
+		long now = System.currentTimeMillis();
+		for (SelectionKey key : selector.keys()) {
+			((SmtpConnection) key.attachment()).checkTimeout(now);
+		}
+	}
+
+	private void closeAll() {
+		for (SelectionKey key : selector.keys()) {
+			((SmtpConnection) key.attachment()).close();
+		}
+		// pending tasks may still hold transactions
+		runTasks();
+		try {
+			selector.close();
+		} catch (IOException e) {
+			LOG.debug("Failed to close selector", e);
+		}
+	}
+}
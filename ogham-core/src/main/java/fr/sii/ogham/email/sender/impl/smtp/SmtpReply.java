@@ -0,0 +1,64 @@
+package fr.sii.ogham.email.sender.impl.smtp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import fr.sii.ogham.core.util.StringUtils;
+
+/**
+ * A reply of the SMTP server. A reply is composed of a three digits code and
+ * one or several lines of text.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class SmtpReply {
+	/**
+	 * The reply code
+	 */
+	private final int code;
+
+	/**
+	 * The text lines (without the code)
+	 */
+	private final List<String> lines;
+
+	public SmtpReply(int code, List<String> lines) {
+		super();
+		this.code = code;
+		this.lines = Collections.unmodifiableList(new ArrayList<>(lines));
+	}
+
+	public int getCode() {
+		return code;
+	}
+
+	public List<String> getLines() {
+		return lines;
+	}
+
+	/**
+	 * The requested action has been successfully completed (2xx code).
+	 * 
+	 * @return true if the code is 2xx
+	 */
+	public boolean isPositiveCompletion() {
+		return code / 100 == 2;
+	}
+
+	/**
+	 * The command has been accepted but the server waits for more information
+	 * (3xx code).
+	 * 
+	 * @return true if the code is 3xx
+	 */
+	public boolean isPositiveIntermediate() {
+		return code / 100 == 3;
+	}
+
+	@Override
+	public String toString() {
+		return code + " " + StringUtils.join(lines, " ");
+	}
+}
@@ -0,0 +1,56 @@
+package fr.sii.ogham.email.sender.impl.smtp;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of a SMTP transaction: the message has been accepted by the
+ * server for the accepted recipients. The other recipients have been rejected
+ * by the server.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class SmtpResult {
+	/**
+	 * The recipients accepted by the server
+	 */
+	private final List<String> acceptedRecipients;
+
+	/**
+	 * The recipients rejected by the server with the associated reply
+	 */
+	private final Map<String, SmtpReply> rejectedRecipients;
+
+	/**
+	 * The reply of the server once the message data is transmitted
+	 */
+	private final SmtpReply reply;
+
+	public SmtpResult(List<String> acceptedRecipients, Map<String, SmtpReply> rejectedRecipients, SmtpReply reply) {
+		super();
+		this.acceptedRecipients = Collections.unmodifiableList(acceptedRecipients);
+		this.rejectedRecipients = Collections.unmodifiableMap(rejectedRecipients);
+		this.reply = reply;
+	}
+
+	public List<String> getAcceptedRecipients() {
+		return acceptedRecipients;
+	}
+
+	public Map<String, SmtpReply> getRejectedRecipients() {
+		return rejectedRecipients;
+	}
+
+	public SmtpReply getReply() {
+		return reply;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("SmtpResult [accepted=").append(acceptedRecipients).append(", rejected=").append(rejectedRecipients).append(", reply=").append(reply).append("]");
+		return builder.toString();
+	}
+}
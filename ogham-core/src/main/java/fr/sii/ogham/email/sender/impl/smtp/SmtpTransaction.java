@@ -0,0 +1,165 @@
+package fr.sii.ogham.email.sender.impl.smtp;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import fr.sii.ogham.email.exception.smtp.SmtpException;
+
+/**
+ * A pending SMTP transaction (MAIL, RCPT..., DATA). The transaction is
+ * executed asynchronously by the {@link NioSmtpClient}. Use
+ * {@link #get(long, TimeUnit)} to wait for the result.
+ * <p>
+ * If the transaction is not completed in time, it is cancelled: it is removed
+ * from the queue of the client if it is not started yet. Otherwise, the
+ * connection that executes it is closed so the server aborts the transaction.
+ * Only if the whole content has already been sent, the server may still
+ * deliver the message.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class SmtpTransaction {
+	/**
+	 * The envelope to deliver
+	 */
+	private final SmtpEnvelope envelope;
+
+	/**
+	 * Released once the transaction is either completed or failed
+	 */
+	private final CountDownLatch done;
+
+	/**
+	 * Ensures that the transaction is completed only once
+	 */
+	private final AtomicBoolean finished;
+
+	/**
+	 * The client that executes the transaction (null if not sent through a
+	 * client)
+	 */
+	private final NioSmtpClient client;
+
+	/**
+	 * The connection that executes the transaction (null if not started yet)
+	 */
+	private volatile SmtpConnection connection;
+
+	private volatile boolean cancelled;
+
+	private volatile SmtpResult result;
+
+	private volatile SmtpException failure;
+
+	public SmtpTransaction(SmtpEnvelope envelope) {
+		this(envelope, null);
+	}
+
+	SmtpTransaction(SmtpEnvelope envelope, NioSmtpClient client) {
+		super();
+		this.envelope = envelope;
+		this.client = client;
+		this.done = new CountDownLatch(1);
+		this.finished = new AtomicBoolean(false);
+	}
+
+	public SmtpEnvelope getEnvelope() {
+		return envelope;
+	}
+
+	/**
+	 * Wait for the transaction to be executed. If the transaction is not
+	 * completed in time, it is cancelled.
+	 * 
+	 * @param timeout
+	 *            the maximum time to wait
+	 * @param unit
+	 *            the unit of the timeout
+	 * @return the result of the transaction
+	 * @throws SmtpException
+	 *             when the transaction has failed or has not been executed in
+	 *             time
+	 * @throws InterruptedException
+	 *             when the current thread is interrupted while waiting
+	 */
+	public SmtpResult get(long timeout, TimeUnit unit) throws SmtpException, InterruptedException {
+		if (!done.await(timeout, unit)) {
+			SmtpException timedOut = new SmtpException("SMTP transaction not completed after " + unit.toMillis(timeout) + "ms => transaction cancelled");
+			if (cancel(timedOut)) {
+				throw timedOut;
+			}
+			// completed in the meantime
+		}
+		if (failure != null) {
+			throw failure;
+		}
+		return result;
+	}
+
+	/**
+	 * @return true if the transaction is either completed or failed
+	 */
+	public boolean isDone() {
+		return done.getCount() == 0;
+	}
+
+	/**
+	 * @return true if the transaction has been cancelled because it was not
+	 *         completed in time
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Cancel the transaction if it is not completed yet.
+	 * 
+	 * @param failure
+	 *            the cause of the cancellation
+	 * @return true if the transaction is cancelled, false if it was already
+	 *         completed or failed
+	 */
+	boolean cancel(SmtpException failure) {
+		if (!finished.compareAndSet(false, true)) {
+			return false;
+		}
+		this.failure = failure;
+		cancelled = true;
+		done.countDown();
+		if (client != null) {
+			client.cancel(this);
+		}
+		return true;
+	}
+
+	/**
+	 * Called by the connection that starts executing the transaction.
+	 * 
+	 * @param connection
+	 *            the connection that executes the transaction
+	 */
+	void attach(SmtpConnection connection) {
+		this.connection = connection;
+	}
+
+	SmtpConnection getConnection() {
+		return connection;
+	}
+
+	void complete(SmtpResult result) {
+		if (finished.compareAndSet(false, true)) {
+			this.result = result;
+			done.countDown();
+		}
+	}
+
+	void fail(SmtpException failure) {
+		if (finished.compareAndSet(false, true)) {
+			this.failure = failure;
+			done.countDown();
+		}
+	}
+}
@@ -1,15 +1,19 @@
 package fr.sii.ogham.html.translator;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.activation.MimeType;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import fr.sii.ogham.core.exception.handler.ContentTranslatorException;
 import fr.sii.ogham.core.exception.resource.ResourceResolutionException;
 import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.MayHaveMimeType;
 import fr.sii.ogham.core.message.content.MayHaveStringContent;
 import fr.sii.ogham.core.message.content.StringContent;
 import fr.sii.ogham.core.message.content.UpdatableStringContent;
@@ -53,7 +57,7 @@ public class InlineCssTranslator implements ContentTranslator {
 	public Content translate(Content content) throws ContentTranslatorException {
 		if (content instanceof MayHaveStringContent && ((MayHaveStringContent) content).canProvideString()) {
 			String stringContent = ((MayHaveStringContent) content).asString();
-			if (HtmlUtils.isHtml(stringContent)) {
+			if (HtmlUtils.isHtml(content, stringContent)) {
 				List<String> cssFiles = HtmlUtils.getDistinctCssUrls(stringContent);
 				if (!cssFiles.isEmpty()) {
 					// prepare list of css files/urls with their content
@@ -95,8 +99,16 @@ public class InlineCssTranslator implements ContentTranslator {
 			((UpdatableStringContent) inlinedContent).setStringContent(inlinedContentStr);
 		} else {
 			LOG.info("Content is not updatable => create a new StringContent for CSS inlining result");
-			inlinedContent = new StringContent(inlinedContentStr);
+			inlinedContent = new StringContent(inlinedContentStr, getMimetype(content), getCharset(content));
 		}
 		return inlinedContent;
 	}
+
+	private static MimeType getMimetype(Content content) {
+		return content instanceof MayHaveMimeType ? ((MayHaveMimeType) content).getMimetype() : null;
+	}
+
+	private static Charset getCharset(Content content) {
+		return content instanceof MayHaveMimeType ? ((MayHaveMimeType) content).getCharset() : null;
+	}
 }
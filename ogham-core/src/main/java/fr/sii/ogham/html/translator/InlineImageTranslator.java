@@ -3,11 +3,14 @@ package fr.sii.ogham.html.translator;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.regex.Pattern;
 
+import javax.activation.MimeType;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,6 +18,7 @@ import fr.sii.ogham.core.exception.handler.ContentTranslatorException;
 import fr.sii.ogham.core.exception.mimetype.MimeTypeDetectionException;
 import fr.sii.ogham.core.exception.resource.ResourceResolutionException;
 import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.MayHaveMimeType;
 import fr.sii.ogham.core.message.content.MayHaveStringContent;
 import fr.sii.ogham.core.message.content.StringContent;
 import fr.sii.ogham.core.message.content.UpdatableStringContent;
@@ -46,6 +50,7 @@ import fr.sii.ogham.html.inliner.ImageResource;
 public class InlineImageTranslator implements ContentTranslator {
 	private static final Logger LOG = LoggerFactory.getLogger(InlineImageTranslator.class);
 	private static final Pattern URL_PATTERN = Pattern.compile("^https?://.+$", Pattern.CASE_INSENSITIVE);
+	private static final String HTML_MIMETYPE = "text/html";
 	
 	/**
 	 * The image inliner
@@ -71,7 +76,10 @@ public class InlineImageTranslator implements ContentTranslator {
 
 	@Override
 	public Content translate(Content content) throws ContentTranslatorException {
-		if (content instanceof MayHaveStringContent && ((MayHaveStringContent) content).canProvideString()) {
+		MimeType mimetype = getMimetype(content);
+		if (mimetype != null && !HTML_MIMETYPE.equals(mimetype.getBaseType())) {
+			LOG.debug("Content is not HTML. Skip image inlining for {}", content);
+		} else if (content instanceof MayHaveStringContent && ((MayHaveStringContent) content).canProvideString()) {
 			String stringContent = ((MayHaveStringContent) content).asString();
 			List<String> images = filterExternalUrls(HtmlUtils.getDistinctImageUrls(stringContent));
 			if (!images.isEmpty()) {
@@ -130,7 +138,7 @@ public class InlineImageTranslator implements ContentTranslator {
 			((UpdatableStringContent) inlinedContent).setStringContent(contentWithImages.getContent());
 		} else {
 			LOG.info("Content is not updatable => create a new StringContent for image inlining result");
-			inlinedContent = new StringContent(contentWithImages.getContent());
+			inlinedContent = new StringContent(contentWithImages.getContent(), getMimetype(content), getCharset(content));
 		}
 		return inlinedContent;
 	}
@@ -146,4 +154,12 @@ public class InlineImageTranslator implements ContentTranslator {
 		}
 		return finalContent;
 	}
+
+	private static MimeType getMimetype(Content content) {
+		return content instanceof MayHaveMimeType ? ((MayHaveMimeType) content).getMimetype() : null;
+	}
+
+	private static Charset getCharset(Content content) {
+		return content instanceof MayHaveMimeType ? ((MayHaveMimeType) content).getCharset() : null;
+	}
 }
@@ -0,0 +1,75 @@
+package fr.sii.ogham.i18n;
+
+import java.util.Locale;
+
+import fr.sii.ogham.core.exception.template.ContextException;
+import fr.sii.ogham.core.exception.util.FieldAccessException;
+import fr.sii.ogham.core.template.context.Context;
+import fr.sii.ogham.core.template.context.LocaleContext;
+
+/**
+ * <p>
+ * Resolves the locale from the context of the template:
+ * <ul>
+ * <li>the locale of the {@link LocaleContext}</li>
+ * <li>or the value of a variable of the context (named "locale" by default).
+ * The value is either a {@link Locale} or a string like "fr_CA" or
+ * "fr-CA"</li>
+ * </ul>
+ * Only the variable of the locale is read.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class ContextLanguageResolver implements LanguageResolver {
+	/**
+	 * Default name of the variable that contains the locale
+	 */
+	public static final String DEFAULT_VARIABLE = "locale";
+
+	private final String variable;
+
+	public ContextLanguageResolver() {
+		this(DEFAULT_VARIABLE);
+	}
+
+	/**
+	 * Initialize with the name of the variable that contains the locale.
+	 * 
+	 * @param variable
+	 *            the name of the variable
+	 */
+	public ContextLanguageResolver(String variable) {
+		super();
+		this.variable = variable;
+	}
+
+	@Override
+	public Locale getLocale(Context ctx) throws ContextException {
+		if (ctx == null) {
+			return null;
+		}
+		if (ctx instanceof LocaleContext && ((LocaleContext) ctx).getLocale() != null) {
+			return ((LocaleContext) ctx).getLocale();
+		}
+		Object value;
+		try {
+			value = ctx.getVariables().get(variable);
+		} catch (FieldAccessException e) {
+			throw new ContextException("Failed to read the locale from variable " + variable, e);
+		}
+		if (value instanceof Locale) {
+			return (Locale) value;
+		}
+		if (value instanceof String && !((String) value).isEmpty()) {
+			return Locale.forLanguageTag(((String) value).replace('_', '-'));
+		}
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return "ContextLanguageResolver [" + variable + "]";
+	}
+}
@@ -0,0 +1,44 @@
+package fr.sii.ogham.i18n;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import fr.sii.ogham.core.exception.template.ContextException;
+import fr.sii.ogham.core.template.context.Context;
+
+/**
+ * Asks each language resolver in order and provides the first resolved locale.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class FirstLanguageResolver implements LanguageResolver {
+	private final List<LanguageResolver> delegates;
+
+	public FirstLanguageResolver(LanguageResolver... delegates) {
+		this(new ArrayList<>(Arrays.asList(delegates)));
+	}
+
+	public FirstLanguageResolver(List<LanguageResolver> delegates) {
+		super();
+		this.delegates = delegates;
+	}
+
+	@Override
+	public Locale getLocale(Context ctx) throws ContextException {
+		for (LanguageResolver delegate : delegates) {
+			Locale locale = delegate.getLocale(ctx);
+			if (locale != null) {
+				return locale;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return "FirstLanguageResolver " + delegates;
+	}
+}
@@ -0,0 +1,31 @@
+package fr.sii.ogham.i18n;
+
+import java.util.Locale;
+
+import fr.sii.ogham.core.template.context.Context;
+
+/**
+ * Always provides the same locale. It is generally used as the last resolver
+ * (see {@link FirstLanguageResolver}) to provide a default locale.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class FixedLanguageResolver implements LanguageResolver {
+	private final Locale locale;
+
+	public FixedLanguageResolver(Locale locale) {
+		super();
+		this.locale = locale;
+	}
+
+	@Override
+	public Locale getLocale(Context ctx) {
+		return locale;
+	}
+
+	@Override
+	public String toString() {
+		return "FixedLanguageResolver [" + locale + "]";
+	}
+}
@@ -1,5 +1,27 @@
 package fr.sii.ogham.i18n;
 
-public interface LanguageResolver {
+import java.util.Locale;
+
+import fr.sii.ogham.core.exception.template.ContextException;
+import fr.sii.ogham.core.template.context.Context;
 
+/**
+ * Resolves the locale of the recipient of a message. The locale is used to
+ * select the localized version of the templates (see {@link LocalizedPaths})
+ * and to render them.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public interface LanguageResolver {
+	/**
+	 * Resolve the locale of the recipient using the context of the template.
+	 * 
+	 * @param ctx
+	 *            the context used to render the template (may be null)
+	 * @return the locale or null if it can't be resolved
+	 * @throws ContextException
+	 *             when the variables of the context couldn't be read
+	 */
+	Locale getLocale(Context ctx) throws ContextException;
 }
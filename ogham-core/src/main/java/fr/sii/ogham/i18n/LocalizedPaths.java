@@ -0,0 +1,72 @@
+package fr.sii.ogham.i18n;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * <p>
+ * Provides the suffixes of the localized versions of a template, from the
+ * most specific to the least specific. For example, for "fr_CA", the
+ * suffixes are "_fr_CA" and "_fr". So the template "register" is first
+ * searched as "register_fr_CA", then "register_fr" and finally "register"
+ * (not localized).
+ * </p>
+ * <p>
+ * The suffixes are computed on each call: it only concatenates a few strings,
+ * which is cheaper than a shared cache.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public final class LocalizedPaths {
+	/**
+	 * Get the suffixes of the localized versions of a template (without the
+	 * empty suffix of the not localized version).
+	 * 
+	 * @param locale
+	 *            the locale
+	 * @return the suffixes from the most specific to the least specific
+	 */
+	public static List<String> getSuffixes(Locale locale) {
+		List<String> suffixes = new ArrayList<>(3);
+		String language = locale.getLanguage();
+		String country = locale.getCountry();
+		String variant = locale.getVariant();
+		if (!language.isEmpty()) {
+			if (!variant.isEmpty()) {
+				suffixes.add("_" + language + "_" + country + "_" + variant);
+			}
+			if (!country.isEmpty()) {
+				suffixes.add("_" + language + "_" + country);
+			}
+			suffixes.add("_" + language);
+		}
+		return Collections.unmodifiableList(suffixes);
+	}
+
+	/**
+	 * Add the suffix to the path. If the path has an extension, the suffix
+	 * is inserted before it ("register.html" becomes "register_fr.html").
+	 * 
+	 * @param path
+	 *            the path of the template
+	 * @param suffix
+	 *            the suffix of the locale
+	 * @return the localized path
+	 */
+	public static String localize(String path, String suffix) {
+		int slash = Math.max(path.lastIndexOf('/'), path.lastIndexOf(':'));
+		int dot = path.indexOf('.', slash + 1);
+		if (dot < 0) {
+			return path + suffix;
+		}
+		return path.substring(0, dot) + suffix + path.substring(dot);
+	}
+
+	private LocalizedPaths() {
+		super();
+	}
+}
@@ -66,6 +66,16 @@ public class SmsConstants {
 		 */
 		public static final String SMS_CODING_PROPERTY = PROPERTIES_PREFIX + ".ovh.smsCoding";
 		
+		/**
+		 * The key for the maximum number of recipients per request (no limit by default)
+		 */
+		public static final String MAX_RECIPIENTS_PROPERTY = PROPERTIES_PREFIX + ".ovh.maxRecipients";
+		
+		/**
+		 * The key for the maximum length of the request URL (no limit by default)
+		 */
+		public static final String MAX_URL_LENGTH_PROPERTY = PROPERTIES_PREFIX + ".ovh.maxUrlLength";
+		
 		/**
 		 * The URL of the HTTP API for sending SMS through OVH
 		 */
@@ -6,6 +6,8 @@ import java.util.Properties;
 
 import fr.sii.ogham.core.builder.Builder;
 import fr.sii.ogham.core.exception.builder.BuildException;
+import fr.sii.ogham.core.util.HttpUtils;
+import fr.sii.ogham.core.util.http.HttpTransport;
 import fr.sii.ogham.sms.SmsConstants.OvhConstants;
 import fr.sii.ogham.sms.sender.impl.OvhSmsSender;
 import fr.sii.ogham.sms.sender.impl.ovh.OvhAuthParams;
@@ -39,6 +41,21 @@ public class OvhSmsBuilder implements Builder<OvhSmsSender> {
 	 */
 	private URL ovhUrl;
 
+	/**
+	 * The HTTP layer used to call OVH web service
+	 */
+	private HttpTransport transport;
+
+	/**
+	 * The maximum number of recipients per request
+	 */
+	private Integer maxRecipients;
+
+	/**
+	 * The maximum length of the request URL
+	 */
+	private Integer maxUrlLength;
+
 	@Override
 	public OvhSmsSender build() throws BuildException {
 		try {
@@ -60,8 +77,19 @@ public class OvhSmsBuilder implements Builder<OvhSmsSender> {
 											properties.getProperty(OvhConstants.TAG_PROPERTY), 
 											smsCoding==null ? null : SmsCoding.valueOf(smsCoding));
 			}
+			// use shared HTTP transport by default
+			if(transport==null) {
+				transport = HttpUtils.getDefaultTransport();
+			}
+			// initialize request limits using values from properties (no limit by default)
+			if(maxRecipients==null) {
+				maxRecipients = getIntProperty(OvhConstants.MAX_RECIPIENTS_PROPERTY, 0);
+			}
+			if(maxUrlLength==null) {
+				maxUrlLength = getIntProperty(OvhConstants.MAX_URL_LENGTH_PROPERTY, 0);
+			}
 			// create sender implementation
-			return new OvhSmsSender(ovhUrl, authParams, options);
+			return new OvhSmsSender(ovhUrl, authParams, options, transport, maxRecipients, maxUrlLength);
 		} catch(MalformedURLException e) {
 			throw new BuildException("Invalid URL for OVH API", e);
 		}
@@ -135,4 +163,55 @@ public class OvhSmsBuilder implements Builder<OvhSmsSender> {
 		return this;
 	}
 
+	/**
+	 * Set the HTTP layer used to call OVH web service. This is useful to
+	 * configure the pool of connections, the timeouts or to collect metrics
+	 * (see {@link fr.sii.ogham.core.util.http.ApacheHttpTransport}). By
+	 * default, the transport shared by {@link HttpUtils} is used.
+	 * 
+	 * @param transport
+	 *            the HTTP transport
+	 * @return this instance for fluent use
+	 */
+	public OvhSmsBuilder withTransport(HttpTransport transport) {
+		this.transport = transport;
+		return this;
+	}
+
+	/**
+	 * Split the recipients into several requests using the recommended limits
+	 * ({@link OvhSmsSender#DEFAULT_MAX_RECIPIENTS} recipients and
+	 * {@link OvhSmsSender#DEFAULT_MAX_URL_LENGTH} characters). The requests
+	 * are sent in parallel. By default, all the recipients are sent in a
+	 * single request.
+	 * 
+	 * @return this instance for fluent use
+	 */
+	public OvhSmsBuilder withBatch() {
+		return withBatch(OvhSmsSender.DEFAULT_MAX_RECIPIENTS, OvhSmsSender.DEFAULT_MAX_URL_LENGTH);
+	}
+
+	/**
+	 * Set the limits used to split the recipients into several requests. The
+	 * requests are sent in parallel. By default, all the recipients are sent
+	 * in a single request.
+	 * 
+	 * @param maxRecipients
+	 *            the maximum number of recipients per request (0 means no
+	 *            limit)
+	 * @param maxUrlLength
+	 *            the maximum length of the request URL (0 means no limit)
+	 * @return this instance for fluent use
+	 */
+	public OvhSmsBuilder withBatch(int maxRecipients, int maxUrlLength) {
+		this.maxRecipients = maxRecipients;
+		this.maxUrlLength = maxUrlLength;
+		return this;
+	}
+
+	private int getIntProperty(String key, int defaultValue) {
+		String value = properties==null ? null : properties.getProperty(key);
+		return value==null ? defaultValue : Integer.parseInt(value);
+	}
+
 }
@@ -1,31 +1,37 @@
 package fr.sii.ogham.sms.sender.impl;
 
-import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import fr.sii.ogham.core.exception.MessageException;
 import fr.sii.ogham.core.exception.MessageNotSentException;
+import fr.sii.ogham.core.exception.PartialDeliveryException;
 import fr.sii.ogham.core.exception.util.HttpException;
 import fr.sii.ogham.core.exception.util.PhoneNumberException;
 import fr.sii.ogham.core.sender.AbstractSpecializedSender;
 import fr.sii.ogham.core.util.HttpUtils;
 import fr.sii.ogham.core.util.StringUtils;
+import fr.sii.ogham.core.util.http.HttpStatus;
+import fr.sii.ogham.core.util.http.HttpTransport;
 import fr.sii.ogham.core.util.http.Parameter;
-import fr.sii.ogham.core.util.http.Response;
+import fr.sii.ogham.core.util.http.ResponseHandler;
 import fr.sii.ogham.sms.message.PhoneNumber;
 import fr.sii.ogham.sms.message.Recipient;
 import fr.sii.ogham.sms.message.Sms;
 import fr.sii.ogham.sms.sender.impl.ovh.OvhAuthParams;
 import fr.sii.ogham.sms.sender.impl.ovh.OvhOptions;
+import fr.sii.ogham.sms.sender.impl.ovh.OvhResponse;
+import fr.sii.ogham.sms.sender.impl.ovh.OvhResponseHandler;
 
 /**
  * Implementation that is able to send SMS through <a
@@ -41,6 +47,24 @@ import fr.sii.ogham.sms.sender.impl.ovh.OvhOptions;
  * example, 0033 6 01 02 03 04 is a valid French number (country code is 33,
  * additional '0' are added to reach the 4 digits)</li>
  * </ul>
+ * <p>
+ * The requests are sent using an {@link HttpTransport}. By default, the
+ * transport shared by {@link HttpUtils} is used.
+ * </p>
+ * <p>
+ * As recipients are sent in the URL, the recipients can be split into
+ * several requests when there are too many recipients (see
+ * {@link #getMaxRecipients()}) or when the URL would be too long (see
+ * {@link #getMaxUrlLength()}). By default, there is no limit so all the
+ * recipients are sent in a single request. The requests are sent in
+ * parallel. If some requests fail, the SMS is still
+ * sent to the recipients of the other requests and a {@link MessageException}
+ * caused by a {@link PartialDeliveryException} is thrown.
+ * </p>
+ * <p>
+ * The authentication parameters and the options are converted and encoded
+ * once when the sender is created. Modifying them afterwards has no effect.
+ * </p>
  * 
  * @author Aurélien Baudet
  *
@@ -55,50 +79,92 @@ public class OvhSmsSender extends AbstractSpecializedSender<Sms> {
 	private static final String RECIPIENTS_SEPARATOR = ",";
 	private static final int OK_STATUS = 200;
 	private static final int INTERNATIONAL_FORMAT_LENGTH = 13;
+	private static final int ENCODED_SEPARATOR_LENGTH = 3;
+	private static final ResponseHandler<OvhResponse> RESPONSE_HANDLER = new OvhResponseHandler();
+	private static final Pattern NEW_LINES = Pattern.compile("(\r)?\n");
+
+	/**
+	 * Recommended maximum number of recipients per request when splitting is
+	 * enabled
+	 */
+	public static final int DEFAULT_MAX_RECIPIENTS = 100;
+
+	/**
+	 * Recommended maximum length of the URL (query string included) when
+	 * splitting is enabled
+	 */
+	public static final int DEFAULT_MAX_URL_LENGTH = 4000;
 
 	/**
-	 * The authentication parameters
+	 * The URL to OVH web service with the parameters that are the same for
+	 * all messages (authentication, options...) already encoded
 	 */
-	private final OvhAuthParams authParams;
+	private final String baseUrl;
 
 	/**
-	 * The OVH options
+	 * The HTTP layer used to call OVH web service
 	 */
-	private final OvhOptions options;
+	private final HttpTransport transport;
 
 	/**
-	 * This is used to parse JSON response
+	 * The maximum number of recipients per request (0 means no limit)
 	 */
-	private final ObjectMapper mapper;
+	private final int maxRecipients;
 
 	/**
-	 * The URL to OVH web service
+	 * The maximum length of the URL (0 means no limit)
 	 */
-	private final URL url;
+	private final int maxUrlLength;
 
 	public OvhSmsSender(URL url, OvhAuthParams authParams, OvhOptions options) {
+		this(url, authParams, options, HttpUtils.getDefaultTransport());
+	}
+
+	public OvhSmsSender(URL url, OvhAuthParams authParams, OvhOptions options, HttpTransport transport) {
+		this(url, authParams, options, transport, 0, 0);
+	}
+
+	/**
+	 * Initialize the sender.
+	 * 
+	 * @param url
+	 *            the URL to OVH web service
+	 * @param authParams
+	 *            the authentication parameters
+	 * @param options
+	 *            the OVH options
+	 * @param transport
+	 *            the HTTP layer used to call OVH web service
+	 * @param maxRecipients
+	 *            the maximum number of recipients per request (0 means no
+	 *            limit)
+	 * @param maxUrlLength
+	 *            the maximum length of the URL (0 means no limit)
+	 */
+	public OvhSmsSender(URL url, OvhAuthParams authParams, OvhOptions options, HttpTransport transport, int maxRecipients, int maxUrlLength) {
 		super();
-		this.url = url;
-		this.authParams = authParams;
-		this.options = options;
-		this.mapper = new ObjectMapper();
+		this.transport = transport;
+		this.maxRecipients = maxRecipients;
+		this.maxUrlLength = maxUrlLength;
+		this.baseUrl = buildBaseUrl(url, authParams, options);
 	}
 
 	@Override
 	public void send(Sms message) throws MessageException {
 		try {
 			// @formatter:off
-			Response response = HttpUtils.get(url.toString(), authParams, options,
-									new Parameter(RESPONSE_TYPE, CONTENT_TYPE),
+			List<Parameter> params = Arrays.asList(
 									// convert phone number to international format
 									new Parameter(FROM, toInternational(message.getFrom().getPhoneNumber())),
-									new Parameter(TO, StringUtils.join(convert(message.getRecipients()), RECIPIENTS_SEPARATOR)),
 									// TODO: manage long messages: how to do ??
 									new Parameter(MESSAGE, getContent(message)));
 			// @formatter:on
-			handleResponse(message, response);
-		} catch (IOException e) {
-			throw new MessageException("Failed to read response when sending SMS through OVH", message, e);
+			List<List<String>> chunks = split(convert(message.getRecipients()), HttpUtils.buildUrl(baseUrl, params).length());
+			if (chunks.size() == 1) {
+				handleResponse(message, transport.get(baseUrl, withRecipients(params, chunks.get(0)), RESPONSE_HANDLER));
+			} else {
+				sendChunks(message, params, chunks);
+			}
 		} catch (HttpException e) {
 			throw new MessageException("Failed to send SMS through OVH", message, e);
 		} catch (PhoneNumberException e) {
@@ -106,6 +172,102 @@ public class OvhSmsSender extends AbstractSpecializedSender<Sms> {
 		}
 	}
 
+	/**
+	 * Send one request per chunk of recipients in parallel and wait for all
+	 * responses.
+	 * 
+	 * @param message
+	 *            the SMS to send
+	 * @param params
+	 *            the parameters shared by all requests
+	 * @param chunks
+	 *            the recipients of each request
+	 * @throws MessageException
+	 *             when the SMS couldn't be sent to some recipients
+	 */
+	private void sendChunks(Sms message, List<Parameter> params, List<List<String>> chunks) throws MessageException {
+		LOG.debug("Sending SMS through OVH using {} requests", chunks.size());
+		List<Future<OvhResponse>> futures = new ArrayList<>(chunks.size());
+		for (List<String> chunk : chunks) {
+			futures.add(transport.getAsync(baseUrl, withRecipients(params, chunk), RESPONSE_HANDLER));
+		}
+		List<String> delivered = new ArrayList<>();
+		Map<String, Exception> failed = new LinkedHashMap<>();
+		for (int i = 0; i < chunks.size(); i++) {
+			List<String> chunk = chunks.get(i);
+			try {
+				handleResponse(message, futures.get(i).get());
+				delivered.addAll(chunk);
+			} catch (ExecutionException e) {
+				addFailures(failed, chunk, e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+			} catch (MessageNotSentException e) {
+				addFailures(failed, chunk, e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new MessageException("Interrupted while sending SMS through OVH", message, e);
+			}
+		}
+		if (!failed.isEmpty()) {
+			throw new MessageException("SMS couldn't be sent through OVH to some recipients", message, new PartialDeliveryException("SMS not sent to all recipients", delivered, failed));
+		}
+	}
+
+	/**
+	 * Split the recipients so that each request contains at most
+	 * {@link #getMaxRecipients()} recipients and its URL is not longer than
+	 * {@link #getMaxUrlLength()}.
+	 * 
+	 * @param recipients
+	 *            the international phone numbers of the recipients
+	 * @param baseLength
+	 *            the length of the URL without the recipients
+	 * @return the recipients of each request
+	 */
+	private List<List<String>> split(List<String> recipients, int baseLength) {
+		// "&to=" + phone numbers separated by encoded comma (phone numbers
+		// only contain digits so they are not encoded)
+		int budget = maxUrlLength - baseLength - TO.length() - 2;
+		List<List<String>> chunks = new ArrayList<>();
+		List<String> chunk = new ArrayList<>();
+		int length = 0;
+		for (String recipient : recipients) {
+			int added = chunk.isEmpty() ? recipient.length() : (ENCODED_SEPARATOR_LENGTH + recipient.length());
+			boolean full = (maxRecipients > 0 && chunk.size() >= maxRecipients) || (maxUrlLength > 0 && length + added > budget);
+			if (!chunk.isEmpty() && full) {
+				chunks.add(chunk);
+				chunk = new ArrayList<>();
+				length = 0;
+				added = recipient.length();
+			}
+			chunk.add(recipient);
+			length += added;
+		}
+		chunks.add(chunk);
+		return chunks;
+	}
+
+	private static List<Parameter> withRecipients(List<Parameter> params, List<String> recipients) {
+		List<Parameter> all = new ArrayList<>(params.size() + 1);
+		all.addAll(params);
+		all.add(new Parameter(TO, StringUtils.join(recipients, RECIPIENTS_SEPARATOR)));
+		return all;
+	}
+
+	private static void addFailures(Map<String, Exception> failed, List<String> recipients, Exception cause) {
+		LOG.debug("SMS not sent to {}", recipients, cause);
+		for (String recipient : recipients) {
+			failed.put(recipient, cause);
+		}
+	}
+
+	public int getMaxRecipients() {
+		return maxRecipients;
+	}
+
+	public int getMaxUrlLength() {
+		return maxUrlLength;
+	}
+
 	/**
 	 * Handle OVH response. If status provided in response is less than 200,
 	 * then the message has been sent. Otherwise, the message has not been sent.
@@ -114,35 +276,47 @@ public class OvhSmsSender extends AbstractSpecializedSender<Sms> {
 	 *            the SMS to send
 	 * @param response
 	 *            the received response from OVH API
-	 * @throws IOException
-	 *             when the response couldn't be read
-	 * @throws JsonProcessingException
-	 *             when the response format is not valid JSON
 	 * @throws MessageNotSentException
 	 *             generated exception to indicate that the message couldn't be
 	 *             sent
 	 */
-	private void handleResponse(Sms message, Response response) throws IOException, JsonProcessingException, MessageNotSentException {
-		if (response.getStatus().isSuccess()) {
-			JsonNode json = mapper.readTree(response.getBody());
-			int ovhStatus = json.get("status").asInt();
-			// 100 <= ovh status < 200 ====> OK -> just log response
-			// 200 <= ovh status ====> KO -> throw an exception
-			if (ovhStatus >= OK_STATUS) {
-				LOG.error("SMS failed to be sent through OVH");
-				LOG.debug("Sent SMS: {}", message);
-				LOG.debug("Response status {}", response.getStatus());
-				LOG.debug("Response body {}", response.getBody());
-				throw new MessageNotSentException("SMS couldn't be sent through OVH: " + json.get("message").asText(), message);
-			} else {
-				LOG.info("SMS successfully sent through OVH");
-				LOG.debug("Sent SMS: {}", message);
-				LOG.debug("Response: {}", response.getBody());
-			}
+	private static void handleResponse(Sms message, OvhResponse response) throws MessageNotSentException {
+		if (response.getOvhStatus() < 0) {
+			LOG.error("Response status {}", response.getStatusCode());
+			LOG.error("Response body {}", response.getMessage());
+			throw new MessageNotSentException("SMS couldn't be sent. Response status is " + HttpStatus.valueOf(response.getStatusCode()), message);
+		}
+		// 100 <= ovh status < 200 ====> OK -> just log response
+		// 200 <= ovh status ====> KO -> throw an exception
+		if (response.getOvhStatus() >= OK_STATUS) {
+			LOG.error("SMS failed to be sent through OVH");
+			LOG.debug("Sent SMS: {}", message);
+			LOG.debug("Response {}", response);
+			throw new MessageNotSentException("SMS couldn't be sent through OVH: " + response.getMessage(), message);
 		} else {
-			LOG.error("Response status {}", response.getStatus());
-			LOG.error("Response body {}", response.getBody());
-			throw new MessageNotSentException("SMS couldn't be sent. Response status is " + response.getStatus(), message);
+			LOG.info("SMS successfully sent through OVH");
+			LOG.debug("Sent SMS: {}", message);
+			LOG.debug("Response: {}", response);
+		}
+	}
+
+	/**
+	 * Convert the parameters that are the same for all messages and append
+	 * them to the URL.
+	 * 
+	 * @param url
+	 *            the URL to OVH web service
+	 * @param authParams
+	 *            the authentication parameters
+	 * @param options
+	 *            the OVH options
+	 * @return the URL with the encoded parameters
+	 */
+	private static String buildBaseUrl(URL url, OvhAuthParams authParams, OvhOptions options) {
+		try {
+			return HttpUtils.buildUrl(url.toString(), HttpUtils.toParameters(authParams, options, new Parameter(RESPONSE_TYPE, CONTENT_TYPE)));
+		} catch (HttpException e) {
+			throw new IllegalArgumentException("Invalid OVH authentication parameters or options", e);
 		}
 	}
 
@@ -157,7 +331,7 @@ public class OvhSmsSender extends AbstractSpecializedSender<Sms> {
 	private String getContent(Sms message) {
 		// if a string contains \r\n, only \r is kept
 		// if there are \n without \r, those \n are converted to \r
-		return message.getContent().toString().replaceAll("(\r)?\n", "\r");
+		return NEW_LINES.matcher(message.getContent().toString()).replaceAll("\r");
 	}
 
 	/**
@@ -0,0 +1,48 @@
+package fr.sii.ogham.sms.sender.impl.ovh;
+
+/**
+ * The useful information of a response of OVH web service.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class OvhResponse {
+	/**
+	 * The HTTP status code
+	 */
+	private final int statusCode;
+
+	/**
+	 * The status provided by OVH (100 &lt;= status &lt; 200 means success)
+	 */
+	private final int ovhStatus;
+
+	/**
+	 * The message provided by OVH in case of error (may be null)
+	 */
+	private final String message;
+
+	public OvhResponse(int statusCode, int ovhStatus, String message) {
+		super();
+		this.statusCode = statusCode;
+		this.ovhStatus = ovhStatus;
+		this.message = message;
+	}
+
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	public int getOvhStatus() {
+		return ovhStatus;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	@Override
+	public String toString() {
+		return "OvhResponse [statusCode=" + statusCode + ", ovhStatus=" + ovhStatus + ", message=" + message + "]";
+	}
+}
@@ -0,0 +1,83 @@
+package fr.sii.ogham.sms.sender.impl.ovh;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import fr.sii.ogham.core.exception.util.ResponseParsingException;
+import fr.sii.ogham.core.util.IOUtils;
+import fr.sii.ogham.core.util.http.ResponseHandler;
+
+/**
+ * <p>
+ * Reads the JSON response of OVH web service directly from the connection.
+ * Only the "status" and "message" fields are extracted (the other fields are
+ * skipped without being parsed into a tree).
+ * </p>
+ * <p>
+ * If the HTTP status is not a success, the body is not parsed and the message
+ * is the raw body.
+ * </p>
+ * <p>
+ * If the body is not a valid OVH response, a
+ * {@link ResponseParsingException} is thrown.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class OvhResponseHandler implements ResponseHandler<OvhResponse> {
+	private static final String STATUS_FIELD = "status";
+	private static final String MESSAGE_FIELD = "message";
+	private static final int SUCCESS_START = 200;
+	private static final int SUCCESS_END = 300;
+
+	/**
+	 * Thread-safe factory of JSON parsers
+	 */
+	private final JsonFactory jsonFactory;
+
+	public OvhResponseHandler() {
+		this(new JsonFactory());
+	}
+
+	public OvhResponseHandler(JsonFactory jsonFactory) {
+		super();
+		this.jsonFactory = jsonFactory;
+	}
+
+	@Override
+	public OvhResponse handle(int statusCode, InputStream body) throws IOException {
+		if (statusCode < SUCCESS_START || statusCode >= SUCCESS_END) {
+			return new OvhResponse(statusCode, -1, IOUtils.toString(body));
+		}
+		Integer ovhStatus = null;
+		String message = null;
+		try (JsonParser parser = jsonFactory.createParser(body)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new ResponseParsingException("OVH response is not a JSON object");
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				parser.nextToken();
+				if (STATUS_FIELD.equals(field)) {
+					ovhStatus = parser.getValueAsInt();
+				} else if (MESSAGE_FIELD.equals(field)) {
+					message = parser.getValueAsString();
+				} else {
+					parser.skipChildren();
+				}
+			}
+			if (ovhStatus == null) {
+				throw new ResponseParsingException("OVH response doesn't contain status");
+			}
+		} catch (JsonProcessingException e) {
+			throw new ResponseParsingException("Failed to parse OVH response", e);
+		}
+		return new OvhResponse(statusCode, ovhStatus, message);
+	}
+}
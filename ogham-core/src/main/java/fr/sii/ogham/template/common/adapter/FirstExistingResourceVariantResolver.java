@@ -1,48 +1,183 @@
 package fr.sii.ogham.template.common.adapter;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
-import fr.sii.ogham.core.exception.resource.ResourceResolutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.cache.Cache;
+import fr.sii.ogham.core.cache.LruCache;
+import fr.sii.ogham.core.exception.template.ContextException;
 import fr.sii.ogham.core.message.capability.HasVariant;
 import fr.sii.ogham.core.message.content.TemplateContent;
+import fr.sii.ogham.core.message.content.TemplateVariantContent;
+import fr.sii.ogham.core.resource.ResourceChangeListener;
+import fr.sii.ogham.core.resource.resolver.CheckableResourceResolver;
 import fr.sii.ogham.core.resource.resolver.ResourceResolver;
+import fr.sii.ogham.core.util.ResourceUtils;
+import fr.sii.ogham.i18n.LanguageResolver;
+import fr.sii.ogham.i18n.LocalizedPaths;
 import fr.sii.ogham.template.exception.VariantResolutionException;
 
 /**
+ * <p>
  * Try every possible path for the variant until one path points to an existing
  * resource.
- * 
+ * </p>
+ * <p>
+ * The existence is checked without reading the content if the resolver
+ * supports it (see {@link CheckableResourceResolver}). The result of each check
+ * (existing or missing) can be cached so each path is checked only once (see
+ * {@link #FirstExistingResourceVariantResolver(ResourceResolver, VariantResolver, List, long)}).
+ * The cache is cleared when a resource changes (see
+ * {@link ResourceChangeListener}) so it should only be enabled when the
+ * resources are watched. Otherwise, a variant added at runtime is never found.
+ * By default, nothing is cached.
+ * </p>
+ * <p>
+ * The existing paths can also be indexed at startup by scanning the template
+ * directories (see {@link #index(String, File)}) or from a list of existing
+ * paths (see {@link #index(String, PathLister)}). The paths under an indexed
+ * prefix are then never checked.
+ * </p>
+ * <p>
+ * If a {@link LanguageResolver} is provided (see
+ * {@link #localize(LanguageResolver)}), the localized versions of the template
+ * are tried first, from the most specific to the least specific (see
+ * {@link LocalizedPaths}). For example, for "fr_CA", "register_fr_CA.html" is
+ * tried, then "register_fr.html" and finally "register.html". As existence
+ * checks are cached or indexed, localized templates don't need more I/O.
+ * </p>
+ *
  * @author Aurélien Baudet
  *
  */
-public class FirstExistingResourceVariantResolver implements VariantResolver {
+public class FirstExistingResourceVariantResolver implements LocalizedVariantResolver, ResourceChangeListener {
+	private static final Logger LOG = LoggerFactory.getLogger(FirstExistingResourceVariantResolver.class);
+
+	/**
+	 * Default maximum number of cached existence checks (when the cache is
+	 * enabled)
+	 */
+	public static final long DEFAULT_CACHE_SIZE = 10000;
+
 	private ResourceResolver resolver;
 	private List<VariantResolver> delegates;
 	private VariantResolver defaultResolver;
 
+	/**
+	 * The result of the existence checks (null if not cached)
+	 */
+	private final Cache<String, Boolean> existence;
+
+	/**
+	 * The scanned directories (path prefix to directory)
+	 */
+	private final Map<String, File> indexedDirectories;
+
+	/**
+	 * The existing paths found in the scanned directories (replaced at once
+	 * when the directories are scanned again)
+	 */
+	private volatile Set<String> indexedPaths;
+
+	/**
+	 * The listers of the prefixes indexed from a list of paths
+	 */
+	private final Map<String, PathLister> listers;
+
+	/**
+	 * The listed paths indexed by prefix (replaced at once when the paths are
+	 * listed again)
+	 */
+	private volatile Map<String, Set<String>> listedPaths;
+
+	/**
+	 * Resolves the locale used to find the localized templates (null if not
+	 * localized)
+	 */
+	private LanguageResolver languageResolver;
+
 	public FirstExistingResourceVariantResolver(ResourceResolver resolver, VariantResolver defaultResolver, VariantResolver... delegates) {
 		this(resolver, defaultResolver, new ArrayList<>(Arrays.asList(delegates)));
 	}
 
 	public FirstExistingResourceVariantResolver(ResourceResolver resolver, VariantResolver defaultResolver, List<VariantResolver> delegates) {
+		this(resolver, defaultResolver, delegates, 0);
+	}
+
+	/**
+	 * Initialize the variant resolver with the maximum number of cached
+	 * existence checks.
+	 *
+	 * @param resolver
+	 *            the resolver used to check the existence of the variants
+	 * @param defaultResolver
+	 *            the variant resolver used if no variant exists
+	 * @param delegates
+	 *            the variant resolvers that provide the paths to check
+	 * @param cacheSize
+	 *            the maximum number of cached existence checks (0 to disable
+	 *            the cache)
+	 */
+	public FirstExistingResourceVariantResolver(ResourceResolver resolver, VariantResolver defaultResolver, List<VariantResolver> delegates, long cacheSize) {
 		super();
 		this.resolver = resolver;
 		this.defaultResolver = defaultResolver;
 		this.delegates = delegates;
+		this.existence = cacheSize > 0 ? new LruCache<String, Boolean>(cacheSize) : null;
+		this.indexedDirectories = new ConcurrentHashMap<>();
+		this.indexedPaths = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		this.listers = new ConcurrentHashMap<>();
+		this.listedPaths = Collections.emptyMap();
+	}
+
+	/**
+	 * Try the localized versions of the templates first.
+	 * 
+	 * @param languageResolver
+	 *            resolves the locale of the recipient from the context of
+	 *            the template
+	 * @return this instance for fluent use
+	 */
+	public FirstExistingResourceVariantResolver localize(LanguageResolver languageResolver) {
+		this.languageResolver = languageResolver;
+		return this;
 	}
 
 	@Override
 	public String getRealPath(TemplateContent template) throws VariantResolutionException {
+		return getRealPath(template, getLocale(template));
+	}
+
+	@Override
+	public String getRealPath(TemplateContent template, Locale locale) throws VariantResolutionException {
+		if (locale != null) {
+			for (String suffix : LocalizedPaths.getSuffixes(locale)) {
+				String realPath = getExistingPath(template, LocalizedPaths.localize(template.getPath(), suffix));
+				if (realPath != null) {
+					LOG.debug("Localized template {} found for {}", realPath, locale);
+					return realPath;
+				}
+			}
+		}
 		if (template instanceof HasVariant) {
 			for (VariantResolver delegate : delegates) {
-				try {
-					String realPath = delegate.getRealPath(template);
-					resolver.getResource(realPath);
+				String realPath = delegate.getRealPath(template);
+				if (exists(realPath)) {
 					return realPath;
-				} catch (ResourceResolutionException e) {
-					// just skip the exception
 				}
 			}
 			return defaultResolver.getRealPath(template);
@@ -51,4 +186,208 @@ public class FirstExistingResourceVariantResolver implements VariantResolver {
 		}
 	}
 
+	/**
+	 * <p>
+	 * Scan the directory and register all the files it contains (recursively)
+	 * as existing. The path of a file is the prefix followed by the path of
+	 * the file relative to the directory (using '/' as separator). Any path
+	 * starting with the prefix that is not found in the directory is
+	 * considered as missing.
+	 * </p>
+	 * <p>
+	 * For example, <code>index("classpath:/templates/", dir)</code> where dir
+	 * contains <code>register.html</code> indexes
+	 * <code>classpath:/templates/register.html</code>. Classpath directories
+	 * can be scanned only if they are on the file system (not inside a jar).
+	 * </p>
+	 *
+	 * @param prefix
+	 *            the prefix of the paths of the files (lookup and parent path)
+	 * @param directory
+	 *            the directory to scan
+	 */
+	public void index(String prefix, File directory) {
+		LOG.debug("Indexing template variants of {} from {}", prefix, directory);
+		List<String> paths = new ArrayList<>();
+		scan(prefix, directory, paths);
+		indexedPaths.addAll(paths);
+		indexedDirectories.put(prefix, directory);
+		LOG.info("{} template variants indexed from {}", paths.size(), directory);
+	}
+
+	/**
+	 * <p>
+	 * Register the listed paths as the only existing paths starting with the
+	 * prefix. Any path starting with the prefix that is not in the list is
+	 * considered as missing. The paths can be listed from the classpath
+	 * (including jars) using
+	 * {@link fr.sii.ogham.core.template.warmup.TemplateScanner}.
+	 * </p>
+	 * <p>
+	 * The paths are listed again when a resource changes. If they can't be
+	 * listed anymore, the prefix is no longer indexed (the paths are then
+	 * checked).
+	 * </p>
+	 * 
+	 * @param prefix
+	 *            the prefix of the paths (the lookup for example)
+	 * @param lister
+	 *            lists the existing paths (starting with the prefix)
+	 * @throws IOException
+	 *             when the paths couldn't be listed
+	 */
+	public void index(String prefix, PathLister lister) throws IOException {
+		Set<String> paths = list(prefix, lister);
+		synchronized (listers) {
+			listers.put(prefix, lister);
+			Map<String, Set<String>> updated = new HashMap<>(listedPaths);
+			updated.put(prefix, paths);
+			listedPaths = updated;
+		}
+		LOG.info("{} template variants indexed for {}", paths.size(), prefix);
+	}
+
+	/**
+	 * Forget the existence checks and list again the indexed paths. If the
+	 * resource is in an indexed directory, the index is updated.
+	 */
+	@Override
+	public void resourceChanged(String resolvedPath) {
+		clearExistence();
+		listAgain();
+		File changed = new File(resolvedPath).getAbsoluteFile();
+		for (Entry<String, File> entry : indexedDirectories.entrySet()) {
+			String directory = entry.getValue().getAbsolutePath() + File.separator;
+			if (changed.getPath().startsWith(directory)) {
+				String path = entry.getKey() + changed.getPath().substring(directory.length()).replace(File.separatorChar, '/');
+				if (changed.isFile()) {
+					indexedPaths.add(path);
+				} else {
+					indexedPaths.remove(path);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Forget the existence checks, list again the indexed paths and scan again
+	 * the indexed directories. The
+	 * new index replaces the current one once it is complete so that the
+	 * concurrent resolutions never see a partial index.
+	 */
+	@Override
+	public void allResourcesChanged() {
+		clearExistence();
+		listAgain();
+		Set<String> paths = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		for (Entry<String, File> entry : indexedDirectories.entrySet()) {
+			List<String> scanned = new ArrayList<>();
+			scan(entry.getKey(), entry.getValue(), scanned);
+			paths.addAll(scanned);
+		}
+		indexedPaths = paths;
+		LOG.info("{} template variants indexed again", paths.size());
+	}
+
+	private Locale getLocale(TemplateContent template) throws VariantResolutionException {
+		if (languageResolver == null) {
+			return null;
+		}
+		try {
+			return languageResolver.getLocale(template.getContext());
+		} catch (ContextException e) {
+			throw new VariantResolutionException("Failed to resolve the locale of the template", template.getPath(), template.getContext(), template instanceof HasVariant ? ((HasVariant) template).getVariant() : null, e);
+		}
+	}
+
+	private String getExistingPath(TemplateContent template, String localizedPath) throws VariantResolutionException {
+		if (template instanceof HasVariant) {
+			TemplateContent localized = new TemplateVariantContent(localizedPath, ((HasVariant) template).getVariant(), template.getContext());
+			for (VariantResolver delegate : delegates) {
+				String realPath = delegate.getRealPath(localized);
+				if (exists(realPath)) {
+					return realPath;
+				}
+			}
+			return null;
+		}
+		return exists(localizedPath) ? localizedPath : null;
+	}
+
+	private boolean exists(String realPath) {
+		for (String prefix : indexedDirectories.keySet()) {
+			if (realPath.startsWith(prefix)) {
+				return indexedPaths.contains(realPath);
+			}
+		}
+		for (Entry<String, Set<String>> entry : listedPaths.entrySet()) {
+			if (realPath.startsWith(entry.getKey())) {
+				return entry.getValue().contains(normalize(entry.getKey(), realPath));
+			}
+		}
+		if (existence == null) {
+			return ResourceUtils.exists(resolver, realPath);
+		}
+		Boolean exists = existence.get(realPath);
+		if (exists == null) {
+			exists = ResourceUtils.exists(resolver, realPath);
+			LOG.debug("Template variant {} exists: {}", realPath, exists);
+			existence.put(realPath, exists);
+		}
+		return exists;
+	}
+
+	private void listAgain() {
+		synchronized (listers) {
+			if (listers.isEmpty()) {
+				return;
+			}
+			Map<String, Set<String>> updated = new HashMap<>();
+			for (Entry<String, PathLister> entry : listers.entrySet()) {
+				try {
+					updated.put(entry.getKey(), list(entry.getKey(), entry.getValue()));
+				} catch (IOException | RuntimeException e) {
+					LOG.warn("Templates of {} couldn't be indexed again => their existence will be checked", entry.getKey(), e);
+				}
+			}
+			listedPaths = updated;
+		}
+	}
+
+	private static Set<String> list(String prefix, PathLister lister) throws IOException {
+		Set<String> paths = new HashSet<>();
+		for (String path : lister.list()) {
+			paths.add(normalize(prefix, path));
+		}
+		return paths;
+	}
+
+	private void clearExistence() {
+		if (existence != null) {
+			existence.clear();
+		}
+	}
+
+	private static String normalize(String prefix, String path) {
+		// "classpath:/a" and "classpath:a" are the same resource
+		int start = prefix.length();
+		while (start < path.length() && path.charAt(start) == '/') {
+			start++;
+		}
+		return prefix + path.substring(start);
+	}
+
+	private static void scan(String prefix, File directory, List<String> paths) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			if (file.isDirectory()) {
+				scan(prefix + file.getName() + "/", file, paths);
+			} else {
+				paths.add(prefix + file.getName());
+			}
+		}
+	}
 }
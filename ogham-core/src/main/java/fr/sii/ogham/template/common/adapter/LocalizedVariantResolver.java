@@ -0,0 +1,31 @@
+package fr.sii.ogham.template.common.adapter;
+
+import java.util.Locale;
+
+import fr.sii.ogham.core.message.content.TemplateContent;
+import fr.sii.ogham.template.exception.VariantResolutionException;
+
+/**
+ * Extension of {@link VariantResolver} for the resolvers that try the
+ * localized versions of the templates. The locale is provided by the caller
+ * so that it is resolved only once per template.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public interface LocalizedVariantResolver extends VariantResolver {
+	/**
+	 * Get the real path to the template path, trying the localized versions
+	 * of the template for the locale first.
+	 * 
+	 * @param template
+	 *            the template name or path
+	 * @param locale
+	 *            the locale of the recipient (null to not try the localized
+	 *            versions)
+	 * @return the resolved path or null if variant is unknown
+	 * @throws VariantResolutionException
+	 *             when template has variant but the variant is not known
+	 */
+	String getRealPath(TemplateContent template, Locale locale) throws VariantResolutionException;
+}
@@ -0,0 +1,23 @@
+package fr.sii.ogham.template.common.adapter;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Lists the existing paths of the templates (for example by scanning the
+ * classpath). It is called when the paths are indexed and each time the
+ * resources change so that the index is always up-to-date.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public interface PathLister {
+	/**
+	 * List the existing paths
+	 * 
+	 * @return the existing paths
+	 * @throws IOException
+	 *             when the paths couldn't be listed
+	 */
+	Collection<String> list() throws IOException;
+}
@@ -17,6 +17,11 @@ public class VariantResolutionException extends ParseException {
 		this.variant = variant;
 	}
 
+	public VariantResolutionException(String message, String templateName, Context context, Variant variant, Throwable cause) {
+		super(message, templateName, context, cause);
+		this.variant = variant;
+	}
+
 	public Variant getVariant() {
 		return variant;
 	}
@@ -0,0 +1,88 @@
+package fr.sii.ogham.template.freemarker;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.template.cache.FragmentCache;
+import freemarker.core.Environment;
+import freemarker.template.TemplateDirectiveBody;
+import freemarker.template.TemplateDirectiveModel;
+import freemarker.template.TemplateException;
+import freemarker.template.TemplateModel;
+import freemarker.template.TemplateModelException;
+import freemarker.template.TemplateScalarModel;
+
+/**
+ * <p>
+ * FreeMarker directive that renders its body only once per locale. The
+ * following times, the cached result is written directly. It is used to mark
+ * the static blocks of a personalized template:
+ * </p>
+ *
+ * <pre>
+ * Hello ${name}
+ * &lt;@cache name="footer"&gt;
+ *   ... static content, may use messages of the locale ...
+ * &lt;/@cache&gt;
+ * </pre>
+ * <p>
+ * The body must not use the variables that change from a message to another:
+ * they would be rendered with the values of the first message.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ * @see FragmentCache
+ */
+public class CacheFragmentDirective implements TemplateDirectiveModel {
+	private static final Logger LOG = LoggerFactory.getLogger(CacheFragmentDirective.class);
+
+	/**
+	 * The name used to register the directive in the FreeMarker configuration
+	 */
+	public static final String NAME = "cache";
+
+	/**
+	 * The name of the parameter that identifies the block
+	 */
+	private static final String NAME_PARAM = "name";
+
+	/**
+	 * The rendered blocks
+	 */
+	private final FragmentCache cache;
+
+	public CacheFragmentDirective(FragmentCache cache) {
+		super();
+		this.cache = cache;
+	}
+
+	@Override
+	public void execute(Environment env, @SuppressWarnings("rawtypes") Map params, TemplateModel[] loopVars, TemplateDirectiveBody body) throws TemplateException, IOException {
+		if (body == null) {
+			return;
+		}
+		String name = getName(params);
+		String templateName = env.getCurrentTemplate().getName();
+		String output = cache.get(templateName, env.getLocale(), name);
+		if (output == null) {
+			StringWriter buffer = new StringWriter();
+			body.render(buffer);
+			output = buffer.toString();
+			cache.put(templateName, env.getLocale(), name, output);
+			LOG.debug("Block {} of template {} cached for locale {}", name, templateName, env.getLocale());
+		}
+		env.getOut().write(output);
+	}
+
+	private static String getName(@SuppressWarnings("rawtypes") Map params) throws TemplateModelException {
+		Object name = params.get(NAME_PARAM);
+		if (!(name instanceof TemplateScalarModel)) {
+			throw new TemplateModelException("The \"" + NAME_PARAM + "\" parameter of the " + NAME + " directive is required and must be a string");
+		}
+		return ((TemplateScalarModel) name).getAsString();
+	}
+}
@@ -2,7 +2,11 @@ package fr.sii.ogham.template.freemarker;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import fr.sii.ogham.core.cache.Cache;
+import fr.sii.ogham.core.cache.LruCache;
 import fr.sii.ogham.core.resource.ResourcePath;
 import fr.sii.ogham.core.resource.resolver.FirstSupportingResourceResolver;
 import fr.sii.ogham.core.resource.resolver.ResourceResolver;
@@ -25,6 +29,10 @@ import freemarker.cache.TemplateLoader;
  * It delegates to a {@link FirstSupportingResolverAdapter} the link between {@link ResourceResolver} and the {@link TemplateLoader} implementation to use with
  * the given path.
  * </p>
+ * <p>
+ * The adapted {@link TemplateLoader}s are created once for each {@link ResourceResolver} and the resolved path of each template name is memoized so
+ * FreeMarker can use its own template cache efficiently (template sources of the same loader are equal).
+ * </p>
  * 
  * @author Cyril Dejonghe
  * @see FirstSupportingResourceResolver
@@ -34,23 +42,60 @@ import freemarker.cache.TemplateLoader;
  */
 public class FreeMarkerFirstSupportingTemplateLoader implements TemplateLoader {
 
+	/**
+	 * Default maximum total length of the memoized resolved paths
+	 */
+	public static final long DEFAULT_RESOLUTIONS_CACHE_WEIGHT = 256 * 1024;
+
 	private FirstSupportingResourceResolver resolver;
 	private FirstSupportingResolverAdapter resolverAdapter;
 
+	/**
+	 * The FreeMarker loaders already adapted for each {@link ResourceResolver}
+	 */
+	private final ConcurrentMap<ResourceResolver, TemplateLoader> adaptedLoaders;
+
+	/**
+	 * The memoized resolutions (template name to resolved path and adapted
+	 * loader)
+	 */
+	private final Cache<String, ResolvedTemplate> resolutions;
+
 	public FreeMarkerFirstSupportingTemplateLoader(FirstSupportingResourceResolver resolver, FirstSupportingResolverAdapter resolverAdapter) {
+		this(resolver, resolverAdapter, DEFAULT_RESOLUTIONS_CACHE_WEIGHT);
+	}
+
+	/**
+	 * Initialize the loader with the maximum total length of the memoized resolved paths. The adapted FreeMarker loaders are reused for the same
+	 * {@link ResourceResolver} and the resolved path of a template name is computed only once.
+	 * 
+	 * @param resolver
+	 *            the resolver that provides the resolved paths
+	 * @param resolverAdapter
+	 *            the adapter that creates the FreeMarker loaders
+	 * @param maxResolutionsWeight
+	 *            the maximum total length (in characters) of the memoized resolved paths
+	 */
+	public FreeMarkerFirstSupportingTemplateLoader(FirstSupportingResourceResolver resolver, FirstSupportingResolverAdapter resolverAdapter, long maxResolutionsWeight) {
 		super();
 		this.resolver = resolver;
 		this.resolverAdapter = resolverAdapter;
+		this.adaptedLoaders = new ConcurrentHashMap<>();
+		this.resolutions = new LruCache<String, ResolvedTemplate>(maxResolutionsWeight) {
+			@Override
+			protected long weigh(ResolvedTemplate value) {
+				// string templates are resolved to their content
+				return value.getResolvedPath().length();
+			}
+		};
 	}
 
 	@Override
 	public Object findTemplateSource(String unresolvedTemplateName) throws IOException {
-		ResourceResolver supportingResolver = resolver.getSupportingResolver(unresolvedTemplateName);
-		TemplateLoader templateLoader;
 		try {
-			templateLoader = resolverAdapter.adapt(supportingResolver);
-			String resolvedPath = supportingResolver.getResourcePath(unresolvedTemplateName).getResolvedPath();
-			Object source = templateLoader.findTemplateSource(resolvedPath);
+			ResolvedTemplate resolved = resolve(unresolvedTemplateName);
+			TemplateLoader templateLoader = resolved.getTemplateLoader();
+			Object source = templateLoader.findTemplateSource(resolved.getResolvedPath());
 			return source == null ? null : new AdaptedSource(source, templateLoader);
 
 		} catch (NoResolverAdapterException e) {
@@ -60,6 +105,41 @@ public class FreeMarkerFirstSupportingTemplateLoader implements TemplateLoader {
 		}
 	}
 
+	/**
+	 * Forget the memoized resolutions and the adapted loaders. Useful when the underlying resolvers are modified.
+	 */
+	public void clearCache() {
+		resolutions.clear();
+		adaptedLoaders.clear();
+	}
+
+	private ResolvedTemplate resolve(String unresolvedTemplateName) throws NoResolverAdapterException, ResolverAdapterConfigurationException {
+		ResolvedTemplate resolved = resolutions.get(unresolvedTemplateName);
+		if (resolved == null) {
+			ResourceResolver supportingResolver = resolver.getSupportingResolver(unresolvedTemplateName);
+			TemplateLoader templateLoader = getTemplateLoader(supportingResolver);
+			String resolvedPath = supportingResolver.getResourcePath(unresolvedTemplateName).getResolvedPath();
+			resolved = new ResolvedTemplate(templateLoader, resolvedPath);
+			resolutions.put(unresolvedTemplateName, resolved);
+		}
+		return resolved;
+	}
+
+	private TemplateLoader getTemplateLoader(ResourceResolver supportingResolver) throws NoResolverAdapterException, ResolverAdapterConfigurationException {
+		if (supportingResolver == null) {
+			return resolverAdapter.adapt(supportingResolver);
+		}
+		TemplateLoader templateLoader = adaptedLoaders.get(supportingResolver);
+		if (templateLoader == null) {
+			templateLoader = resolverAdapter.adapt(supportingResolver);
+			TemplateLoader existing = adaptedLoaders.putIfAbsent(supportingResolver, templateLoader);
+			if (existing != null) {
+				templateLoader = existing;
+			}
+		}
+		return templateLoader;
+	}
+
 	@Override
 	public long getLastModified(Object templateSource) {
 		return ((AdaptedSource) templateSource).getLastModified();
@@ -75,6 +155,25 @@ public class FreeMarkerFirstSupportingTemplateLoader implements TemplateLoader {
 		((AdaptedSource) templateSource).close();
 	}
 
+	private static class ResolvedTemplate {
+		private final TemplateLoader templateLoader;
+		private final String resolvedPath;
+
+		public ResolvedTemplate(TemplateLoader templateLoader, String resolvedPath) {
+			super();
+			this.templateLoader = templateLoader;
+			this.resolvedPath = resolvedPath;
+		}
+
+		public TemplateLoader getTemplateLoader() {
+			return templateLoader;
+		}
+
+		public String getResolvedPath() {
+			return resolvedPath;
+		}
+	}
+
 	/**
 	 * @see MultiTemplateLoader.MultiSource
 	 */
@@ -2,53 +2,96 @@ package fr.sii.ogham.template.freemarker;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import fr.sii.ogham.core.exception.template.ContextException;
 import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.exception.util.FieldAccessException;
 import fr.sii.ogham.core.message.content.Content;
 import fr.sii.ogham.core.message.content.StringContent;
+import fr.sii.ogham.core.resource.ResourceChangeListener;
+import fr.sii.ogham.core.template.cache.FragmentCache;
 import fr.sii.ogham.core.template.context.Context;
 import fr.sii.ogham.core.template.context.LocaleContext;
-import fr.sii.ogham.core.template.parser.TemplateParser;
+import fr.sii.ogham.core.template.parser.BindableTemplateParser;
+import fr.sii.ogham.core.template.parser.BoundTemplate;
+import fr.sii.ogham.core.template.parser.PrecompilableTemplateParser;
+import fr.sii.ogham.core.template.parser.StreamingTemplateParser;
+import fr.sii.ogham.core.util.bean.BeanMap;
+import freemarker.core.Environment;
 import freemarker.template.Configuration;
+import freemarker.template.DefaultMapAdapter;
+import freemarker.template.ObjectWrapper;
+import freemarker.template.ObjectWrapperWithAPISupport;
 import freemarker.template.Template;
 import freemarker.template.TemplateException;
 
 /**
- * Implementation for FreeMarker template engine.
+ * Implementation for FreeMarker template engine. The result can be written
+ * directly into a {@link Writer}. The templates can be compiled in advance
+ * into the template cache of FreeMarker. A template can be loaded once and
+ * rendered many times (see {@link BindableTemplateParser}).
+ * <p>
+ * The locale of the context is applied on the processing environment so the
+ * shared template instance is never modified.
+ * </p>
+ * <p>
+ * The variables of a bean context are not copied: the properties are read
+ * only when the template uses them.
+ * </p>
  * 
  * @author Cyril Dejonghe
  *
  */
-public class FreeMarkerParser implements TemplateParser {
+public class FreeMarkerParser implements StreamingTemplateParser, PrecompilableTemplateParser, BindableTemplateParser, ResourceChangeListener {
 	private static final Logger LOG = LoggerFactory.getLogger(FreeMarkerParser.class);
 
 	private Configuration configuration;
 
+	/**
+	 * The cached static blocks (may be null)
+	 */
+	private FragmentCache fragmentCache;
+
 	public FreeMarkerParser(Configuration configuration) {
+		this(configuration, null);
+	}
+
+	/**
+	 * Initialize the parser with the cache of the static blocks rendered
+	 * through {@link CacheFragmentDirective}. The cache is cleared with the
+	 * template cache.
+	 * 
+	 * @param configuration
+	 *            the FreeMarker configuration
+	 * @param fragmentCache
+	 *            the cached static blocks (may be null)
+	 */
+	public FreeMarkerParser(Configuration configuration, FragmentCache fragmentCache) {
 		super();
 		this.configuration = configuration;
+		this.fragmentCache = fragmentCache;
 	}
 
 	@Override
 	public Content parse(String templateName, Context ctx) throws ParseException {
+		StringWriter out = new StringWriter();
+		parse(templateName, ctx, out);
+		LOG.debug("Template {} successfully parsed with context {}. Result:", templateName);
+		LOG.debug(out.toString());
+		return new StringContent(out.toString());
+	}
+
+	@Override
+	public void parse(String templateName, Context ctx, Writer out) throws ParseException {
 		LOG.debug("Parsing FreeMarker template {} with context {}...", templateName, ctx);
 
 		try {
-			Template template = configuration.getTemplate(templateName);
-			if (ctx instanceof LocaleContext) {
-				template.setLocale(((LocaleContext) ctx).getLocale());
-			}
-			StringWriter out = new StringWriter();
-			template.process(ctx.getVariables(), out);
-
-			LOG.debug("Template {} successfully parsed with context {}. Result:", templateName);
-			LOG.debug(out.toString());
-			return new StringContent(out.toString());
-
+			process(configuration.getTemplate(templateName), ctx, out);
 		} catch (IOException | TemplateException e) {
 			throw new ParseException("Failed to parse template with FreeMarker", templateName, ctx, e);
 		} catch (ContextException e) {
@@ -57,9 +100,100 @@ public class FreeMarkerParser implements TemplateParser {
 		}
 	}
 
+	@Override
+	public void precompile(String templateName) throws ParseException {
+		try {
+			configuration.getTemplate(templateName);
+		} catch (IOException e) {
+			throw new ParseException("Failed to compile template with FreeMarker", templateName, null, e);
+		}
+	}
+
+	@Override
+	public BoundTemplate bind(String templateName) throws ParseException {
+		try {
+			return new FreeMarkerBoundTemplate(templateName, configuration.getTemplate(templateName));
+		} catch (IOException e) {
+			throw new ParseException("Failed to load template with FreeMarker", templateName, null, e);
+		}
+	}
+
 	@Override
 	public String toString() {
 		return "FremarkerParser";
 	}
 
+	/**
+	 * The templates are cached by name by FreeMarker (not by resolved path) so
+	 * the whole template cache is cleared.
+	 */
+	@Override
+	public void resourceChanged(String resolvedPath) {
+		LOG.debug("{} has changed => clear FreeMarker template cache", resolvedPath);
+		configuration.clearTemplateCache();
+		if (fragmentCache != null) {
+			fragmentCache.resourceChanged(resolvedPath);
+		}
+	}
+
+	@Override
+	public void allResourcesChanged() {
+		LOG.debug("Resources have changed => clear FreeMarker template cache");
+		configuration.clearTemplateCache();
+		if (fragmentCache != null) {
+			fragmentCache.allResourcesChanged();
+		}
+	}
+
+	private static void process(Template template, Context ctx, Writer out) throws TemplateException, IOException, ContextException {
+		Environment env = template.createProcessingEnvironment(getDataModel(template, ctx.getVariables()), out);
+		if (ctx instanceof LocaleContext) {
+			env.setLocale(((LocaleContext) ctx).getLocale());
+		}
+		try {
+			env.process();
+		} catch (FieldAccessException e) {
+			// the variables of a bean are read while processing
+			throw new ContextException("Failed to read the variables of the context", e);
+		}
+	}
+
+	private static Object getDataModel(Template template, Map<String, Object> variables) {
+		ObjectWrapper wrapper = template.getObjectWrapper();
+		if (variables instanceof BeanMap && wrapper instanceof ObjectWrapperWithAPISupport) {
+			// wrap the lazy view of the bean without copying it so only the
+			// properties used by the template are read (the other values are
+			// wrapped as configured)
+			return DefaultMapAdapter.adapt(variables, (ObjectWrapperWithAPISupport) wrapper);
+		}
+		return variables;
+	}
+
+	private static class FreeMarkerBoundTemplate implements BoundTemplate {
+		private final String templateName;
+		private final Template template;
+
+		public FreeMarkerBoundTemplate(String templateName, Template template) {
+			super();
+			this.templateName = templateName;
+			this.template = template;
+		}
+
+		@Override
+		public void render(Context ctx, Writer out) throws ParseException {
+			try {
+				process(template, ctx, out);
+			} catch (IOException | TemplateException e) {
+				throw new ParseException("Failed to parse template with FreeMarker", templateName, ctx, e);
+			} catch (ContextException e) {
+				throw new ParseException("Failed to parse template with FreeMarker due to conversion error", templateName, ctx, e);
+			}
+		}
+
+		@Override
+		public String getTemplateName() {
+			return templateName;
+		}
+	}
+
 }
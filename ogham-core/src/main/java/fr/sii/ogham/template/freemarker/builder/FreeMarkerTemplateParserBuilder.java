@@ -5,7 +5,9 @@ import fr.sii.ogham.core.exception.builder.BuildException;
 import fr.sii.ogham.core.resource.ResourcePath;
 import fr.sii.ogham.core.resource.resolver.FirstSupportingResourceResolver;
 import fr.sii.ogham.core.resource.resolver.ResourceResolver;
+import fr.sii.ogham.core.template.cache.FragmentCache;
 import fr.sii.ogham.core.template.parser.TemplateParser;
+import fr.sii.ogham.template.freemarker.CacheFragmentDirective;
 import fr.sii.ogham.template.freemarker.FreeMarkerFirstSupportingTemplateLoader;
 import fr.sii.ogham.template.freemarker.FreeMarkerParser;
 import fr.sii.ogham.template.freemarker.adapter.ClassPathResolverAdapter;
@@ -39,6 +41,11 @@ public class FreeMarkerTemplateParserBuilder implements TemplateParserBuilder {
 	 */
 	private FirstSupportingResourceResolver resourceResolver;
 
+	/**
+	 * The cache of the static blocks (null if disabled)
+	 */
+	private FragmentCache fragmentCache;
+
 	public FreeMarkerTemplateParserBuilder() {
 		super();
 		this.configuration = new Configuration();
@@ -52,7 +59,23 @@ public class FreeMarkerTemplateParserBuilder implements TemplateParserBuilder {
 	@Override
 	public TemplateParser build() throws BuildException {
 		configuration.setTemplateLoader(new FreeMarkerFirstSupportingTemplateLoader(resourceResolver, resolverAdapter));
-		return new FreeMarkerParser(configuration);
+		if (fragmentCache != null) {
+			configuration.setSharedVariable(CacheFragmentDirective.NAME, new CacheFragmentDirective(fragmentCache));
+		}
+		return new FreeMarkerParser(configuration, fragmentCache);
+	}
+
+	/**
+	 * Enable the <code>&lt;@cache name="..."&gt;</code> directive in order to render static blocks only once per locale (see
+	 * {@link CacheFragmentDirective}).
+	 * 
+	 * @param maxWeight
+	 *            the maximum total length (in characters) of the cached blocks
+	 * @return this instance for fluent use
+	 */
+	public FreeMarkerTemplateParserBuilder cacheFragments(long maxWeight) {
+		this.fragmentCache = new FragmentCache(maxWeight);
+		return this;
 	}
 
 	/**
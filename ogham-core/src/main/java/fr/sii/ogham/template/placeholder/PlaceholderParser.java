@@ -0,0 +1,190 @@
+package fr.sii.ogham.template.placeholder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.cache.Cache;
+import fr.sii.ogham.core.cache.LruCache;
+import fr.sii.ogham.core.exception.resource.ResourceResolutionException;
+import fr.sii.ogham.core.exception.template.ContextException;
+import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.StringContent;
+import fr.sii.ogham.core.resource.ResourceChangeListener;
+import fr.sii.ogham.core.resource.resolver.ResourceResolver;
+import fr.sii.ogham.core.template.context.Context;
+import fr.sii.ogham.core.template.parser.BindableTemplateParser;
+import fr.sii.ogham.core.template.parser.BoundTemplate;
+import fr.sii.ogham.core.template.parser.PrecompilableTemplateParser;
+import fr.sii.ogham.core.template.parser.StreamingTemplateParser;
+import fr.sii.ogham.core.util.IOUtils;
+
+/**
+ * <p>
+ * Minimal template engine for short texts (SMS, text variants of emails...)
+ * that only need <code>${name}</code> placeholders (see
+ * {@link PlaceholderTemplate}). It is much cheaper than a full template engine
+ * for high volumes.
+ * </p>
+ * <p>
+ * Each template is loaded and compiled once. The compiled templates are
+ * cached (bounded by the total length of the template sources) until a resource
+ * changes (see {@link ResourceChangeListener}). The result is rendered into a
+ * builder reused by each thread or directly into a {@link Writer}.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class PlaceholderParser implements StreamingTemplateParser, PrecompilableTemplateParser, BindableTemplateParser, ResourceChangeListener {
+	private static final Logger LOG = LoggerFactory.getLogger(PlaceholderParser.class);
+
+	/**
+	 * Default maximum total length of the cached templates
+	 */
+	public static final long DEFAULT_CACHE_WEIGHT = 1024 * 1024;
+
+	/**
+	 * The builders are not kept if they have grown above this size
+	 */
+	private static final int MAX_REUSED_CAPACITY = 8 * 1024;
+
+	private static final ThreadLocal<StringBuilder> BUILDERS = new ThreadLocal<StringBuilder>() {
+		@Override
+		protected StringBuilder initialValue() {
+			return new StringBuilder(256);
+		}
+	};
+
+	/**
+	 * The resolver used to load the templates
+	 */
+	private final ResourceResolver resolver;
+
+	/**
+	 * The charset of the templates
+	 */
+	private final Charset charset;
+
+	/**
+	 * The compiled templates indexed by name
+	 */
+	private final Cache<String, PlaceholderTemplate> templates;
+
+	public PlaceholderParser(ResourceResolver resolver) {
+		this(resolver, StandardCharsets.UTF_8, DEFAULT_CACHE_WEIGHT);
+	}
+
+	/**
+	 * Initialize the parser.
+	 * 
+	 * @param resolver
+	 *            the resolver used to load the templates
+	 * @param charset
+	 *            the charset of the templates
+	 * @param maxCacheWeight
+	 *            the maximum total length (in characters) of the cached
+	 *            templates
+	 */
+	public PlaceholderParser(ResourceResolver resolver, Charset charset, long maxCacheWeight) {
+		super();
+		this.resolver = resolver;
+		this.charset = charset;
+		this.templates = new LruCache<String, PlaceholderTemplate>(maxCacheWeight) {
+			@Override
+			protected long weigh(PlaceholderTemplate value) {
+				return value.getSourceLength();
+			}
+		};
+	}
+
+	@Override
+	public Content parse(String templateName, Context ctx) throws ParseException {
+		PlaceholderTemplate template = getTemplate(templateName);
+		StringBuilder builder = BUILDERS.get();
+		builder.setLength(0);
+		try {
+			template.render(ctx, builder);
+			return new StringContent(builder.toString());
+		} catch (ContextException | IOException e) {
+			throw new ParseException("Failed to render placeholder template", templateName, ctx, e);
+		} finally {
+			if (builder.capacity() > MAX_REUSED_CAPACITY) {
+				BUILDERS.remove();
+			}
+		}
+	}
+
+	@Override
+	public void parse(String templateName, Context ctx, Writer out) throws ParseException {
+		render(getTemplate(templateName), ctx, out);
+	}
+
+	@Override
+	public void precompile(String templateName) throws ParseException {
+		getTemplate(templateName);
+	}
+
+	@Override
+	public BoundTemplate bind(String templateName) throws ParseException {
+		final PlaceholderTemplate template = getTemplate(templateName);
+		return new BoundTemplate() {
+			@Override
+			public void render(Context ctx, Writer out) throws ParseException {
+				PlaceholderParser.render(template, ctx, out);
+			}
+
+			@Override
+			public String getTemplateName() {
+				return template.getTemplateName();
+			}
+		};
+	}
+
+	@Override
+	public void resourceChanged(String resolvedPath) {
+		templates.clear();
+	}
+
+	@Override
+	public void allResourcesChanged() {
+		templates.clear();
+	}
+
+	@Override
+	public String toString() {
+		return "PlaceholderParser";
+	}
+
+	private PlaceholderTemplate getTemplate(String templateName) throws ParseException {
+		PlaceholderTemplate template = templates.get(templateName);
+		if (template == null) {
+			LOG.debug("Compiling placeholder template {}...", templateName);
+			template = new PlaceholderTemplate(templateName, load(templateName));
+			templates.put(templateName, template);
+		}
+		return template;
+	}
+
+	private String load(String templateName) throws ParseException {
+		try (InputStream stream = resolver.getResource(templateName).getInputStream()) {
+			return new String(IOUtils.toByteArray(stream), charset);
+		} catch (ResourceResolutionException | IOException e) {
+			throw new ParseException("Failed to load placeholder template", templateName, null, e);
+		}
+	}
+
+	private static void render(PlaceholderTemplate template, Context ctx, Writer out) throws ParseException {
+		try {
+			template.render(ctx, out);
+		} catch (ContextException | IOException e) {
+			throw new ParseException("Failed to render placeholder template", template.getTemplateName(), ctx, e);
+		}
+	}
+}
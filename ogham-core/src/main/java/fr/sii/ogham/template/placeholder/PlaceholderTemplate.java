@@ -0,0 +1,203 @@
+package fr.sii.ogham.template.placeholder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import fr.sii.ogham.core.exception.template.ContextException;
+import fr.sii.ogham.core.exception.util.FieldAccessException;
+import fr.sii.ogham.core.template.context.Context;
+import fr.sii.ogham.core.util.bean.BeanAccessors;
+import fr.sii.ogham.core.util.bean.PropertyAccessor;
+
+/**
+ * <p>
+ * A template compiled once into an array of segments: the text between the
+ * placeholders and the placeholders. A placeholder is written
+ * <code>${name}</code> and can reference nested properties
+ * (<code>${user.address.city}</code>).
+ * </p>
+ * <p>
+ * Rendering only appends the text segments and the values of the
+ * placeholders: there is no parsing nor expression evaluation. The first part
+ * of a placeholder is read from the variables of the context, the nested
+ * properties are read using the cached accessors of their class (see
+ * {@link BeanAccessors}) or from the map if the value is a map. A null value
+ * (or a missing variable) is rendered as an empty string.
+ * </p>
+ * <p>
+ * A <code>${</code> that is not closed is kept as-is. There is no other
+ * syntax (no condition, no loop, no escaping).
+ * </p>
+ * <p>
+ * A compiled template is immutable and can be rendered concurrently.
+ * </p>
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class PlaceholderTemplate {
+	private static final String START = "${";
+	private static final char END = '}';
+
+	/**
+	 * The name (or path) of the template
+	 */
+	private final String templateName;
+
+	/**
+	 * The segments of the template in order
+	 */
+	private final Segment[] segments;
+
+	/**
+	 * The length of the text segments (used to size the output)
+	 */
+	private final int textLength;
+
+	/**
+	 * The length of the source of the template (used to weigh the cached
+	 * templates)
+	 */
+	private final int sourceLength;
+
+	/**
+	 * Compile the template.
+	 * 
+	 * @param templateName
+	 *            the name (or path) of the template
+	 * @param source
+	 *            the content of the template
+	 */
+	public PlaceholderTemplate(String templateName, String source) {
+		super();
+		this.templateName = templateName;
+		List<Segment> list = new ArrayList<>();
+		int length = 0;
+		int pos = 0;
+		while (pos < source.length()) {
+			int start = source.indexOf(START, pos);
+			int end = start < 0 ? -1 : source.indexOf(END, start + START.length());
+			if (end < 0) {
+				list.add(new TextSegment(source.substring(pos)));
+				length += source.length() - pos;
+				break;
+			}
+			if (start > pos) {
+				list.add(new TextSegment(source.substring(pos, start)));
+				length += start - pos;
+			}
+			list.add(new PlaceholderSegment(source.substring(start + START.length(), end).trim()));
+			pos = end + 1;
+		}
+		this.segments = list.toArray(new Segment[list.size()]);
+		this.textLength = length;
+		this.sourceLength = source.length();
+	}
+
+	/**
+	 * Render the template.
+	 * 
+	 * @param ctx
+	 *            the context that provides the values of the placeholders
+	 *            (may be null if there is no placeholder)
+	 * @param out
+	 *            where to write the result
+	 * @throws ContextException
+	 *             when a value couldn't be read
+	 * @throws IOException
+	 *             when the result couldn't be written
+	 */
+	public void render(Context ctx, Appendable out) throws ContextException, IOException {
+		Map<String, Object> variables = null;
+		try {
+			for (Segment segment : segments) {
+				if (segment instanceof TextSegment) {
+					out.append(((TextSegment) segment).text);
+				} else {
+					if (variables == null) {
+						variables = getVariables(ctx);
+					}
+					Object value = ((PlaceholderSegment) segment).getValue(variables);
+					if (value != null) {
+						out.append(value.toString());
+					}
+				}
+			}
+		} catch (FieldAccessException e) {
+			throw new ContextException("Failed to read the value of a placeholder of " + templateName, e);
+		}
+	}
+
+	public String getTemplateName() {
+		return templateName;
+	}
+
+	/**
+	 * @return the length of the text without the placeholders
+	 */
+	public int getTextLength() {
+		return textLength;
+	}
+
+	/**
+	 * @return the length of the source of the template (at least 1 so that an
+	 *         empty template still counts in the cache)
+	 */
+	public int getSourceLength() {
+		return Math.max(1, sourceLength);
+	}
+
+	@Override
+	public String toString() {
+		return "PlaceholderTemplate [" + templateName + "]";
+	}
+
+	private static Map<String, Object> getVariables(Context ctx) throws ContextException {
+		if (ctx == null) {
+			throw new ContextException("No context provided to render the placeholders");
+		}
+		return ctx.getVariables();
+	}
+
+	private abstract static class Segment {
+	}
+
+	private static class TextSegment extends Segment {
+		private final String text;
+
+		public TextSegment(String text) {
+			super();
+			this.text = text;
+		}
+	}
+
+	private static class PlaceholderSegment extends Segment {
+		/**
+		 * The variable name followed by the nested property names
+		 */
+		private final String[] path;
+
+		public PlaceholderSegment(String expression) {
+			super();
+			this.path = expression.split("\\.");
+		}
+
+		public Object getValue(Map<String, Object> variables) {
+			Object value = variables.get(path[0]);
+			for (int i = 1; i < path.length && value != null; i++) {
+				value = getProperty(value, path[i]);
+			}
+			return value;
+		}
+
+		private static Object getProperty(Object bean, String name) {
+			if (bean instanceof Map) {
+				return ((Map<?, ?>) bean).get(name);
+			}
+			PropertyAccessor accessor = BeanAccessors.getAccessors(bean.getClass()).get(name);
+			return accessor == null ? null : accessor.getValue(bean);
+		}
+	}
+}
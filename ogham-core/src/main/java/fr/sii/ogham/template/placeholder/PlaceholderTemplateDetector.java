@@ -0,0 +1,50 @@
+package fr.sii.ogham.template.placeholder;
+
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import fr.sii.ogham.core.resource.Resource;
+import fr.sii.ogham.core.template.context.Context;
+import fr.sii.ogham.core.template.detector.TemplateEngineDetector;
+
+/**
+ * Detector checking template name extension. If it ends with '.tpl' (or one of
+ * the provided extensions) then the detector returns true. Otherwise it
+ * returns false. The content of the template is not read.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class PlaceholderTemplateDetector implements TemplateEngineDetector {
+	private static final Logger LOG = LoggerFactory.getLogger(PlaceholderTemplateDetector.class);
+
+	private static final String PLACEHOLDER_TEMPLATE_EXTENSION = ".tpl";
+
+	/**
+	 * Recognized extensions
+	 */
+	private final String[] extensions;
+
+	public PlaceholderTemplateDetector() {
+		this(PLACEHOLDER_TEMPLATE_EXTENSION);
+	}
+
+	public PlaceholderTemplateDetector(String... extensions) {
+		super();
+		this.extensions = extensions;
+	}
+
+	@Override
+	public boolean canParse(String templateName, Context ctx, Resource template) {
+		for (String extension : extensions) {
+			if (templateName.endsWith(extension)) {
+				LOG.debug("The template {} ends with {}. Placeholder engine can be used", templateName, extension);
+				return true;
+			}
+		}
+		LOG.debug("The template {} doesn't end with any of {}. Placeholder engine can't be used", templateName, Arrays.toString(extensions));
+		return false;
+	}
+}
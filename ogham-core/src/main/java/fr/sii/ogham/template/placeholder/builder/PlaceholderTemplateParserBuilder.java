@@ -0,0 +1,86 @@
+package fr.sii.ogham.template.placeholder.builder;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import fr.sii.ogham.core.builder.TemplateParserBuilder;
+import fr.sii.ogham.core.exception.builder.BuildException;
+import fr.sii.ogham.core.resource.resolver.FirstSupportingResourceResolver;
+import fr.sii.ogham.core.template.parser.TemplateParser;
+import fr.sii.ogham.template.placeholder.PlaceholderParser;
+
+/**
+ * Builder for the minimal placeholder template engine (see
+ * {@link PlaceholderParser}). The templates are loaded using the resource
+ * resolver provided by the template builder.
+ * 
+ * @author Aurélien Baudet
+ *
+ */
+public class PlaceholderTemplateParserBuilder implements TemplateParserBuilder {
+	/**
+	 * Find the first resource resolver that can handle a given path.
+	 */
+	private FirstSupportingResourceResolver resourceResolver;
+
+	/**
+	 * The charset of the templates
+	 */
+	private Charset charset;
+
+	/**
+	 * The maximum total length of the cached templates
+	 */
+	private long cacheWeight;
+
+	public PlaceholderTemplateParserBuilder() {
+		super();
+		charset = StandardCharsets.UTF_8;
+		cacheWeight = PlaceholderParser.DEFAULT_CACHE_WEIGHT;
+	}
+
+	@Override
+	public TemplateParser build() throws BuildException {
+		if (resourceResolver == null) {
+			throw new BuildException("No resource resolver provided to load placeholder templates");
+		}
+		return new PlaceholderParser(resourceResolver, charset, cacheWeight);
+	}
+
+	/**
+	 * Set the resolver used to load the templates.
+	 * 
+	 * @param firstSupportingResourceResolver
+	 *            the resolver used to load the templates
+	 * @return this builder instance for fluent use
+	 */
+	public PlaceholderTemplateParserBuilder withFirstResourceResolver(FirstSupportingResourceResolver firstSupportingResourceResolver) {
+		this.resourceResolver = firstSupportingResourceResolver;
+		return this;
+	}
+
+	/**
+	 * Set the charset of the templates (UTF-8 by default).
+	 * 
+	 * @param charset
+	 *            the charset of the templates
+	 * @return this builder instance for fluent use
+	 */
+	public PlaceholderTemplateParserBuilder withCharset(Charset charset) {
+		this.charset = charset;
+		return this;
+	}
+
+	/**
+	 * Set the maximum total length of the compiled templates kept in cache.
+	 * 
+	 * @param maxWeight
+	 *            the maximum total length (in characters) of the cached
+	 *            templates
+	 * @return this builder instance for fluent use
+	 */
+	public PlaceholderTemplateParserBuilder withCacheSize(long maxWeight) {
+		this.cacheWeight = maxWeight;
+		return this;
+	}
+}
@@ -0,0 +1,108 @@
+package fr.sii.ogham.template.thymeleaf;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.IProcessingContext;
+import org.thymeleaf.dialect.AbstractDialect;
+import org.thymeleaf.dialect.IExpressionEnhancingDialect;
+
+import fr.sii.ogham.core.template.cache.FragmentCache;
+
+/**
+ * <p>
+ * Thymeleaf dialect that provides the <code>#fragmentCache</code> expression
+ * object. It includes a template that is rendered only once per locale. The
+ * following times, the cached result is used. It is used to include the
+ * static blocks of a personalized template:
+ * </p>
+ *
+ * <pre>
+ * &lt;p th:text="${name}"&gt;&lt;/p&gt;
+ * &lt;footer th:utext="${#fragmentCache.include('classpath:/template/footer.html')}"&gt;&lt;/footer&gt;
+ * </pre>
+ * <p>
+ * The included template is rendered without the variables of the message,
+ * only with its locale.
+ * </p>
+ *
+ * @author Aurélien Baudet
+ * @see FragmentCache
+ */
+public class FragmentCacheDialect extends AbstractDialect implements IExpressionEnhancingDialect {
+	/**
+	 * The name of the expression object
+	 */
+	public static final String EXPRESSION_OBJECT_NAME = "fragmentCache";
+
+	/**
+	 * The engine that renders the included templates
+	 */
+	private final TemplateEngine engine;
+
+	/**
+	 * The rendered templates
+	 */
+	private final FragmentCache cache;
+
+	public FragmentCacheDialect(TemplateEngine engine, FragmentCache cache) {
+		super();
+		this.engine = engine;
+		this.cache = cache;
+	}
+
+	@Override
+	public String getPrefix() {
+		return "ogham";
+	}
+
+	@Override
+	public Map<String, Object> getAdditionalExpressionObjects(IProcessingContext processingContext) {
+		return Collections.<String, Object> singletonMap(EXPRESSION_OBJECT_NAME, new CachedFragments(engine, cache, processingContext.getContext().getLocale()));
+	}
+
+	/**
+	 * The expression object bound to the locale of the template being
+	 * rendered.
+	 *
+	 * @author Aurélien Baudet
+	 *
+	 */
+	public static class CachedFragments {
+		private static final Logger LOG = LoggerFactory.getLogger(CachedFragments.class);
+
+		private static final String INCLUDE = "include";
+
+		private final TemplateEngine engine;
+		private final FragmentCache cache;
+		private final Locale locale;
+
+		public CachedFragments(TemplateEngine engine, FragmentCache cache, Locale locale) {
+			super();
+			this.engine = engine;
+			this.cache = cache;
+			this.locale = locale;
+		}
+
+		/**
+		 * Render the template once for the locale.
+		 *
+		 * @param templateName
+		 *            the name (or path) of the template to include
+		 * @return the result of the template
+		 */
+		public String include(String templateName) {
+			String output = cache.get(templateName, locale, INCLUDE);
+			if (output == null) {
+				output = engine.process(templateName, new org.thymeleaf.context.Context(locale));
+				cache.put(templateName, locale, INCLUDE, output);
+				LOG.debug("Template {} cached for locale {}", templateName, locale);
+			}
+			return output;
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package fr.sii.ogham.template.thymeleaf;
 
 import fr.sii.ogham.core.exception.template.ContextException;
+import fr.sii.ogham.core.exception.util.FieldAccessException;
 import fr.sii.ogham.core.template.context.Context;
 import fr.sii.ogham.core.template.context.LocaleContext;
 
@@ -15,7 +16,12 @@ public class SimpleThymeleafContextConverter implements ThymeleafContextConverte
 	@Override
 	public org.thymeleaf.context.Context convert(Context context) throws ContextException {
 		org.thymeleaf.context.Context thymeleafContext = new org.thymeleaf.context.Context();
-		thymeleafContext.setVariables(context.getVariables());
+		try {
+			// the variables are copied by Thymeleaf so getters are called here
+			thymeleafContext.setVariables(context.getVariables());
+		} catch (FieldAccessException e) {
+			throw new ContextException("Failed to read the variables of the context", e);
+		}
 		if (context instanceof LocaleContext) {
 			thymeleafContext.setLocale(((LocaleContext) context).getLocale());
 		}
@@ -1,9 +1,14 @@
 package fr.sii.ogham.template.thymeleaf;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.thymeleaf.TemplateProcessingParameters;
 import org.thymeleaf.templateresolver.ITemplateResolver;
 import org.thymeleaf.templateresolver.TemplateResolution;
 
+import fr.sii.ogham.core.cache.Cache;
+import fr.sii.ogham.core.cache.LruCache;
 import fr.sii.ogham.core.resource.ResourcePath;
 import fr.sii.ogham.core.resource.resolver.FirstSupportingResourceResolver;
 import fr.sii.ogham.core.resource.resolver.ResourceResolver;
@@ -25,6 +30,11 @@ import fr.sii.ogham.template.thymeleaf.adapter.FirstSupportingResolverAdapter;
  * {@link ResourceResolver} and the {@link ITemplateResolver} implementation to
  * use with the given path.
  * </p>
+ * <p>
+ * The adapted {@link ITemplateResolver}s are created once for each
+ * {@link ResourceResolver} and the resolved path of each template name is
+ * memoized so Thymeleaf can use its own template cache efficiently.
+ * </p>
  * 
  * @author Cyril Dejonghe
  * @see FirstSupportingResourceResolver
@@ -32,15 +42,56 @@ import fr.sii.ogham.template.thymeleaf.adapter.FirstSupportingResolverAdapter;
  *
  */
 public class ThymeLeafFirstSupportingTemplateResolver implements ITemplateResolver {
+	/**
+	 * Default maximum total length of the memoized resolved paths
+	 */
+	public static final long DEFAULT_RESOLUTIONS_CACHE_WEIGHT = 256 * 1024;
 
 	private FirstSupportingResourceResolver resolver;
 	private FirstSupportingResolverAdapter resolverAdapter;
-	private boolean forceInitialize;
+	private volatile boolean forceInitialize;
+
+	/**
+	 * The Thymeleaf resolvers already adapted for each {@link ResourceResolver}
+	 */
+	private final ConcurrentMap<ResourceResolver, ITemplateResolver> adaptedResolvers;
+
+	/**
+	 * The memoized resolutions (template name to resolved path and adapted
+	 * resolver)
+	 */
+	private final Cache<String, ResolvedTemplate> resolutions;
 
 	public ThymeLeafFirstSupportingTemplateResolver(FirstSupportingResourceResolver resolver, FirstSupportingResolverAdapter resolverAdapter) {
+		this(resolver, resolverAdapter, DEFAULT_RESOLUTIONS_CACHE_WEIGHT);
+	}
+
+	/**
+	 * Initialize the resolver with the maximum total length of the memoized
+	 * resolved paths. The adapted Thymeleaf resolvers are reused for the same
+	 * {@link ResourceResolver} and the resolved path of a template name is
+	 * computed only once.
+	 * 
+	 * @param resolver
+	 *            the resolver that provides the resolved paths
+	 * @param resolverAdapter
+	 *            the adapter that creates the Thymeleaf resolvers
+	 * @param maxResolutionsWeight
+	 *            the maximum total length (in characters) of the memoized
+	 *            resolved paths
+	 */
+	public ThymeLeafFirstSupportingTemplateResolver(FirstSupportingResourceResolver resolver, FirstSupportingResolverAdapter resolverAdapter, long maxResolutionsWeight) {
 		super();
 		this.resolver = resolver;
 		this.resolverAdapter = resolverAdapter;
+		this.adaptedResolvers = new ConcurrentHashMap<>();
+		this.resolutions = new LruCache<String, ResolvedTemplate>(maxResolutionsWeight) {
+			@Override
+			protected long weigh(ResolvedTemplate value) {
+				// string templates are resolved to their content
+				return value.getResolvedPath().length();
+			}
+		};
 	}
 
 	@Override
@@ -56,18 +107,11 @@ public class ThymeLeafFirstSupportingTemplateResolver implements ITemplateResolv
 	@Override
 	public TemplateResolution resolveTemplate(TemplateProcessingParameters templateProcessingParameters) {
 		String unresolvedTemplateName = templateProcessingParameters.getTemplateName();
-		ResourceResolver supportingResolver = resolver.getSupportingResolver(unresolvedTemplateName);
-		ITemplateResolver templateResolver;
 		try {
-			templateResolver = resolverAdapter.adapt(supportingResolver);
-			if (forceInitialize) {
-				// we must initialize the new templateResolver
-				templateResolver.initialize();
-			}
-			String resolvedPath = supportingResolver.getResourcePath(unresolvedTemplateName).getResolvedPath();
-			TemplateProcessingParameters resolvedTemplateProcessingParameters = new TemplateProcessingParameters(templateProcessingParameters.getConfiguration(), resolvedPath,
-					templateProcessingParameters.getContext());
-			return templateResolver.resolveTemplate(resolvedTemplateProcessingParameters);
+			ResolvedTemplate resolved = resolve(unresolvedTemplateName);
+			TemplateProcessingParameters resolvedTemplateProcessingParameters = new TemplateProcessingParameters(templateProcessingParameters.getConfiguration(),
+					resolved.getResolvedPath(), templateProcessingParameters.getContext());
+			return resolved.getTemplateResolver().resolveTemplate(resolvedTemplateProcessingParameters);
 		} catch (NoResolverAdapterException e) {
 			throw new ResolverAdapterNotFoundException("Unable to resolver template cause no adapter supporting template name '" + unresolvedTemplateName + "' was found. ", e);
 
@@ -78,6 +122,67 @@ public class ThymeLeafFirstSupportingTemplateResolver implements ITemplateResolv
 	@Override
 	public void initialize() {
 		forceInitialize = true;
+		for (ITemplateResolver templateResolver : adaptedResolvers.values()) {
+			templateResolver.initialize();
+		}
+	}
+
+	/**
+	 * Forget the memoized resolutions and the adapted resolvers. Useful when
+	 * the underlying resolvers are modified.
+	 */
+	public void clearCache() {
+		resolutions.clear();
+		adaptedResolvers.clear();
+	}
+
+	private ResolvedTemplate resolve(String unresolvedTemplateName) throws NoResolverAdapterException {
+		ResolvedTemplate resolved = resolutions.get(unresolvedTemplateName);
+		if (resolved == null) {
+			ResourceResolver supportingResolver = resolver.getSupportingResolver(unresolvedTemplateName);
+			ITemplateResolver templateResolver = getTemplateResolver(supportingResolver);
+			String resolvedPath = supportingResolver.getResourcePath(unresolvedTemplateName).getResolvedPath();
+			resolved = new ResolvedTemplate(templateResolver, resolvedPath);
+			resolutions.put(unresolvedTemplateName, resolved);
+		}
+		return resolved;
 	}
 
+	private ITemplateResolver getTemplateResolver(ResourceResolver supportingResolver) throws NoResolverAdapterException {
+		if (supportingResolver == null) {
+			return resolverAdapter.adapt(supportingResolver);
+		}
+		ITemplateResolver templateResolver = adaptedResolvers.get(supportingResolver);
+		if (templateResolver == null) {
+			templateResolver = resolverAdapter.adapt(supportingResolver);
+			if (forceInitialize) {
+				// we must initialize the new templateResolver
+				templateResolver.initialize();
+			}
+			ITemplateResolver existing = adaptedResolvers.putIfAbsent(supportingResolver, templateResolver);
+			if (existing != null) {
+				templateResolver = existing;
+			}
+		}
+		return templateResolver;
+	}
+
+	private static class ResolvedTemplate {
+		private final ITemplateResolver templateResolver;
+		private final String resolvedPath;
+
+		public ResolvedTemplate(ITemplateResolver templateResolver, String resolvedPath) {
+			super();
+			this.templateResolver = templateResolver;
+			this.resolvedPath = resolvedPath;
+		}
+
+		public ITemplateResolver getTemplateResolver() {
+			return templateResolver;
+		}
+
+		public String getResolvedPath() {
+			return resolvedPath;
+		}
+	}
 }
@@ -1,24 +1,35 @@
 package fr.sii.ogham.template.thymeleaf;
 
+import java.io.Writer;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.TemplateProcessingParameters;
 import org.thymeleaf.exceptions.TemplateEngineException;
 
 import fr.sii.ogham.core.exception.template.ContextException;
 import fr.sii.ogham.core.exception.template.ParseException;
 import fr.sii.ogham.core.message.content.Content;
 import fr.sii.ogham.core.message.content.StringContent;
+import fr.sii.ogham.core.resource.ResourceChangeListener;
+import fr.sii.ogham.core.template.cache.FragmentCache;
 import fr.sii.ogham.core.template.context.Context;
-import fr.sii.ogham.core.template.parser.TemplateParser;
+import fr.sii.ogham.core.template.parser.BindableTemplateParser;
+import fr.sii.ogham.core.template.parser.BoundTemplate;
+import fr.sii.ogham.core.template.parser.PrecompilableTemplateParser;
+import fr.sii.ogham.core.template.parser.StreamingTemplateParser;
 
 /**
- * Implementation for Thymeleaf template engine.
+ * Implementation for Thymeleaf template engine. The result can be written
+ * directly into a {@link Writer}. The templates can be compiled in advance
+ * into the template cache of Thymeleaf. A template can be loaded once and
+ * rendered many times (see {@link BindableTemplateParser}).
  * 
  * @author Aurélien Baudet
  *
  */
-public class ThymeleafParser implements TemplateParser {
+public class ThymeleafParser implements StreamingTemplateParser, PrecompilableTemplateParser, BindableTemplateParser, ResourceChangeListener {
 	private static final Logger LOG = LoggerFactory.getLogger(ThymeleafParser.class);
 
 	/**
@@ -30,11 +41,33 @@ public class ThymeleafParser implements TemplateParser {
 	 * Converts general context into Thymeleaf specific context
 	 */
 	private ThymeleafContextConverter contextConverter;
+
+	/**
+	 * The cached static blocks (may be null)
+	 */
+	private FragmentCache fragmentCache;
 	
 	public ThymeleafParser(TemplateEngine engine, ThymeleafContextConverter contextConverter) {
+		this(engine, contextConverter, null);
+	}
+
+	/**
+	 * Initialize the parser with the cache of the static blocks included
+	 * through {@link FragmentCacheDialect}. The cache is cleared with the
+	 * template cache.
+	 * 
+	 * @param engine
+	 *            the Thymeleaf engine
+	 * @param contextConverter
+	 *            converts general context into Thymeleaf specific context
+	 * @param fragmentCache
+	 *            the cached static blocks (may be null)
+	 */
+	public ThymeleafParser(TemplateEngine engine, ThymeleafContextConverter contextConverter, FragmentCache fragmentCache) {
 		super();
 		this.engine = engine;
 		this.contextConverter = contextConverter;
+		this.fragmentCache = fragmentCache;
 	}
 
 	public ThymeleafParser(TemplateEngine engine) {
@@ -56,6 +89,75 @@ public class ThymeleafParser implements TemplateParser {
 		}
 	}
 
+	@Override
+	public void parse(String templateName, Context ctx, Writer out) throws ParseException {
+		try {
+			LOG.debug("Streaming Thymeleaf template {} with context {}...", templateName, ctx);
+			engine.process(templateName, contextConverter.convert(ctx), out);
+		} catch (TemplateEngineException e) {
+			throw new ParseException("Failed to parse template with thymeleaf", templateName, ctx, e);
+		} catch (ContextException e) {
+			throw new ParseException("Failed to parse template with thymeleaf due to conversion error", templateName, ctx, e);
+		}
+	}
+
+	@Override
+	public void precompile(String templateName) throws ParseException {
+		try {
+			LOG.debug("Compiling Thymeleaf template {}...", templateName);
+			if (!engine.isInitialized()) {
+				engine.initialize();
+			}
+			// no variable is evaluated while the template is parsed
+			TemplateProcessingParameters parameters = new TemplateProcessingParameters(engine.getConfiguration(), templateName, new org.thymeleaf.context.Context());
+			engine.getTemplateRepository().getTemplate(parameters);
+		} catch (TemplateEngineException e) {
+			throw new ParseException("Failed to compile template with thymeleaf", templateName, null, e);
+		}
+	}
+
+	/**
+	 * The template is compiled into the cache of Thymeleaf. Then it is
+	 * rendered from the cache.
+	 */
+	@Override
+	public BoundTemplate bind(final String templateName) throws ParseException {
+		precompile(templateName);
+		return new BoundTemplate() {
+			@Override
+			public void render(Context ctx, Writer out) throws ParseException {
+				parse(templateName, ctx, out);
+			}
+
+			@Override
+			public String getTemplateName() {
+				return templateName;
+			}
+		};
+	}
+
+	/**
+	 * The templates are cached by name by Thymeleaf (not by resolved path) so
+	 * the whole template cache is cleared.
+	 */
+	@Override
+	public void resourceChanged(String resolvedPath) {
+		LOG.debug("{} has changed => clear Thymeleaf template cache", resolvedPath);
+		engine.clearTemplateCache();
+		if (fragmentCache != null) {
+			fragmentCache.resourceChanged(resolvedPath);
+		}
+	}
+
+	@Override
+	public void allResourcesChanged() {
+		LOG.debug("Resources have changed => clear Thymeleaf template cache");
+		engine.clearTemplateCache();
+		if (fragmentCache != null) {
+			fragmentCache.allResourcesChanged();
+		}
+	}
+
 	@Override
 	public String toString() {
 		return "ThymeleafParser";
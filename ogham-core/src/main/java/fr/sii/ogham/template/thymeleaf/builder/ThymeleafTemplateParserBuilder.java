@@ -8,8 +8,11 @@ import fr.sii.ogham.core.message.content.EmailVariant;
 import fr.sii.ogham.core.resource.ResourcePath;
 import fr.sii.ogham.core.resource.resolver.FirstSupportingResourceResolver;
 import fr.sii.ogham.core.resource.resolver.ResourceResolver;
+import fr.sii.ogham.core.template.cache.FragmentCache;
 import fr.sii.ogham.core.template.parser.TemplateParser;
 import fr.sii.ogham.template.common.adapter.ExtensionMappingVariantResolver;
+import fr.sii.ogham.template.thymeleaf.FragmentCacheDialect;
+import fr.sii.ogham.template.thymeleaf.SimpleThymeleafContextConverter;
 import fr.sii.ogham.template.thymeleaf.TemplateResolverOptions;
 import fr.sii.ogham.template.thymeleaf.ThymeLeafFirstSupportingTemplateResolver;
 import fr.sii.ogham.template.thymeleaf.ThymeleafParser;
@@ -42,6 +45,11 @@ public class ThymeleafTemplateParserBuilder implements TemplateParserBuilder {
 	 */
 	private FirstSupportingResourceResolver resourceResolver;
 
+	/**
+	 * The cache of the static blocks (null if disabled)
+	 */
+	private FragmentCache fragmentCache;
+
 	public ThymeleafTemplateParserBuilder() {
 		super();
 		this.engine = new TemplateEngine();
@@ -53,7 +61,24 @@ public class ThymeleafTemplateParserBuilder implements TemplateParserBuilder {
 	public TemplateParser build() throws BuildException {
 		resolverAdapter.setOptions(new TemplateResolverOptions());
 		engine.addTemplateResolver(new ThymeLeafFirstSupportingTemplateResolver(resourceResolver, resolverAdapter));
-		return new ThymeleafParser(engine);
+		if (fragmentCache != null) {
+			engine.addDialect(new FragmentCacheDialect(engine, fragmentCache));
+		}
+		return new ThymeleafParser(engine, new SimpleThymeleafContextConverter(), fragmentCache);
+	}
+
+	/**
+	 * Enable the <code>#fragmentCache</code> expression object in order to
+	 * include static blocks that are rendered only once per locale (see
+	 * {@link FragmentCacheDialect}).
+	 * 
+	 * @param maxWeight
+	 *            the maximum total length (in characters) of the cached blocks
+	 * @return this instance for fluent use
+	 */
+	public ThymeleafTemplateParserBuilder cacheFragments(long maxWeight) {
+		this.fragmentCache = new FragmentCache(maxWeight);
+		return this;
 	}
 
 	/**
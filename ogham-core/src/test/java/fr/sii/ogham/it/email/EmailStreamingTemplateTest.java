@@ -0,0 +1,146 @@
+package fr.sii.ogham.it.email;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.mail.Multipart;
+import javax.mail.Part;
+import javax.mail.internet.ContentType;
+import javax.mail.internet.MimeBodyPart;
+import javax.mail.internet.MimeMessage;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.icegreen.greenmail.junit.GreenMailRule;
+import com.icegreen.greenmail.util.ServerSetupTest;
+
+import fr.sii.ogham.core.builder.MessagingBuilder;
+import fr.sii.ogham.core.exception.MessagingException;
+import fr.sii.ogham.core.exception.builder.BuildException;
+import fr.sii.ogham.core.message.content.EmailVariant;
+import fr.sii.ogham.core.message.content.MultiTemplateContent;
+import fr.sii.ogham.core.message.content.TemplateVariantContent;
+import fr.sii.ogham.core.service.MessagingService;
+import fr.sii.ogham.core.util.IOUtils;
+import fr.sii.ogham.email.message.Email;
+import fr.sii.ogham.helper.email.AssertEmail;
+import fr.sii.ogham.helper.email.ExpectedContent;
+import fr.sii.ogham.helper.email.ExpectedMultiPartEmail;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+import fr.sii.ogham.mock.context.SimpleBean;
+
+public class EmailStreamingTemplateTest {
+	private MessagingService oghamService;
+	
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+	
+	@Rule
+	public final GreenMailRule greenMail = new GreenMailRule(ServerSetupTest.SMTP);
+	
+	private Properties props;
+	
+	@Before
+	public void setUp() throws IOException {
+		props = new Properties(System.getProperties());
+		props.load(getClass().getResourceAsStream("/application.properties"));
+		props.setProperty("mail.smtp.host", ServerSetupTest.SMTP.getBindAddress());
+		props.setProperty("mail.smtp.port", String.valueOf(ServerSetupTest.SMTP.getPort()));
+		props.setProperty("ogham.email.template.prefix", "/template/");
+		MessagingBuilder builder = new MessagingBuilder().useAllDefaults(props);
+		builder.getEmailBuilder().getContentTranslatorBuilder().withInlining(false).streaming(true);
+		builder.getEmailBuilder().getMessageFillerBuilder().withSubjectFiller(false);
+		oghamService = builder.build();
+	}
+	
+	@Test
+	public void streamedText() throws MessagingException, javax.mail.MessagingException, IOException {
+		oghamService.send(new Email("Template", new TemplateVariantContent("thymeleaf/source/simple", EmailVariant.TEXT, new SimpleBean("Frédéric", 42)), "recipient@sii.fr"));
+		MimeMessage[] messages = greenMail.getReceivedMessages();
+		Assert.assertEquals(1, messages.length);
+		MimeBodyPart part = getPart(messages[0], "text/plain");
+		assertStreamed(part);
+		Assert.assertEquals("Frédéric 42", part.getContent());
+		String raw = new String(IOUtils.toByteArray(part.getRawInputStream()), StandardCharsets.US_ASCII);
+		Assert.assertTrue("body should be encoded as quoted-printable UTF-8 but was " + raw, raw.contains("Fr=C3=A9d=C3=A9ric 42"));
+	}
+	
+	@Test
+	public void streamedMulti() throws MessagingException, javax.mail.MessagingException, IOException {
+		oghamService.send(new Email("Template", new MultiTemplateContent("thymeleaf/source/simple", new SimpleBean("foo", 42)), "recipient@sii.fr"));
+		AssertEmail.assertSimilar(new ExpectedMultiPartEmail("Template", new ExpectedContent[] {
+				new ExpectedContent(getClass().getResourceAsStream("/template/thymeleaf/expected/simple_foo_42.txt"), "text/plain.*"),
+				new ExpectedContent(getClass().getResourceAsStream("/template/thymeleaf/expected/simple_foo_42.html"), "text/html.*")
+		}, "test.sender@sii.fr", "recipient@sii.fr"), greenMail.getReceivedMessages());
+		assertStreamed(getPart(greenMail.getReceivedMessages()[0], "text/plain"));
+		assertStreamed(getPart(greenMail.getReceivedMessages()[0], "text/html"));
+	}
+	
+	@Test
+	public void templateErrorBeforeTransaction() {
+		try {
+			oghamService.send(new Email("Template", new TemplateVariantContent("thymeleaf/source/invalid", EmailVariant.HTML, new SimpleBean("foo", 42)), "recipient@sii.fr"));
+			Assert.fail("template error should be reported");
+		} catch (MessagingException e) {
+			Assert.assertEquals("no message should be sent", 0, greenMail.getReceivedMessages().length);
+		}
+	}
+	
+	@Test(expected = BuildException.class)
+	public void streamingWithInlining() {
+		MessagingBuilder builder = new MessagingBuilder().useAllDefaults(props);
+		builder.getEmailBuilder().getContentTranslatorBuilder().streaming(true);
+		builder.getEmailBuilder().getMessageFillerBuilder().withSubjectFiller(false);
+		builder.build();
+	}
+	
+	@Test(expected = BuildException.class)
+	public void streamingWithTemplateSubject() {
+		MessagingBuilder builder = new MessagingBuilder().useAllDefaults(props);
+		builder.getEmailBuilder().getContentTranslatorBuilder().withInlining(false).streaming(true);
+		builder.build();
+	}
+	
+	@Test(expected = BuildException.class)
+	public void streamingWithChunkedTransport() {
+		MessagingBuilder builder = new MessagingBuilder().useAllDefaults(props);
+		builder.getEmailBuilder().getContentTranslatorBuilder().withInlining(false).streaming(true);
+		builder.getEmailBuilder().getMessageFillerBuilder().withSubjectFiller(false);
+		builder.getEmailBuilder().getJavaMailBuilder().chunkRecipients(2);
+		builder.build();
+	}
+	
+	private static void assertStreamed(MimeBodyPart part) throws javax.mail.MessagingException {
+		Assert.assertNotNull("part should be received", part);
+		Assert.assertEquals("UTF-8", new ContentType(part.getContentType()).getParameter("charset"));
+		Assert.assertEquals("quoted-printable", part.getEncoding());
+	}
+	
+	private static MimeBodyPart getPart(Part message, String mimetype) throws javax.mail.MessagingException, IOException {
+		List<MimeBodyPart> parts = new ArrayList<>();
+		collectParts(message, parts);
+		for (MimeBodyPart part : parts) {
+			if (part.isMimeType(mimetype)) {
+				return part;
+			}
+		}
+		return null;
+	}
+	
+	private static void collectParts(Part part, List<MimeBodyPart> parts) throws javax.mail.MessagingException, IOException {
+		if (part.isMimeType("multipart/*")) {
+			Multipart multipart = (Multipart) part.getContent();
+			for (int i = 0; i < multipart.getCount(); i++) {
+				collectParts(multipart.getBodyPart(i), parts);
+			}
+		} else if (part instanceof MimeBodyPart) {
+			parts.add((MimeBodyPart) part);
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package fr.sii.ogham.ut.cache;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import fr.sii.ogham.core.cache.LruCache;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class LruCacheTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Test
+	public void evictLeastRecentlyUsed() {
+		LruCache<String, String> cache = new LruCache<>(2);
+		cache.put("a", "A");
+		cache.put("b", "B");
+		// access "a" so "b" becomes the least recently used
+		Assert.assertEquals("A", cache.get("a"));
+		cache.put("c", "C");
+		Assert.assertEquals("cache should be bounded", 2, cache.size());
+		Assert.assertNull("b should be evicted", cache.get("b"));
+		Assert.assertEquals("A", cache.get("a"));
+		Assert.assertEquals("C", cache.get("c"));
+	}
+
+	@Test
+	public void weighedValues() {
+		LruCache<String, String> cache = new LruCache<String, String>(10) {
+			@Override
+			protected long weigh(String value) {
+				return value.length();
+			}
+		};
+		cache.put("a", "aaaa");
+		cache.put("b", "bbbb");
+		Assert.assertEquals(8, cache.getWeight());
+		cache.put("c", "cccc");
+		Assert.assertNull("a should be evicted", cache.get("a"));
+		Assert.assertEquals(8, cache.getWeight());
+		cache.put("d", "this value is too big");
+		Assert.assertNull("too big value should not be cached", cache.get("d"));
+		Assert.assertEquals(8, cache.getWeight());
+	}
+
+	@Test
+	public void replaceAndRemove() {
+		LruCache<String, String> cache = new LruCache<>(5);
+		cache.put("a", "A");
+		cache.put("a", "AA");
+		Assert.assertEquals(1, cache.size());
+		Assert.assertEquals("AA", cache.get("a"));
+		cache.remove("a");
+		Assert.assertNull(cache.get("a"));
+		Assert.assertEquals(0, cache.getWeight());
+	}
+}
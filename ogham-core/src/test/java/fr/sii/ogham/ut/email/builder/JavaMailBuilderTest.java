@@ -0,0 +1,46 @@
+package fr.sii.ogham.ut.email.builder;
+
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import fr.sii.ogham.core.mimetype.CachedMimeTypeProvider;
+import fr.sii.ogham.core.mimetype.FallbackMimeTypeProvider;
+import fr.sii.ogham.email.EmailConstants;
+import fr.sii.ogham.email.EmailConstants.SmtpConstants;
+import fr.sii.ogham.email.builder.JavaMailBuilder;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class JavaMailBuilderTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Test
+	public void eightBitMimeDisabledByDefault() {
+		Assert.assertFalse(new JavaMailBuilder().isAllow8BitMime());
+		Assert.assertFalse(new JavaMailBuilder().useDefaults(new Properties()).isAllow8BitMime());
+	}
+
+	@Test
+	public void eightBitMimeEnabled() {
+		Properties props = new Properties();
+		props.setProperty(SmtpConstants.ALLOW_8BITMIME_KEY, "true");
+		Assert.assertTrue(new JavaMailBuilder().useDefaults(props).isAllow8BitMime());
+		Assert.assertTrue(new JavaMailBuilder().allow8BitMime(true).isAllow8BitMime());
+	}
+
+	@Test
+	public void mimetypesCachedByDefault() {
+		Assert.assertTrue(new JavaMailBuilder().useDefaults(new Properties()).getMimetypeProvider() instanceof CachedMimeTypeProvider);
+	}
+
+	@Test
+	public void mimetypeCacheDisabled() {
+		Properties props = new Properties();
+		props.setProperty(EmailConstants.MIMETYPE_CACHE_SIZE_KEY, "0");
+		Assert.assertTrue(new JavaMailBuilder().useDefaults(props).getMimetypeProvider() instanceof FallbackMimeTypeProvider);
+		Assert.assertTrue(new JavaMailBuilder().cacheMimetypes(0).getMimetypeProvider() instanceof FallbackMimeTypeProvider);
+	}
+}
@@ -0,0 +1,197 @@
+package fr.sii.ogham.ut.email.sender.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+
+import javax.activation.DataHandler;
+import javax.mail.BodyPart;
+import javax.mail.MessagingException;
+import javax.mail.internet.ContentType;
+import javax.mail.internet.MimeBodyPart;
+import javax.mail.util.ByteArrayDataSource;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.sii.ogham.core.resource.ByteResource;
+import fr.sii.ogham.core.resource.FileResource;
+import fr.sii.ogham.core.resource.LookupResource;
+import fr.sii.ogham.core.resource.NamedResource;
+import fr.sii.ogham.core.util.IOUtils;
+import fr.sii.ogham.email.attachment.Attachment;
+import fr.sii.ogham.email.exception.javamail.AttachmentResourceHandlerException;
+import fr.sii.ogham.email.sender.impl.javamail.EncodedAttachment;
+import fr.sii.ogham.email.sender.impl.javamail.EncodedAttachmentCache;
+import fr.sii.ogham.email.sender.impl.javamail.JavaMailAttachmentResourceHandler;
+import fr.sii.ogham.email.sender.impl.javamail.MapAttachmentResourceHandler;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class EncodedAttachmentCacheTest {
+	private static final byte[] CONTENT = "some content to attach".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] BINARY = new byte[] { (byte) 0x89, 'P', 'N', 'G', 0, 0, (byte) 0xff, (byte) 0xfe, 1, 2, 3, 4 };
+
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private EncodedAttachmentCache cache;
+
+	@Before
+	public void setUp() {
+		cache = new EncodedAttachmentCache();
+	}
+
+	@Test
+	public void fileKeyedByPath() throws IOException {
+		File file = folder.newFile("attachment.txt");
+		Files.write(file.toPath(), CONTENT);
+		Object key = cache.getKey(new FileResource(file));
+		Assert.assertEquals("same file should have the same key", key, cache.getKey(new FileResource(file)));
+		Files.write(file.toPath(), "modified content".getBytes(StandardCharsets.UTF_8));
+		Assert.assertNotEquals("modified file should have another key", key, cache.getKey(new FileResource(file)));
+	}
+
+	@Test
+	public void lookupKeyedByPath() throws IOException {
+		Assert.assertEquals(cache.getKey(new LookupResource("classpath:/attachment/04-Java-OOP-Basics.pdf")), cache.getKey(new LookupResource("classpath:/attachment/04-Java-OOP-Basics.pdf")));
+		Assert.assertNotEquals(cache.getKey(new LookupResource("classpath:/attachment/04-Java-OOP-Basics.pdf")), cache.getKey(new LookupResource("classpath:/attachment/other.pdf")));
+	}
+
+	@Test
+	public void otherResourcesNotCached() throws IOException {
+		Assert.assertNull("bytes provided for one email should not be cached", cache.getKey(new ByteResource("attachment.txt", CONTENT)));
+	}
+
+	@Test
+	public void fileBiggerThanBudgetNotCached() throws IOException {
+		File file = folder.newFile("attachment.txt");
+		Files.write(file.toPath(), CONTENT);
+		Assert.assertNull(new EncodedAttachmentCache(CONTENT.length - 1).getKey(new FileResource(file)));
+		Assert.assertNotNull(new EncodedAttachmentCache(CONTENT.length).getKey(new FileResource(file)));
+	}
+
+	@Test
+	public void hitAndMiss() throws IOException, MessagingException {
+		File file = folder.newFile("attachment.txt");
+		Files.write(file.toPath(), CONTENT);
+		FileResource resource = new FileResource(file);
+		Assert.assertNull("not cached yet", cache.get(cache.getKey(resource)));
+		EncodedAttachment encoded = new EncodedAttachment("text/plain", "base64", CONTENT);
+		cache.put(cache.getKey(resource), encoded);
+		Assert.assertSame(encoded, cache.get(cache.getKey(resource)));
+		Assert.assertSame("same file should be cached", encoded, cache.get(cache.getKey(new FileResource(file))));
+	}
+
+	@Test
+	public void evictedByMemoryBudget() throws IOException, MessagingException {
+		EncodedAttachmentCache bounded = new EncodedAttachmentCache(10);
+		bounded.put("a", new EncodedAttachment("text/plain", "base64", new byte[6]));
+		bounded.put("b", new EncodedAttachment("text/plain", "base64", new byte[6]));
+		Assert.assertNull("least recently used attachment should be evicted", bounded.get("a"));
+		Assert.assertNotNull(bounded.get("b"));
+		bounded.put("c", new EncodedAttachment("text/plain", "base64", new byte[11]));
+		Assert.assertNull("attachment bigger than the budget should not be cached", bounded.get("c"));
+	}
+
+	@Test
+	public void encodeBounded() throws MessagingException, IOException {
+		MimeBodyPart source = new MimeBodyPart();
+		source.setDataHandler(new DataHandler(new ByteArrayDataSource(BINARY, "image/png")));
+		Assert.assertNull("base64 content exceeds the limit", EncodedAttachment.encode(source, BINARY.length));
+		Assert.assertNotNull(EncodedAttachment.encode(source, 2 * BINARY.length));
+	}
+
+	@Test
+	public void applyKeepsFileNameAndEncoding() throws MessagingException, IOException {
+		MimeBodyPart source = new MimeBodyPart();
+		source.setDataHandler(new DataHandler(new ByteArrayDataSource(CONTENT, "application/pdf")));
+		EncodedAttachment encoded = EncodedAttachment.encode(source);
+		MimeBodyPart part = new MimeBodyPart();
+		part.setFileName("report.pdf");
+		encoded.applyTo(part);
+		Assert.assertEquals("report.pdf", part.getFileName());
+		Assert.assertEquals(encoded.getEncoding(), part.getEncoding());
+		ContentType type = new ContentType(part.getContentType());
+		Assert.assertEquals("application/pdf", type.getBaseType());
+		Assert.assertEquals("report.pdf", type.getParameter("name"));
+		Assert.assertArrayEquals("decoded content should be the original content", CONTENT, IOUtils.toByteArray(part.getInputStream()));
+	}
+
+	@Test
+	public void cachedData() throws AttachmentResourceHandlerException, MessagingException, IOException {
+		CountingHandler handler = new CountingHandler();
+		MapAttachmentResourceHandler mapHandler = new MapAttachmentResourceHandler(new HashMap<Class<? extends NamedResource>, JavaMailAttachmentResourceHandler>(), cache);
+		mapHandler.addResourceHandler(FileResource.class, handler);
+		mapHandler.addResourceHandler(ByteResource.class, handler);
+		File file = folder.newFile("attachment.txt");
+		Files.write(file.toPath(), CONTENT);
+		FileResource resource = new FileResource(file);
+		Attachment attachment = new Attachment(resource);
+		MimeBodyPart first = new MimeBodyPart();
+		first.setFileName("attachment.txt");
+		mapHandler.setData(first, resource, attachment);
+		MimeBodyPart second = new MimeBodyPart();
+		second.setFileName("attachment.txt");
+		mapHandler.setData(second, resource, attachment);
+		Assert.assertEquals("content should be read once", 1, handler.calls);
+		Assert.assertArrayEquals(CONTENT, IOUtils.toByteArray(first.getInputStream()));
+		Assert.assertArrayEquals(CONTENT, IOUtils.toByteArray(second.getInputStream()));
+		Assert.assertEquals("attachment.txt", second.getFileName());
+		Assert.assertEquals("text/plain", new ContentType(second.getContentType()).getBaseType());
+		ByteResource other = new ByteResource("attachment.txt", CONTENT);
+		mapHandler.setData(new MimeBodyPart(), other, new Attachment(other));
+		mapHandler.setData(new MimeBodyPart(), other, new Attachment(other));
+		Assert.assertEquals("bytes should be streamed each time", 4, handler.calls);
+		Assert.assertEquals("only the file should be cached", 1, cache.size());
+	}
+
+	@Test
+	public void overBudgetStreamed() throws AttachmentResourceHandlerException, MessagingException, IOException {
+		CountingHandler handler = new CountingHandler("application/octet-stream");
+		// the file fits but not its base64 encoding
+		EncodedAttachmentCache bounded = new EncodedAttachmentCache(BINARY.length);
+		MapAttachmentResourceHandler mapHandler = new MapAttachmentResourceHandler(new HashMap<Class<? extends NamedResource>, JavaMailAttachmentResourceHandler>(), bounded);
+		mapHandler.addResourceHandler(FileResource.class, handler);
+		File file = folder.newFile("attachment.bin");
+		Files.write(file.toPath(), BINARY);
+		FileResource resource = new FileResource(file);
+		MimeBodyPart part = new MimeBodyPart();
+		mapHandler.setData(part, resource, new Attachment(resource));
+		mapHandler.setData(new MimeBodyPart(), resource, new Attachment(resource));
+		Assert.assertEquals("nothing should be cached", 0, bounded.size());
+		Assert.assertEquals("content should be streamed after the failed encoding", 4, handler.calls);
+		Assert.assertArrayEquals(BINARY, IOUtils.toByteArray(part.getInputStream()));
+	}
+
+	private static class CountingHandler implements JavaMailAttachmentResourceHandler {
+		private final String mimetype;
+		private int calls;
+
+		public CountingHandler() {
+			this("text/plain");
+		}
+
+		public CountingHandler(String mimetype) {
+			super();
+			this.mimetype = mimetype;
+		}
+
+		@Override
+		public void setData(BodyPart part, NamedResource resource, Attachment attachment) throws AttachmentResourceHandlerException {
+			calls++;
+			try {
+				part.setDataHandler(new DataHandler(new ByteArrayDataSource(resource.getInputStream(), mimetype)));
+			} catch (MessagingException | IOException e) {
+				throw new AttachmentResourceHandlerException("Failed to attach " + resource.getName(), attachment, e);
+			}
+		}
+	}
+}
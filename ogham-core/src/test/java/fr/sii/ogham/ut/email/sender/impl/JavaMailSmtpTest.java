@@ -2,23 +2,39 @@ package fr.sii.ogham.ut.email.sender.impl;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.mail.BodyPart;
 import javax.mail.MessagingException;
+import javax.mail.Multipart;
+import javax.mail.internet.MimeMessage;
 
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import com.icegreen.greenmail.imap.ImapHostManager;
 import com.icegreen.greenmail.junit.GreenMailRule;
+import com.icegreen.greenmail.store.FolderException;
+import com.icegreen.greenmail.user.GreenMailUser;
 import com.icegreen.greenmail.util.ServerSetupTest;
 
 import fr.sii.ogham.core.exception.MessageException;
+import fr.sii.ogham.core.util.IOUtils;
 import fr.sii.ogham.email.attachment.Attachment;
 import fr.sii.ogham.email.builder.JavaMailBuilder;
 import fr.sii.ogham.email.message.Email;
 import fr.sii.ogham.email.message.EmailAddress;
 import fr.sii.ogham.email.sender.impl.JavaMailSender;
+import fr.sii.ogham.email.sender.impl.javamail.ChunkedTransport;
 import fr.sii.ogham.helper.email.AssertAttachment;
 import fr.sii.ogham.helper.email.AssertEmail;
 import fr.sii.ogham.helper.email.ExpectedAttachment;
@@ -28,15 +44,20 @@ import fr.sii.ogham.helper.rule.LoggingTestRule;
 public class JavaMailSmtpTest {
 	private JavaMailSender sender;
 	
+	private Properties props;
+	
 	@Rule
 	public final LoggingTestRule loggingRule = new LoggingTestRule();
 	
 	@Rule
 	public final GreenMailRule greenMail = new GreenMailRule(ServerSetupTest.SMTP);
 	
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+	
 	@Before
 	public void setUp() throws IOException {
-		Properties props = new Properties(System.getProperties());
+		props = new Properties(System.getProperties());
 		props.setProperty("mail.smtp.host", ServerSetupTest.SMTP.getBindAddress());
 		props.setProperty("mail.smtp.port", String.valueOf(ServerSetupTest.SMTP.getPort()));
 		sender = new JavaMailBuilder().useDefaults(props).build();
@@ -55,8 +76,60 @@ public class JavaMailSmtpTest {
 		AssertAttachment.assertEquals(new ExpectedAttachment("/attachment/04-Java-OOP-Basics.pdf", "application/pdf.*"), greenMail.getReceivedMessages());
 	}
 	
+	@Test
+	public void largeMappedFile() throws MessageException, MessagingException, IOException {
+		byte[] content = new byte[8 * 1024 * 1024];
+		new Random(42).nextBytes(content);
+		File file = folder.newFile("large.bin");
+		Files.write(file.toPath(), content);
+		JavaMailSender mappedSender = new JavaMailBuilder().useDefaults(props).mapAttachmentFiles().build();
+		mappedSender.send(new Email("Subject", "Body", new EmailAddress("custom.sender@sii.fr"), "recipient@sii.fr", new Attachment(file)));
+		mappedSender.send(new Email("Subject", "Body", new EmailAddress("custom.sender@sii.fr"), "other@sii.fr", new Attachment(file)));
+		MimeMessage[] messages = greenMail.getReceivedMessages();
+		Assert.assertEquals(2, messages.length);
+		for (MimeMessage message : messages) {
+			BodyPart attachment = getAttachment(message, "large.bin");
+			Assert.assertNotNull("attachment should be received", attachment);
+			Assert.assertArrayEquals("attachment should be received intact", content, IOUtils.toByteArray(attachment.getInputStream()));
+		}
+	}
+	
+	@Test
+	public void chunkedRecipients() throws MessageException, MessagingException, FolderException {
+		final AtomicInteger chunks = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>()) {
+			@Override
+			protected void beforeExecute(Thread t, Runnable r) {
+				chunks.incrementAndGet();
+			}
+		};
+		JavaMailBuilder builder = new JavaMailBuilder().useDefaults(props);
+		try (JavaMailSender chunkedSender = new JavaMailSender(props, builder.buildMessageFactory(), null, new ChunkedTransport(2, 2, executor))) {
+			chunkedSender.send(new Email("Subject", "Body", new EmailAddress("custom.sender@sii.fr"), "r1@sii.fr", "r2@sii.fr", "r3@sii.fr", "r4@sii.fr", "r5@sii.fr"));
+		}
+		Assert.assertEquals("recipients should be split into chunks of 2", 3, chunks.get());
+		Assert.assertEquals("each recipient should receive the message", 5, greenMail.getReceivedMessages().length);
+		ImapHostManager imapHostManager = greenMail.getManagers().getImapHostManager();
+		for (String recipient : new String[] { "r1@sii.fr", "r2@sii.fr", "r3@sii.fr", "r4@sii.fr", "r5@sii.fr" }) {
+			GreenMailUser user = greenMail.getManagers().getUserManager().getUserByEmail(recipient);
+			Assert.assertNotNull(recipient + " should receive the message", user);
+			Assert.assertEquals(recipient + " should receive the message once", 1, imapHostManager.getInbox(user).getMessageCount());
+		}
+	}
+	
 	@Test(expected=IllegalArgumentException.class)
 	public void invalid() throws MessageException {
 		sender.send(new Email("subject", "content"));
 	}
+
+	private static BodyPart getAttachment(MimeMessage message, String fileName) throws MessagingException, IOException {
+		Multipart multipart = (Multipart) message.getContent();
+		for (int i = 0; i < multipart.getCount(); i++) {
+			BodyPart part = multipart.getBodyPart(i);
+			if (fileName.equals(part.getFileName())) {
+				return part;
+			}
+		}
+		return null;
+	}
 }
@@ -0,0 +1,123 @@
+package fr.sii.ogham.ut.email.sender.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Random;
+
+import javax.activation.DataSource;
+import javax.mail.BodyPart;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeBodyPart;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.sii.ogham.core.mimetype.FixedMimeTypeProvider;
+import fr.sii.ogham.core.resource.FileResource;
+import fr.sii.ogham.core.util.IOUtils;
+import fr.sii.ogham.email.attachment.Attachment;
+import fr.sii.ogham.email.exception.javamail.AttachmentResourceHandlerException;
+import fr.sii.ogham.email.sender.impl.javamail.FileResourceHandler;
+import fr.sii.ogham.email.sender.impl.javamail.MappedFileDataSource;
+import fr.sii.ogham.email.sender.impl.javamail.ResourceDataSource;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class MappedFileDataSourceTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private byte[] content;
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		content = new byte[64 * 1024];
+		new Random(42).nextBytes(content);
+		file = folder.newFile("attachment.bin");
+		Files.write(file.toPath(), content);
+	}
+
+	@Test
+	public void content() throws IOException {
+		MappedFileDataSource dataSource = new MappedFileDataSource(file, "application/octet-stream");
+		Assert.assertArrayEquals(content, IOUtils.toByteArray(dataSource.getInputStream()));
+		Assert.assertArrayEquals("content should be readable again", content, IOUtils.toByteArray(dataSource.getInputStream()));
+		Assert.assertEquals(content.length, dataSource.getSize());
+	}
+
+	@Test
+	public void independentStreams() throws IOException {
+		MappedFileDataSource dataSource = new MappedFileDataSource(file, "application/octet-stream");
+		InputStream first = dataSource.getInputStream();
+		InputStream second = dataSource.getInputStream();
+		Assert.assertEquals(content[0] & 0xFF, first.read());
+		Assert.assertEquals(content[1] & 0xFF, first.read());
+		Assert.assertEquals("each stream should have its own position", content[0] & 0xFF, second.read());
+		first.mark(10);
+		Assert.assertEquals(content[2] & 0xFF, first.read());
+		first.reset();
+		Assert.assertEquals(content[2] & 0xFF, first.read());
+		Assert.assertEquals(content.length - 3, first.available());
+	}
+
+	@Test
+	public void contentTypeAndName() {
+		MappedFileDataSource dataSource = new MappedFileDataSource(file, "application/pdf");
+		Assert.assertEquals("application/pdf", dataSource.getContentType());
+		Assert.assertEquals("attachment.bin", dataSource.getName());
+		Assert.assertEquals(file, dataSource.getFile());
+	}
+
+	@Test(expected = IOException.class)
+	public void readOnly() throws IOException {
+		new MappedFileDataSource(file, "application/octet-stream").getOutputStream();
+	}
+
+	@Test
+	public void streamedByDefault() throws AttachmentResourceHandlerException, MessagingException {
+		FileResourceHandler handler = new FileResourceHandler(new FixedMimeTypeProvider());
+		Assert.assertTrue(attach(handler, file) instanceof ResourceDataSource);
+	}
+
+	@Test
+	public void mappingSharedPerFile() throws AttachmentResourceHandlerException, MessagingException, IOException {
+		FileResourceHandler handler = new FileResourceHandler(new FixedMimeTypeProvider(), FileResourceHandler.DEFAULT_MAPPED_FILES_WEIGHT);
+		DataSource dataSource = attach(handler, file);
+		Assert.assertTrue(dataSource instanceof MappedFileDataSource);
+		Assert.assertEquals("text/plain", dataSource.getContentType());
+		Assert.assertEquals("attachment.bin", dataSource.getName());
+		Assert.assertSame("mapping should be shared", dataSource, attach(handler, file));
+		Assert.assertArrayEquals(content, IOUtils.toByteArray(dataSource.getInputStream()));
+		Files.write(file.toPath(), new byte[10]);
+		Assert.assertNotSame("modified file should be mapped again", dataSource, attach(handler, file));
+		DataSource modified = attach(handler, file);
+		handler.clearMappedFiles();
+		Assert.assertNotSame("mapping should be released", modified, attach(handler, file));
+	}
+
+	@Test
+	public void mappingsBounded() throws AttachmentResourceHandlerException, MessagingException, IOException {
+		File other = folder.newFile("other.bin");
+		Files.write(other.toPath(), content);
+		FileResourceHandler handler = new FileResourceHandler(new FixedMimeTypeProvider(), content.length + 1);
+		DataSource dataSource = attach(handler, file);
+		attach(handler, other);
+		Assert.assertNotSame("least recently used mapping should be released", dataSource, attach(handler, file));
+	}
+
+	private static DataSource attach(FileResourceHandler handler, File file) throws AttachmentResourceHandlerException, MessagingException {
+		BodyPart part = new MimeBodyPart();
+		FileResource resource = new FileResource(file);
+		handler.setData(part, resource, new Attachment(resource));
+		return part.getDataHandler().getDataSource();
+	}
+}
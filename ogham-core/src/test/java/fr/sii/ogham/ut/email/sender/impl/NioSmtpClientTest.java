@@ -0,0 +1,379 @@
+package fr.sii.ogham.ut.email.sender.impl;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import fr.sii.ogham.core.util.SpillingOutputStream;
+import fr.sii.ogham.email.exception.smtp.SmtpException;
+import fr.sii.ogham.email.sender.impl.smtp.NioSmtpClient;
+import fr.sii.ogham.email.sender.impl.smtp.SmtpData;
+import fr.sii.ogham.email.sender.impl.smtp.SmtpDataOutputStream;
+import fr.sii.ogham.email.sender.impl.smtp.SmtpEnvelope;
+import fr.sii.ogham.email.sender.impl.smtp.SmtpResult;
+import fr.sii.ogham.email.sender.impl.smtp.SmtpTransaction;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+/**
+ * Test the SMTP dialog of the {@link NioSmtpClient} against a scripted server
+ * that replies to pipelined commands at once, rejects some recipients or
+ * doesn't reply at all.
+ */
+public class NioSmtpClientTest {
+	private static final byte[] DATA = "Subject: test\r\n\r\nBody\r\n.\r\n".getBytes(StandardCharsets.US_ASCII);
+
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	private ScriptedSmtpServer server;
+
+	private NioSmtpClient client;
+
+	@Before
+	public void setUp() throws IOException {
+		server = new ScriptedSmtpServer();
+		server.reject("rejected@sii.fr");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		if (client != null) {
+			client.close();
+		}
+		server.close();
+	}
+
+	@Test
+	public void pipelinedRepliesAndRejectedRecipient() throws IOException, SmtpException, InterruptedException {
+		client = newClient(4, 60000);
+		SmtpResult result = send("r1@sii.fr", "rejected@sii.fr", "r2@sii.fr").get(5, TimeUnit.SECONDS);
+		Assert.assertTrue("commands should be pipelined", server.isPipelined());
+		Assert.assertEquals(Arrays.asList("r1@sii.fr", "r2@sii.fr"), result.getAcceptedRecipients());
+		Assert.assertEquals(Collections.singleton("rejected@sii.fr"), result.getRejectedRecipients().keySet());
+		Assert.assertEquals(550, result.getRejectedRecipients().get("rejected@sii.fr").getCode());
+		Assert.assertEquals("message should be delivered to accepted recipients", Arrays.asList(Arrays.asList("r1@sii.fr", "r2@sii.fr")), server.getMessages());
+	}
+
+	@Test
+	public void allRecipientsRejected() throws IOException, SmtpException, InterruptedException {
+		client = newClient(1, 60000);
+		try {
+			send("rejected@sii.fr").get(5, TimeUnit.SECONDS);
+			Assert.fail("SmtpException expected");
+		} catch (SmtpException e) {
+			Assert.assertTrue(e.getMessage().contains("All recipients rejected"));
+		}
+		send("r1@sii.fr").get(5, TimeUnit.SECONDS);
+		Assert.assertEquals("connection should be reused after reset", 1, server.getConnections());
+		Assert.assertEquals(Arrays.asList(Arrays.asList("r1@sii.fr")), server.getMessages());
+	}
+
+	@Test
+	public void noReply() throws IOException, InterruptedException {
+		client = newClient(1, 300);
+		server.setHang(true);
+		try {
+			send("r1@sii.fr").get(10, TimeUnit.SECONDS);
+			Assert.fail("SmtpException expected");
+		} catch (SmtpException e) {
+			Assert.assertTrue(e.getMessage().contains("No reply"));
+		}
+		server.waitClosed(1);
+	}
+
+	@Test
+	public void cancelledOnTimeout() throws IOException, SmtpException, InterruptedException {
+		client = newClient(1, 60000);
+		server.setHang(true);
+		SmtpTransaction tx = send("r1@sii.fr");
+		try {
+			tx.get(200, TimeUnit.MILLISECONDS);
+			Assert.fail("SmtpException expected");
+		} catch (SmtpException e) {
+			Assert.assertTrue(tx.isCancelled());
+		}
+		server.waitClosed(1);
+		server.setHang(false);
+		send("r2@sii.fr").get(5, TimeUnit.SECONDS);
+		Assert.assertEquals("cancelled transaction should not be delivered", Arrays.asList(Arrays.asList("r2@sii.fr")), server.getMessages());
+	}
+
+	@Test
+	public void queuedTransactionCancelled() throws IOException, SmtpException, InterruptedException {
+		client = newClient(1, 60000);
+		server.setHang(true);
+		SmtpTransaction first = send("r1@sii.fr");
+		SmtpTransaction queued = send("r2@sii.fr");
+		try {
+			queued.get(200, TimeUnit.MILLISECONDS);
+			Assert.fail("SmtpException expected");
+		} catch (SmtpException e) {
+			Assert.assertTrue(queued.isCancelled());
+		}
+		try {
+			first.get(200, TimeUnit.MILLISECONDS);
+			Assert.fail("SmtpException expected");
+		} catch (SmtpException e) {
+			Assert.assertTrue(first.isCancelled());
+		}
+		server.waitClosed(1);
+		server.setHang(false);
+		send("r3@sii.fr").get(5, TimeUnit.SECONDS);
+		Assert.assertEquals("cancelled transactions should not be delivered", Arrays.asList(Arrays.asList("r3@sii.fr")), server.getMessages());
+	}
+
+	@Test
+	public void spooledDataSentByChunks() throws IOException, SmtpException, InterruptedException {
+		client = newClient(1, 60000);
+		StringBuilder content = new StringBuilder("Subject: test\r\n\r\n");
+		for (int i = 0; i < 5000; i++) {
+			content.append("line ").append(i).append("\r\n");
+		}
+		SpillingOutputStream spooled = new SpillingOutputStream(1024, "ogham-smtp-test");
+		SmtpDataOutputStream out = new SmtpDataOutputStream(spooled);
+		out.write(content.toString().getBytes(StandardCharsets.US_ASCII));
+		out.finish();
+		spooled.close();
+		Assert.assertTrue("data should be written to a file", spooled.isSpilled());
+		SmtpData data = new SmtpData(spooled);
+		client.send(new SmtpEnvelope("sender@sii.fr", Arrays.asList("r1@sii.fr"), data, false)).get(5, TimeUnit.SECONDS);
+		client.send(new SmtpEnvelope("sender@sii.fr", Arrays.asList("r2@sii.fr"), data, false)).get(5, TimeUnit.SECONDS);
+		Assert.assertEquals("data should be read for each transaction", Arrays.asList(content.toString(), content.toString()), server.getContents());
+		data.close();
+		Assert.assertFalse("temporary file should be deleted", spooled.getFile().exists());
+	}
+
+	private NioSmtpClient newClient(int maxConnections, long readTimeout) throws IOException {
+		return new NioSmtpClient("127.0.0.1", server.getPort(), "localhost", null, null, maxConnections, 1, 30000, readTimeout);
+	}
+
+	private SmtpTransaction send(String... recipients) {
+		return client.send(new SmtpEnvelope("sender@sii.fr", Arrays.asList(recipients), DATA));
+	}
+
+	/**
+	 * Minimal SMTP server that advertises PIPELINING and replies to MAIL, RCPT
+	 * and DATA at once. The server can also be configured to never reply to
+	 * MAIL.
+	 */
+	private static class ScriptedSmtpServer implements Runnable, Closeable {
+		private static final long PIPELINING_WAIT = 2000;
+
+		private final ServerSocket serverSocket;
+		private final Set<String> rejected;
+		private final List<List<String>> messages;
+		private final List<String> contents;
+		private final List<Socket> sockets;
+		private final AtomicInteger connections;
+		private final AtomicInteger closedConnections;
+		private volatile boolean pipelined;
+		private volatile boolean hang;
+
+		public ScriptedSmtpServer() throws IOException {
+			super();
+			serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+			rejected = Collections.synchronizedSet(new HashSet<String>());
+			messages = new CopyOnWriteArrayList<>();
+			contents = new CopyOnWriteArrayList<>();
+			sockets = new CopyOnWriteArrayList<>();
+			connections = new AtomicInteger();
+			closedConnections = new AtomicInteger();
+			pipelined = true;
+			Thread thread = new Thread(this, "scripted-smtp-server");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		public int getPort() {
+			return serverSocket.getLocalPort();
+		}
+
+		public void reject(String recipient) {
+			rejected.add(recipient);
+		}
+
+		public void setHang(boolean hang) {
+			this.hang = hang;
+		}
+
+		public boolean isPipelined() {
+			return pipelined;
+		}
+
+		public List<List<String>> getMessages() {
+			return new ArrayList<>(messages);
+		}
+
+		public List<String> getContents() {
+			return new ArrayList<>(contents);
+		}
+
+		public int getConnections() {
+			return connections.get();
+		}
+
+		public void waitClosed(int count) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + 5000;
+			while (closedConnections.get() < count) {
+				Assert.assertTrue("connection should be closed by the client", System.currentTimeMillis() < deadline);
+				Thread.sleep(20);
+			}
+		}
+
+		@Override
+		public void run() {
+			while (!serverSocket.isClosed()) {
+				try {
+					final Socket socket = serverSocket.accept();
+					sockets.add(socket);
+					connections.incrementAndGet();
+					Thread handler = new Thread(new Runnable() {
+						@Override
+						public void run() {
+							handle(socket);
+						}
+					}, "scripted-smtp-connection");
+					handler.setDaemon(true);
+					handler.start();
+				} catch (IOException e) {
+					// server closed
+				}
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			serverSocket.close();
+			for (Socket socket : sockets) {
+				socket.close();
+			}
+		}
+
+		private void handle(Socket socket) {
+			try (Socket s = socket) {
+				InputStream in = new BufferedInputStream(s.getInputStream());
+				OutputStream out = s.getOutputStream();
+				reply(out, "220 scripted SMTP server");
+				String line;
+				while ((line = readLine(in)) != null) {
+					String command = line.toUpperCase();
+					if (command.startsWith("EHLO")) {
+						reply(out, "250-scripted", "250-PIPELINING", "250 8BITMIME");
+					} else if (command.startsWith("MAIL")) {
+						if (hang) {
+							// never reply, wait for the client to close
+							while (readLine(in) != null) {
+								// discard
+							}
+							break;
+						}
+						transaction(s, in, out);
+					} else if (command.startsWith("RSET")) {
+						reply(out, "250 OK");
+					} else if (command.startsWith("QUIT")) {
+						reply(out, "221 bye");
+						break;
+					} else {
+						reply(out, "500 unknown command");
+					}
+				}
+			} catch (IOException e) {
+				// connection closed
+			} finally {
+				closedConnections.incrementAndGet();
+			}
+		}
+
+		private void transaction(Socket socket, InputStream in, OutputStream out) throws IOException {
+			// read RCPT and DATA before replying to MAIL
+			List<String> replies = new ArrayList<>();
+			replies.add("250 OK");
+			List<String> accepted = new ArrayList<>();
+			socket.setSoTimeout((int) PIPELINING_WAIT);
+			try {
+				String line;
+				while ((line = readLine(in)) != null) {
+					if (line.toUpperCase().startsWith("RCPT")) {
+						String recipient = line.substring(line.indexOf('<') + 1, line.indexOf('>'));
+						if (rejected.contains(recipient)) {
+							replies.add("550 no such user");
+						} else {
+							accepted.add(recipient);
+							replies.add("250 OK");
+						}
+					} else if (line.toUpperCase().startsWith("DATA")) {
+						break;
+					}
+				}
+			} catch (SocketTimeoutException e) {
+				// the client waits for the reply of MAIL
+				pipelined = false;
+				return;
+			} finally {
+				socket.setSoTimeout(0);
+			}
+			if (accepted.isEmpty()) {
+				replies.add("554 no valid recipients");
+				reply(out, replies.toArray(new String[replies.size()]));
+				return;
+			}
+			replies.add("354 start mail input");
+			reply(out, replies.toArray(new String[replies.size()]));
+			StringBuilder content = new StringBuilder();
+			String line;
+			while ((line = readLine(in)) != null && !".".equals(line)) {
+				content.append(line).append("\r\n");
+			}
+			contents.add(content.toString());
+			messages.add(accepted);
+			reply(out, "250 queued");
+		}
+
+		private static void reply(OutputStream out, String... lines) throws IOException {
+			StringBuilder sb = new StringBuilder();
+			for (String line : lines) {
+				sb.append(line).append("\r\n");
+			}
+			// all replies are written at once
+			out.write(sb.toString().getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+		}
+
+		private static String readLine(InputStream in) throws IOException {
+			ByteArrayOutputStream line = new ByteArrayOutputStream();
+			int b;
+			while ((b = in.read()) != -1) {
+				if (b == '\n') {
+					return new String(line.toByteArray(), StandardCharsets.US_ASCII);
+				}
+				if (b != '\r') {
+					line.write(b);
+				}
+			}
+			return line.size() == 0 ? null : new String(line.toByteArray(), StandardCharsets.US_ASCII);
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package fr.sii.ogham.ut.email.sender.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+import javax.mail.MessagingException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.icegreen.greenmail.junit.GreenMailRule;
+import com.icegreen.greenmail.util.ServerSetupTest;
+
+import fr.sii.ogham.core.exception.MessageException;
+import fr.sii.ogham.core.exception.builder.BuildException;
+import fr.sii.ogham.email.attachment.Attachment;
+import fr.sii.ogham.email.builder.NioSmtpBuilder;
+import fr.sii.ogham.email.message.Email;
+import fr.sii.ogham.email.message.EmailAddress;
+import fr.sii.ogham.email.sender.impl.NioSmtpSender;
+import fr.sii.ogham.helper.email.AssertAttachment;
+import fr.sii.ogham.helper.email.AssertEmail;
+import fr.sii.ogham.helper.email.ExpectedAttachment;
+import fr.sii.ogham.helper.email.ExpectedEmail;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class NioSmtpTest {
+	private NioSmtpSender sender;
+	
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+	
+	@Rule
+	public final GreenMailRule greenMail = new GreenMailRule(ServerSetupTest.SMTP);
+	
+	@Before
+	public void setUp() throws BuildException {
+		Properties props = new Properties(System.getProperties());
+		props.setProperty("mail.smtp.host", ServerSetupTest.SMTP.getBindAddress());
+		props.setProperty("mail.smtp.port", String.valueOf(ServerSetupTest.SMTP.getPort()));
+		sender = new NioSmtpBuilder().useDefaults(props).build();
+	}
+	
+	@After
+	public void tearDown() {
+		sender.close();
+	}
+	
+	@Test
+	public void simple() throws MessageException, MessagingException {
+		sender.send(new Email("Subject", "Body", new EmailAddress("custom.sender@sii.fr"), "recipient@sii.fr"));
+		AssertEmail.assertEquals(new ExpectedEmail("Subject", "Body", "custom.sender@sii.fr", "recipient@sii.fr"), greenMail.getReceivedMessages());
+	}
+	
+	@Test
+	public void connectionReused() throws MessageException, MessagingException {
+		for (int i = 0; i < 5; i++) {
+			sender.send(new Email("Subject", "Body", new EmailAddress("custom.sender@sii.fr"), "recipient@sii.fr", "other.recipient@sii.fr"));
+		}
+		Assert.assertEquals("received messages", 10, greenMail.getReceivedMessages().length);
+	}
+	
+	@Test
+	public void chunkedRecipients() throws MessageException, MessagingException, BuildException {
+		Properties props = new Properties(System.getProperties());
+		props.setProperty("mail.smtp.host", ServerSetupTest.SMTP.getBindAddress());
+		props.setProperty("mail.smtp.port", String.valueOf(ServerSetupTest.SMTP.getPort()));
+		NioSmtpSender chunked = new NioSmtpBuilder().useDefaults(props).withMaxRecipients(2).build();
+		try {
+			chunked.send(new Email("Subject", "Body", new EmailAddress("custom.sender@sii.fr"), "r1@sii.fr", "r2@sii.fr", "r3@sii.fr", "r4@sii.fr", "r5@sii.fr"));
+			Assert.assertEquals("received messages", 5, greenMail.getReceivedMessages().length);
+		} finally {
+			chunked.close();
+		}
+	}
+	
+	@Test
+	public void attachment() throws MessageException, MessagingException, IOException {
+		sender.send(new Email("Subject", "Body", new EmailAddress("custom.sender@sii.fr"), "recipient@sii.fr", new Attachment(new File(getClass().getResource("/attachment/04-Java-OOP-Basics.pdf").getFile()))));
+		AssertEmail.assertEquals(new ExpectedEmail("Subject", "Body", "custom.sender@sii.fr", "recipient@sii.fr"), greenMail.getReceivedMessages());
+		AssertAttachment.assertEquals(new ExpectedAttachment("/attachment/04-Java-OOP-Basics.pdf", "application/pdf.*"), greenMail.getReceivedMessages());
+	}
+	
+	@Test(expected=BuildException.class)
+	public void plaintextAuthenticationRefused() throws BuildException {
+		Properties props = new Properties(System.getProperties());
+		props.setProperty("mail.smtp.host", ServerSetupTest.SMTP.getBindAddress());
+		props.setProperty("mail.smtp.port", String.valueOf(ServerSetupTest.SMTP.getPort()));
+		new NioSmtpBuilder().useDefaults(props).withCredentials("user", "password").build();
+	}
+	
+	@Test
+	public void plaintextAuthenticationAllowed() throws MessageException, MessagingException, BuildException {
+		greenMail.setUser("user@sii.fr", "user", "password");
+		Properties props = new Properties(System.getProperties());
+		props.setProperty("mail.smtp.host", ServerSetupTest.SMTP.getBindAddress());
+		props.setProperty("mail.smtp.port", String.valueOf(ServerSetupTest.SMTP.getPort()));
+		NioSmtpSender authenticated = new NioSmtpBuilder().useDefaults(props).withCredentials("user", "password").allowPlaintextAuthentication().build();
+		try {
+			authenticated.send(new Email("Subject", "Body", new EmailAddress("custom.sender@sii.fr"), "recipient@sii.fr"));
+			AssertEmail.assertEquals(new ExpectedEmail("Subject", "Body", "custom.sender@sii.fr", "recipient@sii.fr"), greenMail.getReceivedMessages());
+		} finally {
+			authenticated.close();
+		}
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void invalid() throws MessageException {
+		sender.send(new Email("subject", "content"));
+	}
+}
@@ -0,0 +1,108 @@
+package fr.sii.ogham.ut.email.sender.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.sendgrid.SendGrid;
+import com.sendgrid.SendGridException;
+
+import fr.sii.ogham.core.exception.MessageException;
+import fr.sii.ogham.core.exception.PartialDeliveryException;
+import fr.sii.ogham.core.message.content.StringContent;
+import fr.sii.ogham.email.builder.SendGridBuilder;
+import fr.sii.ogham.email.message.Email;
+import fr.sii.ogham.email.message.EmailAddress;
+import fr.sii.ogham.email.sender.impl.SendGridSender;
+import fr.sii.ogham.email.sender.impl.sendgrid.batch.Personalization;
+import fr.sii.ogham.email.sender.impl.sendgrid.client.SendGridClient;
+
+/**
+ * Test campaign for the batch mode of the {@link SendGridSender} class.
+ */
+public final class SendGridBatchTest {
+	private static final Pattern RECIPIENT = Pattern.compile("to\\.[0-9]+@example\\.com");
+
+	private SendGridClient client;
+	private SendGridSender instance;
+	private Email template;
+
+	@Before
+	public void setUp() {
+		client = mock(SendGridClient.class);
+		instance = new SendGridBuilder().useDefaults().withClient(client).withBatch(2, 2).build();
+		template = new Email("Subject", new StringContent("Hello -name-"), new EmailAddress("from@example.com", "Sender"));
+	}
+
+	@Test
+	public void chunks() throws MessageException, SendGridException {
+		instance.sendBatch(template, personalizations(5));
+
+		final ArgumentCaptor<SendGrid.Email> argument = ArgumentCaptor.forClass(SendGrid.Email.class);
+		verify(client, times(3)).send(argument.capture());
+		final List<String> all = new ArrayList<>();
+		for (SendGrid.Email chunk : argument.getAllValues()) {
+			final String smtpApi = chunk.getSMTPAPI().jsonString();
+			final List<String> recipients = recipients(smtpApi);
+			assertTrue("chunk should not exceed the batch size", recipients.size() <= 2);
+			assertFalse("chunk should not be empty", recipients.isEmpty());
+			assertTrue("substitutions are in X-SMTPAPI header", smtpApi.contains("-name-"));
+			all.addAll(recipients);
+		}
+		assertEquals("each recipient should be in exactly one chunk", 5, all.size());
+		final Set<String> expected = new HashSet<>();
+		for (int i = 0; i < 5; i++) {
+			expected.add("to." + i + "@example.com");
+		}
+		assertEquals("all recipients should be sent", expected, new HashSet<>(all));
+	}
+
+	@Test
+	public void partialFailure() throws SendGridException {
+		doThrow(new SendGridException(new IOException("rate limit"))).doNothing().when(client).send(any(SendGrid.Email.class));
+		try {
+			instance.sendBatch(template, personalizations(4));
+			fail("MessageException expected");
+		} catch (MessageException e) {
+			final PartialDeliveryException cause = (PartialDeliveryException) e.getCause();
+			assertEquals("delivered recipients", 2, cause.getDeliveredRecipients().size());
+			assertEquals("failed recipients", 2, cause.getFailedRecipients().size());
+		}
+	}
+
+	private static List<String> recipients(final String smtpApi) {
+		final List<String> recipients = new ArrayList<>();
+		final Matcher matcher = RECIPIENT.matcher(smtpApi);
+		while (matcher.find()) {
+			recipients.add(matcher.group());
+		}
+		return recipients;
+	}
+
+	private static List<Personalization> personalizations(int count) {
+		final List<Personalization> personalizations = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			personalizations.add(new Personalization(new EmailAddress("to." + i + "@example.com", "Recipient " + i), Collections.singletonMap("-name-", "name " + i)));
+		}
+		return personalizations;
+	}
+}
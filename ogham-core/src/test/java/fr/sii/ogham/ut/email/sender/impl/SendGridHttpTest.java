@@ -0,0 +1,170 @@
+package fr.sii.ogham.ut.email.sender.impl;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+import fr.sii.ogham.core.exception.MessageException;
+import fr.sii.ogham.core.message.content.StringContent;
+import fr.sii.ogham.email.builder.SendGridBuilder;
+import fr.sii.ogham.email.message.Email;
+import fr.sii.ogham.email.message.EmailAddress;
+import fr.sii.ogham.email.sender.impl.SendGridSender;
+import fr.sii.ogham.email.sender.impl.sendgrid.client.SendGridClient;
+import fr.sii.ogham.email.sender.impl.sendgrid.handler.SendGridContentHandler;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+/**
+ * Test the HTTP client used by the {@link SendGridSender} (pooled
+ * connections, timeouts and asynchronous sending) against a fake SendGrid
+ * API.
+ */
+public class SendGridHttpTest {
+	private static final String ENDPOINT = "/api/mail.send.json";
+
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Rule
+	public WireMockRule serverRule = new WireMockRule(8079);
+
+	private SendGridSender sender;
+
+	@After
+	public void tearDown() throws IOException {
+		if (sender != null) {
+			sender.close();
+		}
+	}
+
+	@Test
+	public void pooledConnections() throws MessageException, InterruptedException, ExecutionException, TimeoutException {
+		stubSuccess(0);
+		sender = newBuilder().withHttpPool(1, 30000).withAsync(4).build();
+		List<Future<Void>> futures = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			futures.add(sender.sendAsync(email()));
+		}
+		for (Future<Void> future : futures) {
+			future.get(10, TimeUnit.SECONDS);
+		}
+		serverRule.verify(4, postRequestedFor(urlPathEqualTo(ENDPOINT)));
+	}
+
+	@Test
+	public void readTimeout() {
+		stubSuccess(2000);
+		sender = newBuilder().withHttpTimeouts(5000, 300).build();
+		long start = System.currentTimeMillis();
+		try {
+			sender.send(email());
+			Assert.fail("MessageException expected");
+		} catch (MessageException e) {
+			Assert.assertTrue("read timeout should be applied", hasCause(e, SocketTimeoutException.class));
+			Assert.assertTrue("should not wait for the response", System.currentTimeMillis() - start < 2000);
+		}
+	}
+
+	@Test
+	public void asyncCompletion() throws MessageException, InterruptedException, ExecutionException, TimeoutException {
+		stubSuccess(200);
+		sender = newBuilder().withAsync(2).build();
+		Future<Void> future = sender.sendAsync(email());
+		Assert.assertNull(future.get(10, TimeUnit.SECONDS));
+		Assert.assertTrue(future.isDone());
+		serverRule.verify(1, postRequestedFor(urlPathEqualTo(ENDPOINT)));
+	}
+
+	@Test
+	public void asyncFailure() throws MessageException, InterruptedException, TimeoutException {
+		serverRule.stubFor(post(urlPathEqualTo(ENDPOINT)).willReturn(aResponse().withStatus(400).withBody("{\"message\":\"error\"}")));
+		sender = newBuilder().withAsync(2).build();
+		Future<Void> future = sender.sendAsync(email());
+		try {
+			future.get(10, TimeUnit.SECONDS);
+			Assert.fail("ExecutionException expected");
+		} catch (ExecutionException e) {
+			Assert.assertTrue("failure should reach the caller", e.getCause() instanceof MessageException);
+		}
+	}
+
+	@Test(expected = MessageException.class)
+	public void asyncInvalidEmail() throws MessageException {
+		sender = newBuilder().withAsync(2).build();
+		sender.sendAsync(new Email("Subject", new StringContent("Hello"), new EmailAddress("from@example.com")));
+	}
+
+	@Test
+	public void closeReleasesPoolAndExecutor() throws MessageException, IOException {
+		stubSuccess(0);
+		sender = newBuilder().withAsync(2).build();
+		sender.send(email());
+		sender.close();
+		try {
+			sender.sendAsync(email());
+			Assert.fail("executor should be stopped");
+		} catch (RejectedExecutionException e) {
+			// expected
+		}
+		try {
+			sender.send(email());
+			Assert.fail("connection pool should be closed");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void closeStopsExecutorAndClient() throws IOException {
+		SendGridClient client = mock(SendGridClient.class, withSettings().extraInterfaces(Closeable.class));
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		new SendGridSender(client, mock(SendGridContentHandler.class), 10, executor).close();
+		Assert.assertTrue("executor should be stopped", executor.isShutdown());
+		verify((Closeable) client).close();
+	}
+
+	private SendGridBuilder newBuilder() {
+		return new SendGridBuilder().useDefaults().withApiKey("api-key").withUrl("http://localhost:" + serverRule.port());
+	}
+
+	private void stubSuccess(int delay) {
+		serverRule.stubFor(post(urlPathEqualTo(ENDPOINT)).willReturn(aResponse().withStatus(200).withBody("{\"message\":\"success\"}").withFixedDelay(delay)));
+	}
+
+	private static Email email() {
+		return new Email("Subject", new StringContent("Hello"), new EmailAddress("from@example.com"), new EmailAddress("to@example.com"));
+	}
+
+	private static boolean hasCause(Throwable e, Class<? extends Throwable> type) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (type.isInstance(cause)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
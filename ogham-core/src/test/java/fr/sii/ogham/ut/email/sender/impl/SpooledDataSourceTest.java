@@ -0,0 +1,100 @@
+package fr.sii.ogham.ut.email.sender.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import javax.activation.MimeType;
+import javax.activation.MimeTypeParseException;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.StreamingContent;
+import fr.sii.ogham.core.message.content.StringContent;
+import fr.sii.ogham.core.template.context.Context;
+import fr.sii.ogham.core.template.parser.StreamingTemplateParser;
+import fr.sii.ogham.core.util.IOUtils;
+import fr.sii.ogham.email.sender.impl.javamail.SpooledDataSource;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class SpooledDataSourceTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Test
+	public void smallResultInMemory() throws ParseException, IOException, MimeTypeParseException {
+		CountingParser parser = new CountingParser("hello");
+		SpooledDataSource source = SpooledDataSource.render(content(parser), "text/plain", 1024);
+		Assert.assertFalse("small result should be kept in memory", source.isSpooled());
+		Assert.assertEquals("hello", read(source));
+		Assert.assertEquals("hello", read(source));
+		Assert.assertEquals("template should be rendered once", 1, parser.count);
+		source.close();
+	}
+
+	@Test
+	public void bigResultSpooled() throws ParseException, IOException, MimeTypeParseException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			sb.append("0123456789");
+		}
+		CountingParser parser = new CountingParser(sb.toString());
+		SpooledDataSource source = SpooledDataSource.render(content(parser), "text/plain", 64);
+		Assert.assertTrue("big result should be written to a file", source.isSpooled());
+		Assert.assertEquals(sb.toString(), read(source));
+		Assert.assertEquals(sb.toString(), read(source));
+		Assert.assertEquals("template should be rendered once", 1, parser.count);
+		source.close();
+		try {
+			source.getInputStream();
+			Assert.fail("file should be deleted on close");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	@Test(expected = ParseException.class)
+	public void templateError() throws ParseException, IOException, MimeTypeParseException {
+		SpooledDataSource.render(content(new CountingParser(null)), "text/plain", 1024);
+	}
+
+	private static StreamingContent content(StreamingTemplateParser parser) throws MimeTypeParseException {
+		return new StreamingContent(parser, "template", null, new MimeType("text/plain"), StandardCharsets.UTF_8);
+	}
+
+	private static String read(SpooledDataSource source) throws IOException {
+		return new String(IOUtils.toByteArray(source.getInputStream()), StandardCharsets.UTF_8);
+	}
+
+	private static class CountingParser implements StreamingTemplateParser {
+		private final String output;
+		private int count;
+
+		public CountingParser(String output) {
+			super();
+			this.output = output;
+		}
+
+		@Override
+		public Content parse(String templateName, Context ctx) throws ParseException {
+			return new StringContent(output);
+		}
+
+		@Override
+		public void parse(String templateName, Context ctx, Writer out) throws ParseException {
+			count++;
+			if (output == null) {
+				throw new ParseException("invalid template", templateName, ctx);
+			}
+			try {
+				out.write(output);
+			} catch (IOException e) {
+				throw new ParseException(templateName, ctx, e);
+			}
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package fr.sii.ogham.ut.email.sender.impl;
+
+import java.io.UnsupportedEncodingException;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import fr.sii.ogham.email.sender.impl.javamail.TransferEncodingSelector;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class TransferEncodingSelectorTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Test
+	public void ascii() throws UnsupportedEncodingException {
+		Assert.assertEquals("7bit", new TransferEncodingSelector().select("<p>Hello\nworld</p>".getBytes("UTF-8")));
+	}
+
+	@Test
+	public void mostlyAscii() throws UnsupportedEncodingException {
+		String content = "<html><body><p>Bonjour, voici votre facture du mois de décembre.</p><p>Cordialement</p></body></html>";
+		Assert.assertEquals("quoted-printable", new TransferEncodingSelector().select(content.getBytes("UTF-8")));
+	}
+
+	@Test
+	public void nonLatin() throws UnsupportedEncodingException {
+		String content = "مرحبا بكم في موقعنا";
+		Assert.assertEquals("base64", new TransferEncodingSelector().select(content.getBytes("UTF-8")));
+	}
+
+	@Test
+	public void eightBitAllowed() throws UnsupportedEncodingException {
+		String content = "مرحبا بكم في موقعنا";
+		Assert.assertEquals("8bit", new TransferEncodingSelector(true).select(content.getBytes("UTF-8")));
+	}
+}
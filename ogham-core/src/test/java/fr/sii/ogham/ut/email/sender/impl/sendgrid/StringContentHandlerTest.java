@@ -2,7 +2,10 @@ package fr.sii.ogham.ut.email.sender.impl.sendgrid;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.RETURNS_SMART_NULLS;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import javax.activation.MimeType;
@@ -91,6 +94,17 @@ public final class StringContentHandlerTest {
 		assertEquals("The email was not correctly updated", CONTENT_HTML, email.getHtml());
 	}
 
+	@Test
+	public void setContent_knownMimetype() throws ContentHandlerException, MimeTypeDetectionException, MimeTypeParseException {
+		final SendGrid.Email email = new SendGrid.Email();
+		final StringContent content = new StringContent(CONTENT_HTML, new MimeType("text/html"), null);
+
+		instance.setContent(email, content);
+
+		assertEquals("The email was not correctly updated", CONTENT_HTML, email.getHtml());
+		verify(provider, never()).detect(anyString());
+	}
+
 	@Test(expected = ContentHandlerException.class)
 	public void setContent_unknown() throws ContentHandlerException, MimeTypeDetectionException, MimeTypeParseException {
 		final SendGrid.Email email = new SendGrid.Email();
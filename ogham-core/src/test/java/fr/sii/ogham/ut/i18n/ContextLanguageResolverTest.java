@@ -0,0 +1,49 @@
+package fr.sii.ogham.ut.i18n;
+
+import java.util.Locale;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import fr.sii.ogham.core.exception.template.ContextException;
+import fr.sii.ogham.core.template.context.LocaleContext;
+import fr.sii.ogham.core.template.context.SimpleContext;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+import fr.sii.ogham.i18n.ContextLanguageResolver;
+
+public class ContextLanguageResolverTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	private ContextLanguageResolver resolver = new ContextLanguageResolver();
+
+	@Test
+	public void localeVariable() throws ContextException {
+		Assert.assertEquals(Locale.CANADA_FRENCH, resolver.getLocale(new SimpleContext("locale", Locale.CANADA_FRENCH)));
+	}
+
+	@Test
+	public void stringVariable() throws ContextException {
+		Assert.assertEquals(Locale.CANADA_FRENCH, resolver.getLocale(new SimpleContext("locale", "fr_CA")));
+		Assert.assertEquals(Locale.CANADA_FRENCH, resolver.getLocale(new SimpleContext("locale", "fr-CA")));
+		Assert.assertEquals(Locale.FRENCH, resolver.getLocale(new SimpleContext("locale", "fr")));
+	}
+
+	@Test
+	public void customVariable() throws ContextException {
+		Assert.assertEquals(Locale.CANADA_FRENCH, new ContextLanguageResolver("lang").getLocale(new SimpleContext("lang", "fr_CA")));
+	}
+
+	@Test
+	public void localeContextFirst() throws ContextException {
+		Assert.assertEquals(Locale.ENGLISH, resolver.getLocale(new LocaleContext(new SimpleContext("locale", "fr_CA"), Locale.ENGLISH)));
+	}
+
+	@Test
+	public void missing() throws ContextException {
+		Assert.assertNull(resolver.getLocale(new SimpleContext("name", "foo")));
+		Assert.assertNull(resolver.getLocale(new SimpleContext("locale", "")));
+		Assert.assertNull(resolver.getLocale(null));
+	}
+}
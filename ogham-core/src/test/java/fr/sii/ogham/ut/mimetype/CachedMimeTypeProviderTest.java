@@ -0,0 +1,149 @@
+package fr.sii.ogham.ut.mimetype;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.activation.MimeType;
+import javax.activation.MimeTypeParseException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.sii.ogham.core.cache.LruCache;
+import fr.sii.ogham.core.exception.mimetype.MimeTypeDetectionException;
+import fr.sii.ogham.core.mimetype.CachedMimeTypeProvider;
+import fr.sii.ogham.core.mimetype.MimeTypeProvider;
+import fr.sii.ogham.core.util.IOUtils;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class CachedMimeTypeProviderTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private CountingProvider delegate;
+
+	private CachedMimeTypeProvider provider;
+
+	@Before
+	public void setUp() {
+		delegate = new CountingProvider();
+		provider = new CachedMimeTypeProvider(delegate, 2);
+	}
+
+	@Test
+	public void sameFile() throws MimeTypeDetectionException, IOException {
+		File file = folder.newFile("foo.txt");
+		provider.getMimeType(file);
+		provider.getMimeType(new File(file.getParentFile(), "./foo.txt"));
+		Assert.assertEquals("same canonical file should be detected once", 1, delegate.calls);
+	}
+
+	@Test
+	public void modifiedFile() throws MimeTypeDetectionException, IOException {
+		File file = folder.newFile("foo.txt");
+		provider.getMimeType(file);
+		Files.write(file.toPath(), "modified".getBytes(StandardCharsets.UTF_8));
+		provider.getMimeType(file);
+		Assert.assertEquals("modified file should be detected again", 2, delegate.calls);
+	}
+
+	@Test
+	public void sameContent() throws MimeTypeDetectionException {
+		provider.detect(new ByteArrayInputStream("<html></html>".getBytes(StandardCharsets.UTF_8)));
+		provider.detect(new ByteArrayInputStream("<html></html>".getBytes(StandardCharsets.UTF_8)));
+		provider.detect("<html></html>");
+		provider.detect("<html></html>");
+		Assert.assertEquals("same content should be detected once per kind", 2, delegate.calls);
+		provider.detect("<html><body></body></html>");
+		Assert.assertEquals("different content should be detected", 3, delegate.calls);
+	}
+
+	@Test
+	public void streamStillReadable() throws MimeTypeDetectionException, IOException {
+		CachedMimeTypeProvider limited = new CachedMimeTypeProvider(delegate, new LruCache<String, MimeType>(2), 4);
+		byte[] content = "<html><body>content</body></html>".getBytes(StandardCharsets.UTF_8);
+		InputStream stream = new ByteArrayInputStream(content);
+		limited.detect(stream);
+		Assert.assertArrayEquals("stream should be fully readable after detection", content, IOUtils.toByteArray(stream));
+		InputStream cached = new BufferedInputStream(new OneShotInputStream(content));
+		limited.detect(cached);
+		Assert.assertEquals("content should be cached", 1, delegate.calls);
+		Assert.assertArrayEquals("stream should be fully readable after cached detection", content, IOUtils.toByteArray(cached));
+	}
+
+	@Test
+	public void evictLeastRecentlyUsed() throws MimeTypeDetectionException {
+		provider.detect("a");
+		provider.detect("b");
+		provider.detect("a");
+		provider.detect("c");
+		Assert.assertEquals(3, delegate.calls);
+		provider.detect("a");
+		Assert.assertEquals("a should still be cached", 3, delegate.calls);
+		provider.detect("b");
+		Assert.assertEquals("b should be evicted", 4, delegate.calls);
+	}
+
+	@Test
+	public void cachedInstanceNotExposed() throws MimeTypeDetectionException {
+		MimeType first = provider.detect("a");
+		first.setParameter("charset", "UTF-8");
+		MimeType second = provider.detect("a");
+		Assert.assertNull("cached mimetype should not be modified", second.getParameter("charset"));
+	}
+
+	private static class OneShotInputStream extends ByteArrayInputStream {
+		public OneShotInputStream(byte[] content) {
+			super(content);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+
+	private static class CountingProvider implements MimeTypeProvider {
+		private int calls;
+
+		@Override
+		public MimeType getMimeType(File file) throws MimeTypeDetectionException {
+			return mimetype();
+		}
+
+		@Override
+		public MimeType getMimeType(String filePath) throws MimeTypeDetectionException {
+			return mimetype();
+		}
+
+		@Override
+		public MimeType detect(InputStream stream) throws MimeTypeDetectionException {
+			return mimetype();
+		}
+
+		@Override
+		public MimeType detect(String content) throws MimeTypeDetectionException {
+			return mimetype();
+		}
+
+		private MimeType mimetype() throws MimeTypeDetectionException {
+			calls++;
+			try {
+				return new MimeType("text/plain");
+			} catch (MimeTypeParseException e) {
+				throw new MimeTypeDetectionException("Invalid mimetype", e);
+			}
+		}
+	}
+}
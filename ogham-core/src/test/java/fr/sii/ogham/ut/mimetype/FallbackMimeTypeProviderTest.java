@@ -0,0 +1,115 @@
+package fr.sii.ogham.ut.mimetype;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import javax.activation.MimeType;
+import javax.activation.MimeTypeParseException;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import fr.sii.ogham.core.exception.mimetype.MimeTypeDetectionException;
+import fr.sii.ogham.core.mimetype.DetectedContent;
+import fr.sii.ogham.core.mimetype.FallbackMimeTypeProvider;
+import fr.sii.ogham.core.mimetype.MagicNumberProvider;
+import fr.sii.ogham.core.mimetype.MimeTypeProvider;
+import fr.sii.ogham.core.util.IOUtils;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class FallbackMimeTypeProviderTest {
+	private static final byte[] PNG_HEADER = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Test
+	public void onlyPrefixRead() throws MimeTypeDetectionException {
+		ReadingProvider reading = new ReadingProvider();
+		FallbackMimeTypeProvider provider = new FallbackMimeTypeProvider(new ArrayList<MimeTypeProvider>(Arrays.<MimeTypeProvider> asList(reading)), 16);
+		provider.detect(new ByteArrayInputStream(new byte[1024]));
+		Assert.assertEquals("provider should only see the prefix", 16, reading.read);
+	}
+
+	@Test
+	public void cheapTierFirst() throws MimeTypeDetectionException {
+		ReadingProvider reading = new ReadingProvider();
+		FallbackMimeTypeProvider provider = new FallbackMimeTypeProvider(new MagicNumberProvider(), reading);
+		Assert.assertEquals("image/png", provider.detect(new ByteArrayInputStream(png(100))).getBaseType());
+		Assert.assertEquals("fallback provider should not be used", 0, reading.read);
+		provider.detect(new ByteArrayInputStream(new byte[100]));
+		Assert.assertEquals("fallback provider should be used for unknown content", 100, reading.read);
+	}
+
+	@Test
+	public void markedStreamReset() throws MimeTypeDetectionException, IOException {
+		FallbackMimeTypeProvider provider = new FallbackMimeTypeProvider(new ArrayList<MimeTypeProvider>(Arrays.<MimeTypeProvider> asList(new MagicNumberProvider())), 16);
+		byte[] content = png(100);
+		InputStream stream = new ByteArrayInputStream(content);
+		provider.detect(stream);
+		Assert.assertArrayEquals("stream should be read from the beginning", content, IOUtils.toByteArray(stream));
+	}
+
+	@Test
+	public void detectAndReplay() throws MimeTypeDetectionException, IOException {
+		FallbackMimeTypeProvider provider = new FallbackMimeTypeProvider(new ArrayList<MimeTypeProvider>(Arrays.<MimeTypeProvider> asList(new MagicNumberProvider())), 16);
+		byte[] content = png(100);
+		DetectedContent detected = provider.detectAndReplay(new NotMarkableInputStream(content));
+		Assert.assertEquals("image/png", detected.getMimetype().getBaseType());
+		Assert.assertArrayEquals("whole content should be replayed", content, IOUtils.toByteArray(detected.getStream()));
+	}
+
+	private static byte[] png(int length) {
+		byte[] content = new byte[length];
+		System.arraycopy(PNG_HEADER, 0, content, 0, PNG_HEADER.length);
+		for (int i = PNG_HEADER.length; i < length; i++) {
+			content[i] = (byte) i;
+		}
+		return content;
+	}
+
+	private static class NotMarkableInputStream extends ByteArrayInputStream {
+		public NotMarkableInputStream(byte[] buf) {
+			super(buf);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+
+	private static class ReadingProvider implements MimeTypeProvider {
+		private int read;
+
+		@Override
+		public MimeType getMimeType(File file) throws MimeTypeDetectionException {
+			throw new MimeTypeDetectionException("not supported");
+		}
+
+		@Override
+		public MimeType getMimeType(String filePath) throws MimeTypeDetectionException {
+			throw new MimeTypeDetectionException("not supported");
+		}
+
+		@Override
+		public MimeType detect(InputStream stream) throws MimeTypeDetectionException {
+			try {
+				read = IOUtils.toByteArray(stream).length;
+				return new MimeType("application/octet-stream");
+			} catch (IOException | MimeTypeParseException e) {
+				throw new MimeTypeDetectionException("Failed to read stream", e);
+			}
+		}
+
+		@Override
+		public MimeType detect(String content) throws MimeTypeDetectionException {
+			throw new MimeTypeDetectionException("not supported");
+		}
+	}
+}
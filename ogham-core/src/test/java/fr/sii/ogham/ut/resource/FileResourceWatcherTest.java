@@ -0,0 +1,111 @@
+package fr.sii.ogham.ut.resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.sii.ogham.core.resource.FileResourceWatcher;
+import fr.sii.ogham.core.resource.ResourceChangeListener;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class FileResourceWatcherTest {
+	private static final long TIMEOUT_SECONDS = 30;
+
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private RecordingListener listener;
+
+	private FileResourceWatcher watcher;
+
+	@Before
+	public void setUp() throws IOException {
+		listener = new RecordingListener();
+		watcher = new FileResourceWatcher(listener).watch(folder.getRoot());
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		watcher.close();
+	}
+
+	@Test
+	public void createdFileNotified() throws IOException, InterruptedException {
+		File file = folder.newFile("register.html");
+		Assert.assertEquals(file.getPath(), listener.next());
+	}
+
+	@Test
+	public void fileInCreatedDirectoryNotified() throws IOException, InterruptedException {
+		File directory = folder.newFolder("email");
+		Assert.assertEquals(directory.getPath(), listener.next());
+		waitUntilWatched(directory);
+		File file = new File(directory, "register.html");
+		Assert.assertTrue(file.createNewFile());
+		String changed;
+		do {
+			changed = listener.next();
+		} while (changed != null && !changed.equals(file.getPath()));
+		Assert.assertEquals("file of the created directory should be watched", file.getPath(), changed);
+	}
+
+	@Test
+	public void watchedOnce() throws IOException, InterruptedException {
+		watcher.watch(folder.getRoot());
+		File file = folder.newFile("register.html");
+		Assert.assertEquals(file.getPath(), listener.next());
+		Assert.assertNull("the directory should be registered once", listener.changes.poll(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void noNotificationAfterClose() throws IOException, InterruptedException {
+		watcher.close();
+		folder.newFile("register.html");
+		Assert.assertNull(listener.changes.poll(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void removedListenerNotNotified() throws IOException, InterruptedException {
+		watcher.removeListener(listener);
+		folder.newFile("register.html");
+		Assert.assertNull(listener.changes.poll(1, TimeUnit.SECONDS));
+	}
+
+	private void waitUntilWatched(File directory) throws InterruptedException {
+		long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+		while (!watcher.isWatching(directory)) {
+			Assert.assertTrue(directory + " should be watched", System.currentTimeMillis() < end);
+			Thread.sleep(10);
+		}
+	}
+
+	private static class RecordingListener implements ResourceChangeListener {
+		private final BlockingQueue<String> changes = new LinkedBlockingQueue<>();
+
+		@Override
+		public void resourceChanged(String resolvedPath) {
+			changes.add(resolvedPath);
+		}
+
+		@Override
+		public void allResourcesChanged() {
+			changes.add("*");
+		}
+
+		public String next() throws InterruptedException {
+			return changes.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		}
+	}
+}
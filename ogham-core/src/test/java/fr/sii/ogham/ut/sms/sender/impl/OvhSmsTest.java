@@ -4,6 +4,7 @@ import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.matching;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
@@ -20,10 +21,13 @@ import org.junit.Test;
 
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 
+import fr.sii.ogham.core.exception.MessageException;
 import fr.sii.ogham.core.exception.MessagingException;
+import fr.sii.ogham.core.exception.PartialDeliveryException;
 import fr.sii.ogham.core.util.IOUtils;
 import fr.sii.ogham.helper.rule.LoggingTestRule;
 import fr.sii.ogham.sms.builder.OvhSmsBuilder;
+import fr.sii.ogham.sms.message.Recipient;
 import fr.sii.ogham.sms.message.Sender;
 import fr.sii.ogham.sms.message.Sms;
 import fr.sii.ogham.sms.sender.impl.OvhSmsSender;
@@ -150,10 +154,97 @@ public class OvhSmsTest {
 					.withQueryParam("message", equalTo("sms content")));
 	}
 
+	@Test
+	public void chunkedRecipients() throws MessagingException, IOException {
+		stubFor(get(urlMatching(".*"))
+				.willReturn(aResponse()
+						.withStatus(200)
+						.withHeader("Content-Type", "application/json")
+						.withBody(IOUtils.toString(getClass().getResourceAsStream("/ovh/response/ok.json")))));
+		OvhSmsSender chunkedSender = new OvhSmsBuilder()
+						.withUrl(new URL("http://localhost:"+serverRule.port()+"/cgi-bin/sms/http2sms.cgi"))
+						.withAuthParams(new OvhAuthParams("sms-nic-foobar42", "login", "password"))
+						.withOptions(new OvhOptions())
+						.withBatch(2, 0)
+						.build();
+		chunkedSender.send(new Sms("sms content", new Sender("0033203040506"), "0033605040302", "0033605040303", "0033605040304"));
+		verify(2, getRequestedFor(urlPathEqualTo("/cgi-bin/sms/http2sms.cgi")));
+		verify(getRequestedFor(urlPathEqualTo("/cgi-bin/sms/http2sms.cgi"))
+					.withQueryParam("to", equalTo("0033605040302,0033605040303")));
+		verify(getRequestedFor(urlPathEqualTo("/cgi-bin/sms/http2sms.cgi"))
+					.withQueryParam("to", equalTo("0033605040304")));
+	}
+
+	@Test
+	public void notChunkedByDefault() throws MessagingException, IOException {
+		stubFor(get(urlMatching(".*"))
+				.willReturn(aResponse()
+						.withStatus(200)
+						.withHeader("Content-Type", "application/json")
+						.withBody(IOUtils.toString(getClass().getResourceAsStream("/ovh/response/ok.json")))));
+		sender.send(new Sms("sms content", new Sender("0033203040506"), generateRecipients(150)));
+		verify(1, getRequestedFor(urlPathEqualTo("/cgi-bin/sms/http2sms.cgi")));
+	}
+
+	@Test
+	public void recommendedChunks() throws MessagingException, IOException {
+		stubFor(get(urlMatching(".*"))
+				.willReturn(aResponse()
+						.withStatus(200)
+						.withHeader("Content-Type", "application/json")
+						.withBody(IOUtils.toString(getClass().getResourceAsStream("/ovh/response/ok.json")))));
+		OvhSmsSender chunkedSender = new OvhSmsBuilder()
+						.withUrl(new URL("http://localhost:"+serverRule.port()+"/cgi-bin/sms/http2sms.cgi"))
+						.withAuthParams(new OvhAuthParams("sms-nic-foobar42", "login", "password"))
+						.withOptions(new OvhOptions())
+						.withBatch()
+						.build();
+		Assert.assertEquals(OvhSmsSender.DEFAULT_MAX_RECIPIENTS, chunkedSender.getMaxRecipients());
+		Assert.assertEquals(OvhSmsSender.DEFAULT_MAX_URL_LENGTH, chunkedSender.getMaxUrlLength());
+		chunkedSender.send(new Sms("sms content", new Sender("0033203040506"), generateRecipients(150)));
+		verify(2, getRequestedFor(urlPathEqualTo("/cgi-bin/sms/http2sms.cgi")));
+	}
+
+	@Test
+	public void chunkFailure() throws MessagingException, IOException {
+		stubFor(get(urlMatching(".*"))
+				.willReturn(aResponse()
+						.withStatus(200)
+						.withHeader("Content-Type", "application/json")
+						.withBody(IOUtils.toString(getClass().getResourceAsStream("/ovh/response/ok.json")))));
+		stubFor(get(urlPathEqualTo("/cgi-bin/sms/http2sms.cgi"))
+				.withQueryParam("to", matching(".*0033605040304.*"))
+				.willReturn(aResponse()
+						.withStatus(200)
+						.withHeader("Content-Type", "application/json")
+						.withBody(IOUtils.toString(getClass().getResourceAsStream("/ovh/response/ko.json")))));
+		OvhSmsSender chunkedSender = new OvhSmsBuilder()
+						.withUrl(new URL("http://localhost:"+serverRule.port()+"/cgi-bin/sms/http2sms.cgi"))
+						.withAuthParams(new OvhAuthParams("sms-nic-foobar42", "login", "password"))
+						.withOptions(new OvhOptions())
+						.withBatch(2, 0)
+						.build();
+		try {
+			chunkedSender.send(new Sms("sms content", new Sender("0033203040506"), "0033605040302", "0033605040303", "0033605040304"));
+			Assert.fail("MessageException expected");
+		} catch(MessageException e) {
+			PartialDeliveryException cause = (PartialDeliveryException) e.getCause();
+			Assert.assertEquals("delivered recipients", 2, cause.getDeliveredRecipients().size());
+			Assert.assertEquals("failed recipients", 1, cause.getFailedRecipients().size());
+			Assert.assertTrue("failed recipient", cause.getFailedRecipients().containsKey("0033605040304"));
+		}
+	}
+
 	@Test(expected=IllegalArgumentException.class)
 	public void nationalNumber() throws MessagingException, IOException {
 		sender.send(new Sms("sms content", new Sender("02 03 04 05 06"), "06 05 04 03 02"));
 	}
 
-
+	private static Recipient[] generateRecipients(int count) {
+		Recipient[] recipients = new Recipient[count];
+		for (int i = 0; i < count; i++) {
+			recipients[i] = new Recipient(String.format("0033605%06d", i));
+		}
+		return recipients;
+	}
 }
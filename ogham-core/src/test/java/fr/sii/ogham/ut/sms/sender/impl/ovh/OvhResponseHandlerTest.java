@@ -0,0 +1,63 @@
+package fr.sii.ogham.ut.sms.sender.impl.ovh;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import fr.sii.ogham.core.exception.util.ResponseParsingException;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+import fr.sii.ogham.sms.sender.impl.ovh.OvhResponse;
+import fr.sii.ogham.sms.sender.impl.ovh.OvhResponseHandler;
+
+public class OvhResponseHandlerTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	private OvhResponseHandler handler = new OvhResponseHandler();
+
+	@Test
+	public void success() throws IOException {
+		OvhResponse response = handler.handle(200, getClass().getResourceAsStream("/ovh/response/ok.json"));
+		Assert.assertEquals(200, response.getStatusCode());
+		Assert.assertEquals(100, response.getOvhStatus());
+	}
+
+	@Test
+	public void ovhError() throws IOException {
+		OvhResponse response = handler.handle(200, body("{\"status\":201,\"message\":\"Missing message\",\"ignored\":{\"nested\":[1,2]}}"));
+		Assert.assertEquals(201, response.getOvhStatus());
+		Assert.assertEquals("Missing message", response.getMessage());
+	}
+
+	@Test
+	public void errorStatus() throws IOException {
+		OvhResponse response = handler.handle(500, body("Internal error"));
+		Assert.assertEquals(500, response.getStatusCode());
+		Assert.assertEquals(-1, response.getOvhStatus());
+		Assert.assertEquals("Internal error", response.getMessage());
+	}
+
+	@Test(expected = ResponseParsingException.class)
+	public void malformedJson() throws IOException {
+		handler.handle(200, body("{\"status\":100,"));
+	}
+
+	@Test(expected = ResponseParsingException.class)
+	public void notJsonObject() throws IOException {
+		handler.handle(200, body("<html>maintenance</html>"));
+	}
+
+	@Test(expected = ResponseParsingException.class)
+	public void missingStatus() throws IOException {
+		handler.handle(200, body("{\"message\":\"no status\"}"));
+	}
+
+	private static InputStream body(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+}
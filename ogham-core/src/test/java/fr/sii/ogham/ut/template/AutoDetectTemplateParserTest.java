@@ -0,0 +1,115 @@
+package fr.sii.ogham.ut.template;
+
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import fr.sii.ogham.core.exception.template.EngineDetectionException;
+import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.StringContent;
+import fr.sii.ogham.core.resource.Resource;
+import fr.sii.ogham.core.resource.resolver.StringResourceResolver;
+import fr.sii.ogham.core.template.context.Context;
+import fr.sii.ogham.core.template.detector.TemplateEngineDetector;
+import fr.sii.ogham.core.template.parser.AutoDetectTemplateParser;
+import fr.sii.ogham.core.template.parser.TemplateParser;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class AutoDetectTemplateParserTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	private CountingDetector detector;
+
+	private Map<TemplateEngineDetector, TemplateParser> detectors;
+
+	@Before
+	public void setUp() {
+		detector = new CountingDetector();
+		detectors = new HashMap<>();
+		detectors.put(detector, new EchoParser());
+	}
+
+	@Test
+	public void detectedOnce() throws ParseException {
+		AutoDetectTemplateParser parser = new AutoDetectTemplateParser(new StringResourceResolver("s:"), detectors, AutoDetectTemplateParser.DEFAULT_DETECTION_CACHE_WEIGHT);
+		Assert.assertEquals("hello", parser.parse("s:hello", null).toString());
+		Assert.assertEquals("hello", parser.parse("s:hello", null).toString());
+		Assert.assertEquals("detection should be done once per template", 1, detector.calls);
+		parser.parse("s:world", null);
+		Assert.assertEquals("detection should be done for another template", 2, detector.calls);
+	}
+
+	@Test
+	public void invalidated() throws ParseException {
+		AutoDetectTemplateParser parser = new AutoDetectTemplateParser(new StringResourceResolver("s:"), detectors, AutoDetectTemplateParser.DEFAULT_DETECTION_CACHE_WEIGHT);
+		parser.parse("s:hello", null);
+		parser.resourceChanged("hello");
+		parser.parse("s:hello", null);
+		Assert.assertEquals("detection should be done again after change", 2, detector.calls);
+		parser.allResourcesChanged();
+		parser.parse("s:hello", null);
+		Assert.assertEquals("detection should be done again after clear", 3, detector.calls);
+	}
+
+	@Test
+	public void cacheDisabled() throws ParseException {
+		AutoDetectTemplateParser parser = new AutoDetectTemplateParser(new StringResourceResolver("s:"), detectors, 0);
+		parser.parse("s:hello", null);
+		parser.parse("s:hello", null);
+		Assert.assertEquals(2, detector.calls);
+	}
+
+	@Test
+	public void notCachedByDefault() throws ParseException {
+		AutoDetectTemplateParser parser = new AutoDetectTemplateParser(new StringResourceResolver("s:"), detectors);
+		parser.parse("s:hello", null);
+		parser.parse("s:hello", null);
+		Assert.assertEquals("detection should be done on each use", 2, detector.calls);
+	}
+
+	@Test
+	public void cachedPerLookup() throws ParseException {
+		AutoDetectTemplateParser parser = new AutoDetectTemplateParser(new StringResourceResolver("s:", "t:"), detectors, AutoDetectTemplateParser.DEFAULT_DETECTION_CACHE_WEIGHT);
+		parser.parse("s:hello", null);
+		parser.parse("t:hello", null);
+		parser.parse("s:hello", null);
+		parser.parse("t:hello", null);
+		Assert.assertEquals("same path with other lookup should not overwrite the cached detection", 2, detector.calls);
+		parser.resourceChanged("hello");
+		parser.parse("s:hello", null);
+		parser.parse("t:hello", null);
+		Assert.assertEquals("detection should be done again for each lookup after change", 4, detector.calls);
+	}
+
+	@Test
+	public void streamedAsString() throws ParseException {
+		AutoDetectTemplateParser parser = new AutoDetectTemplateParser(new StringResourceResolver("s:"), detectors);
+		StringWriter out = new StringWriter();
+		parser.parse("s:hello", null, out);
+		Assert.assertEquals("result of non streaming parser should be written", "hello", out.toString());
+	}
+
+	private static class CountingDetector implements TemplateEngineDetector {
+		private int calls;
+
+		@Override
+		public boolean canParse(String templateName, Context ctx, Resource template) throws EngineDetectionException {
+			calls++;
+			return true;
+		}
+	}
+
+	private static class EchoParser implements TemplateParser {
+		@Override
+		public Content parse(String templateName, Context ctx) throws ParseException {
+			return new StringContent(templateName.substring("s:".length()));
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package fr.sii.ogham.ut.template;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import fr.sii.ogham.core.exception.template.ContextException;
+import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.template.bulk.BulkRenderHandler;
+import fr.sii.ogham.core.template.bulk.BulkTemplateRenderer;
+import fr.sii.ogham.core.template.context.Context;
+import fr.sii.ogham.core.template.context.SimpleContext;
+import fr.sii.ogham.core.template.parser.BindableTemplateParser;
+import fr.sii.ogham.core.template.parser.BoundTemplate;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class BulkTemplateRendererTest {
+	private static final int CONTEXTS = 1000;
+
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	private ExecutorService executor;
+
+	private List<Context> contexts;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(3);
+		contexts = new ArrayList<>();
+		for (int i = 0; i < CONTEXTS; i++) {
+			contexts.add(new SimpleContext("name", i == 42 ? null : "user" + i));
+		}
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void sequential() throws ParseException {
+		HelloParser parser = new HelloParser();
+		CollectingHandler handler = new CollectingHandler();
+		new BulkTemplateRenderer(parser).render("hello", contexts, handler);
+		assertResults(parser, handler);
+	}
+
+	@Test
+	public void parallel() throws ParseException {
+		HelloParser parser = new HelloParser();
+		CollectingHandler handler = new CollectingHandler();
+		new BulkTemplateRenderer(parser, executor, 4).render("hello", contexts, handler);
+		assertResults(parser, handler);
+	}
+
+	private static void assertResults(HelloParser parser, CollectingHandler handler) {
+		Assert.assertEquals("template should be bound once", 1, parser.binds);
+		Assert.assertEquals(CONTEXTS - 1, handler.results.size());
+		Assert.assertEquals("hello user0", handler.results.get(0L));
+		Assert.assertEquals("hello user999", handler.results.get(999L));
+		Assert.assertEquals(1, handler.failures.size());
+		Assert.assertTrue("failure should be reported with its index", handler.failures.containsKey(42L));
+	}
+
+	private static class CollectingHandler implements BulkRenderHandler {
+		private final Map<Long, String> results = new ConcurrentHashMap<>();
+		private final Map<Long, ParseException> failures = new ConcurrentHashMap<>();
+
+		@Override
+		public void rendered(long index, Context ctx, CharSequence result) {
+			results.put(index, result.toString());
+		}
+
+		@Override
+		public void failed(long index, Context ctx, ParseException e) {
+			failures.put(index, e);
+		}
+	}
+
+	private static class HelloParser implements BindableTemplateParser {
+		private int binds;
+
+		@Override
+		public Content parse(String templateName, Context ctx) throws ParseException {
+			throw new ParseException("not expected", templateName, ctx);
+		}
+
+		@Override
+		public BoundTemplate bind(final String templateName) throws ParseException {
+			binds++;
+			return new BoundTemplate() {
+				@Override
+				public void render(Context ctx, Writer out) throws ParseException {
+					try {
+						Object name = ctx.getVariables().get("name");
+						if (name == null) {
+							throw new ParseException("missing name", templateName, ctx);
+						}
+						out.write("hello " + name);
+					} catch (IOException | ContextException e) {
+						throw new ParseException("failed", templateName, ctx, e);
+					}
+				}
+
+				@Override
+				public String getTemplateName() {
+					return templateName;
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package fr.sii.ogham.ut.template;
+
+import java.io.StringWriter;
+import java.util.Locale;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import fr.sii.ogham.core.exception.template.ContextException;
+import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.StringContent;
+import fr.sii.ogham.core.template.cache.VariablesOutputCacheKeyGenerator;
+import fr.sii.ogham.core.template.context.Context;
+import fr.sii.ogham.core.template.context.LocaleContext;
+import fr.sii.ogham.core.template.context.SimpleContext;
+import fr.sii.ogham.core.template.parser.CachingTemplateParser;
+import fr.sii.ogham.core.template.parser.TemplateParser;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class CachingTemplateParserTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	private CountingParser delegate;
+
+	private CachingTemplateParser parser;
+
+	@Before
+	public void setUp() {
+		delegate = new CountingParser();
+		parser = new CachingTemplateParser(delegate, new VariablesOutputCacheKeyGenerator().register("footer", "company"));
+	}
+
+	@Test
+	public void renderedOncePerKey() throws ParseException {
+		Assert.assertEquals("footer-sii", parser.parse("footer", new SimpleContext("company", "sii")).toString());
+		Assert.assertEquals("footer-sii", parser.parse("footer", new SimpleContext("company", "sii")).toString());
+		Assert.assertEquals("same key should be rendered once", 1, delegate.calls);
+		parser.parse("footer", new SimpleContext("company", "other"));
+		Assert.assertEquals("other key should be rendered", 2, delegate.calls);
+		parser.parse("footer", new LocaleContext(new SimpleContext("company", "sii"), Locale.FRENCH));
+		Assert.assertEquals("other locale should be rendered", 3, delegate.calls);
+	}
+
+	@Test
+	public void notRegisteredNotCached() throws ParseException {
+		parser.parse("body", new SimpleContext("company", "sii"));
+		parser.parse("body", new SimpleContext("company", "sii"));
+		Assert.assertEquals(2, delegate.calls);
+	}
+
+	@Test
+	public void streamedFromCache() throws ParseException {
+		parser.parse("footer", new SimpleContext("company", "sii"));
+		StringWriter out = new StringWriter();
+		parser.parse("footer", new SimpleContext("company", "sii"), out);
+		Assert.assertEquals("footer-sii", out.toString());
+		Assert.assertEquals(1, delegate.calls);
+	}
+
+	@Test
+	public void clearedOnChange() throws ParseException {
+		parser.parse("footer", new SimpleContext("company", "sii"));
+		parser.allResourcesChanged();
+		parser.parse("footer", new SimpleContext("company", "sii"));
+		Assert.assertEquals(2, delegate.calls);
+	}
+
+	private static class CountingParser implements TemplateParser {
+		private int calls;
+
+		@Override
+		public Content parse(String templateName, Context ctx) throws ParseException {
+			calls++;
+			try {
+				return new StringContent(templateName + "-" + ctx.getVariables().get("company"));
+			} catch (ContextException e) {
+				throw new ParseException("failed", templateName, ctx, e);
+			}
+		}
+	}
+}
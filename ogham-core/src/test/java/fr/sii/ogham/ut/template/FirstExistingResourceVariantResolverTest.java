@@ -0,0 +1,173 @@
+package fr.sii.ogham.ut.template;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.sii.ogham.core.message.content.EmailVariant;
+import fr.sii.ogham.core.message.content.TemplateVariantContent;
+import fr.sii.ogham.core.resource.ResourcePath;
+import fr.sii.ogham.core.resource.resolver.FileResolver;
+import fr.sii.ogham.core.template.context.Context;
+import fr.sii.ogham.core.template.context.LocaleContext;
+import fr.sii.ogham.core.template.context.SimpleContext;
+import fr.sii.ogham.i18n.ContextLanguageResolver;
+import fr.sii.ogham.template.common.adapter.ExtensionMappingVariantResolver;
+import fr.sii.ogham.template.common.adapter.FirstExistingResourceVariantResolver;
+import fr.sii.ogham.template.common.adapter.NullVariantResolver;
+import fr.sii.ogham.template.common.adapter.PathLister;
+import fr.sii.ogham.template.common.adapter.VariantResolver;
+import fr.sii.ogham.template.exception.VariantResolutionException;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class FirstExistingResourceVariantResolverTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private CountingFileResolver resolver;
+
+	private FirstExistingResourceVariantResolver variantResolver;
+
+	private FirstExistingResourceVariantResolver cachedVariantResolver;
+
+	private String prefix;
+
+	@Before
+	public void setUp() throws IOException {
+		folder.newFile("template.html");
+		prefix = "file:" + folder.getRoot().getAbsolutePath() + "/";
+		resolver = new CountingFileResolver();
+		variantResolver = new FirstExistingResourceVariantResolver(resolver, new NullVariantResolver(),
+				new ExtensionMappingVariantResolver().register(EmailVariant.HTML, "html").register(EmailVariant.TEXT, "txt"));
+		List<VariantResolver> delegates = Arrays.<VariantResolver> asList(new ExtensionMappingVariantResolver().register(EmailVariant.HTML, "html").register(EmailVariant.TEXT, "txt"));
+		cachedVariantResolver = new FirstExistingResourceVariantResolver(resolver, new NullVariantResolver(), delegates, FirstExistingResourceVariantResolver.DEFAULT_CACHE_SIZE);
+	}
+
+	@Test
+	public void notCachedByDefault() throws VariantResolutionException, IOException {
+		Assert.assertNull(variantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.TEXT, (Context) null)));
+		folder.newFile("template.txt");
+		Assert.assertEquals("variant added at runtime should be found", prefix + "template.txt", variantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.TEXT, (Context) null)));
+	}
+
+	@Test
+	public void directoryIsNotVariant() throws VariantResolutionException, IOException {
+		folder.newFolder("template.txt");
+		Assert.assertNull(variantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.TEXT, (Context) null)));
+	}
+
+	@Test
+	public void checkedOnce() throws VariantResolutionException {
+		Assert.assertEquals(prefix + "template.html", cachedVariantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.HTML, (Context) null)));
+		Assert.assertNull(cachedVariantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.TEXT, (Context) null)));
+		Assert.assertEquals(2, resolver.checks);
+		cachedVariantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.HTML, (Context) null));
+		cachedVariantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.TEXT, (Context) null));
+		Assert.assertEquals("existing and missing variants should be cached", 2, resolver.checks);
+	}
+
+	@Test
+	public void changed() throws VariantResolutionException, IOException {
+		Assert.assertNull(cachedVariantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.TEXT, (Context) null)));
+		File text = folder.newFile("template.txt");
+		cachedVariantResolver.resourceChanged(text.getAbsolutePath());
+		Assert.assertEquals(prefix + "template.txt", cachedVariantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.TEXT, (Context) null)));
+	}
+
+	@Test
+	public void indexed() throws VariantResolutionException, IOException {
+		variantResolver.index(prefix, folder.getRoot());
+		Assert.assertEquals(prefix + "template.html", variantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.HTML, (Context) null)));
+		Assert.assertNull(variantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.TEXT, (Context) null)));
+		Assert.assertEquals("indexed paths should not be checked", 0, resolver.checks);
+		File text = folder.newFile("template.txt");
+		variantResolver.resourceChanged(text.getAbsolutePath());
+		Assert.assertEquals("index should be updated", prefix + "template.txt", variantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.TEXT, (Context) null)));
+	}
+
+	@Test
+	public void indexedAgain() throws VariantResolutionException, IOException {
+		variantResolver.index(prefix, folder.getRoot());
+		folder.newFile("template.txt");
+		Assert.assertNull("index should be used", variantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.TEXT, (Context) null)));
+		variantResolver.allResourcesChanged();
+		Assert.assertEquals(prefix + "template.txt", variantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.TEXT, (Context) null)));
+		Assert.assertEquals(prefix + "template.html", variantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.HTML, (Context) null)));
+		Assert.assertEquals("indexed paths should not be checked", 0, resolver.checks);
+	}
+
+	@Test
+	public void indexedFromList() throws VariantResolutionException, IOException {
+		ListLister lister = new ListLister(prefix + "template.html");
+		variantResolver.index("file:", lister);
+		Assert.assertEquals(prefix + "template.html", variantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.HTML, (Context) null)));
+		Assert.assertNull(variantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.TEXT, (Context) null)));
+		Assert.assertEquals("indexed paths should not be checked", 0, resolver.checks);
+		lister.paths.add(prefix + "template.txt");
+		variantResolver.resourceChanged(new File(folder.getRoot(), "template.txt").getAbsolutePath());
+		Assert.assertEquals("paths should be listed again", prefix + "template.txt", variantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.TEXT, (Context) null)));
+		variantResolver.allResourcesChanged();
+		Assert.assertEquals(prefix + "template.txt", variantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.TEXT, (Context) null)));
+		Assert.assertEquals("index should be kept", 0, resolver.checks);
+		Assert.assertEquals(3, lister.calls);
+	}
+
+	@Test
+	public void localized() throws VariantResolutionException, IOException {
+		folder.newFile("template_fr.html");
+		cachedVariantResolver.localize(new ContextLanguageResolver());
+		Assert.assertEquals("language should be used if country is missing", prefix + "template_fr.html",
+				cachedVariantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.HTML, new SimpleContext("locale", "fr_CA"))));
+		Assert.assertEquals("locale of context should be used", prefix + "template_fr.html",
+				cachedVariantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.HTML, new LocaleContext(new SimpleContext("name", "foo"), Locale.FRENCH))));
+		Assert.assertEquals("not localized template should be used", prefix + "template.html",
+				cachedVariantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.HTML, new SimpleContext("locale", "de"))));
+		Assert.assertEquals(prefix + "template.html", cachedVariantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.HTML, (Context) null)));
+		int checks = resolver.checks;
+		cachedVariantResolver.getRealPath(new TemplateVariantContent(prefix + "template", EmailVariant.HTML, new SimpleContext("locale", "fr_CA")));
+		Assert.assertEquals("localized paths should be checked once", checks, resolver.checks);
+	}
+
+	private static class ListLister implements PathLister {
+		private final List<String> paths;
+		private int calls;
+
+		public ListLister(String... paths) {
+			super();
+			this.paths = new ArrayList<>(Arrays.asList(paths));
+		}
+
+		@Override
+		public Collection<String> list() {
+			calls++;
+			return paths;
+		}
+	}
+
+	private static class CountingFileResolver extends FileResolver {
+		private int checks;
+
+		public CountingFileResolver() {
+			super("file:");
+		}
+
+		@Override
+		protected boolean exists(ResourcePath resourcePath) {
+			checks++;
+			return super.exists(resourcePath);
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package fr.sii.ogham.ut.template;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.template.context.Context;
+import fr.sii.ogham.core.template.parser.PrecompilableTemplateParser;
+import fr.sii.ogham.core.template.warmup.TemplateScanner;
+import fr.sii.ogham.core.template.warmup.TemplateWarmUp;
+import fr.sii.ogham.core.template.warmup.WarmUpReport;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class TemplateWarmUpTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void fileTemplatesCompiled() throws IOException {
+		File dir = folder.newFolder("templates");
+		new File(dir, "account").mkdir();
+		new File(dir, "account/register.html").createNewFile();
+		new File(dir, "invalid.html").createNewFile();
+		new File(dir, "readme.md").createNewFile();
+		RecordingParser parser = new RecordingParser("file:invalid");
+		WarmUpReport report = new TemplateWarmUp(parser).warmUp(Arrays.asList("file:"), dir.getAbsolutePath(), ".html");
+		Collections.sort(parser.compiled);
+		Assert.assertEquals(Arrays.asList("file:account/register", "file:invalid"), parser.compiled);
+		Assert.assertEquals(2, report.getResults().size());
+		Assert.assertEquals(1, report.getFailures().size());
+		Assert.assertEquals("file:invalid", report.getFailures().get(0).getTemplateName());
+	}
+
+	@Test
+	public void classpathJarScanned() throws IOException {
+		File jar = folder.newFile("templates.jar");
+		try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+			out.putNextEntry(new JarEntry("templates/"));
+			out.putNextEntry(new JarEntry("templates/hello.html"));
+			out.putNextEntry(new JarEntry("templates/mail/welcome.html"));
+			out.putNextEntry(new JarEntry("other/ignored.html"));
+		}
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[] { jar.toURI().toURL() }, null)) {
+			List<String> names = new TemplateScanner(classLoader).scan("classpath:", "/templates/", "");
+			Collections.sort(names);
+			Assert.assertEquals(Arrays.asList("classpath:hello.html", "classpath:mail/welcome.html"), names);
+		}
+	}
+
+	@Test
+	public void classpathDirectoryScanned() throws IOException {
+		List<String> names = new TemplateScanner().scan("classpath:", "/template/thymeleaf/source/", "");
+		Assert.assertTrue("classpath templates should be found", names.contains("classpath:simple.html"));
+	}
+
+	private static class RecordingParser implements PrecompilableTemplateParser {
+		private final List<String> compiled = new ArrayList<>();
+		private final String invalid;
+
+		public RecordingParser(String invalid) {
+			super();
+			this.invalid = invalid;
+		}
+
+		@Override
+		public Content parse(String templateName, Context ctx) throws ParseException {
+			throw new ParseException("not expected", templateName, ctx);
+		}
+
+		@Override
+		public void precompile(String templateName) throws ParseException {
+			compiled.add(templateName);
+			if (invalid.equals(templateName)) {
+				throw new ParseException("invalid", templateName, null);
+			}
+		}
+	}
+}
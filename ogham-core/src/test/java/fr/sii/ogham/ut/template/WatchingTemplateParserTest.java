@@ -0,0 +1,49 @@
+package fr.sii.ogham.ut.template;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import fr.sii.ogham.core.builder.TemplateBuilder;
+import fr.sii.ogham.core.template.parser.TemplateParser;
+import fr.sii.ogham.core.template.parser.WatchingTemplateParser;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class WatchingTemplateParserTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private TemplateBuilder builder;
+
+	@Before
+	public void setUp() {
+		builder = new TemplateBuilder().useDefaultResolvers().withPlaceholders().withParentPath(folder.getRoot().getPath()).watchFiles();
+	}
+
+	@Test
+	public void closeStopsWatcher() throws IOException {
+		TemplateParser parser = builder.build();
+		Assert.assertTrue("built parser should be closeable", parser instanceof WatchingTemplateParser);
+		WatchingTemplateParser watching = (WatchingTemplateParser) parser;
+		Assert.assertTrue(watching.getWatcher().isWatching(folder.getRoot()));
+		watching.close();
+		Assert.assertFalse("watcher should be stopped", watching.getWatcher().isWatching(folder.getRoot()));
+	}
+
+	@Test
+	public void rebuildReplacesWatcher() throws IOException {
+		WatchingTemplateParser first = (WatchingTemplateParser) builder.build();
+		WatchingTemplateParser second = (WatchingTemplateParser) builder.build();
+		Assert.assertFalse("previous watcher should be stopped", first.getWatcher().isWatching(folder.getRoot()));
+		Assert.assertTrue(second.getWatcher().isWatching(folder.getRoot()));
+		Assert.assertSame(second.getWatcher(), builder.getResourceWatcher());
+		second.close();
+	}
+}
@@ -0,0 +1,146 @@
+package fr.sii.ogham.ut.template.fremarker;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import fr.sii.ogham.core.resource.ResourcePath;
+import fr.sii.ogham.core.resource.resolver.FirstSupportingResourceResolver;
+import fr.sii.ogham.core.resource.resolver.ResourceResolver;
+import fr.sii.ogham.core.resource.resolver.StringResourceResolver;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+import fr.sii.ogham.template.freemarker.FreeMarkerFirstSupportingTemplateLoader;
+import fr.sii.ogham.template.freemarker.TemplateLoaderOptions;
+import fr.sii.ogham.template.freemarker.adapter.FirstSupportingResolverAdapter;
+import fr.sii.ogham.template.freemarker.adapter.TemplateLoaderAdapter;
+import freemarker.cache.TemplateLoader;
+
+public class FreeMarkerFirstSupportingTemplateLoaderTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	private CountingResolver resolver;
+
+	private CountingAdapter adapter;
+
+	private FreeMarkerFirstSupportingTemplateLoader loader;
+
+	@Before
+	public void setUp() {
+		resolver = new CountingResolver("s:");
+		adapter = new CountingAdapter();
+		loader = new FreeMarkerFirstSupportingTemplateLoader(new FirstSupportingResourceResolver(Arrays.<ResourceResolver> asList(resolver)), new FirstSupportingResolverAdapter(adapter));
+	}
+
+	@Test
+	public void resolvedOnce() throws IOException {
+		Object source = loader.findTemplateSource("s:hello");
+		Assert.assertEquals("same template should give equal sources", source, loader.findTemplateSource("s:hello"));
+		Assert.assertEquals("resolved path should be memoized", 1, resolver.resolutions);
+		Assert.assertEquals("hello", read(source));
+	}
+
+	@Test
+	public void missResolvedByDelegate() throws IOException {
+		loader.findTemplateSource("s:hello");
+		Object source = loader.findTemplateSource("s:world");
+		Assert.assertEquals("other template should be resolved", 2, resolver.resolutions);
+		Assert.assertEquals("world", read(source));
+	}
+
+	@Test
+	public void adaptedOnce() throws IOException {
+		loader.findTemplateSource("s:hello");
+		loader.findTemplateSource("s:world");
+		Assert.assertEquals("loader should be adapted once per resolver", 1, adapter.adaptations);
+		loader.clearCache();
+		loader.findTemplateSource("s:hello");
+		Assert.assertEquals("loader should be adapted again after clear", 2, adapter.adaptations);
+		Assert.assertEquals("template should be resolved again after clear", 3, resolver.resolutions);
+	}
+
+	@Test
+	public void bounded() throws IOException {
+		FreeMarkerFirstSupportingTemplateLoader bounded = new FreeMarkerFirstSupportingTemplateLoader(new FirstSupportingResourceResolver(Arrays.<ResourceResolver> asList(resolver)), new FirstSupportingResolverAdapter(adapter), 2);
+		bounded.findTemplateSource("s:a");
+		bounded.findTemplateSource("s:b");
+		bounded.findTemplateSource("s:c");
+		bounded.findTemplateSource("s:c");
+		Assert.assertEquals(3, resolver.resolutions);
+		bounded.findTemplateSource("s:a");
+		Assert.assertEquals("least recently used resolution should be evicted", 4, resolver.resolutions);
+	}
+
+	private String read(Object source) throws IOException {
+		try (Reader reader = loader.getReader(source, "UTF-8")) {
+			StringBuilder sb = new StringBuilder();
+			int c;
+			while ((c = reader.read()) != -1) {
+				sb.append((char) c);
+			}
+			return sb.toString();
+		}
+	}
+
+	private static class CountingResolver extends StringResourceResolver {
+		private int resolutions;
+
+		public CountingResolver(String... lookups) {
+			super(lookups);
+		}
+
+		@Override
+		public ResourcePath getResourcePath(String path) {
+			resolutions++;
+			return super.getResourcePath(path);
+		}
+	}
+
+	private static class CountingAdapter implements TemplateLoaderAdapter {
+		private int adaptations;
+
+		@Override
+		public boolean supports(ResourceResolver resolver) {
+			return true;
+		}
+
+		@Override
+		public TemplateLoader adapt(ResourceResolver resolver) {
+			adaptations++;
+			return new EchoLoader();
+		}
+
+		@Override
+		public void setOptions(TemplateLoaderOptions options) {
+			// nothing to configure
+		}
+	}
+
+	private static class EchoLoader implements TemplateLoader {
+		@Override
+		public Object findTemplateSource(String name) {
+			return name;
+		}
+
+		@Override
+		public long getLastModified(Object templateSource) {
+			return -1;
+		}
+
+		@Override
+		public Reader getReader(Object templateSource, String encoding) {
+			return new StringReader((String) templateSource);
+		}
+
+		@Override
+		public void closeTemplateSource(Object templateSource) {
+			// nothing to close
+		}
+	}
+}
@@ -1,6 +1,8 @@
 package fr.sii.ogham.ut.template.fremarker;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
@@ -14,14 +16,22 @@ import fr.sii.ogham.core.builder.TemplateBuilder;
 import fr.sii.ogham.core.exception.template.ParseException;
 import fr.sii.ogham.core.message.content.Content;
 import fr.sii.ogham.core.message.content.StringContent;
+import fr.sii.ogham.core.resource.ResourceChangeListener;
 import fr.sii.ogham.core.template.context.BeanContext;
 import fr.sii.ogham.core.template.context.LocaleContext;
+import fr.sii.ogham.core.template.context.SimpleContext;
+import fr.sii.ogham.core.template.parser.BindableTemplateParser;
+import fr.sii.ogham.core.template.parser.BoundTemplate;
+import fr.sii.ogham.core.template.parser.PrecompilableTemplateParser;
+import fr.sii.ogham.core.template.parser.StreamingTemplateParser;
 import fr.sii.ogham.core.template.parser.TemplateParser;
 import fr.sii.ogham.helper.rule.LoggingTestRule;
 import fr.sii.ogham.helper.template.AssertTemplate;
 import fr.sii.ogham.mock.context.NestedBean;
 import fr.sii.ogham.mock.context.SimpleBean;
 import fr.sii.ogham.template.freemarker.builder.FreeMarkerTemplateParserBuilder;
+import freemarker.template.DefaultObjectWrapper;
+import freemarker.template.ObjectWrapper;
 
 public class FreeMarkerParserTest {
 	private TemplateParser parser;
@@ -86,8 +96,71 @@ public class FreeMarkerParserTest {
 		AssertTemplate.assertSimilar("/template/freemarker/expected/locale_foo_42_en.txt", content);
 	}
 
+	@Test
+	public void precompiled() throws ParseException, IOException {
+		Assert.assertTrue("parser should be able to compile templates in advance", parser instanceof PrecompilableTemplateParser);
+		((PrecompilableTemplateParser) parser).precompile("classpath:simple.html.ftl");
+		Content content = parser.parse("classpath:simple.html.ftl", new BeanContext(new SimpleBean("foo", 42)));
+		AssertTemplate.assertSimilar("/template/freemarker/expected/simple_foo_42.html", content);
+	}
+
+	@Test
+	public void bound() throws ParseException, IOException {
+		Assert.assertTrue("parser should be able to bind templates", parser instanceof BindableTemplateParser);
+		BoundTemplate template = ((BindableTemplateParser) parser).bind("classpath:locale.txt.ftl");
+		StringWriter out = new StringWriter();
+		template.render(new LocaleContext(new SimpleBean("foo", 42, date), Locale.FRENCH), out);
+		AssertTemplate.assertSimilar("/template/freemarker/expected/locale_foo_42_fr.txt", new StringContent(out.toString()));
+		out.getBuffer().setLength(0);
+		template.render(new LocaleContext(new SimpleBean("foo", 42, date), Locale.ENGLISH), out);
+		AssertTemplate.assertSimilar("/template/freemarker/expected/locale_foo_42_en.txt", new StringContent(out.toString()));
+	}
+
+	@Test
+	public void streaming() throws ParseException, IOException {
+		Assert.assertTrue("parser should be able to stream the result", parser instanceof StreamingTemplateParser);
+		StringWriter out = new StringWriter();
+		((StreamingTemplateParser) parser).parse("classpath:nested.html.ftl", new BeanContext(new NestedBean(new SimpleBean("foo", 42))), out);
+		AssertTemplate.assertSimilar("/template/freemarker/expected/nested_foo_42.html", new StringContent(out.toString()));
+	}
+
+	@Test
+	public void unusedBeanPropertyNotRead() throws ParseException {
+		Content content = parser.parse("string:Hello ${name}", new BeanContext(new PartialBean()));
+		Assert.assertEquals("Hello foo", content.toString());
+	}
+
+	@Test
+	public void defaultObjectWrapperKept() throws ParseException {
+		ObjectWrapper wrapper = new FreeMarkerTemplateParserBuilder().getConfiguration().getObjectWrapper();
+		Assert.assertTrue(wrapper instanceof DefaultObjectWrapper);
+		Assert.assertFalse("containers should be copied as before", ((DefaultObjectWrapper) wrapper).getUseAdaptersForContainers());
+		Assert.assertEquals("true 2", parser.parse("string:${list?is_sequence?c} ${list?size}", new SimpleContext("list", Arrays.asList("a", "b"))).toString());
+	}
+
+	@Test
+	public void cachedBlock() throws ParseException {
+		TemplateParser cached = new TemplateBuilder().registerTemplateParser(new FreeMarkerTemplateParserBuilder().cacheFragments(1024)).useDefaultResolvers().build();
+		String template = "string:${name} <@cache name=\"footer\">${value}</@cache>";
+		Assert.assertEquals("foo 42", cached.parse(template, new LocaleContext(new SimpleBean("foo", 42), Locale.FRENCH)).toString());
+		Assert.assertEquals("block should be rendered once per locale", "bar 42", cached.parse(template, new LocaleContext(new SimpleBean("bar", 43), Locale.FRENCH)).toString());
+		Assert.assertEquals("other locale should be rendered", "bar 43", cached.parse(template, new LocaleContext(new SimpleBean("bar", 43), Locale.ENGLISH)).toString());
+		((ResourceChangeListener) cached).allResourcesChanged();
+		Assert.assertEquals("block should be rendered again after change", "bar 43", cached.parse(template, new LocaleContext(new SimpleBean("bar", 43), Locale.FRENCH)).toString());
+	}
+
 	@Test(expected = ParseException.class)
 	public void invalid() throws ParseException, IOException {
 		parser.parse("classpath:invalid.html.ftl", new BeanContext(new NestedBean(new SimpleBean("foo", 42))));
 	}
+
+	public static class PartialBean {
+		public String getName() {
+			return "foo";
+		}
+
+		public String getFailure() {
+			throw new IllegalStateException("unused property should not be read");
+		}
+	}
 }
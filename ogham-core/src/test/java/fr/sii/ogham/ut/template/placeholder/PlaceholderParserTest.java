@@ -0,0 +1,137 @@
+package fr.sii.ogham.ut.template.placeholder;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import fr.sii.ogham.core.exception.resource.ResourceResolutionException;
+import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.resource.Resource;
+import fr.sii.ogham.core.resource.ResourcePath;
+import fr.sii.ogham.core.resource.resolver.ResourceResolver;
+import fr.sii.ogham.core.resource.resolver.StringResourceResolver;
+import fr.sii.ogham.core.template.context.BeanContext;
+import fr.sii.ogham.core.template.context.SimpleContext;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+import fr.sii.ogham.template.placeholder.PlaceholderParser;
+import fr.sii.ogham.template.placeholder.PlaceholderTemplateDetector;
+
+public class PlaceholderParserTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	private PlaceholderParser parser;
+
+	@Before
+	public void setUp() {
+		parser = new PlaceholderParser(new StringResourceResolver("s:"));
+	}
+
+	@Test
+	public void placeholders() throws ParseException {
+		Assert.assertEquals("Hello foo, you have 42 messages", parser.parse("s:Hello ${name}, you have ${ count } messages", new BeanContext(new User("foo", 42, null))).toString());
+	}
+
+	@Test
+	public void nested() throws ParseException {
+		Map<String, Object> address = new HashMap<>();
+		address.put("city", "Nantes");
+		User user = new User("foo", 0, new User("bar", 1, null));
+		Map<String, Object> variables = new HashMap<>();
+		variables.put("user", user);
+		variables.put("address", address);
+		Assert.assertEquals("bar in Nantes", parser.parse("s:${user.parent.name} in ${address.city}", new SimpleContext(variables)).toString());
+	}
+
+	@Test
+	public void missingAndUnclosed() throws ParseException {
+		Assert.assertEquals("[] ${name", parser.parse("s:[${user.parent.name}] ${name", new BeanContext(new User("foo", 0, null))).toString());
+	}
+
+	@Test
+	public void streamed() throws ParseException {
+		StringWriter out = new StringWriter();
+		parser.parse("s:Hello ${name}", new SimpleContext("name", "foo"), out);
+		Assert.assertEquals("Hello foo", out.toString());
+	}
+
+	@Test
+	public void placeholderOnlyTemplatesEvicted() throws ParseException {
+		CountingResolver resolver = new CountingResolver(new StringResourceResolver("s:"));
+		PlaceholderParser bounded = new PlaceholderParser(resolver, StandardCharsets.UTF_8, 10);
+		bounded.precompile("s:${a}");
+		bounded.precompile("s:${b}");
+		bounded.precompile("s:${a}");
+		Assert.assertEquals("cached template should not be loaded again", 2, resolver.loads);
+		bounded.precompile("s:${c}");
+		bounded.precompile("s:${a}");
+		Assert.assertEquals("recently used template should be kept", 3, resolver.loads);
+		bounded.precompile("s:${b}");
+		Assert.assertEquals("template only made of placeholders should be evicted", 4, resolver.loads);
+	}
+
+	@Test
+	public void detectedOnVariantPath() {
+		PlaceholderTemplateDetector detector = new PlaceholderTemplateDetector();
+		Assert.assertTrue(detector.canParse("classpath:template/register.txt.tpl", null, null));
+		Assert.assertTrue(detector.canParse("classpath:template/register.html.tpl", null, null));
+		Assert.assertFalse(detector.canParse("classpath:template/register.txt", null, null));
+	}
+
+	private static class CountingResolver implements ResourceResolver {
+		private final ResourceResolver delegate;
+		private int loads;
+
+		public CountingResolver(ResourceResolver delegate) {
+			super();
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Resource getResource(String path) throws ResourceResolutionException {
+			loads++;
+			return delegate.getResource(path);
+		}
+
+		@Override
+		public boolean supports(String path) {
+			return delegate.supports(path);
+		}
+
+		@Override
+		public ResourcePath getResourcePath(String path) {
+			return delegate.getResourcePath(path);
+		}
+	}
+
+	public static class User {
+		private final String name;
+		private final int count;
+		private final User parent;
+
+		public User(String name, int count, User parent) {
+			super();
+			this.name = name;
+			this.count = count;
+			this.parent = parent;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		public User getParent() {
+			return parent;
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package fr.sii.ogham.ut.template.thymeleaf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.thymeleaf.Configuration;
+import org.thymeleaf.TemplateProcessingParameters;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.templateresolver.ITemplateResolver;
+import org.thymeleaf.templateresolver.TemplateResolution;
+
+import fr.sii.ogham.core.resource.ResourcePath;
+import fr.sii.ogham.core.resource.resolver.FirstSupportingResourceResolver;
+import fr.sii.ogham.core.resource.resolver.ResourceResolver;
+import fr.sii.ogham.core.resource.resolver.StringResourceResolver;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+import fr.sii.ogham.template.thymeleaf.TemplateResolverOptions;
+import fr.sii.ogham.template.thymeleaf.ThymeLeafFirstSupportingTemplateResolver;
+import fr.sii.ogham.template.thymeleaf.adapter.FirstSupportingResolverAdapter;
+import fr.sii.ogham.template.thymeleaf.adapter.TemplateResolverAdapter;
+
+public class ThymeLeafFirstSupportingTemplateResolverTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	private CountingResolver resolver;
+
+	private CountingAdapter adapter;
+
+	private ThymeLeafFirstSupportingTemplateResolver templateResolver;
+
+	@Before
+	public void setUp() {
+		resolver = new CountingResolver("s:");
+		adapter = new CountingAdapter();
+		templateResolver = new ThymeLeafFirstSupportingTemplateResolver(new FirstSupportingResourceResolver(Arrays.<ResourceResolver> asList(resolver)), new FirstSupportingResolverAdapter(adapter));
+	}
+
+	@Test
+	public void resolvedOnce() {
+		resolve(templateResolver, "s:hello");
+		resolve(templateResolver, "s:hello");
+		Assert.assertEquals("resolved path should be memoized", 1, resolver.resolutions);
+		Assert.assertEquals("adapted resolver should receive the resolved path", Arrays.asList("hello", "hello"), adapter.resolved);
+	}
+
+	@Test
+	public void missResolvedByDelegate() {
+		resolve(templateResolver, "s:hello");
+		resolve(templateResolver, "s:world");
+		Assert.assertEquals("other template should be resolved", 2, resolver.resolutions);
+		Assert.assertEquals(Arrays.asList("hello", "world"), adapter.resolved);
+	}
+
+	@Test
+	public void adaptedOnce() {
+		resolve(templateResolver, "s:hello");
+		resolve(templateResolver, "s:world");
+		Assert.assertEquals("resolver should be adapted once per resolver", 1, adapter.adaptations);
+		templateResolver.clearCache();
+		resolve(templateResolver, "s:hello");
+		Assert.assertEquals("resolver should be adapted again after clear", 2, adapter.adaptations);
+		Assert.assertEquals("template should be resolved again after clear", 3, resolver.resolutions);
+	}
+
+	@Test
+	public void initializedOnce() {
+		templateResolver.initialize();
+		resolve(templateResolver, "s:hello");
+		resolve(templateResolver, "s:world");
+		Assert.assertEquals("adapted resolver should be initialized once", 1, adapter.initializations);
+	}
+
+	@Test
+	public void bounded() {
+		ThymeLeafFirstSupportingTemplateResolver bounded = new ThymeLeafFirstSupportingTemplateResolver(new FirstSupportingResourceResolver(Arrays.<ResourceResolver> asList(resolver)), new FirstSupportingResolverAdapter(adapter), 2);
+		resolve(bounded, "s:a");
+		resolve(bounded, "s:b");
+		resolve(bounded, "s:c");
+		resolve(bounded, "s:c");
+		Assert.assertEquals(3, resolver.resolutions);
+		resolve(bounded, "s:a");
+		Assert.assertEquals("least recently used resolution should be evicted", 4, resolver.resolutions);
+	}
+
+	private static void resolve(ITemplateResolver templateResolver, String templateName) {
+		templateResolver.resolveTemplate(new TemplateProcessingParameters(new Configuration(), templateName, new Context()));
+	}
+
+	private static class CountingResolver extends StringResourceResolver {
+		private int resolutions;
+
+		public CountingResolver(String... lookups) {
+			super(lookups);
+		}
+
+		@Override
+		public ResourcePath getResourcePath(String path) {
+			resolutions++;
+			return super.getResourcePath(path);
+		}
+	}
+
+	private static class CountingAdapter implements TemplateResolverAdapter {
+		private int adaptations;
+		private int initializations;
+		private final List<String> resolved = new ArrayList<>();
+
+		@Override
+		public boolean supports(ResourceResolver resolver) {
+			return true;
+		}
+
+		@Override
+		public ITemplateResolver adapt(ResourceResolver resolver) {
+			adaptations++;
+			return new RecordingTemplateResolver();
+		}
+
+		@Override
+		public void setOptions(TemplateResolverOptions options) {
+			// nothing to configure
+		}
+
+		private class RecordingTemplateResolver implements ITemplateResolver {
+			@Override
+			public String getName() {
+				return "recording";
+			}
+
+			@Override
+			public Integer getOrder() {
+				return 0;
+			}
+
+			@Override
+			public TemplateResolution resolveTemplate(TemplateProcessingParameters templateProcessingParameters) {
+				resolved.add(templateProcessingParameters.getTemplateName());
+				return null;
+			}
+
+			@Override
+			public void initialize() {
+				initializations++;
+			}
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package fr.sii.ogham.ut.template.thymeleaf;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
@@ -16,6 +17,10 @@ import fr.sii.ogham.core.message.content.Content;
 import fr.sii.ogham.core.message.content.StringContent;
 import fr.sii.ogham.core.template.context.BeanContext;
 import fr.sii.ogham.core.template.context.LocaleContext;
+import fr.sii.ogham.core.template.parser.BindableTemplateParser;
+import fr.sii.ogham.core.template.parser.BoundTemplate;
+import fr.sii.ogham.core.template.parser.PrecompilableTemplateParser;
+import fr.sii.ogham.core.template.parser.StreamingTemplateParser;
 import fr.sii.ogham.core.template.parser.TemplateParser;
 import fr.sii.ogham.helper.rule.LoggingTestRule;
 import fr.sii.ogham.helper.template.AssertTemplate;
@@ -91,6 +96,46 @@ public class ThymeleafParserTest {
 		AssertTemplate.assertSimilar("/template/thymeleaf/expected/locale_foo_42_en.txt", content);
 	}
 	
+	@Test
+	public void precompiled() throws ParseException, IOException {
+		Assert.assertTrue("parser should be able to compile templates in advance", parser instanceof PrecompilableTemplateParser);
+		((PrecompilableTemplateParser) parser).precompile("classpath:simple.html");
+		Content content = parser.parse("classpath:simple.html", new BeanContext(new SimpleBean("foo", 42)));
+		AssertTemplate.assertSimilar("/template/thymeleaf/expected/simple_foo_42.html", content);
+	}
+
+	@Test
+	public void bound() throws ParseException, IOException {
+		Assert.assertTrue("parser should be able to bind templates", parser instanceof BindableTemplateParser);
+		BoundTemplate template = ((BindableTemplateParser) parser).bind("classpath:locale.txt");
+		StringWriter out = new StringWriter();
+		template.render(new LocaleContext(new SimpleBean("foo", 42, date), Locale.FRENCH), out);
+		AssertTemplate.assertSimilar("/template/thymeleaf/expected/locale_foo_42_fr.txt", new StringContent(out.toString()));
+		out.getBuffer().setLength(0);
+		template.render(new LocaleContext(new SimpleBean("foo", 42, date), Locale.ENGLISH), out);
+		AssertTemplate.assertSimilar("/template/thymeleaf/expected/locale_foo_42_en.txt", new StringContent(out.toString()));
+	}
+
+	@Test
+	public void streaming() throws ParseException, IOException {
+		Assert.assertTrue("parser should be able to stream the result", parser instanceof StreamingTemplateParser);
+		StringWriter out = new StringWriter();
+		((StreamingTemplateParser) parser).parse("classpath:nested.html", new BeanContext(new NestedBean(new SimpleBean("foo", 42))), out);
+		AssertTemplate.assertSimilar("/template/thymeleaf/expected/nested_foo_42.html", new StringContent(out.toString()));
+	}
+
+	@Test
+	public void cachedFragment() throws ParseException {
+		TemplateParser cached = new TemplateBuilder()
+					.registerTemplateParser(new ThymeleafTemplateParserBuilder().cacheFragments(1024))
+					.useDefaultResolvers()
+					.withParentPath("/template/thymeleaf/source/")
+					.build();
+		Assert.assertEquals("foo fr", cached.parse("classpath:cachedFragment.txt", new LocaleContext(new SimpleBean("foo", 42), Locale.FRENCH)).toString().trim());
+		Assert.assertEquals("bar fr", cached.parse("classpath:cachedFragment.txt", new LocaleContext(new SimpleBean("bar", 43), Locale.FRENCH)).toString().trim());
+		Assert.assertEquals("fragment should be rendered for each locale", "bar en", cached.parse("classpath:cachedFragment.txt", new LocaleContext(new SimpleBean("bar", 43), Locale.ENGLISH)).toString().trim());
+	}
+
 	@Test(expected=ParseException.class)
 	public void invalid() throws ParseException, IOException {
 		parser.parse("classpath:invalid.html", new BeanContext(new NestedBean(new SimpleBean("foo", 42))));
@@ -0,0 +1,151 @@
+package fr.sii.ogham.ut.translator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import fr.sii.ogham.core.exception.handler.ContentTranslatorException;
+import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.MultiContent;
+import fr.sii.ogham.core.message.content.StringContent;
+import fr.sii.ogham.core.translator.content.ContentTranslator;
+import fr.sii.ogham.core.translator.content.MultiContentTranslator;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class MultiContentTranslatorTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(2);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void concurrentOrderPreserved() throws ContentTranslatorException {
+		// the first content can only be translated once the second one is
+		// started by another thread
+		final CountDownLatch secondStarted = new CountDownLatch(1);
+		ContentTranslator translator = new ContentTranslator() {
+			@Override
+			public Content translate(Content content) throws ContentTranslatorException {
+				try {
+					if ("first".equals(content.toString())) {
+						Assert.assertTrue("second content should be translated concurrently", secondStarted.await(5, TimeUnit.SECONDS));
+					} else {
+						secondStarted.countDown();
+					}
+				} catch (InterruptedException e) {
+					throw new ContentTranslatorException(e);
+				}
+				return "skipped".equals(content.toString()) ? null : new StringContent(content + "-translated");
+			}
+		};
+		Content result = new MultiContentTranslator(translator, executor).translate(multi("first", "second", "skipped", "third"));
+		assertContents(result, "first-translated", "second-translated", "third-translated");
+	}
+
+	@Test
+	public void rejectedTranslatedByCaller() throws ContentTranslatorException {
+		Executor rejecting = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				throw new RejectedExecutionException("busy");
+			}
+		};
+		Content result = new MultiContentTranslator(new SuffixTranslator(), rejecting).translate(multi("first", "second"));
+		assertContents(result, "first-translated", "second-translated");
+	}
+
+	@Test(expected = ContentTranslatorException.class)
+	public void failurePropagated() throws ContentTranslatorException {
+		ContentTranslator translator = new ContentTranslator() {
+			@Override
+			public Content translate(Content content) throws ContentTranslatorException {
+				if ("second".equals(content.toString())) {
+					throw new ContentTranslatorException("failure");
+				}
+				return content;
+			}
+		};
+		new MultiContentTranslator(translator, executor).translate(multi("first", "second"));
+	}
+
+	@Test
+	public void pendingCancelledOnFailure() {
+		// keeps the tasks without running them
+		final List<Runnable> pending = new ArrayList<>();
+		Executor deferring = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				pending.add(command);
+			}
+		};
+		ContentTranslator translator = new ContentTranslator() {
+			@Override
+			public Content translate(Content content) throws ContentTranslatorException {
+				if ("first".equals(content.toString())) {
+					throw new ContentTranslatorException("failure");
+				}
+				return content;
+			}
+		};
+		try {
+			new MultiContentTranslator(translator, deferring).translate(multi("first", "second", "third"));
+			Assert.fail("failure should be propagated");
+		} catch (ContentTranslatorException e) {
+			Assert.assertEquals(2, pending.size());
+			for (Runnable task : pending) {
+				Assert.assertTrue("pending translation should be cancelled", ((Future<?>) task).isCancelled());
+			}
+		}
+	}
+
+	@Test
+	public void sequential() throws ContentTranslatorException {
+		Content result = new MultiContentTranslator(new SuffixTranslator()).translate(multi("first", "second"));
+		assertContents(result, "first-translated", "second-translated");
+	}
+
+	private static MultiContent multi(String... contents) {
+		MultiContent multi = new MultiContent();
+		for (String content : contents) {
+			multi.addContent(new StringContent(content));
+		}
+		return multi;
+	}
+
+	private static void assertContents(Content result, String... expected) {
+		List<Content> contents = ((MultiContent) result).getContents();
+		Assert.assertEquals(expected.length, contents.size());
+		for (int i = 0; i < expected.length; i++) {
+			Assert.assertEquals(expected[i], contents.get(i).toString());
+		}
+	}
+
+	private static class SuffixTranslator implements ContentTranslator {
+		@Override
+		public Content translate(Content content) throws ContentTranslatorException {
+			return new StringContent(content + "-translated");
+		}
+	}
+}
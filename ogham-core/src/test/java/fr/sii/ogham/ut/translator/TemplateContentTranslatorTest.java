@@ -0,0 +1,109 @@
+package fr.sii.ogham.ut.translator;
+
+import java.util.Locale;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import fr.sii.ogham.core.exception.handler.ContentTranslatorException;
+import fr.sii.ogham.core.exception.template.ContextException;
+import fr.sii.ogham.core.exception.template.ParseException;
+import fr.sii.ogham.core.message.content.Content;
+import fr.sii.ogham.core.message.content.StringContent;
+import fr.sii.ogham.core.message.content.TemplateContent;
+import fr.sii.ogham.core.template.context.Context;
+import fr.sii.ogham.core.template.context.LocaleContext;
+import fr.sii.ogham.core.template.context.SimpleContext;
+import fr.sii.ogham.core.template.parser.TemplateParser;
+import fr.sii.ogham.core.translator.content.TemplateContentTranslator;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+import fr.sii.ogham.i18n.ContextLanguageResolver;
+import fr.sii.ogham.i18n.LanguageResolver;
+import fr.sii.ogham.template.common.adapter.LocalizedVariantResolver;
+import fr.sii.ogham.template.common.adapter.VariantResolver;
+import fr.sii.ogham.template.exception.VariantResolutionException;
+
+public class TemplateContentTranslatorTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	private static final VariantResolver PATH_RESOLVER = new VariantResolver() {
+		@Override
+		public String getRealPath(TemplateContent template) throws VariantResolutionException {
+			return template.getPath();
+		}
+	};
+
+	private RecordingParser parser;
+
+	@Before
+	public void setUp() {
+		parser = new RecordingParser();
+	}
+
+	@Test
+	public void localized() throws ContentTranslatorException {
+		SimpleContext ctx = new SimpleContext("locale", "fr_CA");
+		new TemplateContentTranslator(parser, PATH_RESOLVER, false, new ContextLanguageResolver()).translate(new TemplateContent("template", ctx));
+		Assert.assertTrue("context should provide the locale", parser.ctx instanceof LocaleContext);
+		Assert.assertEquals(Locale.CANADA_FRENCH, ((LocaleContext) parser.ctx).getLocale());
+		Assert.assertSame("original context should be wrapped", ctx, ((LocaleContext) parser.ctx).getDelegate());
+	}
+
+	@Test
+	public void localeContextKept() throws ContentTranslatorException {
+		LocaleContext ctx = new LocaleContext(new SimpleContext("locale", "fr_CA"), Locale.ENGLISH);
+		new TemplateContentTranslator(parser, PATH_RESOLVER, false, new ContextLanguageResolver()).translate(new TemplateContent("template", ctx));
+		Assert.assertSame(ctx, parser.ctx);
+	}
+
+	@Test
+	public void notLocalized() throws ContentTranslatorException {
+		SimpleContext ctx = new SimpleContext("locale", "fr_CA");
+		new TemplateContentTranslator(parser, PATH_RESOLVER).translate(new TemplateContent("template", ctx));
+		Assert.assertSame(ctx, parser.ctx);
+		new TemplateContentTranslator(parser, PATH_RESOLVER, false, new ContextLanguageResolver()).translate(new TemplateContent("template", new SimpleContext("name", "foo")));
+		Assert.assertFalse("context without locale should not be wrapped", parser.ctx instanceof LocaleContext);
+	}
+
+	@Test
+	public void localeResolvedOnce() throws ContentTranslatorException {
+		final int[] resolutions = { 0 };
+		LanguageResolver languageResolver = new LanguageResolver() {
+			@Override
+			public Locale getLocale(Context ctx) throws ContextException {
+				resolutions[0]++;
+				return Locale.FRENCH;
+			}
+		};
+		final Locale[] pathLocale = { null };
+		LocalizedVariantResolver variantResolver = new LocalizedVariantResolver() {
+			@Override
+			public String getRealPath(TemplateContent template) throws VariantResolutionException {
+				throw new AssertionError("locale should be provided");
+			}
+
+			@Override
+			public String getRealPath(TemplateContent template, Locale locale) throws VariantResolutionException {
+				pathLocale[0] = locale;
+				return template.getPath();
+			}
+		};
+		new TemplateContentTranslator(parser, variantResolver, false, languageResolver).translate(new TemplateContent("template", new SimpleContext("name", "foo")));
+		Assert.assertEquals("locale should be resolved once", 1, resolutions[0]);
+		Assert.assertEquals(Locale.FRENCH, pathLocale[0]);
+		Assert.assertEquals(Locale.FRENCH, ((LocaleContext) parser.ctx).getLocale());
+	}
+
+	private static class RecordingParser implements TemplateParser {
+		private Context ctx;
+
+		@Override
+		public Content parse(String templateName, Context ctx) throws ParseException {
+			this.ctx = ctx;
+			return new StringContent(templateName);
+		}
+	}
+}
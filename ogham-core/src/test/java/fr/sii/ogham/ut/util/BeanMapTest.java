@@ -0,0 +1,72 @@
+package fr.sii.ogham.ut.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import fr.sii.ogham.core.exception.util.FieldAccessException;
+import fr.sii.ogham.core.util.bean.BeanMap;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class BeanMapTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Test
+	public void onlyReadPropertiesCalled() {
+		CountingBean bean = new CountingBean();
+		Map<String, Object> map = new BeanMap(bean);
+		Assert.assertEquals("getters should not be called on creation", 0, bean.nameCalls + bean.valueCalls);
+		Assert.assertEquals(3, map.size());
+		Assert.assertTrue(map.containsKey("value"));
+		Assert.assertFalse(map.containsKey("class"));
+		Assert.assertEquals("foo", map.get("name"));
+		Assert.assertEquals("foo", map.get("name"));
+		Assert.assertEquals("getter should be called once", 1, bean.nameCalls);
+		Assert.assertEquals("unused getter should not be called", 0, bean.valueCalls);
+		Assert.assertNull(map.get("unknown"));
+	}
+
+	@Test
+	public void copied() {
+		Map<String, Object> copy = new HashMap<>(new BeanMap(new CountingBean()));
+		Assert.assertEquals("foo", copy.get("name"));
+		Assert.assertEquals(42, copy.get("value"));
+		Assert.assertTrue(copy.containsKey("nothing"));
+		Assert.assertNull(copy.get("nothing"));
+	}
+
+	@Test(expected = FieldAccessException.class)
+	public void failingGetter() {
+		new BeanMap(new FailingBean()).get("value");
+	}
+
+	public static class CountingBean {
+		private int nameCalls;
+		private int valueCalls;
+
+		public String getName() {
+			nameCalls++;
+			return "foo";
+		}
+
+		public int getValue() {
+			valueCalls++;
+			return 42;
+		}
+
+		public Object getNothing() {
+			return null;
+		}
+	}
+
+	private static class FailingBean {
+		@SuppressWarnings("unused")
+		public String getValue() {
+			throw new IllegalStateException("failure");
+		}
+	}
+}
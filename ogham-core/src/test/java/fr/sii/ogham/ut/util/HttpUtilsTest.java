@@ -0,0 +1,35 @@
+package fr.sii.ogham.ut.util;
+
+import static java.util.Arrays.asList;
+
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import fr.sii.ogham.core.util.HttpUtils;
+import fr.sii.ogham.core.util.http.Parameter;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class HttpUtilsTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Test
+	public void noParameter() {
+		Assert.assertEquals("http://localhost/path", HttpUtils.buildUrl("http://localhost/path", Collections.<Parameter> emptyList()));
+	}
+
+	@Test
+	public void specialCharacters() {
+		Assert.assertEquals("http://localhost/path?to=%2B33601020304&message=hello%20world%20%C3%A9%26%3D~",
+				HttpUtils.buildUrl("http://localhost/path", asList(new Parameter("to", "+33601020304"), new Parameter("message", "hello world é&=~"))));
+	}
+
+	@Test
+	public void existingQueryString() {
+		Assert.assertEquals("http://localhost/path?a=1&b=2",
+				HttpUtils.buildUrl("http://localhost/path?a=1", asList(new Parameter("b", "2"), new Parameter("c", null))));
+	}
+}
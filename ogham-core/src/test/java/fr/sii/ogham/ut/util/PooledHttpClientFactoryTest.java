@@ -0,0 +1,94 @@
+package fr.sii.ogham.ut.util;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+
+import fr.sii.ogham.core.util.http.PooledHttpClientFactory;
+import fr.sii.ogham.helper.rule.LoggingTestRule;
+
+public class PooledHttpClientFactoryTest {
+	@Rule
+	public final LoggingTestRule loggingRule = new LoggingTestRule();
+
+	@Rule
+	public WireMockRule serverRule = new WireMockRule(8079);
+
+	private CloseableHttpClient client;
+
+	@Before
+	public void setUp() {
+		serverRule.stubFor(get(urlPathEqualTo("/ok")).willReturn(aResponse().withStatus(200).withBody("ok")));
+		serverRule.stubFor(get(urlPathEqualTo("/slow")).willReturn(aResponse().withStatus(200).withBody("ok").withFixedDelay(2000)));
+		client = new PooledHttpClientFactory(1, 1, 30000, 300, 300).create();
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		client.close();
+	}
+
+	@Test
+	public void connectionReused() throws IOException {
+		String first = getConnectionId("/ok");
+		Assert.assertEquals("connection should be kept alive and reused", first, getConnectionId("/ok"));
+		Assert.assertEquals(first, getConnectionId("/ok"));
+	}
+
+	@Test(expected = SocketTimeoutException.class)
+	public void readTimeout() throws IOException {
+		client.execute(new HttpGet(url("/slow"))).close();
+	}
+
+	@Test
+	public void poolWaitTimeout() throws IOException {
+		try (CloseableHttpResponse leased = client.execute(new HttpGet(url("/ok")))) {
+			long start = System.currentTimeMillis();
+			try {
+				client.execute(new HttpGet(url("/ok"))).close();
+				Assert.fail("ConnectionPoolTimeoutException expected");
+			} catch (ConnectionPoolTimeoutException e) {
+				Assert.assertTrue("should wait at most the connect timeout", System.currentTimeMillis() - start < 2000);
+			}
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void closeReleasesPool() throws IOException {
+		getConnectionId("/ok");
+		client.close();
+		client.execute(new HttpGet(url("/ok"))).close();
+	}
+
+	private String getConnectionId(String path) throws IOException {
+		HttpClientContext context = HttpClientContext.create();
+		try (CloseableHttpResponse response = client.execute(new HttpGet(url(path)), context)) {
+			// the connection is leased until the response is consumed
+			String id = context.getConnection(ManagedHttpClientConnection.class).getId();
+			Assert.assertEquals("ok", EntityUtils.toString(response.getEntity()));
+			return id;
+		}
+	}
+
+	private String url(String path) {
+		return "http://localhost:" + serverRule.port() + path;
+	}
+}